@@ -200,11 +200,23 @@ whereClause
     ;
 
 showWhereClause
-    : WHERE (property | containsExpression)
+    : WHERE tagExpression (OPERATOR_AND tagExpression)*
+    ;
+tagExpression
+    : property
+    | containsExpression
+    | startsWithExpression
+    | tagComparison
     ;
 containsExpression
     : name=ID OPERATOR_CONTAINS value=propertyValue
     ;
+startsWithExpression
+    : name=ID OPERATOR_STARTSWITH value=propertyValue
+    ;
+tagComparison
+    : name=ID type=(OPERATOR_GT | OPERATOR_GTE | OPERATOR_LT | OPERATOR_LTE) value=propertyValue
+    ;
 
 orExpression
     : andExpression (OPERATOR_OR andExpression)*
@@ -1226,6 +1238,10 @@ OPERATOR_CONTAINS
     : C O N T A I N S
     ;
 
+OPERATOR_STARTSWITH
+    : S T A R T S W I T H
+    ;
+
 MINUS : '-';
 
 PLUS : '+';
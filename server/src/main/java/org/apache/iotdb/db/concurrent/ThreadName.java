@@ -35,15 +35,21 @@ public enum ThreadName {
   FLUSH_SERVICE("Flush-ServerServiceImpl"),
   FLUSH_SUB_TASK_SERVICE("Flush-SubTask-ServerServiceImpl"),
   COMPACTION_SERVICE("Compaction-ServerServiceImpl"),
+  COMPACTION_SCHEDULER("Compaction-Scheduler"),
   WAL_DAEMON("IoTDB-MultiFileLogNodeManager-Sync-Thread"),
   WAL_FORCE_DAEMON("IoTDB-MultiFileLogNodeManager-Force-Thread"),
+  WAL_GROUP_COMMIT("IoTDB-WAL-GroupCommit-Thread"),
   INDEX_SERVICE("Index-ServerServiceImpl"),
   SYNC_CLIENT("Sync-Client"),
   SYNC_SERVER("Sync-Server"),
   SYNC_MONITOR("Sync-Monitor"),
   LOAD_TSFILE("Load TsFile"),
+  PREPARE_TSFILE("Prepare TsFile"),
   TIME_COST_STATSTIC("TIME_COST_STATSTIC"),
-  QUERY_SERVICE("Query-ServerServiceImpl");
+  QUERY_SERVICE("Query-ServerServiceImpl"),
+  MQTT_BATCH_TIMER("MQTT-Batch-Timer"),
+  MQTT_INSERT("MQTT-Insert"),
+  TAG_INDEX_MERGE("Tag-Index-Merge");
 
   private String name;
 
@@ -98,6 +98,29 @@ public class IoTDBConfig {
    */
   private int mqttMaxMessageSize = 1048576;
 
+  /**
+   * the max number of rows of a device buffered before they are inserted as a tablet.
+   */
+  private int mqttBatchSize = 1000;
+
+  /**
+   * the max time in ms the rows of a device are buffered before they are inserted. 0 means the
+   * mqtt messages are inserted one by one without being buffered.
+   */
+  private long mqttBatchIntervalMs = 5;
+
+  /**
+   * the number of threads inserting the buffered mqtt messages, a device is always inserted by
+   * the same thread.
+   */
+  private int mqttInsertThreadNum = 2;
+
+  /**
+   * the max number of batches waiting for an mqtt insert thread, the messages are not accepted
+   * until one of them is taken.
+   */
+  private int mqttInsertQueueSize = 16;
+
 
   /**
    * Rpc binding address.
@@ -202,6 +225,19 @@ public class IoTDBConfig {
    */
   private int walBufferSize = 16 * 1024 * 1024;
 
+  /**
+   * Whether to commit WALs in groups. If enabled, each log node writes and forces the logs of all
+   * concurrent writers in one batch on a dedicated thread and every writer waits until its log is
+   * written, so concurrent insertions share one fsync when force_wal_period_in_ms = 0.
+   */
+  private boolean enableWalGroupCommit = false;
+
+  /**
+   * Number of log buffers (each of wal_buffer_size bytes) in the buffer ring of a log node when
+   * WAL group commit is enabled, at least 2.
+   */
+  private int walGroupCommitBufferNum = 2;
+
   private int estimatedSeriesSize = 300;
 
   /**
@@ -261,11 +297,34 @@ public class IoTDBConfig {
    */
   private int concurrentFlushThread = Runtime.getRuntime().availableProcessors();
 
+  /**
+   * How many threads encode the chunks of one memtable in parallel when flushing it.
+   */
+  private int flushEncodingThreadNum = 1;
+
+  /**
+   * Max bytes of the chunks which are being encoded or waiting to be written when flushing a
+   * memtable. The sorting of the memtable waits when it is exceeded. Unlimited if it is <= 0.
+   */
+  private long flushPipelineBufferSize = 64 * 1024 * 1024L;
+
   /**
    * How many threads can concurrently query. When <= 0, use CPU core number.
    */
   private int concurrentQueryThread = Runtime.getRuntime().availableProcessors();
 
+  /**
+   * How many series of an aggregation query can be aggregated concurrently in the query thread
+   * pool. When <= 0, use concurrentQueryThread.
+   */
+  private int maxAggregationParallelism = 4;
+
+  /**
+   * An aggregation query without GROUP BY is cancelled when it runs longer than this in
+   * milliseconds, other queries do not check it. When <= 0, never timeout.
+   */
+  private long queryTimeoutThreshold = 0;
+
   /**
    * Is the write mem control for writing enable.
    */
@@ -298,6 +357,8 @@ public class IoTDBConfig {
   /**
    * Works when the compaction_strategy is LEVEL_COMPACTION.
    * When point number of a page reaches this, use "append merge" instead of "deserialize merge".
+   * When the chunks of a series in sequence files do not overlap, the chunks with fewer points
+   * than this are coalesced and the others are copied as they are.
    */
   private int mergePagePointNumberThreshold = 100;
 
@@ -360,6 +421,11 @@ public class IoTDBConfig {
    */
   private long allocateMemoryForChunkCache = allocateMemoryForRead / 10;
 
+  /**
+   * Direct memory allocated for caching the compressed data of chunks out of heap, 0 to disable
+   */
+  private long allocateMemoryForOffHeapChunkCache = 0;
+
   /**
    * Whether to enable Last cache
    */
@@ -389,6 +455,18 @@ public class IoTDBConfig {
    */
   private int mManagerCacheSize = 300000;
 
+  /**
+   * Whether to page the measurements of the devices out of memory to a file in the schema dir, so
+   * that the schema of a huge number of timeseries does not have to fit in the heap.
+   */
+  private boolean enableSchemaPaging = false;
+
+  /**
+   * The max number of devices whose measurements are kept in memory when the schema is paged, the
+   * least recently used ones are paged out when there are more.
+   */
+  private int schemaPagingCacheSize = 100000;
+
   /**
    * Cache size of {@code checkAndGetDataTypeCache} in {@link MManager}.
    */
@@ -413,6 +491,11 @@ public class IoTDBConfig {
    * If this IoTDB instance is a receiver of sync, set the server port.
    */
   private int syncServerPort = 5555;
+  /**
+   * How many threads move the tsfiles received by sync into the data folders in parallel. The
+   * files are still loaded in the order they are received.
+   */
+  private int concurrentSyncLoadThread = 4;
   /**
    * Set the language version when loading file including error information, default value is "EN"
    */
@@ -443,11 +526,6 @@ public class IoTDBConfig {
    * The display of stat performance interval in ms.
    */
   private long performanceStatDisplayInterval = 60000;
-
-  /**
-   * The memory used for stat performance.
-   */
-  private int performanceStatMemoryInKB = 20;
   /**
    * whether use chunkBufferPool.
    */
@@ -597,6 +675,44 @@ public class IoTDBConfig {
    */
   private int compactionThreadNum = 10;
 
+  /**
+   * How many series of a device are merged concurrently in a compaction task, the compaction
+   * thread itself included. Merge the series one by one when it is less than or equal to 1.
+   */
+  private int compactionSeriesParallelism = 4;
+
+  /**
+   * The max number of series in a device whose chunk metadata are loaded at once in a compaction
+   * task, so a device with a huge number of series does not use up the memory.
+   */
+  private int compactionSeriesBatchSize = 1000;
+
+  /**
+   * Whether to adjust the compaction concurrency and write throughput according to the foreground
+   * load, i.e., the pending flush tasks, the query latency and the memory used by writing.
+   */
+  private boolean enableAdaptiveCompaction = true;
+
+  /**
+   * The interval in ms to adjust the compaction concurrency and write throughput.
+   */
+  private long adaptiveCompactionIntervalMs = 1000;
+
+  /**
+   * The average query latency in ms at which compaction is throttled to the least.
+   */
+  private long adaptiveCompactionQueryLatencyThresholdMs = 1000;
+
+  /**
+   * The write throughput of compaction under the heaviest foreground load.
+   */
+  private int adaptiveCompactionMinWriteThroughputMbPerSec = 2;
+
+  /**
+   * The write throughput of compaction when there is no foreground load.
+   */
+  private int adaptiveCompactionMaxWriteThroughputMbPerSec = 64;
+
   private MergeFileStrategy mergeFileStrategy = MergeFileStrategy.MAX_SERIES_NUM;
 
   /**
@@ -721,6 +837,9 @@ public class IoTDBConfig {
   // max size for tag and attribute of one time series
   private int tagAttributeTotalSize = 700;
 
+  // number of tag changes kept in memory before they are written as a new run of the tag index
+  private int tagIndexFlushThreshold = 100000;
+
   // In one insert (one device, one timestamp, multiple measurements),
   // if enable partial insert, one measurement failure will not impact other measurements
   private boolean enablePartialInsert = true;
@@ -767,7 +886,7 @@ public class IoTDBConfig {
     return concurrentWritingTimePartition;
   }
 
-  void setConcurrentWritingTimePartition(int concurrentWritingTimePartition) {
+  public void setConcurrentWritingTimePartition(int concurrentWritingTimePartition) {
     this.concurrentWritingTimePartition = concurrentWritingTimePartition;
   }
 
@@ -1061,6 +1180,22 @@ public class IoTDBConfig {
     this.concurrentFlushThread = concurrentFlushThread;
   }
 
+  public int getFlushEncodingThreadNum() {
+    return flushEncodingThreadNum;
+  }
+
+  public void setFlushEncodingThreadNum(int flushEncodingThreadNum) {
+    this.flushEncodingThreadNum = flushEncodingThreadNum;
+  }
+
+  public long getFlushPipelineBufferSize() {
+    return flushPipelineBufferSize;
+  }
+
+  public void setFlushPipelineBufferSize(long flushPipelineBufferSize) {
+    this.flushPipelineBufferSize = flushPipelineBufferSize;
+  }
+
   public int getConcurrentQueryThread() {
     return concurrentQueryThread;
   }
@@ -1069,6 +1204,22 @@ public class IoTDBConfig {
     this.concurrentQueryThread = concurrentQueryThread;
   }
 
+  public int getMaxAggregationParallelism() {
+    return maxAggregationParallelism;
+  }
+
+  public void setMaxAggregationParallelism(int maxAggregationParallelism) {
+    this.maxAggregationParallelism = maxAggregationParallelism;
+  }
+
+  public long getQueryTimeoutThreshold() {
+    return queryTimeoutThreshold;
+  }
+
+  public void setQueryTimeoutThreshold(long queryTimeoutThreshold) {
+    this.queryTimeoutThreshold = queryTimeoutThreshold;
+  }
+
   public long getTsFileSizeThreshold() {
     return tsFileSizeThreshold;
   }
@@ -1125,6 +1276,22 @@ public class IoTDBConfig {
     this.mManagerCacheSize = mManagerCacheSize;
   }
 
+  public boolean isEnableSchemaPaging() {
+    return enableSchemaPaging;
+  }
+
+  public void setEnableSchemaPaging(boolean enableSchemaPaging) {
+    this.enableSchemaPaging = enableSchemaPaging;
+  }
+
+  public int getSchemaPagingCacheSize() {
+    return schemaPagingCacheSize;
+  }
+
+  public void setSchemaPagingCacheSize(int schemaPagingCacheSize) {
+    this.schemaPagingCacheSize = schemaPagingCacheSize;
+  }
+
   public int getmRemoteSchemaCacheSize() {
     return mRemoteSchemaCacheSize;
   }
@@ -1149,6 +1316,14 @@ public class IoTDBConfig {
     this.syncServerPort = syncServerPort;
   }
 
+  public int getConcurrentSyncLoadThread() {
+    return concurrentSyncLoadThread;
+  }
+
+  void setConcurrentSyncLoadThread(int concurrentSyncLoadThread) {
+    this.concurrentSyncLoadThread = concurrentSyncLoadThread;
+  }
+
   String getLanguageVersion() {
     return languageVersion;
   }
@@ -1197,6 +1372,22 @@ public class IoTDBConfig {
     this.walBufferSize = walBufferSize;
   }
 
+  public boolean isEnableWalGroupCommit() {
+    return enableWalGroupCommit;
+  }
+
+  public void setEnableWalGroupCommit(boolean enableWalGroupCommit) {
+    this.enableWalGroupCommit = enableWalGroupCommit;
+  }
+
+  public int getWalGroupCommitBufferNum() {
+    return walGroupCommitBufferNum;
+  }
+
+  public void setWalGroupCommitBufferNum(int walGroupCommitBufferNum) {
+    this.walGroupCommitBufferNum = walGroupCommitBufferNum;
+  }
+
   public int getEstimatedSeriesSize() {
     return estimatedSeriesSize;
   }
@@ -1349,14 +1540,6 @@ public class IoTDBConfig {
     this.performanceStatDisplayInterval = performanceStatDisplayInterval;
   }
 
-  public int getPerformanceStatMemoryInKB() {
-    return performanceStatMemoryInKB;
-  }
-
-  void setPerformanceStatMemoryInKB(int performanceStatMemoryInKB) {
-    this.performanceStatMemoryInKB = performanceStatMemoryInKB;
-  }
-
   public boolean isEnablePartialInsert() {
     return enablePartialInsert;
   }
@@ -1381,6 +1564,67 @@ public class IoTDBConfig {
     this.compactionThreadNum = compactionThreadNum;
   }
 
+  public int getCompactionSeriesParallelism() {
+    return compactionSeriesParallelism;
+  }
+
+  public void setCompactionSeriesParallelism(int compactionSeriesParallelism) {
+    this.compactionSeriesParallelism = compactionSeriesParallelism;
+  }
+
+  public int getCompactionSeriesBatchSize() {
+    return compactionSeriesBatchSize;
+  }
+
+  public void setCompactionSeriesBatchSize(int compactionSeriesBatchSize) {
+    this.compactionSeriesBatchSize = compactionSeriesBatchSize;
+  }
+
+  public boolean isEnableAdaptiveCompaction() {
+    return enableAdaptiveCompaction;
+  }
+
+  public void setEnableAdaptiveCompaction(boolean enableAdaptiveCompaction) {
+    this.enableAdaptiveCompaction = enableAdaptiveCompaction;
+  }
+
+  public long getAdaptiveCompactionIntervalMs() {
+    return adaptiveCompactionIntervalMs;
+  }
+
+  public void setAdaptiveCompactionIntervalMs(long adaptiveCompactionIntervalMs) {
+    this.adaptiveCompactionIntervalMs = adaptiveCompactionIntervalMs;
+  }
+
+  public long getAdaptiveCompactionQueryLatencyThresholdMs() {
+    return adaptiveCompactionQueryLatencyThresholdMs;
+  }
+
+  public void setAdaptiveCompactionQueryLatencyThresholdMs(
+      long adaptiveCompactionQueryLatencyThresholdMs) {
+    this.adaptiveCompactionQueryLatencyThresholdMs = adaptiveCompactionQueryLatencyThresholdMs;
+  }
+
+  public int getAdaptiveCompactionMinWriteThroughputMbPerSec() {
+    return adaptiveCompactionMinWriteThroughputMbPerSec;
+  }
+
+  public void setAdaptiveCompactionMinWriteThroughputMbPerSec(
+      int adaptiveCompactionMinWriteThroughputMbPerSec) {
+    this.adaptiveCompactionMinWriteThroughputMbPerSec =
+        adaptiveCompactionMinWriteThroughputMbPerSec;
+  }
+
+  public int getAdaptiveCompactionMaxWriteThroughputMbPerSec() {
+    return adaptiveCompactionMaxWriteThroughputMbPerSec;
+  }
+
+  public void setAdaptiveCompactionMaxWriteThroughputMbPerSec(
+      int adaptiveCompactionMaxWriteThroughputMbPerSec) {
+    this.adaptiveCompactionMaxWriteThroughputMbPerSec =
+        adaptiveCompactionMaxWriteThroughputMbPerSec;
+  }
+
   public int getMergeWriteThroughputMbPerSec() {
     return mergeWriteThroughputMbPerSec;
   }
@@ -1545,6 +1789,14 @@ public class IoTDBConfig {
     this.allocateMemoryForChunkCache = allocateMemoryForChunkCache;
   }
 
+  public long getAllocateMemoryForOffHeapChunkCache() {
+    return allocateMemoryForOffHeapChunkCache;
+  }
+
+  public void setAllocateMemoryForOffHeapChunkCache(long allocateMemoryForOffHeapChunkCache) {
+    this.allocateMemoryForOffHeapChunkCache = allocateMemoryForOffHeapChunkCache;
+  }
+
   public boolean isLastCacheEnabled() {
     return lastCacheEnable;
   }
@@ -1946,6 +2198,38 @@ public class IoTDBConfig {
     this.mqttMaxMessageSize = mqttMaxMessageSize;
   }
 
+  public int getMqttBatchSize() {
+    return mqttBatchSize;
+  }
+
+  public void setMqttBatchSize(int mqttBatchSize) {
+    this.mqttBatchSize = mqttBatchSize;
+  }
+
+  public long getMqttBatchIntervalMs() {
+    return mqttBatchIntervalMs;
+  }
+
+  public void setMqttBatchIntervalMs(long mqttBatchIntervalMs) {
+    this.mqttBatchIntervalMs = mqttBatchIntervalMs;
+  }
+
+  public int getMqttInsertThreadNum() {
+    return mqttInsertThreadNum;
+  }
+
+  public void setMqttInsertThreadNum(int mqttInsertThreadNum) {
+    this.mqttInsertThreadNum = mqttInsertThreadNum;
+  }
+
+  public int getMqttInsertQueueSize() {
+    return mqttInsertQueueSize;
+  }
+
+  public void setMqttInsertQueueSize(int mqttInsertQueueSize) {
+    this.mqttInsertQueueSize = mqttInsertQueueSize;
+  }
+
   public int getTagAttributeTotalSize() {
     return tagAttributeTotalSize;
   }
@@ -1954,6 +2238,14 @@ public class IoTDBConfig {
     this.tagAttributeTotalSize = tagAttributeTotalSize;
   }
 
+  public int getTagIndexFlushThreshold() {
+    return tagIndexFlushThreshold;
+  }
+
+  public void setTagIndexFlushThreshold(int tagIndexFlushThreshold) {
+    this.tagIndexFlushThreshold = tagIndexFlushThreshold;
+  }
+
   public int getPrimitiveArraySize() {
     return primitiveArraySize;
   }
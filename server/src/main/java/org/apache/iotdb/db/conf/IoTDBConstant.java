@@ -110,4 +110,8 @@ public class IoTDBConstant {
   public static final String MQTT_HANDLER_POOL_SIZE_NAME = "mqtt_handler_pool_size";
   public static final String MQTT_PAYLOAD_FORMATTER_NAME = "mqtt_payload_formatter";
   public static final String MQTT_MAX_MESSAGE_SIZE = "mqtt_max_message_size";
+  public static final String MQTT_BATCH_SIZE_NAME = "mqtt_batch_size";
+  public static final String MQTT_BATCH_INTERVAL_MS_NAME = "mqtt_batch_interval_ms";
+  public static final String MQTT_INSERT_THREAD_NUM_NAME = "mqtt_insert_thread_num";
+  public static final String MQTT_INSERT_QUEUE_SIZE_NAME = "mqtt_insert_queue_size";
 }
@@ -219,6 +219,10 @@ public class IoTDBDescriptor {
       conf.setEnableLastCache(Boolean.parseBoolean(properties.getProperty("enable_last_cache",
           Boolean.toString(conf.isLastCacheEnabled()))));
 
+      conf.setAllocateMemoryForOffHeapChunkCache(Long.parseLong(
+          properties.getProperty("allocate_memory_for_off_heap_chunk_cache",
+              Long.toString(conf.getAllocateMemoryForOffHeapChunkCache())).trim()));
+
       initMemoryAllocate(properties);
 
       loadWALProps(properties);
@@ -254,6 +258,17 @@ public class IoTDBDescriptor {
         conf.setWalBufferSize(walBufferSize);
       }
 
+      conf.setEnableWalGroupCommit(Boolean.parseBoolean(properties
+          .getProperty("enable_wal_group_commit",
+              Boolean.toString(conf.isEnableWalGroupCommit()))));
+
+      int walGroupCommitBufferNum = Integer.parseInt(properties
+          .getProperty("wal_group_commit_buffer_num",
+              Integer.toString(conf.getWalGroupCommitBufferNum())));
+      if (walGroupCommitBufferNum >= 2) {
+        conf.setWalGroupCommitBufferNum(walGroupCommitBufferNum);
+      }
+
       conf.setMultiDirStrategyClassName(properties.getProperty("multi_dir_strategy",
           conf.getMultiDirStrategyClassName()));
 
@@ -337,6 +352,13 @@ public class IoTDBDescriptor {
 
       conf.setIpWhiteList(properties.getProperty("ip_white_list", conf.getIpWhiteList()));
 
+      conf.setConcurrentSyncLoadThread(Integer
+          .parseInt(properties.getProperty("concurrent_sync_load_thread",
+              Integer.toString(conf.getConcurrentSyncLoadThread())).trim()));
+      if (conf.getConcurrentSyncLoadThread() <= 0) {
+        conf.setConcurrentSyncLoadThread(Runtime.getRuntime().availableProcessors());
+      }
+
       conf.setConcurrentFlushThread(Integer
           .parseInt(properties.getProperty("concurrent_flush_thread",
               Integer.toString(conf.getConcurrentFlushThread()))));
@@ -345,6 +367,18 @@ public class IoTDBDescriptor {
         conf.setConcurrentFlushThread(Runtime.getRuntime().availableProcessors());
       }
 
+      conf.setFlushEncodingThreadNum(Integer
+          .parseInt(properties.getProperty("flush_encoding_thread_num",
+              Integer.toString(conf.getFlushEncodingThreadNum())).trim()));
+
+      if (conf.getFlushEncodingThreadNum() <= 0) {
+        conf.setFlushEncodingThreadNum(Runtime.getRuntime().availableProcessors());
+      }
+
+      conf.setFlushPipelineBufferSize(Long
+          .parseLong(properties.getProperty("flush_pipeline_buffer_size",
+              Long.toString(conf.getFlushPipelineBufferSize())).trim()));
+
       conf.setConcurrentQueryThread(Integer
           .parseInt(properties.getProperty("concurrent_query_thread",
               Integer.toString(conf.getConcurrentQueryThread()))));
@@ -353,10 +387,30 @@ public class IoTDBDescriptor {
         conf.setConcurrentQueryThread(Runtime.getRuntime().availableProcessors());
       }
 
+      conf.setMaxAggregationParallelism(Integer
+          .parseInt(properties.getProperty("max_aggregation_parallelism",
+              Integer.toString(conf.getMaxAggregationParallelism()))));
+
+      if (conf.getMaxAggregationParallelism() <= 0) {
+        conf.setMaxAggregationParallelism(conf.getConcurrentQueryThread());
+      }
+
+      conf.setQueryTimeoutThreshold(Long.parseLong(properties
+          .getProperty("query_timeout_threshold",
+              Long.toString(conf.getQueryTimeoutThreshold()))));
+
       conf.setmManagerCacheSize(Integer
           .parseInt(properties.getProperty("metadata_node_cache_size",
               Integer.toString(conf.getmManagerCacheSize())).trim()));
 
+      conf.setEnableSchemaPaging(Boolean.parseBoolean(properties
+          .getProperty("enable_schema_paging", Boolean.toString(conf.isEnableSchemaPaging()))
+          .trim()));
+
+      conf.setSchemaPagingCacheSize(Integer.parseInt(properties
+          .getProperty("schema_paging_cache_size",
+              Integer.toString(conf.getSchemaPagingCacheSize())).trim()));
+
       conf.setmRemoteSchemaCacheSize(Integer
           .parseInt(properties.getProperty("remote_schema_cache_size",
               Integer.toString(conf.getmRemoteSchemaCacheSize())).trim()));
@@ -394,9 +448,46 @@ public class IoTDBDescriptor {
           Boolean.toString(conf.isForceFullMerge()))));
       conf.setCompactionThreadNum(Integer.parseInt(properties.getProperty(
           "compaction_thread_num", Integer.toString(conf.getCompactionThreadNum()))));
+      conf.setCompactionSeriesParallelism(Integer.parseInt(properties.getProperty(
+          "compaction_series_parallelism",
+          Integer.toString(conf.getCompactionSeriesParallelism()))));
+      int compactionSeriesBatchSize = Integer.parseInt(properties.getProperty(
+          "compaction_series_batch_size", Integer.toString(conf.getCompactionSeriesBatchSize())));
+      if (compactionSeriesBatchSize > 0) {
+        conf.setCompactionSeriesBatchSize(compactionSeriesBatchSize);
+      }
       conf.setMergeWriteThroughputMbPerSec(Integer.parseInt(properties.getProperty(
           "merge_write_throughput_mb_per_sec",
           Integer.toString(conf.getMergeWriteThroughputMbPerSec()))));
+      conf.setEnableAdaptiveCompaction(Boolean.parseBoolean(properties.getProperty(
+          "enable_adaptive_compaction", Boolean.toString(conf.isEnableAdaptiveCompaction()))));
+      long adaptiveCompactionIntervalMs = Long.parseLong(properties.getProperty(
+          "adaptive_compaction_interval_ms",
+          Long.toString(conf.getAdaptiveCompactionIntervalMs())));
+      if (adaptiveCompactionIntervalMs > 0) {
+        conf.setAdaptiveCompactionIntervalMs(adaptiveCompactionIntervalMs);
+      }
+      long adaptiveCompactionQueryLatencyThresholdMs = Long.parseLong(properties.getProperty(
+          "adaptive_compaction_query_latency_threshold_ms",
+          Long.toString(conf.getAdaptiveCompactionQueryLatencyThresholdMs())));
+      if (adaptiveCompactionQueryLatencyThresholdMs > 0) {
+        conf.setAdaptiveCompactionQueryLatencyThresholdMs(
+            adaptiveCompactionQueryLatencyThresholdMs);
+      }
+      int adaptiveCompactionMinWriteThroughput = Integer.parseInt(properties.getProperty(
+          "adaptive_compaction_min_write_throughput_mb_per_sec",
+          Integer.toString(conf.getAdaptiveCompactionMinWriteThroughputMbPerSec())));
+      if (adaptiveCompactionMinWriteThroughput > 0) {
+        conf.setAdaptiveCompactionMinWriteThroughputMbPerSec(adaptiveCompactionMinWriteThroughput);
+      }
+      int adaptiveCompactionMaxWriteThroughput = Integer.parseInt(properties.getProperty(
+          "adaptive_compaction_max_write_throughput_mb_per_sec",
+          Integer.toString(conf.getAdaptiveCompactionMaxWriteThroughputMbPerSec())));
+      if (adaptiveCompactionMaxWriteThroughput > 0) {
+        conf.setAdaptiveCompactionMaxWriteThroughputMbPerSec(
+            Math.max(adaptiveCompactionMaxWriteThroughput,
+                conf.getAdaptiveCompactionMinWriteThroughputMbPerSec()));
+      }
 
       conf.setEnablePartialInsert(
           Boolean.parseBoolean(properties.getProperty("enable_partial_insert",
@@ -421,10 +512,6 @@ public class IoTDBDescriptor {
       conf.setPerformanceStatDisplayInterval(Long
           .parseLong(properties.getProperty("performance_stat_display_interval",
               Long.toString(conf.getPerformanceStatDisplayInterval())).trim()));
-      conf.setPerformanceStatMemoryInKB(Integer
-          .parseInt(properties.getProperty("performance_stat_memory_in_kb",
-              Integer.toString(conf.getPerformanceStatMemoryInKB())).trim()));
-
       int maxConcurrentClientNum = Integer.parseInt(properties.
           getProperty("rpc_max_concurrent_client_num",
               Integer.toString(conf.getRpcMaxConcurrentClientNum()).trim()));
@@ -494,6 +581,10 @@ public class IoTDBDescriptor {
           Integer.parseInt(properties.getProperty("tag_attribute_total_size",
               String.valueOf(conf.getTagAttributeTotalSize())))
       );
+      conf.setTagIndexFlushThreshold(
+          Integer.parseInt(properties.getProperty("tag_index_flush_threshold",
+              String.valueOf(conf.getTagIndexFlushThreshold())))
+      );
       conf.setPrimitiveArraySize((Integer.parseInt(
           properties.getProperty(
               "primitive_array_size", String.valueOf(conf.getPrimitiveArraySize())))));
@@ -537,6 +628,22 @@ public class IoTDBDescriptor {
         conf.setMqttMaxMessageSize(
             Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_MAX_MESSAGE_SIZE)));
       }
+      if (properties.getProperty(IoTDBConstant.MQTT_BATCH_SIZE_NAME) != null) {
+        conf.setMqttBatchSize(
+            Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_BATCH_SIZE_NAME)));
+      }
+      if (properties.getProperty(IoTDBConstant.MQTT_BATCH_INTERVAL_MS_NAME) != null) {
+        conf.setMqttBatchIntervalMs(
+            Long.parseLong(properties.getProperty(IoTDBConstant.MQTT_BATCH_INTERVAL_MS_NAME)));
+      }
+      if (properties.getProperty(IoTDBConstant.MQTT_INSERT_THREAD_NUM_NAME) != null) {
+        conf.setMqttInsertThreadNum(
+            Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_INSERT_THREAD_NUM_NAME)));
+      }
+      if (properties.getProperty(IoTDBConstant.MQTT_INSERT_QUEUE_SIZE_NAME) != null) {
+        conf.setMqttInsertQueueSize(
+            Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_INSERT_QUEUE_SIZE_NAME)));
+      }
 
       conf.setAuthorizerProvider(properties.getProperty("authorizer_provider_class",
           "org.apache.iotdb.db.auth.authorizer.LocalFileAuthorizer"));
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.cost.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram is a lock-free histogram of non-negative long values in the way of HdrHistogram: the
+ * values in [0, 2 * SUB_BUCKET_NUM) are counted exactly, and each larger range [2^k, 2^(k+1)) is
+ * split into SUB_BUCKET_NUM linear sub-buckets. So a reported percentile is larger than the real
+ * one by at most 1 / SUB_BUCKET_NUM (about 3%) of it, for any value from 1 to Long.MAX_VALUE, with
+ * a fixed footprint of about 15KB.
+ *
+ * Recording a value is a few atomic increments without any lock or allocation, and the statistics
+ * can be read while values are recorded, in which case they may be slightly inconsistent with each
+ * other.
+ */
+public class Histogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+
+  private static final int SUB_BUCKET_NUM = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * the shift of the values in [2^k, 2^(k+1)) is k - SUB_BUCKET_BITS, which is 0 for the values
+   * less than 2 * SUB_BUCKET_NUM and at most Long.SIZE - 1 - SUB_BUCKET_BITS.
+   */
+  private static final int BUCKET_NUM = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_NUM;
+
+  private final String name;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_NUM);
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAdder sum = new LongAdder();
+
+  private final AtomicLong max = new AtomicLong();
+
+  public Histogram(String name) {
+    this.name = name;
+  }
+
+  public void update(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    buckets.incrementAndGet(bucketIndex(value));
+    count.increment();
+    sum.add(value);
+    long currentMax = max.get();
+    while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+      currentMax = max.get();
+    }
+  }
+
+  static int bucketIndex(long value) {
+    int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - 1 - SUB_BUCKET_BITS);
+    // in [SUB_BUCKET_NUM, 2 * SUB_BUCKET_NUM) unless shift is 0
+    int subBucket = (int) (value >>> shift);
+    return (shift << SUB_BUCKET_BITS) + subBucket;
+  }
+
+  /**
+   * @return the largest value counted by the bucket
+   */
+  static long bucketUpperBound(int index) {
+    if (index < 2 * SUB_BUCKET_NUM) {
+      return index;
+    }
+    int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    long subBucket = index - ((long) shift << SUB_BUCKET_BITS);
+    long upperBound = ((subBucket + 1) << shift) - 1;
+    // overflows in the last bucket
+    return upperBound < 0 ? Long.MAX_VALUE : upperBound;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    long cnt = count.sum();
+    return cnt == 0 ? 0 : (double) sum.sum() / cnt;
+  }
+
+  /**
+   * @param percentile in (0, 100]
+   * @return the upper bound of the bucket that the given percentile falls into, or 0 if there is
+   * no value recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    return getValuesAtPercentiles(percentile)[0];
+  }
+
+  /**
+   * get several percentiles by one scan of the buckets.
+   *
+   * @param percentiles in (0, 100] and in ascending order
+   * @return the upper bounds of the buckets that the percentiles fall into, or 0 if there is no
+   * value recorded
+   */
+  public long[] getValuesAtPercentiles(double... percentiles) {
+    long[] values = new long[percentiles.length];
+    long cnt = count.sum();
+    if (cnt == 0) {
+      return values;
+    }
+    long currentMax = max.get();
+    int p = 0;
+    long seen = 0;
+    for (int i = 0; i < BUCKET_NUM && p < percentiles.length; i++) {
+      seen += buckets.get(i);
+      while (p < percentiles.length
+          && seen >= (long) Math.ceil(cnt * Math.min(percentiles[p], 100.0) / 100.0)) {
+        values[p++] = Math.min(bucketUpperBound(i), currentMax);
+      }
+    }
+    // the count is increased after the bucket
+    for (; p < percentiles.length; p++) {
+      values[p] = currentMax;
+    }
+    return values;
+  }
+
+  public void clear() {
+    for (int i = 0; i < BUCKET_NUM; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.set(0);
+  }
+
+  @Override
+  public String toString() {
+    long[] percentiles = getValuesAtPercentiles(50, 99, 99.9);
+    return String.format("%s: count=%d, mean=%.2f, p50=%d, p99=%d, p999=%d, max=%d", name,
+        getCount(), getMean(), percentiles[0], percentiles[1], percentiles[2], getMax());
+  }
+}
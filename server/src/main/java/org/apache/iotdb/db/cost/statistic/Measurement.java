@@ -20,6 +20,7 @@ package org.apache.iotdb.db.cost.statistic;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -35,15 +36,16 @@ import org.apache.iotdb.db.exception.StartupException;
 import org.apache.iotdb.db.service.IService;
 import org.apache.iotdb.db.service.JMXService;
 import org.apache.iotdb.db.service.ServiceType;
+import org.apache.iotdb.db.writelog.WALStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * <p>
- * Measurement is used to record execution time of operations defined in enum class Operation. It
- * can display average time of each operation, and proportion of operation whose execution time fall
- * into time range defined in BUCKET_IN_MS. If you want to change abscissa of histogram, just change
- * the BUCKET_IN_MS array. For recording a operation, you should:
+ * Measurement is used to record execution time of operations defined in enum class Operation. The
+ * latencies of each operation are recorded in microseconds by a lock-free Histogram, which reports
+ * the count, the average time and the percentiles (p50, p90, p99, p999) of the operation. For
+ * recording a operation, you should:
  * 1) add a item in enum class Operation.
  * 2) call <code>startTimeInNano = System.nanoTime()</code> to recode startTime of that operation.
  * 3) call <code>Measurement.INSTANCE.addOperationLatency(operation, startTimeInNano)</code>
@@ -55,60 +57,33 @@ public class Measurement implements MeasurementMBean, IService {
   private static Logger logger = LoggerFactory.getLogger(Measurement.class);
 
   /**
-   * queue for async store time latencies.
+   * the percentiles displayed and exported.
    */
-  private ConcurrentCircularArray[] operationLatenciesQueue;
+  public static final double[] PERCENTILES = {50, 90, 99, 99.9};
 
   /**
-   * size of each queue, this is calculated by memory.
+   * latencies (in microseconds) of each operation.
    */
-  private final int queueSize;
+  private final Histogram[] operationHistograms;
 
   /**
-   * latencies sum of each operation.
-   */
-  private long[] operationLatencies;
-
-  /**
-   * the num of each operation.
-   */
-  private long[] operationCnt;
-
-  /**
-   * abscissa of histogram.
-   */
-  private static final int[] BUCKET_IN_MS = {1, 4, 16, 64, 256, 1024, Integer.MAX_VALUE};
-
-  /**
-   * length of BUCKET_IN_MS.
-   */
-  private static final int BUCKET_SIZE = BUCKET_IN_MS.length;
-
-  /**
-   * the num of operation that execution time falls into time range of BUCKET_IN_MS. The outer array
-   * is each operation, the inner array is each time range in BUCKET_IN_MS.
-   */
-  private long[][] operationHistogram;
-
-  /**
-   * display thread and queue consumer thread.
+   * display thread.
    */
   private ScheduledExecutorService service;
 
   /**
-   * future task of display thread and queue consumer thread.
+   * future task of display thread.
    */
   private ScheduledFuture<?> displayFuture;
-  private ScheduledFuture<?> consumeFuture;
 
   /**
-   * lock for modifying isEnableStat, displayFuture and consumeFuture.
+   * lock for modifying isEnableStat and displayFuture.
    */
   private ReentrantLock stateChangeLock = new ReentrantLock();
 
   public static final Measurement INSTANCE = AsyncMeasurementHolder.MEASUREMENT;
 
-  private boolean isEnableStat;
+  private volatile boolean isEnableStat;
   private long displayIntervalInMs;
   private Map<String, Boolean> operationSwitch;
 
@@ -120,33 +95,26 @@ public class Measurement implements MeasurementMBean, IService {
     IoTDBConfig tdbConfig = IoTDBDescriptor.getInstance().getConfig();
     isEnableStat = tdbConfig.isEnablePerformanceStat();
     displayIntervalInMs = tdbConfig.getPerformanceStatDisplayInterval();
-    int memoryInKb = tdbConfig.getPerformanceStatMemoryInKB();
 
-    queueSize = memoryInKb * 1000 / Operation.values().length / 8;
-    operationLatenciesQueue = new ConcurrentCircularArray[Operation.values().length];
-    operationLatencies = new long[Operation.values().length];
-    operationCnt = new long[Operation.values().length];
+    operationHistograms = new Histogram[Operation.values().length];
     operationSwitch = new HashMap<>(Operation.values().length);
     for (Operation op : Operation.values()) {
-      operationLatenciesQueue[op.ordinal()] = new ConcurrentCircularArray(queueSize);
-      operationCnt[op.ordinal()] = 0;
-      operationLatencies[op.ordinal()] = 0;
+      operationHistograms[op.ordinal()] = new Histogram(op.getName());
       operationSwitch.put(op.getName(), true);
     }
-    operationHistogram = new long[Operation.values().length][BUCKET_SIZE];
-    for (Operation operation : Operation.values()) {
-      for (int i = 0; i < BUCKET_SIZE; i++) {
-        operationHistogram[operation.ordinal()][i] = 0;
-      }
-    }
     logger.info("start measurement stats module...");
     service = IoTDBThreadPoolFactory.newScheduledThreadPool(
-        2, ThreadName.TIME_COST_STATSTIC.getName());
+        1, ThreadName.TIME_COST_STATSTIC.getName());
   }
 
+  /**
+   * @param startTime the start time of the operation by System.nanoTime()
+   * @return whether the latency is recorded
+   */
   public boolean addOperationLatency(Operation op, long startTime) {
     if (isEnableStat && operationSwitch.get(op.getName())) {
-      return operationLatenciesQueue[op.ordinal()].put((System.currentTimeMillis() - startTime));
+      operationHistograms[op.ordinal()].update((System.nanoTime() - startTime) / 1000);
+      return true;
     }
     return false;
   }
@@ -156,14 +124,6 @@ public class Measurement implements MeasurementMBean, IService {
     stateChangeLock.lock();
     try {
       isEnableStat = true;
-      if (consumeFuture != null && !consumeFuture.isCancelled()) {
-        logger.info("The consuming task in measurement stat module is already running...");
-      } else {
-        consumeFuture = service.scheduleWithFixedDelay(
-            new Measurement.DisplayRunnable(), 20, displayIntervalInMs, TimeUnit.MILLISECONDS);
-      }
-    } catch (Exception e) {
-      logger.error("Find error when start performance statistic thread, ", e);
     } finally {
       stateChangeLock.unlock();
     }
@@ -211,9 +171,8 @@ public class Measurement implements MeasurementMBean, IService {
     try {
       isEnableStat = false;
       displayFuture = cancelFuture(displayFuture);
-      consumeFuture = cancelFuture(consumeFuture);
     } catch (Exception e) {
-      logger.error("Find error when stop display and consuming threads, ", e);
+      logger.error("Find error when stop display thread, ", e);
     } finally {
       stateChangeLock.unlock();
     }
@@ -221,13 +180,8 @@ public class Measurement implements MeasurementMBean, IService {
 
   @Override
   public void clearStatisticalState() {
-    for (Operation op : Operation.values()) {
-      operationLatenciesQueue[op.ordinal()].clear();
-      operationCnt[op.ordinal()] = 0;
-      operationLatencies[op.ordinal()] = 0;
-      for (int i = 0; i < BUCKET_SIZE; i++) {
-        operationHistogram[op.ordinal()][i] = 0;
-      }
+    for (Histogram histogram : operationHistograms) {
+      histogram.clear();
     }
   }
 
@@ -246,18 +200,13 @@ public class Measurement implements MeasurementMBean, IService {
    */
   @Override
   public void start() throws StartupException {
-    // start display thread and consumer threads.
-    logger.info("start the consuming task in the measurement stats module...");
     this.clearStatisticalState();
     if (service.isShutdown()) {
       service = IoTDBThreadPoolFactory.newScheduledThreadPool(
-          2, ThreadName.TIME_COST_STATSTIC.getName());
+          1, ThreadName.TIME_COST_STATSTIC.getName());
     }
     //we have to check again because someone may change the value.
     isEnableStat = IoTDBDescriptor.getInstance().getConfig().isEnablePerformanceStat();
-    if (isEnableStat) {
-      consumeFuture = service.schedule(new QueueConsumerThread(), 0, TimeUnit.MILLISECONDS);
-    }
     try {
       JMXService.registerMBean(INSTANCE, mbeanName);
     } catch (Exception e) {
@@ -277,7 +226,6 @@ public class Measurement implements MeasurementMBean, IService {
     }
     service.shutdownNow();
     try {
-      consumeFuture = cancelFuture(consumeFuture);
       displayFuture = cancelFuture(displayFuture);
       service.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
@@ -324,6 +272,20 @@ public class Measurement implements MeasurementMBean, IService {
     return operationSwitch;
   }
 
+  @Override
+  public Map<String, String> getOperationLatencyInUs() {
+    Map<String, String> latencies = new LinkedHashMap<>();
+    for (Operation operation : Operation.values()) {
+      latencies.put(operation.getName(), operationHistograms[operation.ordinal()].toString());
+    }
+    return latencies;
+  }
+
+  @Override
+  public long getOperationLatencyPercentileInUs(String operationName, double percentile) {
+    return getHistogram(Operation.valueOf(operationName)).getValueAtPercentile(percentile);
+  }
+
   private static class AsyncMeasurementHolder {
 
     private static final Measurement MEASUREMENT = new Measurement();
@@ -335,46 +297,40 @@ public class Measurement implements MeasurementMBean, IService {
   private void showMeasurements() {
     Date date = new Date();
     logger.info(
-        "====================================={} Measurement (ms)======================================",
+        "====================================={} Measurement (us)======================================",
         date);
-    String head = String
-        .format("%-45s%-25s%-25s%-25s", "OPERATION", "COUNT", "TOTAL_TIME", "AVG_TIME");
-    logger.info(head);
-    for (Operation operation : Operation.values()) {
-      if (!operationSwitch.get(operation.getName())) {
-        continue;
-      }
-      long cnt = operationCnt[operation.ordinal()];
-      long totalInMs = operationLatencies[operation.ordinal()];
-      String avg = String.format("%.4f", (totalInMs / (cnt + 1e-9)));
-      String item = String
-          .format("%-45s%-25s%-25s%-25s", operation.name, cnt + "", totalInMs + "", avg);
-      logger.info(item);
-    }
-    logger.info(
-        "==========================================OPERATION HISTOGRAM====================================================");
-    StringBuilder histogramHead = new StringBuilder(String.format("%-45s", "OPERATION"));
-    for (int i = 0; i < BUCKET_SIZE; i++) {
-      histogramHead.append(String.format("%-8s", BUCKET_IN_MS[i] + "ms"));
+    StringBuilder head = new StringBuilder(
+        String.format("%-30s%-12s%-16s%-12s", "OPERATION", "COUNT", "TOTAL_TIME", "AVG_TIME"));
+    for (double percentile : PERCENTILES) {
+      head.append(String.format("%-12s", "P" + (percentile + "").replace(".0", "")));
     }
+    head.append(String.format("%-12s", "MAX"));
     if (logger.isInfoEnabled()) {
-      logger.info(histogramHead.toString());
+      logger.info(head.toString());
     }
     for (Operation operation : Operation.values()) {
       if (!operationSwitch.get(operation.getName())) {
         continue;
       }
-      StringBuilder item = new StringBuilder(String.format("%-45s", operation.getName()));
-      long cnt = operationCnt[operation.ordinal()];
-      for (int i = 0; i < BUCKET_SIZE; i++) {
-        String avg = String
-            .format("%.2f", (operationHistogram[operation.ordinal()][i] / (cnt + 1e-9) * 100));
-        item.append(String.format("%-8s", avg + "%"));
+      Histogram histogram = operationHistograms[operation.ordinal()];
+      StringBuilder item = new StringBuilder(String.format("%-30s%-12s%-16s%-12s",
+          operation.getName(), histogram.getCount(), histogram.getSum(),
+          String.format("%.2f", histogram.getMean())));
+      for (long value : histogram.getValuesAtPercentiles(PERCENTILES)) {
+        item.append(String.format("%-12s", value));
       }
+      item.append(String.format("%-12s", histogram.getMax()));
       if (logger.isInfoEnabled()) {
         logger.info(item.toString());
       }
     }
+    WALStatistics walStatistics = WALStatistics.getInstance();
+    for (Histogram histogram : new Histogram[]{walStatistics.getCommitLatencyInUs(),
+        walStatistics.getCommitBatchSize()}) {
+      if (histogram.getCount() > 0) {
+        logger.info("{}", histogram);
+      }
+    }
 
     logger.info(
         "=================================================================================================================");
@@ -388,57 +344,29 @@ public class Measurement implements MeasurementMBean, IService {
     }
   }
 
-  class QueueConsumerThread extends WrappedRunnable {
-
-    @Override
-    public void runMayThrow() {
-      consumer();
-    }
-
-    private void consumer() {
-      boolean allEmpty;
-      while (isEnableStat) {
-        allEmpty = true;
-        for (Operation op : Operation.values()) {
-          if (!operationSwitch.get(op.getName())) {
-            continue;
-          }
-          int idx = op.ordinal();
-          ConcurrentCircularArray queue = operationLatenciesQueue[idx];
-          if (queue.hasData()) {
-            long time = queue.take();
-            operationLatencies[idx] += time;
-            operationCnt[idx]++;
-            operationHistogram[idx][calIndex(time)]++;
-            allEmpty = false;
-          }
-        }
-        if (allEmpty) {
-          try {
-            Thread.sleep(10);
-          } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            break;
-          }
-        }
-      }
-    }
-
-    private int calIndex(long x) {
-      for (int i = 0; i < BUCKET_SIZE; i++) {
-        if (BUCKET_IN_MS[i] >= x) {
-          return i;
-        }
-      }
-      return BUCKET_SIZE - 1;
-    }
+  /**
+   * @return the latencies (in microseconds) of the operation
+   */
+  public Histogram getHistogram(Operation operation) {
+    return operationHistograms[operation.ordinal()];
   }
 
+  /**
+   * @return the sum of the latencies (in microseconds) of each operation
+   */
   public long[] getOperationLatencies() {
-    return operationLatencies;
+    long[] latencies = new long[operationHistograms.length];
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = operationHistograms[i].getSum();
+    }
+    return latencies;
   }
 
   public long[] getOperationCnt() {
-    return operationCnt;
+    long[] counts = new long[operationHistograms.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = operationHistograms[i].getCount();
+    }
+    return counts;
   }
 }
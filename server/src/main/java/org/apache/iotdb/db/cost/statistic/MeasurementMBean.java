@@ -69,4 +69,15 @@ public interface MeasurementMBean {
   void setDisplayIntervalInMs(long displayIntervalInMs);
 
   Map<String, Boolean> getOperationSwitch();
+
+  /**
+   * @return the count, average, percentiles and max of the latencies of each operation
+   */
+  Map<String, String> getOperationLatencyInUs();
+
+  /**
+   * @param operationName the name of operation, defined in attribute operationSwitch.
+   * @param percentile in (0, 100]
+   */
+  long getOperationLatencyPercentileInUs(String operationName, double percentile);
 }
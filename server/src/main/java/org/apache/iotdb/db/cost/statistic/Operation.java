@@ -18,11 +18,35 @@
  */
 package org.apache.iotdb.db.cost.statistic;
 
+/**
+ * The operations whose latencies are recorded by Measurement.
+ */
 public enum Operation {
   EXECUTE_JDBC_BATCH("EXECUTE_JDBC_BATCH"),
   EXECUTE_ONE_SQL_IN_BATCH("EXECUTE_ONE_SQL_IN_BATCH"),
   EXECUTE_RPC_BATCH_INSERT("EXECUTE_RPC_BATCH_INSERT"),
-  EXECUTE_QUERY("EXECUTE_QUERY");
+  EXECUTE_QUERY("EXECUTE_QUERY"),
+  EXECUTE_UPDATE("EXECUTE_UPDATE"),
+  FETCH_RESULTS("FETCH_RESULTS"),
+  EXECUTE_RPC_INSERT("EXECUTE_RPC_INSERT"),
+  EXECUTE_RPC_RECORDS_INSERT("EXECUTE_RPC_RECORDS_INSERT"),
+  /**
+   * writing a batch of logs to a WAL file, including the force if force_wal_period_in_ms = 0.
+   */
+  WAL_SYNC("WAL_SYNC"),
+  FLUSH_MEMTABLE("FLUSH_MEMTABLE"),
+  /**
+   * a compaction task of a time partition.
+   */
+  COMPACTION("COMPACTION"),
+  /**
+   * reading a chunk from a tsfile on a miss of ChunkCache.
+   */
+  LOAD_CHUNK("LOAD_CHUNK"),
+  /**
+   * decoding the data of a page in a query.
+   */
+  READ_PAGE("READ_PAGE");
 
   public String getName() {
     return name;
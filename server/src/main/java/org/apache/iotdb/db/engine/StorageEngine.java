@@ -629,6 +629,26 @@ public class StorageEngine implements IService {
         .loadNewTsFileForSync(newTsFileResource);
   }
 
+  /**
+   * Move a synced tsfile into a data folder of its storage group, see
+   * StorageGroupProcessor.prepareNewTsFileForSync().
+   */
+  public boolean prepareNewTsFileForSync(TsFileResource newTsFileResource)
+      throws StorageEngineException, LoadFileException, IllegalPathException {
+    return getProcessor(new PartialPath(newTsFileResource.getTsFile().getParentFile().getName()))
+        .prepareNewTsFileForSync(newTsFileResource);
+  }
+
+  /**
+   * Load a tsfile prepared by prepareNewTsFileForSync(), see
+   * StorageGroupProcessor.loadPreparedTsFileForSync().
+   */
+  public long loadPreparedTsFileForSync(TsFileResource preparedTsFileResource)
+      throws StorageEngineException, IllegalPathException {
+    return getProcessor(new PartialPath(getSgByEngineFile(preparedTsFileResource.getTsFile())))
+        .loadPreparedTsFileForSync(preparedTsFileResource);
+  }
+
   public void loadNewTsFile(TsFileResource newTsFileResource)
       throws LoadFileException, StorageEngineException, MetadataException {
     Map<String, Integer> deviceMap = newTsFileResource.getDeviceToIndexMap();
@@ -77,6 +77,21 @@ public class CacheHitRatioMonitor implements CacheHitRatioMonitorMXBean, IServic
     return ChunkMetadataCache.getInstance().getAverageSize();
   }
 
+  @Override
+  public long getChunkMetaDataCacheHitCount() {
+    return ChunkMetadataCache.getInstance().getHitCount();
+  }
+
+  @Override
+  public long getChunkMetaDataCacheMissCount() {
+    return ChunkMetadataCache.getInstance().getMissCount();
+  }
+
+  @Override
+  public long getChunkMetaDataCacheEvictionCount() {
+    return ChunkMetadataCache.getInstance().getEvictionCount();
+  }
+
   @Override
   public double getChunkHitRatio() {
     return ChunkCache.getInstance().calculateChunkHitRatio();
@@ -102,6 +117,41 @@ public class CacheHitRatioMonitor implements CacheHitRatioMonitorMXBean, IServic
     return ChunkCache.getInstance().getAverageSize();
   }
 
+  @Override
+  public long getChunkCacheHitCount() {
+    return ChunkCache.getInstance().getHitCount();
+  }
+
+  @Override
+  public long getChunkCacheMissCount() {
+    return ChunkCache.getInstance().getMissCount();
+  }
+
+  @Override
+  public long getChunkCacheEvictionCount() {
+    return ChunkCache.getInstance().getEvictionCount();
+  }
+
+  @Override
+  public double getOffHeapChunkCacheHitRatio() {
+    return OffHeapChunkCache.getInstance().calculateChunkHitRatio();
+  }
+
+  @Override
+  public long getOffHeapChunkCacheUsedMemory() {
+    return OffHeapChunkCache.getInstance().getUsedMemory();
+  }
+
+  @Override
+  public long getOffHeapChunkCacheMaxMemory() {
+    return OffHeapChunkCache.getInstance().getMaxMemory();
+  }
+
+  @Override
+  public long getOffHeapChunkCacheEvictionCount() {
+    return OffHeapChunkCache.getInstance().getEvictionCount();
+  }
+
   @Override
   public double getTimeSeriesMetadataHitRatio() {
     return TimeSeriesMetadataCache.getInstance().calculateTimeSeriesMetadataHitRatio();
@@ -127,6 +177,21 @@ public class CacheHitRatioMonitor implements CacheHitRatioMonitorMXBean, IServic
     return TimeSeriesMetadataCache.getInstance().getAverageSize();
   }
 
+  @Override
+  public long getTimeSeriesMetadataCacheHitCount() {
+    return TimeSeriesMetadataCache.getInstance().getHitCount();
+  }
+
+  @Override
+  public long getTimeSeriesMetadataCacheMissCount() {
+    return TimeSeriesMetadataCache.getInstance().getMissCount();
+  }
+
+  @Override
+  public long getTimeSeriesMetadataCacheEvictionCount() {
+    return TimeSeriesMetadataCache.getInstance().getEvictionCount();
+  }
+
   public static CacheHitRatioMonitor getInstance() {
     return instance;
   }
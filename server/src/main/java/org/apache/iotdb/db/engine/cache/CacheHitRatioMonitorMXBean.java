@@ -30,6 +30,12 @@ public interface CacheHitRatioMonitorMXBean {
 
   long getChunkMetaDataCacheAverageSize();
 
+  long getChunkMetaDataCacheHitCount();
+
+  long getChunkMetaDataCacheMissCount();
+
+  long getChunkMetaDataCacheEvictionCount();
+
 
   double getChunkHitRatio();
 
@@ -41,6 +47,21 @@ public interface CacheHitRatioMonitorMXBean {
 
   long getChunkCacheAverageSize();
 
+  long getChunkCacheHitCount();
+
+  long getChunkCacheMissCount();
+
+  long getChunkCacheEvictionCount();
+
+
+  double getOffHeapChunkCacheHitRatio();
+
+  long getOffHeapChunkCacheUsedMemory();
+
+  long getOffHeapChunkCacheMaxMemory();
+
+  long getOffHeapChunkCacheEvictionCount();
+
 
   double getTimeSeriesMetadataHitRatio();
 
@@ -52,4 +73,10 @@ public interface CacheHitRatioMonitorMXBean {
 
   long getTimeSeriesMetaDataCacheAverageSize();
 
+  long getTimeSeriesMetadataCacheHitCount();
+
+  long getTimeSeriesMetadataCacheMissCount();
+
+  long getTimeSeriesMetadataCacheEvictionCount();
+
 }
@@ -20,22 +20,24 @@
 package org.apache.iotdb.db.engine.cache;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.utils.TestOnly;
+import org.apache.iotdb.tsfile.file.header.ChunkHeader;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Chunk;
+import org.apache.iotdb.tsfile.read.common.TimeRange;
 import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This class is used to cache <code>Chunk</code> of <code>ChunkMetaData</code> in IoTDB. The
- * caching strategy is LRU.
+ * caching strategy is W-TinyLFU, see {@link WTinyLFUCache}.
  */
 public class ChunkCache {
 
@@ -46,35 +48,35 @@ public class ChunkCache {
       .getAllocateMemoryForChunkCache();
   private static final boolean CACHE_ENABLE = config.isMetaDataCacheEnable();
 
-  private final LRULinkedHashMap<ChunkMetadata, Chunk> lruCache;
+  private static final long CHUNK_FIXED_RAM_SIZE = RamUsageEstimator.NUM_BYTES_OBJECT_REF
+      + RamUsageEstimator.shallowSizeOfInstance(Chunk.class)
+      + RamUsageEstimator.shallowSizeOfInstance(ChunkHeader.class)
+      + RamUsageEstimator.shallowSizeOfInstance(ByteBuffer.allocate(0).getClass());
+  private static final long TIME_RANGE_RAM_SIZE = RamUsageEstimator.NUM_BYTES_OBJECT_REF
+      + RamUsageEstimator.shallowSizeOfInstance(TimeRange.class);
+
+  private final WTinyLFUCache<ChunkMetadata, Chunk> cache;
 
   private final AtomicLong cacheHitNum = new AtomicLong();
   private final AtomicLong cacheRequestNum = new AtomicLong();
 
-  private final ReadWriteLock lock = new ReentrantReadWriteLock();
-
-
   private ChunkCache() {
     if (CACHE_ENABLE) {
       logger.info("ChunkCache size = " + MEMORY_THRESHOLD_IN_CHUNK_CACHE);
     }
-    lruCache = new LRULinkedHashMap<ChunkMetadata, Chunk>(MEMORY_THRESHOLD_IN_CHUNK_CACHE) {
+    cache = new WTinyLFUCache<ChunkMetadata, Chunk>(MEMORY_THRESHOLD_IN_CHUNK_CACHE) {
 
       @Override
       protected long calEntrySize(ChunkMetadata key, Chunk value) {
-        long currentSize;
-        if (count < 10) {
-          currentSize = RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.sizeOf(value);
-          averageSize = ((averageSize * count) + currentSize) / (++count);
-        } else if (count < 100000) {
-          count++;
-          currentSize = averageSize;
-        } else {
-          averageSize = RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.sizeOf(value);
-          count = 1;
-          currentSize = averageSize;
+        long size = CHUNK_FIXED_RAM_SIZE + sizeOfString(value.getHeader().getMeasurementID())
+            + RamUsageEstimator.alignObjectSize(
+            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) value.getData().capacity());
+        List<TimeRange> deleteIntervalList = value.getDeleteIntervalList();
+        if (deleteIntervalList != null) {
+          size += RamUsageEstimator.shallowSizeOf(deleteIntervalList)
+              + TIME_RANGE_RAM_SIZE * deleteIntervalList.size();
         }
-        return currentSize;
+        return size;
       }
     };
   }
@@ -85,37 +87,26 @@ public class ChunkCache {
 
   public Chunk get(ChunkMetadata chunkMetaData, TsFileSequenceReader reader) throws IOException {
     if (!CACHE_ENABLE) {
-      Chunk chunk = reader.readMemChunk(chunkMetaData);
+      Chunk chunk = OffHeapChunkCache.getInstance().get(chunkMetaData, reader);
       return new Chunk(chunk.getHeader(), chunk.getData().duplicate(),
           chunk.getDeleteIntervalList());
     }
 
     cacheRequestNum.incrementAndGet();
 
-    Chunk chunk;
-    lock.readLock().lock();
-    try {
-      chunk = lruCache.get(chunkMetaData);
-    } finally {
-      lock.readLock().unlock();
-    }
+    Chunk chunk = cache.get(chunkMetaData);
     if (chunk != null) {
       cacheHitNum.incrementAndGet();
       printCacheLog(true);
     } else {
       printCacheLog(false);
       try {
-        chunk = reader.readMemChunk(chunkMetaData);
+        chunk = OffHeapChunkCache.getInstance().get(chunkMetaData, reader);
       } catch (IOException e) {
         logger.error("something wrong happened while reading {}", reader.getFileName());
         throw e;
       }
-      lock.writeLock().lock();
-      try {
-        lruCache.put(chunkMetaData, chunk);
-      } finally {
-        lock.writeLock().unlock();
-      }
+      cache.put(chunkMetaData, chunk);
     }
 
     if (config.isDebugOn()) {
@@ -142,45 +133,55 @@ public class ChunkCache {
     }
   }
 
+  public long getHitCount() {
+    return cacheHitNum.get();
+  }
+
+  public long getMissCount() {
+    return cacheRequestNum.get() - cacheHitNum.get();
+  }
+
+  public long getEvictionCount() {
+    return cache.getEvictionNum();
+  }
+
   public long getUsedMemory() {
-    return lruCache.getUsedMemory();
+    return cache.getUsedMemory();
   }
 
   public long getMaxMemory() {
-    return lruCache.getMaxMemory();
+    return cache.getMaxMemory();
   }
 
   public double getUsedMemoryProportion() {
-    return lruCache.getUsedMemoryProportion();
+    return cache.getUsedMemoryProportion();
   }
 
   public long getAverageSize() {
-    return lruCache.getAverageSize();
+    return cache.getAverageSize();
   }
 
 
   /**
-   * clear LRUCache.
+   * clear the cache.
    */
   public void clear() {
-    lock.writeLock().lock();
-    if (lruCache != null) {
-      lruCache.clear();
+    if (cache != null) {
+      cache.clear();
     }
-    lock.writeLock().unlock();
+    // the chunks in the files may be rewritten, so the data below this cache is dropped too
+    OffHeapChunkCache.getInstance().clear();
   }
 
   public void remove(ChunkMetadata chunkMetaData) {
-    lock.writeLock().lock();
     if (chunkMetaData != null) {
-      lruCache.remove(chunkMetaData);
+      cache.remove(chunkMetaData);
     }
-    lock.writeLock().unlock();
   }
 
   @TestOnly
   public boolean isEmpty() {
-    return lruCache.isEmpty();
+    return cache.isEmpty();
   }
 
   /**
@@ -23,8 +23,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBConstant;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
@@ -41,7 +39,7 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This class is used to cache <code>List<ChunkMetaData></code> of tsfile in IoTDB. The caching
- * strategy is LRU.
+ * strategy is W-TinyLFU, see {@link WTinyLFUCache}.
  */
 public class ChunkMetadataCache {
 
@@ -50,15 +48,15 @@ public class ChunkMetadataCache {
   private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
   private static final long MEMORY_THRESHOLD_IN_B = config.getAllocateMemoryForChunkMetaDataCache();
   private static final boolean CACHE_ENABLE = config.isMetaDataCacheEnable();
+  private static final long ACCOUNTABLE_STRING_RAM_SIZE = RamUsageEstimator
+      .shallowSizeOfInstance(AccountableString.class);
 
   /**
    * key: file path dot deviceId dot sensorId.
    * <p>
    * value: chunkMetaData list of one timeseries in the file.
    */
-  private final LRULinkedHashMap<AccountableString, List<ChunkMetadata>> lruCache;
-
-  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final WTinyLFUCache<AccountableString, List<ChunkMetadata>> cache;
 
   private final AtomicLong cacheHitNum = new AtomicLong();
   private final AtomicLong cacheRequestNum = new AtomicLong();
@@ -68,30 +66,15 @@ public class ChunkMetadataCache {
     if (CACHE_ENABLE) {
       logger.info("ChunkMetadataCache size = " + memoryThreshold);
     }
-    lruCache = new LRULinkedHashMap<AccountableString, List<ChunkMetadata>>(memoryThreshold) {
+    cache = new WTinyLFUCache<AccountableString, List<ChunkMetadata>>(memoryThreshold) {
       @Override
       protected long calEntrySize(AccountableString key, List<ChunkMetadata> value) {
-        if (value.isEmpty()) {
-          return RamUsageEstimator.sizeOf(key) + RamUsageEstimator.shallowSizeOf(value);
-        }
-        long entrySize;
-        if (count < 10) {
-          long currentSize = value.get(0).calculateRamSize();
-          averageSize = ((averageSize * count) + currentSize) / (++count);
-          entrySize = RamUsageEstimator.sizeOf(key)
-              + (currentSize + RamUsageEstimator.NUM_BYTES_OBJECT_REF) * value.size()
-              + RamUsageEstimator.shallowSizeOf(value);
-        } else if (count < 100000) {
-          count++;
-          entrySize = RamUsageEstimator.sizeOf(key)
-              + (averageSize + RamUsageEstimator.NUM_BYTES_OBJECT_REF) * value.size()
-              + RamUsageEstimator.shallowSizeOf(value);
-        } else {
-          averageSize = value.get(0).calculateRamSize();
-          count = 1;
-          entrySize = RamUsageEstimator.sizeOf(key)
-              + (averageSize + RamUsageEstimator.NUM_BYTES_OBJECT_REF) * value.size()
-              + RamUsageEstimator.shallowSizeOf(value);
+        long entrySize = ACCOUNTABLE_STRING_RAM_SIZE + sizeOfString(key.getString())
+            + RamUsageEstimator.shallowSizeOf(value)
+            + RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+            + (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * value.size());
+        for (ChunkMetadata chunkMetadata : value) {
+          entrySize += chunkMetadata.calculateRamSize();
         }
         return entrySize;
       }
@@ -122,13 +105,7 @@ public class ChunkMetadataCache {
 
     cacheRequestNum.incrementAndGet();
 
-    lock.readLock().lock();
-    List<ChunkMetadata> chunkMetadataList;
-    try {
-      chunkMetadataList = lruCache.get(key);
-    } finally {
-      lock.readLock().unlock();
-    }
+    List<ChunkMetadata> chunkMetadataList = cache.get(key);
 
     if (chunkMetadataList != null) {
       printCacheLog(true);
@@ -137,12 +114,7 @@ public class ChunkMetadataCache {
       printCacheLog(false);
       TsFileSequenceReader tsFileReader = FileReaderManager.getInstance().get(filePath, true);
       chunkMetadataList = tsFileReader.readChunkMetaDataList(timeseriesMetadata);
-      lock.writeLock().lock();
-      try {
-        lruCache.put(key, chunkMetadataList);
-      } finally {
-        lock.writeLock().unlock();
-      }
+      cache.put(key, chunkMetadataList);
     }
     if (config.isDebugOn()) {
       DEBUG_LOGGER.info(
@@ -170,45 +142,52 @@ public class ChunkMetadataCache {
     }
   }
 
+  public long getHitCount() {
+    return cacheHitNum.get();
+  }
+
+  public long getMissCount() {
+    return cacheRequestNum.get() - cacheHitNum.get();
+  }
+
+  public long getEvictionCount() {
+    return cache.getEvictionNum();
+  }
+
   public long getUsedMemory() {
-    return lruCache.getUsedMemory();
+    return cache.getUsedMemory();
   }
 
   public long getMaxMemory() {
-    return lruCache.getMaxMemory();
+    return cache.getMaxMemory();
   }
 
   public double getUsedMemoryProportion() {
-    return lruCache.getUsedMemoryProportion();
+    return cache.getUsedMemoryProportion();
   }
 
   public long getAverageSize() {
-    return lruCache.getAverageSize();
+    return cache.getAverageSize();
   }
 
   /**
-   * clear LRUCache.
+   * clear the cache.
    */
   public void clear() {
-    lock.writeLock().lock();
-    if (lruCache != null) {
-      lruCache.clear();
+    if (cache != null) {
+      cache.clear();
     }
-    lock.writeLock().unlock();
   }
 
   public void remove(TsFileResource resource) {
-    lock.writeLock().lock();
     if (resource != null) {
-      lruCache.entrySet()
-          .removeIf(e -> e.getKey().getString().startsWith(resource.getTsFilePath()));
+      cache.removeIf(key -> key.getString().startsWith(resource.getTsFilePath()));
     }
-    lock.writeLock().unlock();
   }
 
   @TestOnly
   public boolean isEmpty() {
-    return lruCache.isEmpty();
+    return cache.isEmpty();
   }
 
   /**
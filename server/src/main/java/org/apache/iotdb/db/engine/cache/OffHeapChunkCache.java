@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.cost.statistic.Measurement;
+import org.apache.iotdb.db.cost.statistic.Operation;
+import org.apache.iotdb.db.utils.TestOnly;
+import org.apache.iotdb.tsfile.file.header.ChunkHeader;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.Chunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class caches the data of chunks as they are stored on disk (the pages are still
+ * compressed) in direct memory, as a second tier below {@link ChunkCache}. Compared with the
+ * <code>Chunk</code> objects on heap, the cached data does not burden the GC, so much more chunks
+ * can be cached with the same heap size.
+ * <p>
+ * The memory is split into fixed size arenas, and the chunks are appended to the current arena
+ * one by one. When all arenas are used, the oldest one is recycled as a whole, so there is no
+ * fragmentation and a chunk never needs to be freed individually. Only the index from the chunks
+ * to their positions in the arenas is kept on heap.
+ */
+public class OffHeapChunkCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(OffHeapChunkCache.class);
+
+  private static final long MAX_ARENA_SIZE = 16 * 1024 * 1024L;
+  private static final int MIN_ARENA_NUM = 4;
+
+  private final Arena[] arenas;
+  private final int arenaSize;
+  /**
+   * the arena which new chunks are appended to, guarded by this.
+   */
+  private int currentArena = 0;
+
+  private final Map<ChunkKey, ChunkLocation> index = new ConcurrentHashMap<>();
+
+  private final LongAdder cacheHitNum = new LongAdder();
+  private final LongAdder cacheRequestNum = new LongAdder();
+  private final LongAdder evictionNum = new LongAdder();
+
+  OffHeapChunkCache(long memoryThreshold) {
+    if (memoryThreshold <= 0) {
+      arenaSize = 0;
+      arenas = new Arena[0];
+      return;
+    }
+    arenaSize = (int) Math.min(MAX_ARENA_SIZE, memoryThreshold / MIN_ARENA_NUM);
+    arenas = new Arena[(int) (memoryThreshold / Math.max(arenaSize, 1))];
+    logger.info("OffHeapChunkCache size = {}, {} arenas of {} bytes", memoryThreshold,
+        arenas.length, arenaSize);
+  }
+
+  public static OffHeapChunkCache getInstance() {
+    return OffHeapChunkCacheHolder.INSTANCE;
+  }
+
+  public boolean isEnabled() {
+    return arenas.length > 0 && arenaSize > 0;
+  }
+
+  /**
+   * read the chunk from the cache, or from the file if it is not cached and cache it then.
+   */
+  public Chunk get(ChunkMetadata chunkMetaData, TsFileSequenceReader reader) throws IOException {
+    if (!isEnabled()) {
+      return readChunk(chunkMetaData, reader);
+    }
+
+    cacheRequestNum.increment();
+    ChunkKey key = new ChunkKey(reader.getFileName(), chunkMetaData);
+    ChunkLocation location = index.get(key);
+    if (location != null) {
+      ByteBuffer data = location.arena.read(location);
+      if (data != null) {
+        cacheHitNum.increment();
+        return new Chunk(location.header, data, chunkMetaData.getDeleteIntervalList());
+      }
+    }
+
+    Chunk chunk = readChunk(chunkMetaData, reader);
+    put(key, chunk);
+    return chunk;
+  }
+
+  private static Chunk readChunk(ChunkMetadata chunkMetaData, TsFileSequenceReader reader)
+      throws IOException {
+    long startTime = System.nanoTime();
+    Chunk chunk = reader.readMemChunk(chunkMetaData);
+    Measurement.INSTANCE.addOperationLatency(Operation.LOAD_CHUNK, startTime);
+    return chunk;
+  }
+
+  private synchronized void put(ChunkKey key, Chunk chunk) {
+    ByteBuffer data = chunk.getData().duplicate();
+    if (data.remaining() > arenaSize || index.containsKey(key)) {
+      return;
+    }
+    Arena arena = arenas[currentArena];
+    if (arena == null || arena.remaining() < data.remaining()) {
+      if (arena != null) {
+        currentArena = (currentArena + 1) % arenas.length;
+      }
+      arena = arenas[currentArena];
+      if (arena == null) {
+        arena = new Arena(arenaSize);
+        arenas[currentArena] = arena;
+      } else {
+        recycle(arena);
+      }
+    }
+    index.put(key, arena.write(key, chunk.getHeader(), data));
+  }
+
+  private void recycle(Arena arena) {
+    List<ChunkKey> keys = arena.reset();
+    for (ChunkKey key : keys) {
+      ChunkLocation location = index.get(key);
+      if (location != null && location.arena == arena) {
+        index.remove(key, location);
+        evictionNum.increment();
+      }
+    }
+  }
+
+  /**
+   * drop all the cached chunks, the direct memory of the arenas is kept for reuse.
+   */
+  public synchronized void clear() {
+    for (Arena arena : arenas) {
+      if (arena != null) {
+        arena.reset();
+      }
+    }
+    index.clear();
+    currentArena = 0;
+  }
+
+  public double calculateChunkHitRatio() {
+    long requestNum = cacheRequestNum.sum();
+    return requestNum == 0 ? 0 : cacheHitNum.sum() * 1.0 / requestNum;
+  }
+
+  public long getHitCount() {
+    return cacheHitNum.sum();
+  }
+
+  public long getMissCount() {
+    return cacheRequestNum.sum() - cacheHitNum.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictionNum.sum();
+  }
+
+  public synchronized long getUsedMemory() {
+    long usedMemory = 0;
+    for (Arena arena : arenas) {
+      if (arena != null) {
+        usedMemory += arena.writePosition;
+      }
+    }
+    return usedMemory;
+  }
+
+  public long getMaxMemory() {
+    return (long) arenas.length * arenaSize;
+  }
+
+  @TestOnly
+  public boolean isEmpty() {
+    return index.isEmpty();
+  }
+
+  private static class Arena {
+
+    private final ByteBuffer buffer;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * increased when the arena is recycled, so the locations in the arena before are invalid.
+     */
+    private long generation = 0;
+    private int writePosition = 0;
+    private List<ChunkKey> keys = new ArrayList<>();
+
+    Arena(int size) {
+      buffer = ByteBuffer.allocateDirect(size);
+    }
+
+    int remaining() {
+      return buffer.capacity() - writePosition;
+    }
+
+    /**
+     * append the data after the data written before, which is never read concurrently as its
+     * location is not published yet.
+     */
+    ChunkLocation write(ChunkKey key, ChunkHeader header, ByteBuffer data) {
+      int length = data.remaining();
+      ByteBuffer target = buffer.duplicate();
+      target.position(writePosition);
+      target.put(data);
+      ChunkLocation location = new ChunkLocation(this, generation, header, writePosition, length);
+      writePosition += length;
+      keys.add(key);
+      return location;
+    }
+
+    /**
+     * @return a copy of the data on heap, or null if the arena has been recycled
+     */
+    ByteBuffer read(ChunkLocation location) {
+      lock.readLock().lock();
+      try {
+        if (location.generation != generation) {
+          return null;
+        }
+        ByteBuffer source = buffer.duplicate();
+        source.position(location.offset);
+        source.limit(location.offset + location.length);
+        ByteBuffer data = ByteBuffer.allocate(location.length);
+        data.put(source);
+        data.flip();
+        return data;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * @return the keys of the chunks written in the arena
+     */
+    List<ChunkKey> reset() {
+      lock.writeLock().lock();
+      try {
+        generation++;
+        writePosition = 0;
+        List<ChunkKey> oldKeys = keys;
+        keys = new ArrayList<>();
+        return oldKeys;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  private static class ChunkLocation {
+
+    private final Arena arena;
+    private final long generation;
+    private final ChunkHeader header;
+    private final int offset;
+    private final int length;
+
+    ChunkLocation(Arena arena, long generation, ChunkHeader header, int offset, int length) {
+      this.arena = arena;
+      this.generation = generation;
+      this.header = header;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /**
+   * A merge truncates a seq file and appends the merged chunks under the same path, so the
+   * offsets of its chunks are reused. Like ChunkMetadata.equals(), the key therefore also holds
+   * the version, the measurement and the statistics of the chunk, so a rewritten chunk never hits
+   * the data of the chunk it replaced.
+   */
+  private static class ChunkKey {
+
+    private final String filePath;
+    private final long offset;
+    private final long version;
+    private final String measurementUid;
+    private final long startTime;
+    private final long endTime;
+    private final long count;
+
+    ChunkKey(String filePath, ChunkMetadata chunkMetadata) {
+      this.filePath = filePath;
+      this.offset = chunkMetadata.getOffsetOfChunkHeader();
+      this.version = chunkMetadata.getVersion();
+      this.measurementUid = chunkMetadata.getMeasurementUid();
+      this.startTime = chunkMetadata.getStatistics().getStartTime();
+      this.endTime = chunkMetadata.getStatistics().getEndTime();
+      this.count = chunkMetadata.getStatistics().getCount();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      ChunkKey that = (ChunkKey) o;
+      return offset == that.offset && version == that.version && startTime == that.startTime
+          && endTime == that.endTime && count == that.count
+          && Objects.equals(filePath, that.filePath)
+          && Objects.equals(measurementUid, that.measurementUid);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(filePath, offset, version, measurementUid, startTime, endTime, count);
+    }
+  }
+
+  /**
+   * singleton pattern.
+   */
+  private static class OffHeapChunkCacheHolder {
+
+    private static final OffHeapChunkCache INSTANCE = new OffHeapChunkCache(
+        IoTDBDescriptor.getInstance().getConfig().getAllocateMemoryForOffHeapChunkCache());
+  }
+}
@@ -24,8 +24,6 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBConstant;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
@@ -42,7 +40,7 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This class is used to cache <code>TimeSeriesMetadata</code> in IoTDB. The caching strategy is
- * LRU.
+ * W-TinyLFU, see {@link WTinyLFUCache}.
  */
 public class TimeSeriesMetadataCache {
 
@@ -52,44 +50,30 @@ public class TimeSeriesMetadataCache {
   private static final long MEMORY_THRESHOLD_IN_TIME_SERIES_METADATA_CACHE = config
       .getAllocateMemoryForTimeSeriesMetaDataCache();
   private static final boolean CACHE_ENABLE = config.isMetaDataCacheEnable();
+  private static final long KEY_RAM_SIZE = RamUsageEstimator
+      .shallowSizeOfInstance(TimeSeriesMetadataCacheKey.class);
+  private static final long TIME_SERIES_METADATA_RAM_SIZE = RamUsageEstimator
+      .shallowSizeOfInstance(TimeseriesMetadata.class);
 
-  private final LRULinkedHashMap<TimeSeriesMetadataCacheKey, TimeseriesMetadata> lruCache;
+  private final WTinyLFUCache<TimeSeriesMetadataCacheKey, TimeseriesMetadata> lruCache;
 
   private final AtomicLong cacheHitNum = new AtomicLong();
   private final AtomicLong cacheRequestNum = new AtomicLong();
 
-  private final ReadWriteLock lock = new ReentrantReadWriteLock();
-
 
   private TimeSeriesMetadataCache() {
     if (CACHE_ENABLE) {
       logger
           .info("TimeseriesMetadataCache size = " + MEMORY_THRESHOLD_IN_TIME_SERIES_METADATA_CACHE);
     }
-    lruCache = new LRULinkedHashMap<TimeSeriesMetadataCacheKey, TimeseriesMetadata>(
+    lruCache = new WTinyLFUCache<TimeSeriesMetadataCacheKey, TimeseriesMetadata>(
         MEMORY_THRESHOLD_IN_TIME_SERIES_METADATA_CACHE) {
 
       @Override
       protected long calEntrySize(TimeSeriesMetadataCacheKey key, TimeseriesMetadata value) {
-        long currentSize;
-        if (count < 10) {
-          currentSize = RamUsageEstimator.shallowSizeOf(key) + RamUsageEstimator.sizeOf(key.device)
-              + RamUsageEstimator.sizeOf(key.measurement) + RamUsageEstimator.shallowSizeOf(value)
-              + RamUsageEstimator.sizeOf(value.getMeasurementId()) + RamUsageEstimator
-              .shallowSizeOf(value.getStatistics());
-          averageSize = ((averageSize * count) + currentSize) / (++count);
-        } else if (count < 100000) {
-          count++;
-          currentSize = averageSize;
-        } else {
-          averageSize = RamUsageEstimator.shallowSizeOf(key) + RamUsageEstimator.sizeOf(key.device)
-              + RamUsageEstimator.sizeOf(key.measurement) + RamUsageEstimator.shallowSizeOf(value)
-              + RamUsageEstimator.sizeOf(value.getMeasurementId()) + RamUsageEstimator
-              .shallowSizeOf(value.getStatistics());
-          count = 1;
-          currentSize = averageSize;
-        }
-        return currentSize;
+        return KEY_RAM_SIZE + sizeOfString(key.device) + sizeOfString(key.measurement)
+            + TIME_SERIES_METADATA_RAM_SIZE + sizeOfString(value.getMeasurementId())
+            + value.getStatistics().calculateRamSize();
       }
     };
   }
@@ -114,13 +98,7 @@ public class TimeSeriesMetadataCache {
 
     cacheRequestNum.incrementAndGet();
 
-    TimeseriesMetadata timeseriesMetadata;
-    lock.readLock().lock();
-    try {
-      timeseriesMetadata = lruCache.get(key);
-    } finally {
-      lock.readLock().unlock();
-    }
+    TimeseriesMetadata timeseriesMetadata = lruCache.get(key);
 
     if (timeseriesMetadata != null) {
       cacheHitNum.incrementAndGet();
@@ -129,12 +107,7 @@ public class TimeSeriesMetadataCache {
       // allow for the parallelism of different devices
       synchronized (key.device.intern()) {
         // double check
-        lock.readLock().lock();
-        try {
-          timeseriesMetadata = lruCache.get(key);
-        } finally {
-          lock.readLock().unlock();
-        }
+        timeseriesMetadata = lruCache.get(key);
         if (timeseriesMetadata != null) {
           cacheHitNum.incrementAndGet();
           printCacheLog(true);
@@ -154,14 +127,14 @@ public class TimeSeriesMetadataCache {
           List<TimeseriesMetadata> timeSeriesMetadataList = reader
               .readTimeseriesMetadata(key.device, allSensors);
           // put TimeSeriesMetadata of all sensors used in this query into cache
-          lock.writeLock().lock();
-          try {
-            timeSeriesMetadataList.forEach(metadata ->
-                lruCache.put(new TimeSeriesMetadataCacheKey(key.filePath, key.device,
-                    metadata.getMeasurementId()), metadata));
-            timeseriesMetadata = lruCache.get(key);
-          } finally {
-            lock.writeLock().unlock();
+          for (TimeseriesMetadata metadata : timeSeriesMetadataList) {
+            TimeSeriesMetadataCacheKey metadataKey = new TimeSeriesMetadataCacheKey(key.filePath,
+                key.device, metadata.getMeasurementId());
+            lruCache.put(metadataKey, metadata);
+            if (metadataKey.equals(key)) {
+              // the metadata may not be admitted into the cache, so do not read it from the cache
+              timeseriesMetadata = metadata;
+            }
           }
         }
       }
@@ -200,6 +173,18 @@ public class TimeSeriesMetadataCache {
     }
   }
 
+  public long getHitCount() {
+    return cacheHitNum.get();
+  }
+
+  public long getMissCount() {
+    return cacheRequestNum.get() - cacheHitNum.get();
+  }
+
+  public long getEvictionCount() {
+    return lruCache.getEvictionNum();
+  }
+
   public long getUsedMemory() {
     return lruCache.getUsedMemory();
   }
@@ -220,19 +205,15 @@ public class TimeSeriesMetadataCache {
    * clear LRUCache.
    */
   public void clear() {
-    lock.writeLock().lock();
     if (lruCache != null) {
       lruCache.clear();
     }
-    lock.writeLock().unlock();
   }
 
   public void remove(TimeSeriesMetadataCacheKey key) {
-    lock.writeLock().lock();
     if (key != null) {
       lruCache.remove(key);
     }
-    lock.writeLock().unlock();
   }
 
   @TestOnly
@@ -0,0 +1,551 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
+
+/**
+ * This class is a thread safe cache bounded by the memory of its entries, using the W-TinyLFU
+ * policy. The cache is split into segments by the hash of the keys, and each segment has its own
+ * lock, so the requests to different segments do not block each other.
+ * <p>
+ * In each segment, a new entry is put into a small LRU window. When it falls out of the window,
+ * it is admitted into the main space only if it has been requested more frequently than the entry
+ * it would evict, according to a frequency sketch of the recent requests of the segment. The main
+ * space is a segmented LRU: entries hit again in the probation part are promoted to the protected
+ * part. Thus a large scan, whose entries are requested only once, cannot flush the hot entries.
+ */
+public abstract class WTinyLFUCache<K, V> {
+
+  private static final int MAX_SEGMENT_NUM = 16;
+  private static final long MIN_SEGMENT_MEMORY = 1024 * 1024L;
+  private static final float WINDOW_PERCENT = 0.01f;
+  private static final float PROTECTED_PERCENT = 0.8f;
+  private static final int MAP_ENTRY_SIZE = 80;
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private static final long STRING_INSTANCE_SIZE = RamUsageEstimator
+      .shallowSizeOfInstance(String.class);
+
+  private final Segment[] segments;
+  private final long maxMemory;
+
+  private final LongAdder evictionNum = new LongAdder();
+
+  @SuppressWarnings("unchecked")
+  public WTinyLFUCache(long maxMemory) {
+    this.maxMemory = maxMemory;
+    int segmentNum = 1;
+    while (segmentNum < MAX_SEGMENT_NUM && maxMemory / (segmentNum * 2) >= MIN_SEGMENT_MEMORY) {
+      segmentNum *= 2;
+    }
+    segments = (Segment[]) new WTinyLFUCache.Segment[segmentNum];
+    for (int i = 0; i < segmentNum; i++) {
+      segments[i] = new Segment(maxMemory / segmentNum);
+    }
+  }
+
+  /**
+   * calculate the memory of the key and value, which is called once for each put entry.
+   */
+  protected abstract long calEntrySize(K key, V value);
+
+  /**
+   * get the value of the key and record the request, no matter the key is cached or not.
+   */
+  public V get(K key) {
+    int hash = spread(key.hashCode());
+    return segmentFor(hash).get(key, hash);
+  }
+
+  public void put(K key, V value) {
+    int hash = spread(key.hashCode());
+    long size = calEntrySize(key, value) + MAP_ENTRY_SIZE;
+    segmentFor(hash).put(key, value, hash, size);
+  }
+
+  public V remove(K key) {
+    int hash = spread(key.hashCode());
+    return segmentFor(hash).remove(key);
+  }
+
+  public void removeIf(Predicate<K> keyFilter) {
+    for (Segment segment : segments) {
+      segment.removeIf(keyFilter);
+    }
+  }
+
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  public boolean containsKey(K key) {
+    int hash = spread(key.hashCode());
+    return segmentFor(hash).containsKey(key);
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public long getUsedMemory() {
+    long usedMemory = 0;
+    for (Segment segment : segments) {
+      usedMemory += segment.getUsedMemory();
+    }
+    return usedMemory;
+  }
+
+  public long getMaxMemory() {
+    return maxMemory;
+  }
+
+  /**
+   * calculate the proportion of used memory.
+   */
+  public double getUsedMemoryProportion() {
+    return getUsedMemory() * 1.0 / maxMemory;
+  }
+
+  public long getAverageSize() {
+    int size = size();
+    return size == 0 ? 0 : getUsedMemory() / size;
+  }
+
+  /**
+   * @return the number of entries removed because the cache is full, including the new entries
+   * which are not admitted
+   */
+  public long getEvictionNum() {
+    return evictionNum.sum();
+  }
+
+  /**
+   * calculate the memory of a string without walking the object graph like {@link
+   * RamUsageEstimator#sizeOf(Object)}.
+   */
+  protected static long sizeOfString(String string) {
+    if (string == null) {
+      return 0;
+    }
+    return STRING_INSTANCE_SIZE + RamUsageEstimator.alignObjectSize(
+        RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) Character.BYTES * string.length());
+  }
+
+  int getSegmentNum() {
+    return segments.length;
+  }
+
+  private Segment segmentFor(int hash) {
+    return segments[(hash >>> 16) & (segments.length - 1)];
+  }
+
+  private static int spread(int hashCode) {
+    int h = hashCode * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static class Node<K, V> {
+
+    private final K key;
+    private final int hash;
+    private V value;
+    private long size;
+    private int queue = WINDOW;
+
+    private Node<K, V> prev;
+    private Node<K, V> next;
+
+    Node(K key, V value, int hash, long size) {
+      this.key = key;
+      this.value = value;
+      this.hash = hash;
+      this.size = size;
+    }
+  }
+
+  /**
+   * A doubly linked list of nodes in access order, the head is the least recently used one.
+   */
+  private static class AccessQueue<K, V> {
+
+    private Node<K, V> head;
+    private Node<K, V> tail;
+    private long memory;
+
+    void addLast(Node<K, V> node) {
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      memory += node.size;
+    }
+
+    void remove(Node<K, V> node) {
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      memory -= node.size;
+    }
+
+    void moveToLast(Node<K, V> node) {
+      if (node != tail) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    Node<K, V> peekFirst() {
+      return head;
+    }
+
+    void clear() {
+      head = null;
+      tail = null;
+      memory = 0;
+    }
+  }
+
+  private class Segment extends ReentrantLock {
+
+    private static final long serialVersionUID = -3541362813540215264L;
+
+    private final transient Map<K, Node<K, V>> map = new HashMap<>();
+    private final transient AccessQueue<K, V> window = new AccessQueue<>();
+    private final transient AccessQueue<K, V> probation = new AccessQueue<>();
+    private final transient AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+    private final transient FrequencySketch sketch;
+
+    private final long maxWindowMemory;
+    private final long maxMainMemory;
+    private final long maxProtectedMemory;
+
+    Segment(long maxMemory) {
+      this.maxWindowMemory = (long) (maxMemory * WINDOW_PERCENT);
+      this.maxMainMemory = maxMemory - maxWindowMemory;
+      this.maxProtectedMemory = (long) (maxMainMemory * PROTECTED_PERCENT);
+      this.sketch = new FrequencySketch(maxMemory);
+    }
+
+    V get(K key, int hash) {
+      lock();
+      try {
+        sketch.increment(hash);
+        Node<K, V> node = map.get(key);
+        if (node == null) {
+          return null;
+        }
+        onAccess(node);
+        return node.value;
+      } finally {
+        unlock();
+      }
+    }
+
+    boolean containsKey(K key) {
+      lock();
+      try {
+        return map.containsKey(key);
+      } finally {
+        unlock();
+      }
+    }
+
+    void put(K key, V value, int hash, long size) {
+      lock();
+      try {
+        Node<K, V> node = map.get(key);
+        if (node != null) {
+          // the size of the node is changed, so remove it from its queue before updating it
+          queueOf(node).remove(node);
+          node.value = value;
+          node.size = size;
+          queueOf(node).addLast(node);
+          onAccess(node);
+        } else {
+          node = new Node<>(key, value, hash, size);
+          map.put(key, node);
+          window.addLast(node);
+        }
+        evictFromWindow();
+        evictFromMain();
+      } finally {
+        unlock();
+      }
+    }
+
+    V remove(K key) {
+      lock();
+      try {
+        Node<K, V> node = map.remove(key);
+        if (node == null) {
+          return null;
+        }
+        queueOf(node).remove(node);
+        return node.value;
+      } finally {
+        unlock();
+      }
+    }
+
+    void removeIf(Predicate<K> keyFilter) {
+      lock();
+      try {
+        Iterator<Node<K, V>> iterator = map.values().iterator();
+        while (iterator.hasNext()) {
+          Node<K, V> node = iterator.next();
+          if (keyFilter.test(node.key)) {
+            iterator.remove();
+            queueOf(node).remove(node);
+          }
+        }
+      } finally {
+        unlock();
+      }
+    }
+
+    void clear() {
+      lock();
+      try {
+        map.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        sketch.clear();
+      } finally {
+        unlock();
+      }
+    }
+
+    int size() {
+      lock();
+      try {
+        return map.size();
+      } finally {
+        unlock();
+      }
+    }
+
+    long getUsedMemory() {
+      lock();
+      try {
+        return window.memory + probation.memory + protectedQueue.memory;
+      } finally {
+        unlock();
+      }
+    }
+
+    private AccessQueue<K, V> queueOf(Node<K, V> node) {
+      switch (node.queue) {
+        case WINDOW:
+          return window;
+        case PROBATION:
+          return probation;
+        default:
+          return protectedQueue;
+      }
+    }
+
+    private void onAccess(Node<K, V> node) {
+      if (node.queue == PROBATION) {
+        // promote it and demote the least recently used protected ones if there is no room
+        probation.remove(node);
+        node.queue = PROTECTED;
+        protectedQueue.addLast(node);
+        while (protectedQueue.memory > maxProtectedMemory && protectedQueue.peekFirst() != node) {
+          Node<K, V> demoted = protectedQueue.peekFirst();
+          protectedQueue.remove(demoted);
+          demoted.queue = PROBATION;
+          probation.addLast(demoted);
+        }
+      } else {
+        queueOf(node).moveToLast(node);
+      }
+    }
+
+    private void evictFromWindow() {
+      while (window.memory > maxWindowMemory) {
+        Node<K, V> candidate = window.peekFirst();
+        window.remove(candidate);
+        admit(candidate);
+      }
+    }
+
+    /**
+     * let the candidate into the main space if it is more frequently requested than the victims
+     * it evicts, otherwise discard it.
+     */
+    private void admit(Node<K, V> candidate) {
+      if (candidate.size > maxMainMemory) {
+        evict(candidate);
+        return;
+      }
+      int candidateFrequency = sketch.frequency(candidate.hash);
+      while (probation.memory + protectedQueue.memory + candidate.size > maxMainMemory) {
+        Node<K, V> victim = probation.peekFirst();
+        AccessQueue<K, V> victimQueue = probation;
+        if (victim == null) {
+          victim = protectedQueue.peekFirst();
+          victimQueue = protectedQueue;
+        }
+        if (candidateFrequency <= sketch.frequency(victim.hash)) {
+          evict(candidate);
+          return;
+        }
+        victimQueue.remove(victim);
+        evict(victim);
+      }
+      candidate.queue = PROBATION;
+      probation.addLast(candidate);
+    }
+
+    /**
+     * the main space may be over its limit when an entry in it is replaced by a larger one.
+     */
+    private void evictFromMain() {
+      while (probation.memory + protectedQueue.memory > maxMainMemory) {
+        Node<K, V> victim = probation.peekFirst();
+        if (victim == null) {
+          victim = protectedQueue.peekFirst();
+        }
+        queueOf(victim).remove(victim);
+        evict(victim);
+      }
+    }
+
+    private void evict(Node<K, V> node) {
+      map.remove(node.key);
+      evictionNum.increment();
+    }
+  }
+
+  /**
+   * A count-min sketch with 4 bit counters which estimates how many times a key has been
+   * requested recently. All the counters are halved periodically, so the old requests fade out.
+   */
+  static class FrequencySketch {
+
+    private static final int MIN_TABLE_SIZE = 1 << 4;
+    private static final int MAX_TABLE_SIZE = 1 << 13;
+    /**
+     * a rough lower bound of the memory of an entry, used to estimate the max number of entries.
+     */
+    private static final long MIN_ENTRY_MEMORY = 256;
+    private static final int[] SEEDS = {0x97CB3127, 0xB2D1A8E5, 0x5F356495, 0x2F1B7A31};
+    private static final int MAX_FREQUENCY = 15;
+
+    /**
+     * each long holds 16 counters of 4 bits.
+     */
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int sampleCount;
+
+    FrequencySketch(long maxMemory) {
+      long maxEntryNum = Math.max(MIN_TABLE_SIZE,
+          Math.min(MAX_TABLE_SIZE, maxMemory / MIN_ENTRY_MEMORY));
+      int tableSize = Integer.highestOneBit((int) maxEntryNum);
+      table = new long[tableSize];
+      counterMask = tableSize * 16 - 1;
+      sampleSize = tableSize * 10;
+    }
+
+    void increment(int hash) {
+      boolean added = false;
+      for (int seed : SEEDS) {
+        int index = indexOf(hash, seed);
+        int shift = (index & 15) << 2;
+        long counter = (table[index >>> 4] >>> shift) & 0xFL;
+        if (counter < MAX_FREQUENCY) {
+          table[index >>> 4] += 1L << shift;
+          added = true;
+        }
+      }
+      if (added && ++sampleCount >= sampleSize) {
+        reset();
+      }
+    }
+
+    int frequency(int hash) {
+      int frequency = MAX_FREQUENCY;
+      for (int seed : SEEDS) {
+        int index = indexOf(hash, seed);
+        int counter = (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xFL);
+        frequency = Math.min(frequency, counter);
+      }
+      return frequency;
+    }
+
+    private int indexOf(int hash, int seed) {
+      int h = (hash ^ seed) * 0x85EBCA6B;
+      h ^= h >>> 13;
+      return h & counterMask;
+    }
+
+    /**
+     * halve all the counters.
+     */
+    private void reset() {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+      }
+      sampleCount /= 2;
+    }
+
+    void clear() {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = 0;
+      }
+      sampleCount = 0;
+    }
+  }
+}
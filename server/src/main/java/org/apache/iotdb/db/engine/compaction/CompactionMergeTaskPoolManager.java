@@ -19,9 +19,16 @@
 
 package org.apache.iotdb.db.engine.compaction;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
 import org.apache.iotdb.db.concurrent.ThreadName;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
@@ -33,7 +40,7 @@ import org.slf4j.LoggerFactory;
 
 /**
  * CompactionMergeTaskPoolManager provides a ThreadPool to queue and run all compaction
- * tasks.
+ * tasks. The number of running tasks is limited by {@link CompactionScheduler}.
  */
 public class CompactionMergeTaskPoolManager implements IService {
 
@@ -41,6 +48,19 @@ public class CompactionMergeTaskPoolManager implements IService {
       .getLogger(CompactionMergeTaskPoolManager.class);
   private static final CompactionMergeTaskPoolManager INSTANCE = new CompactionMergeTaskPoolManager();
   private ExecutorService pool;
+  /**
+   * the tasks waiting to run, the ones of the partitions with more small files run first.
+   */
+  private final PriorityBlockingQueue<CompactionMergeTask> pendingTasks =
+      new PriorityBlockingQueue<>(11,
+          Comparator.comparingInt(CompactionMergeTask::getSmallFileNum).reversed());
+  /**
+   * the tasks submitted to the pool but not started yet, so they can be cancelled if the pool
+   * stops before running them.
+   */
+  private final Set<CompactionMergeTask> dispatchedTasks = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger runningTaskNum = new AtomicInteger();
+  private final AtomicInteger runningSubTaskNum = new AtomicInteger();
 
   public static CompactionMergeTaskPoolManager getInstance() {
     return INSTANCE;
@@ -53,6 +73,7 @@ public class CompactionMergeTaskPoolManager implements IService {
           .newScheduledThreadPool(
               IoTDBDescriptor.getInstance().getConfig().getCompactionThreadNum(),
               ThreadName.COMPACTION_SERVICE.getName());
+      CompactionScheduler.getInstance().start();
     }
     logger.info("Compaction task manager started.");
   }
@@ -60,18 +81,45 @@ public class CompactionMergeTaskPoolManager implements IService {
   @Override
   public void stop() {
     if (pool != null) {
+      CompactionScheduler.getInstance().stop();
+      cancelPendingTasks();
       pool.shutdownNow();
       logger.info("Waiting for task pool to shut down");
       waitTermination();
+      cancelDispatchedTasks();
     }
   }
 
   @Override
   public void waitAndStop(long millseconds) {
     if (pool != null) {
+      CompactionScheduler.getInstance().stop();
+      cancelPendingTasks();
       awaitTermination(pool, millseconds);
       logger.info("Waiting for task pool to shut down");
       waitTermination();
+      cancelDispatchedTasks();
+    }
+  }
+
+  /**
+   * the queued tasks will never run, but their callbacks must be called, otherwise the storage
+   * groups wait for them forever when they are closed.
+   */
+  private void cancelPendingTasks() {
+    List<CompactionMergeTask> tasks = new ArrayList<>();
+    pendingTasks.drainTo(tasks);
+    tasks.forEach(CompactionMergeTask::cancel);
+  }
+
+  /**
+   * cancel the tasks which were submitted to the pool but dropped by its shutdown.
+   */
+  private void cancelDispatchedTasks() {
+    for (CompactionMergeTask task : dispatchedTasks) {
+      if (dispatchedTasks.remove(task)) {
+        task.cancel();
+      }
     }
   }
 
@@ -112,10 +160,85 @@ public class CompactionMergeTaskPoolManager implements IService {
     return ServiceType.COMPACTION_SERVICE;
   }
 
+  /**
+   * queue the task, which is run when less tasks than the concurrency decided by {@link
+   * CompactionScheduler} are running and no queued task has more small files. The task is
+   * cancelled if the pool is not running.
+   */
   public void submitTask(CompactionMergeTask compactionMergeTask)
       throws RejectedExecutionException {
-    if (pool != null && !pool.isTerminated()) {
-      pool.submit(compactionMergeTask);
+    if (pool != null && !pool.isShutdown()) {
+      pendingTasks.add(compactionMergeTask);
+      dispatch();
+    } else {
+      compactionMergeTask.cancel();
+    }
+  }
+
+  /**
+   * run the queued tasks until the concurrency is reached.
+   */
+  synchronized void dispatch() {
+    while (pool != null && !pool.isTerminated() && !pendingTasks.isEmpty()
+        && runningTaskNum.get() < CompactionScheduler.getInstance().getConcurrency()) {
+      CompactionMergeTask task = pendingTasks.poll();
+      runningTaskNum.incrementAndGet();
+      dispatchedTasks.add(task);
+      try {
+        pool.submit(() -> {
+          try {
+            // the task has been cancelled if it is not in dispatchedTasks
+            if (dispatchedTasks.remove(task)) {
+              task.run();
+            }
+          } finally {
+            runningTaskNum.decrementAndGet();
+            dispatch();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        runningTaskNum.decrementAndGet();
+        dispatchedTasks.remove(task);
+        task.cancel();
+        cancelPendingTasks();
+        logger.warn("Compaction task is rejected as the pool is shutting down");
+        return;
+      }
+    }
+  }
+
+  public int getRunningTaskNum() {
+    return runningTaskNum.get();
+  }
+
+  public int getPendingTaskNum() {
+    return pendingTasks.size();
+  }
+
+  /**
+   * submit a sub task of a running compaction task, e.g., merging some series of the files. The
+   * sub task may wait in the queue for a long time when the pool is busy, so the compaction task
+   * should never wait for it but do the same work itself. The sub task is ignored if the pool is
+   * not running.
+   */
+  public void submitSubTask(Runnable subTask) {
+    // the sub tasks must not bypass the concurrency decided by the scheduler
+    if (pool != null && !pool.isTerminated()
+        && runningTaskNum.get() + runningSubTaskNum.get()
+        < CompactionScheduler.getInstance().getConcurrency()) {
+      runningSubTaskNum.incrementAndGet();
+      try {
+        pool.submit(() -> {
+          try {
+            subTask.run();
+          } finally {
+            runningSubTaskNum.decrementAndGet();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        runningSubTaskNum.decrementAndGet();
+        logger.debug("Compaction sub task is rejected as the pool is shutting down");
+      }
     }
   }
 
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.compaction;
+
+import com.google.common.util.concurrent.RateLimiter;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.concurrent.ThreadName;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.cost.statistic.Histogram;
+import org.apache.iotdb.db.cost.statistic.Measurement;
+import org.apache.iotdb.db.cost.statistic.Operation;
+import org.apache.iotdb.db.engine.flush.FlushManager;
+import org.apache.iotdb.db.engine.merge.manage.MergeManager;
+import org.apache.iotdb.db.rescon.SystemInfo;
+import org.apache.iotdb.db.service.JMXService;
+import org.apache.iotdb.db.utils.TestOnly;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CompactionScheduler decides how many compaction tasks may run at the same time and how fast
+ * they may write, according to the foreground load. The load is measured by three pressures in
+ * [0, 1]: the pending flush tasks against the flush threads, the average query latency against
+ * adaptive_compaction_query_latency_threshold_ms, and the memory used by writing against the
+ * reject proportion. The highest one, smoothed over the adjustments, scales the concurrency from
+ * compaction_thread_num down to 1 and the write throughput from the max to the min one.
+ */
+public class CompactionScheduler implements CompactionSchedulerMBean {
+
+  private static final Logger logger = LoggerFactory.getLogger(CompactionScheduler.class);
+  private static final String MBEAN_NAME = String
+      .format("%s:%s=%s", IoTDBConstant.IOTDB_PACKAGE, IoTDBConstant.JMX_TYPE,
+          "Compaction Scheduler");
+  private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+  /**
+   * the weight of the latest pressure in the smoothed one, so a single spike does not stop
+   * compaction, while a lasting load throttles it in a few adjustments.
+   */
+  private static final double SMOOTHING_FACTOR = 0.5;
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private final RateLimiter writeRateLimiter = RateLimiter.create(Double.MAX_VALUE);
+  private ScheduledExecutorService adjustService;
+
+  private volatile double flushPressure = 0;
+  private volatile double queryPressure = 0;
+  private volatile double memoryPressure = 0;
+  private volatile double pressure = 0;
+  private volatile int concurrency;
+  private volatile double writeThroughputMbPerSec;
+  private volatile long adjustmentNum = 0;
+  private volatile String lastDecision = "";
+
+  /**
+   * the accumulated query latency and count at the last adjustment, to compute the average
+   * latency of the queries finished since then.
+   */
+  private long lastQueryLatencySum = 0;
+  private long lastQueryCnt = 0;
+
+  private CompactionScheduler() {
+    reset();
+  }
+
+  public static CompactionScheduler getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  public synchronized void start() {
+    reset();
+    if (config.isEnableAdaptiveCompaction() && adjustService == null) {
+      adjustService = IoTDBThreadPoolFactory
+          .newSingleThreadScheduledExecutor(ThreadName.COMPACTION_SCHEDULER.getName());
+      adjustService.scheduleWithFixedDelay(this::adjust, config.getAdaptiveCompactionIntervalMs(),
+          config.getAdaptiveCompactionIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+    JMXService.registerMBean(this, MBEAN_NAME);
+  }
+
+  public synchronized void stop() {
+    if (adjustService != null) {
+      adjustService.shutdownNow();
+      adjustService = null;
+    }
+    JMXService.deregisterMBean(MBEAN_NAME);
+  }
+
+  /**
+   * start with no throttling, as there is no load measured yet.
+   */
+  private void reset() {
+    flushPressure = 0;
+    queryPressure = 0;
+    memoryPressure = 0;
+    pressure = 0;
+    concurrency = getMaxConcurrency();
+    setWriteThroughput(config.getAdaptiveCompactionMaxWriteThroughputMbPerSec());
+    Histogram queryLatencies = Measurement.INSTANCE.getHistogram(Operation.EXECUTE_QUERY);
+    lastQueryLatencySum = queryLatencies.getSum();
+    lastQueryCnt = queryLatencies.getCount();
+  }
+
+  private int getMaxConcurrency() {
+    return Math.max(1, config.getCompactionThreadNum());
+  }
+
+  /**
+   * collect the foreground load and adjust the compaction accordingly.
+   */
+  private void adjust() {
+    try {
+      Histogram queryLatencies = Measurement.INSTANCE.getHistogram(Operation.EXECUTE_QUERY);
+      long queryLatencySum = queryLatencies.getSum();
+      long queryCnt = queryLatencies.getCount();
+      // the latencies are in microseconds
+      double avgQueryLatencyMs = queryCnt > lastQueryCnt
+          ? (queryLatencySum - lastQueryLatencySum) / 1000.0 / (queryCnt - lastQueryCnt) : 0;
+      lastQueryLatencySum = queryLatencySum;
+      lastQueryCnt = queryCnt;
+
+      SystemInfo systemInfo = SystemInfo.getInstance();
+      adjust(FlushManager.getInstance().getNumberOfPendingTasks(), avgQueryLatencyMs,
+          systemInfo.isRejected() ? 1.0
+              : systemInfo.getWriteMemoryUsage() / config.getRejectProportion());
+    } catch (Exception e) {
+      // the adjustment must go on whatever happens
+      logger.error("Cannot adjust the compaction", e);
+    }
+  }
+
+  /**
+   * adjust the compaction by the given load.
+   *
+   * @param pendingFlushTaskNum the number of flush tasks waiting for a flush thread
+   * @param avgQueryLatencyMs the average latency of the recent queries
+   * @param memoryUsage the memory used by writing against the memory at which writing is rejected
+   */
+  synchronized void adjust(int pendingFlushTaskNum, double avgQueryLatencyMs,
+      double memoryUsage) {
+    flushPressure = limit(pendingFlushTaskNum * 1.0 / Math.max(1,
+        config.getConcurrentFlushThread()));
+    queryPressure = limit(avgQueryLatencyMs / config.getAdaptiveCompactionQueryLatencyThresholdMs());
+    memoryPressure = limit(memoryUsage);
+    double currentPressure = Math.max(flushPressure, Math.max(queryPressure, memoryPressure));
+    pressure = limit(SMOOTHING_FACTOR * currentPressure + (1 - SMOOTHING_FACTOR) * pressure);
+
+    int maxConcurrency = getMaxConcurrency();
+    int newConcurrency = Math.max(1, (int) Math.round(maxConcurrency * (1 - pressure)));
+    int minThroughput = config.getAdaptiveCompactionMinWriteThroughputMbPerSec();
+    int maxThroughput = config.getAdaptiveCompactionMaxWriteThroughputMbPerSec();
+    double newThroughput = minThroughput + (maxThroughput - minThroughput) * (1 - pressure);
+
+    boolean concurrencyChanged = newConcurrency != concurrency;
+    concurrency = newConcurrency;
+    setWriteThroughput(newThroughput);
+    adjustmentNum++;
+    lastDecision = String.format("pressure %.2f (flush %.2f, query %.2f, memory %.2f): "
+            + "concurrency %d, write throughput %.1f MB/s", pressure, flushPressure,
+        queryPressure, memoryPressure, concurrency, writeThroughputMbPerSec);
+    if (concurrencyChanged) {
+      logger.info("Compaction is adjusted by {}", lastDecision);
+      // more pending tasks may run now
+      CompactionMergeTaskPoolManager.getInstance().dispatch();
+    } else if (logger.isDebugEnabled()) {
+      logger.debug("Compaction is adjusted by {}", lastDecision);
+    }
+  }
+
+  private static double limit(double value) {
+    return Math.max(0, Math.min(1, value));
+  }
+
+  private void setWriteThroughput(double throughputMbPerSec) {
+    writeThroughputMbPerSec = throughputMbPerSec;
+    writeRateLimiter.setRate(throughputMbPerSec * BYTES_PER_MB);
+  }
+
+  /**
+   * @return the rate limiter of the compaction writes, which is the merge one with the static
+   * merge_write_throughput_mb_per_sec if the adaptive compaction is disabled
+   */
+  public RateLimiter getWriteRateLimiter() {
+    if (!config.isEnableAdaptiveCompaction()) {
+      return MergeManager.getINSTANCE().getMergeWriteRateLimiter();
+    }
+    return writeRateLimiter;
+  }
+
+  @Override
+  public boolean isAdaptive() {
+    return config.isEnableAdaptiveCompaction();
+  }
+
+  @Override
+  public double getFlushPressure() {
+    return flushPressure;
+  }
+
+  @Override
+  public double getQueryPressure() {
+    return queryPressure;
+  }
+
+  @Override
+  public double getMemoryPressure() {
+    return memoryPressure;
+  }
+
+  @Override
+  public double getPressure() {
+    return pressure;
+  }
+
+  /**
+   * @return how many compaction tasks may run at the same time
+   */
+  @Override
+  public int getConcurrency() {
+    return config.isEnableAdaptiveCompaction() ? concurrency : getMaxConcurrency();
+  }
+
+  @Override
+  public double getWriteThroughputMbPerSec() {
+    return config.isEnableAdaptiveCompaction() ? writeThroughputMbPerSec
+        : config.getMergeWriteThroughputMbPerSec();
+  }
+
+  @Override
+  public int getNumberOfRunningTasks() {
+    return CompactionMergeTaskPoolManager.getInstance().getRunningTaskNum();
+  }
+
+  @Override
+  public int getNumberOfPendingTasks() {
+    return CompactionMergeTaskPoolManager.getInstance().getPendingTaskNum();
+  }
+
+  @Override
+  public long getNumberOfAdjustments() {
+    return adjustmentNum;
+  }
+
+  @Override
+  public String getLastDecision() {
+    return lastDecision;
+  }
+
+  @TestOnly
+  public void resetForTest() {
+    reset();
+  }
+
+  private static class InstanceHolder {
+
+    private static final CompactionScheduler INSTANCE = new CompactionScheduler();
+  }
+}
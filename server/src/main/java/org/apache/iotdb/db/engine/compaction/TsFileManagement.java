@@ -29,6 +29,8 @@ import java.util.List;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.cost.statistic.Measurement;
+import org.apache.iotdb.db.cost.statistic.Operation;
 import org.apache.iotdb.db.engine.cache.ChunkCache;
 import org.apache.iotdb.db.engine.cache.ChunkMetadataCache;
 import org.apache.iotdb.db.engine.cache.TimeSeriesMetadataCache;
@@ -163,20 +165,43 @@ public abstract class TsFileManagement {
 
   protected abstract void merge(long timePartition);
 
+  /**
+   * @return the number of files in the time partition which are still to be compacted, used to
+   * run the compaction of the partitions with the most small files first
+   */
+  public int getSmallFileNum(long timePartition) {
+    return 0;
+  }
+
   public class CompactionMergeTask implements Runnable {
 
     private CloseCompactionMergeCallBack closeCompactionMergeCallBack;
     private long timePartitionId;
+    private int smallFileNum;
 
     public CompactionMergeTask(CloseCompactionMergeCallBack closeCompactionMergeCallBack,
         long timePartitionId) {
       this.closeCompactionMergeCallBack = closeCompactionMergeCallBack;
       this.timePartitionId = timePartitionId;
+      this.smallFileNum = TsFileManagement.this.getSmallFileNum(timePartitionId);
+    }
+
+    public int getSmallFileNum() {
+      return smallFileNum;
     }
 
     @Override
     public void run() {
+      long startTime = System.nanoTime();
       merge(timePartitionId);
+      Measurement.INSTANCE.addOperationLatency(Operation.COMPACTION, startTime);
+      closeCompactionMergeCallBack.call();
+    }
+
+    /**
+     * called instead of run() if the task is dropped before it runs, e.g., when the pool stops.
+     */
+    public void cancel() {
       closeCompactionMergeCallBack.call();
     }
   }
@@ -303,6 +303,27 @@ public class LevelCompactionTsFileManagement extends TsFileManagement {
     return result;
   }
 
+  @Override
+  public int getSmallFileNum(long timePartition) {
+    int result = 0;
+    List<TreeSet<TsFileResource>> partitionSequenceTsFileResource = sequenceTsFileResources
+        .get(timePartition);
+    if (partitionSequenceTsFileResource != null) {
+      // the files in the last level are never compacted again
+      for (int i = 0; i < seqLevelNum - 1; i++) {
+        result += partitionSequenceTsFileResource.get(i).size();
+      }
+    }
+    List<List<TsFileResource>> partitionUnSequenceTsFileResource = unSequenceTsFileResources
+        .get(timePartition);
+    if (partitionUnSequenceTsFileResource != null) {
+      for (List<TsFileResource> levelTsFileResource : partitionUnSequenceTsFileResource) {
+        result += levelTsFileResource.size();
+      }
+    }
+    return result;
+  }
+
   /**
    * recover files
    */
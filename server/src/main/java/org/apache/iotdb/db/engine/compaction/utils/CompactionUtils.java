@@ -33,10 +33,20 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.compaction.CompactionMergeTaskPoolManager;
+import org.apache.iotdb.db.engine.compaction.CompactionScheduler;
 import org.apache.iotdb.db.engine.merge.manage.MergeManager;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Chunk;
@@ -107,51 +117,306 @@ public class CompactionUtils {
     return maxVersion;
   }
 
-  private static long writeByAppendMerge(long maxVersion, String device,
-      RateLimiter compactionWriteRateLimiter,
-      Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadatasMap,
-      TsFileResource targetResource, RestorableTsFileIOWriter writer) throws IOException {
+  private static MergedSeries mergeByAppend(
+      Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadatasMap) throws IOException {
+    MergedSeries mergedSeries = new MergedSeries();
     Pair<ChunkMetadata, Chunk> chunkPair = readByAppendMerge(readerChunkMetadatasMap);
-    ChunkMetadata newChunkMetadata = chunkPair.left;
-    Chunk newChunk = chunkPair.right;
-    if (newChunkMetadata != null && newChunk != null) {
-      maxVersion = Math.max(newChunkMetadata.getVersion(), maxVersion);
-      // wait for limit write
-      MergeManager.mergeRateLimiterAcquire(compactionWriteRateLimiter,
-          (long) newChunk.getHeader().getDataSize() + newChunk.getData().position());
-      writer.writeChunk(newChunk, newChunkMetadata);
-      targetResource.updateStartTime(device, newChunkMetadata.getStartTime());
-      targetResource.updateEndTime(device, newChunkMetadata.getEndTime());
+    if (chunkPair.left != null && chunkPair.right != null) {
+      MergedChunk mergedChunk = new MergedChunk();
+      mergedChunk.chunkMetadata = chunkPair.left;
+      mergedChunk.chunk = chunkPair.right;
+      mergedSeries.chunks.add(mergedChunk);
+      mergedSeries.maxVersion = chunkPair.left.getVersion();
     }
-    return maxVersion;
+    return mergedSeries;
   }
 
-  private static long writeByDeserializeMerge(long maxVersion, String device,
-      RateLimiter compactionRateLimiter,
-      Entry<String, Map<TsFileSequenceReader, List<ChunkMetadata>>> entry,
-      TsFileResource targetResource, RestorableTsFileIOWriter writer) throws IOException {
+  private static MergedSeries mergeByDeserialize(String measurement,
+      Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadatasMap) throws IOException {
+    MergedSeries mergedSeries = new MergedSeries();
     Map<Long, TimeValuePair> timeValuePairMap = new TreeMap<>();
-    maxVersion = readByDeserializeMerge(entry.getValue(), maxVersion, timeValuePairMap);
-    Iterator<List<ChunkMetadata>> chunkMetadataListIterator = entry.getValue().values()
+    mergedSeries.maxVersion = readByDeserializeMerge(readerChunkMetadatasMap, Long.MIN_VALUE,
+        timeValuePairMap);
+    Iterator<List<ChunkMetadata>> chunkMetadataListIterator = readerChunkMetadatasMap.values()
         .iterator();
     if (!chunkMetadataListIterator.hasNext()) {
-      return maxVersion;
+      return mergedSeries;
     }
     List<ChunkMetadata> chunkMetadataList = chunkMetadataListIterator.next();
     if (chunkMetadataList.isEmpty()) {
-      return maxVersion;
+      return mergedSeries;
     }
+    MergedChunk mergedChunk = new MergedChunk();
     IChunkWriter chunkWriter = new ChunkWriterImpl(
-        new MeasurementSchema(entry.getKey(), chunkMetadataList.get(0).getDataType()));
+        new MeasurementSchema(measurement, chunkMetadataList.get(0).getDataType()));
     for (TimeValuePair timeValuePair : timeValuePairMap.values()) {
       writeTVPair(timeValuePair, chunkWriter);
-      targetResource.updateStartTime(device, timeValuePair.getTimestamp());
-      targetResource.updateEndTime(device, timeValuePair.getTimestamp());
+      mergedChunk.startTime = Math.min(mergedChunk.startTime, timeValuePair.getTimestamp());
+      mergedChunk.endTime = Math.max(mergedChunk.endTime, timeValuePair.getTimestamp());
+    }
+    mergedChunk.chunkWriter = chunkWriter;
+    mergedSeries.chunks.add(mergedChunk);
+    return mergedSeries;
+  }
+
+  /**
+   * the chunks can be copied as they are if they are ordered by time without overlapping and
+   * none of them has deleted data.
+   */
+  private static boolean canCopyChunks(
+      Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadatasMap) {
+    long lastEndTime = Long.MIN_VALUE;
+    boolean isFirstChunk = true;
+    for (List<ChunkMetadata> chunkMetadatas : readerChunkMetadatasMap.values()) {
+      for (ChunkMetadata chunkMetadata : chunkMetadatas) {
+        if (chunkMetadata.getDeleteIntervalList() != null
+            && !chunkMetadata.getDeleteIntervalList().isEmpty()) {
+          return false;
+        }
+        if (!isFirstChunk && chunkMetadata.getStartTime() <= lastEndTime) {
+          return false;
+        }
+        isFirstChunk = false;
+        lastEndTime = chunkMetadata.getEndTime();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Copy the large chunks to the target file as they are stored, and coalesce each run of small
+   * adjacent chunks into one chunk of about merge_page_point_num points. A run of a single small
+   * chunk is copied too, as rewriting it reduces nothing.
+   */
+  private static MergedSeries mergeByCopy(String measurement,
+      Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadatasMap) throws IOException {
+    MergedSeries mergedSeries = new MergedSeries();
+    List<Pair<TsFileSequenceReader, ChunkMetadata>> smallChunks = new ArrayList<>();
+    long smallChunkPointNum = 0;
+    for (Entry<TsFileSequenceReader, List<ChunkMetadata>> entry : readerChunkMetadatasMap
+        .entrySet()) {
+      for (ChunkMetadata chunkMetadata : entry.getValue()) {
+        mergedSeries.maxVersion = Math.max(chunkMetadata.getVersion(), mergedSeries.maxVersion);
+        if (chunkMetadata.getNumOfPoints() >= MERGE_PAGE_POINT_NUM) {
+          coalesceChunks(measurement, smallChunks, mergedSeries);
+          smallChunkPointNum = 0;
+          MergedChunk mergedChunk = new MergedChunk();
+          mergedChunk.reader = entry.getKey();
+          mergedChunk.chunkMetadata = chunkMetadata;
+          mergedSeries.chunks.add(mergedChunk);
+        } else {
+          smallChunks.add(new Pair<>(entry.getKey(), chunkMetadata));
+          smallChunkPointNum += chunkMetadata.getNumOfPoints();
+          if (smallChunkPointNum >= MERGE_PAGE_POINT_NUM) {
+            coalesceChunks(measurement, smallChunks, mergedSeries);
+            smallChunkPointNum = 0;
+          }
+        }
+      }
+    }
+    coalesceChunks(measurement, smallChunks, mergedSeries);
+    return mergedSeries;
+  }
+
+  /**
+   * rewrite the small chunks, which are ordered by time without overlapping, into one chunk of
+   * the merged series, and clear them.
+   */
+  private static void coalesceChunks(String measurement,
+      List<Pair<TsFileSequenceReader, ChunkMetadata>> smallChunks, MergedSeries mergedSeries)
+      throws IOException {
+    if (smallChunks.isEmpty()) {
+      return;
+    }
+    MergedChunk mergedChunk = new MergedChunk();
+    if (smallChunks.size() == 1) {
+      mergedChunk.reader = smallChunks.get(0).left;
+      mergedChunk.chunkMetadata = smallChunks.get(0).right;
+    } else {
+      IChunkWriter chunkWriter = new ChunkWriterImpl(
+          new MeasurementSchema(measurement, smallChunks.get(0).right.getDataType()));
+      for (Pair<TsFileSequenceReader, ChunkMetadata> smallChunk : smallChunks) {
+        IChunkReader chunkReader = new ChunkReaderByTimestamp(
+            smallChunk.left.readMemChunk(smallChunk.right));
+        while (chunkReader.hasNextSatisfiedPage()) {
+          IPointReader iPointReader = new BatchDataIterator(chunkReader.nextPageData());
+          while (iPointReader.hasNextTimeValuePair()) {
+            writeTVPair(iPointReader.nextTimeValuePair(), chunkWriter);
+          }
+        }
+      }
+      mergedChunk.chunkWriter = chunkWriter;
+      mergedChunk.startTime = smallChunks.get(0).right.getStartTime();
+      mergedChunk.endTime = smallChunks.get(smallChunks.size() - 1).right.getEndTime();
+    }
+    mergedSeries.chunks.add(mergedChunk);
+    smallChunks.clear();
+  }
+
+  private static MergedSeries mergeSeries(String measurement,
+      Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadatasMap, boolean sequence,
+      String storageGroup) throws IOException {
+    if (!sequence) {
+      return mergeByDeserialize(measurement, readerChunkMetadatasMap);
+    }
+    if (canCopyChunks(readerChunkMetadatasMap)) {
+      logger.debug("{} [Compaction] chunks do not overlap, use copy merge", storageGroup);
+      // copy the compressed chunks, so most chunks are neither decompressed nor decoded
+      return mergeByCopy(measurement, readerChunkMetadatasMap);
+    }
+    boolean isPageEnoughLarge = true;
+    for (List<ChunkMetadata> chunkMetadatas : readerChunkMetadatasMap.values()) {
+      for (ChunkMetadata chunkMetadata : chunkMetadatas) {
+        if (chunkMetadata.getNumOfPoints() < MERGE_PAGE_POINT_NUM) {
+          isPageEnoughLarge = false;
+          break;
+        }
+      }
+    }
+    if (isPageEnoughLarge) {
+      logger.debug("{} [Compaction] page enough large, use append merge", storageGroup);
+      // append page in chunks, so we do not have to deserialize a chunk
+      return mergeByAppend(readerChunkMetadatasMap);
+    } else {
+      logger.debug("{} [Compaction] page too small, use deserialize merge", storageGroup);
+      // we have to deserialize chunks to merge pages
+      return mergeByDeserialize(measurement, readerChunkMetadatasMap);
+    }
+  }
+
+  private static long writeMergedSeries(long maxVersion, String device,
+      RateLimiter compactionWriteRateLimiter, MergedSeries mergedSeries,
+      TsFileResource targetResource, RestorableTsFileIOWriter writer) throws IOException {
+    maxVersion = Math.max(mergedSeries.maxVersion, maxVersion);
+    for (MergedChunk mergedChunk : mergedSeries.chunks) {
+      if (mergedChunk.reader != null) {
+        ChunkMetadata chunkMetadata = mergedChunk.chunkMetadata;
+        long startPos = writer.getPos();
+        writer.copyChunk(mergedChunk.reader, chunkMetadata);
+        // the size of a copied chunk is known only after it is copied
+        MergeManager.mergeRateLimiterAcquire(compactionWriteRateLimiter,
+            writer.getPos() - startPos);
+        targetResource.updateStartTime(device, chunkMetadata.getStartTime());
+        targetResource.updateEndTime(device, chunkMetadata.getEndTime());
+      } else if (mergedChunk.chunk != null) {
+        Chunk newChunk = mergedChunk.chunk;
+        ChunkMetadata newChunkMetadata = mergedChunk.chunkMetadata;
+        // wait for limit write
+        MergeManager.mergeRateLimiterAcquire(compactionWriteRateLimiter,
+            (long) newChunk.getHeader().getDataSize() + newChunk.getData().position());
+        writer.writeChunk(newChunk, newChunkMetadata);
+        targetResource.updateStartTime(device, newChunkMetadata.getStartTime());
+        targetResource.updateEndTime(device, newChunkMetadata.getEndTime());
+      } else if (mergedChunk.chunkWriter != null) {
+        if (mergedChunk.startTime <= mergedChunk.endTime) {
+          targetResource.updateStartTime(device, mergedChunk.startTime);
+          targetResource.updateEndTime(device, mergedChunk.endTime);
+        }
+        // wait for limit write
+        MergeManager.mergeRateLimiterAcquire(compactionWriteRateLimiter,
+            mergedChunk.chunkWriter.getCurrentChunkSize());
+        mergedChunk.chunkWriter.writeToFileWriter(writer);
+      }
+    }
+    return maxVersion;
+  }
+
+  /**
+   * Merge the series concurrently by the current thread and at most
+   * compaction_series_parallelism - 1 sub tasks in the compaction thread pool, and write them to
+   * the target file in the order of the list. The current thread never waits for a series which is
+   * not being merged but merges it itself, so the compaction goes on even if the pool is full. At
+   * most parallelism series are merged but not written at a time, so a slow writer does not let
+   * the merged series pile up in memory.
+   *
+   * @param seriesList pairs of a measurement and its chunk metadata in each source file
+   * @return the max version of the written chunks and the given maxVersion
+   */
+  @SuppressWarnings({"squid:S3776", "squid:S1181"})
+  private static long mergeSeriesInOrder(
+      List<Pair<String, Map<TsFileSequenceReader, List<ChunkMetadata>>>> seriesList,
+      boolean sequence, String storageGroup, long maxVersion, String device,
+      RateLimiter compactionWriteRateLimiter, TsFileResource targetResource,
+      RestorableTsFileIOWriter writer) throws IOException {
+    int seriesNum = seriesList.size();
+    List<CompletableFuture<MergedSeries>> mergedSeriesFutures = new ArrayList<>(seriesNum);
+    for (int i = 0; i < seriesNum; i++) {
+      mergedSeriesFutures.add(new CompletableFuture<>());
+    }
+    int parallelism = Math.min(seriesNum,
+        IoTDBDescriptor.getInstance().getConfig().getCompactionSeriesParallelism());
+    // a permit is taken when a series is claimed and returned when it is written
+    Semaphore lookAhead = new Semaphore(parallelism);
+    AtomicInteger nextSeriesIndex = new AtomicInteger();
+    AtomicBoolean failed = new AtomicBoolean(false);
+    // merge the next series which is not claimed by other threads, false if there is none. The
+    // caller must hold a permit of lookAhead, which is kept until the merged series is written
+    BooleanSupplier mergeNextSeries = () -> {
+      int index = nextSeriesIndex.getAndIncrement();
+      if (index >= seriesNum) {
+        lookAhead.release();
+        return false;
+      }
+      if (failed.get()) {
+        // the claimed series must be completed, as the writing thread may be waiting for it
+        mergedSeriesFutures.get(index)
+            .completeExceptionally(new IOException("Another series fails to merge"));
+        lookAhead.release();
+        return false;
+      }
+      Pair<String, Map<TsFileSequenceReader, List<ChunkMetadata>>> series = seriesList.get(index);
+      try {
+        mergedSeriesFutures.get(index)
+            .complete(mergeSeries(series.left, series.right, sequence, storageGroup));
+      } catch (Throwable e) {
+        // the thread writing the series must be woken up whatever happens
+        failed.set(true);
+        mergedSeriesFutures.get(index).completeExceptionally(e);
+      }
+      return true;
+    };
+
+    for (int i = 1; i < parallelism; i++) {
+      CompactionMergeTaskPoolManager.getInstance().submitSubTask(() -> {
+        // merge until all series are claimed
+        do {
+          try {
+            lookAhead.acquire();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        } while (mergeNextSeries.getAsBoolean());
+      });
+    }
+
+    try {
+      for (int i = 0; i < seriesNum; i++) {
+        CompletableFuture<MergedSeries> mergedSeriesFuture = mergedSeriesFutures.get(i);
+        while (!mergedSeriesFuture.isDone() && lookAhead.tryAcquire()
+            && mergeNextSeries.getAsBoolean()) {
+          // the series is being merged by a sub task, help merging the following ones
+        }
+        MergedSeries mergedSeries = mergedSeriesFuture.get();
+        // release the merged data as soon as it is written
+        mergedSeriesFutures.set(i, null);
+        maxVersion = writeMergedSeries(maxVersion, device, compactionWriteRateLimiter,
+            mergedSeries, targetResource, writer);
+        lookAhead.release();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } finally {
+      // stop the sub tasks from claiming more series, and wake up those waiting for a permit
+      failed.set(true);
+      lookAhead.release(parallelism);
     }
-    // wait for limit write
-    MergeManager
-        .mergeRateLimiterAcquire(compactionRateLimiter, chunkWriter.getCurrentChunkSize());
-    chunkWriter.writeToFileWriter(writer);
     return maxVersion;
   }
 
@@ -185,83 +450,63 @@ public class CompactionUtils {
       Set<String> devices, boolean sequence) throws IOException {
     RestorableTsFileIOWriter writer = new RestorableTsFileIOWriter(targetResource.getTsFile());
     Map<String, TsFileSequenceReader> tsFileSequenceReaderMap = new HashMap<>();
-    RateLimiter compactionWriteRateLimiter = MergeManager.getINSTANCE().getMergeWriteRateLimiter();
+    RateLimiter compactionWriteRateLimiter = CompactionScheduler.getInstance()
+        .getWriteRateLimiter();
     Set<String> tsFileDevicesMap = getTsFileDevicesSet(tsFileResources, tsFileSequenceReaderMap,
         storageGroup);
+    int seriesBatchSize = IoTDBDescriptor.getInstance().getConfig()
+        .getCompactionSeriesBatchSize();
     for (String device : tsFileDevicesMap) {
       if (devices.contains(device)) {
         continue;
       }
       writer.startChunkGroup(device);
-      // sort chunkMeta by measurement
-      Map<String, Map<TsFileSequenceReader, List<ChunkMetadata>>> measurementChunkMetadataMap = new HashMap<>();
+      // only the metadata of the series are loaded at first, the chunk metadata are loaded batch
+      // by batch when the series are merged
+      Map<TsFileSequenceReader, Map<String, TimeseriesMetadata>> readerTimeseriesMetadataMap =
+          new LinkedHashMap<>();
+      Set<String> measurements = new TreeSet<>();
       for (TsFileResource levelResource : tsFileResources) {
         TsFileSequenceReader reader = buildReaderFromTsFileResource(levelResource,
             tsFileSequenceReaderMap, storageGroup);
-        Map<String, List<ChunkMetadata>> chunkMetadataMap = reader
-            .readChunkMetadataInDevice(device);
-        for (Entry<String, List<ChunkMetadata>> entry : chunkMetadataMap.entrySet()) {
-          for (ChunkMetadata chunkMetadata : entry.getValue()) {
-            Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadataMap;
-            String measurementUid = chunkMetadata.getMeasurementUid();
-            if (measurementChunkMetadataMap.containsKey(measurementUid)) {
-              readerChunkMetadataMap = measurementChunkMetadataMap.get(measurementUid);
-            } else {
-              readerChunkMetadataMap = new LinkedHashMap<>();
-            }
-            List<ChunkMetadata> chunkMetadataList;
-            if (readerChunkMetadataMap.containsKey(reader)) {
-              chunkMetadataList = readerChunkMetadataMap.get(reader);
-            } else {
-              chunkMetadataList = new ArrayList<>();
-            }
-            chunkMetadataList.add(chunkMetadata);
-            readerChunkMetadataMap.put(reader, chunkMetadataList);
-            measurementChunkMetadataMap
-                .put(chunkMetadata.getMeasurementUid(), readerChunkMetadataMap);
-          }
+        if (reader == null) {
+          continue;
         }
+        Map<String, TimeseriesMetadata> timeseriesMetadataMap = reader.readDeviceMetadata(device);
+        readerTimeseriesMetadataMap.put(reader, timeseriesMetadataMap);
+        measurements.addAll(timeseriesMetadataMap.keySet());
       }
-      if (!sequence) {
-        long maxVersion = Long.MIN_VALUE;
-        for (Entry<String, Map<TsFileSequenceReader, List<ChunkMetadata>>> entry : measurementChunkMetadataMap
-            .entrySet()) {
-          maxVersion = writeByDeserializeMerge(maxVersion, device, compactionWriteRateLimiter,
-              entry,
-              targetResource, writer);
-        }
-        writer.endChunkGroup();
-        writer.writeVersion(maxVersion);
-      } else {
-        long maxVersion = Long.MIN_VALUE;
-        for (Entry<String, Map<TsFileSequenceReader, List<ChunkMetadata>>> entry : measurementChunkMetadataMap
-            .entrySet()) {
-          Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadatasMap = entry.getValue();
-          boolean isPageEnoughLarge = true;
-          for (List<ChunkMetadata> chunkMetadatas : readerChunkMetadatasMap.values()) {
-            for (ChunkMetadata chunkMetadata : chunkMetadatas) {
-              if (chunkMetadata.getNumOfPoints() < MERGE_PAGE_POINT_NUM) {
-                isPageEnoughLarge = false;
-                break;
-              }
+
+      long maxVersion = Long.MIN_VALUE;
+      List<String> measurementList = new ArrayList<>(measurements);
+      for (int batchStart = 0; batchStart < measurementList.size();
+          batchStart += seriesBatchSize) {
+        // sort chunkMeta by measurement
+        List<Pair<String, Map<TsFileSequenceReader, List<ChunkMetadata>>>> seriesList =
+            new ArrayList<>();
+        for (String measurement : measurementList.subList(batchStart,
+            Math.min(batchStart + seriesBatchSize, measurementList.size()))) {
+          Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadataMap =
+              new LinkedHashMap<>();
+          for (Entry<TsFileSequenceReader, Map<String, TimeseriesMetadata>> entry :
+              readerTimeseriesMetadataMap.entrySet()) {
+            TimeseriesMetadata timeseriesMetadata = entry.getValue().get(measurement);
+            if (timeseriesMetadata == null) {
+              continue;
+            }
+            List<ChunkMetadata> chunkMetadataList = entry.getKey()
+                .readChunkMetaDataList(timeseriesMetadata);
+            if (!chunkMetadataList.isEmpty()) {
+              readerChunkMetadataMap.put(entry.getKey(), chunkMetadataList);
             }
           }
-          if (isPageEnoughLarge) {
-            logger.debug("{} [Compaction] page enough large, use append merge", storageGroup);
-            // append page in chunks, so we do not have to deserialize a chunk
-            maxVersion = writeByAppendMerge(maxVersion, device, compactionWriteRateLimiter,
-                readerChunkMetadatasMap, targetResource, writer);
-          } else {
-            logger
-                .debug("{} [Compaction] page too small, use deserialize merge", storageGroup);
-            // we have to deserialize chunks to merge pages
-            maxVersion = writeByDeserializeMerge(maxVersion, device, compactionWriteRateLimiter,
-                entry, targetResource, writer);
-          }
+          seriesList.add(new Pair<>(measurement, readerChunkMetadataMap));
         }
-        writer.endChunkGroup();
-        writer.writeVersion(maxVersion);
+        maxVersion = mergeSeriesInOrder(seriesList, sequence, storageGroup, maxVersion, device,
+            compactionWriteRateLimiter, targetResource, writer);
       }
+      writer.endChunkGroup();
+      writer.writeVersion(maxVersion);
       if (compactionLogger != null) {
         compactionLogger.logDevice(device, writer.getPos());
       }
@@ -299,4 +544,43 @@ public class CompactionUtils {
           }
         });
   }
-}
\ No newline at end of file
+
+  /**
+   * the merged data of a series, which is prepared concurrently with other series and then written
+   * to the target file in order.
+   */
+  private static class MergedSeries {
+
+    private long maxVersion = Long.MIN_VALUE;
+    private final List<MergedChunk> chunks = new ArrayList<>();
+  }
+
+  /**
+   * a chunk of a merged series, which is either copied from a source file, or appended from the
+   * pages of the source chunks, or rewritten from the deserialized points.
+   */
+  private static class MergedChunk {
+
+    /**
+     * the file which the chunk is copied from, null if the chunk is not copied
+     */
+    private TsFileSequenceReader reader;
+
+    /**
+     * the metadata of the copied or appended chunk
+     */
+    private ChunkMetadata chunkMetadata;
+
+    /**
+     * the chunk whose pages are appended from the source chunks
+     */
+    private Chunk chunk;
+
+    /**
+     * the chunk writer holding the deserialized points
+     */
+    private IChunkWriter chunkWriter;
+    private long startTime = Long.MAX_VALUE;
+    private long endTime = Long.MIN_VALUE;
+  }
+}
@@ -81,6 +81,41 @@ public class FlushManager implements FlushManagerMBean, IService {
     return FlushSubTaskPoolManager.getInstance().getWaitingTasksNumber();
   }
 
+  @Override
+  public long getNumberOfFlushedMemTables() {
+    return FlushStatistics.getInstance().getFlushTimeInUs().getCount();
+  }
+
+  @Override
+  public double getAverageSortTimeInUs() {
+    return FlushStatistics.getInstance().getSortTimeInUs().getMean();
+  }
+
+  @Override
+  public double getAverageEncodingTimeInUs() {
+    return FlushStatistics.getInstance().getEncodingTimeInUs().getMean();
+  }
+
+  @Override
+  public double getAverageIoTimeInUs() {
+    return FlushStatistics.getInstance().getIoTimeInUs().getMean();
+  }
+
+  @Override
+  public double getAverageBackpressureTimeInUs() {
+    return FlushStatistics.getInstance().getBackpressureTimeInUs().getMean();
+  }
+
+  @Override
+  public double getAverageFlushTimeInUs() {
+    return FlushStatistics.getInstance().getFlushTimeInUs().getMean();
+  }
+
+  @Override
+  public String getFlushStageStatistics() {
+    return FlushStatistics.getInstance().toString();
+  }
+
   class FlushThread extends WrappedRunnable {
 
     @Override
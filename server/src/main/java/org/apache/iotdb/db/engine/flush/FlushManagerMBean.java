@@ -28,4 +28,18 @@ public interface FlushManagerMBean {
   public int getNumberOfWorkingSubTasks();
 
   public int getNumberOfPendingSubTasks();
+
+  public long getNumberOfFlushedMemTables();
+
+  public double getAverageSortTimeInUs();
+
+  public double getAverageEncodingTimeInUs();
+
+  public double getAverageIoTimeInUs();
+
+  public double getAverageBackpressureTimeInUs();
+
+  public double getAverageFlushTimeInUs();
+
+  public String getFlushStageStatistics();
 }
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.flush;
+
+import org.apache.iotdb.db.cost.statistic.Histogram;
+
+/**
+ * FlushStatistics collects the time cost of each stage of the memtable flush pipeline. Every
+ * value is the total time of one stage in flushing one memtable.
+ */
+public class FlushStatistics {
+
+  /**
+   * time (in microseconds) of sorting the series of a memtable.
+   */
+  private final Histogram sortTimeInUs = new Histogram("FLUSH_SORT_TIME_IN_US");
+
+  /**
+   * time (in microseconds) of encoding the chunks of a memtable, summed over the encoding tasks.
+   */
+  private final Histogram encodingTimeInUs = new Histogram("FLUSH_ENCODING_TIME_IN_US");
+
+  /**
+   * time (in microseconds) of writing the chunks of a memtable into the file.
+   */
+  private final Histogram ioTimeInUs = new Histogram("FLUSH_IO_TIME_IN_US");
+
+  /**
+   * time (in microseconds) the sorting thread is blocked because the pipeline buffer is full.
+   */
+  private final Histogram backpressureTimeInUs = new Histogram("FLUSH_BACKPRESSURE_TIME_IN_US");
+
+  /**
+   * time (in microseconds) of flushing a memtable from the beginning to the end.
+   */
+  private final Histogram flushTimeInUs = new Histogram("FLUSH_TIME_IN_US");
+
+  private FlushStatistics() {
+  }
+
+  public static FlushStatistics getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  public Histogram getSortTimeInUs() {
+    return sortTimeInUs;
+  }
+
+  public Histogram getEncodingTimeInUs() {
+    return encodingTimeInUs;
+  }
+
+  public Histogram getIoTimeInUs() {
+    return ioTimeInUs;
+  }
+
+  public Histogram getBackpressureTimeInUs() {
+    return backpressureTimeInUs;
+  }
+
+  public Histogram getFlushTimeInUs() {
+    return flushTimeInUs;
+  }
+
+  @Override
+  public String toString() {
+    return String.join(System.lineSeparator(), sortTimeInUs.toString(),
+        encodingTimeInUs.toString(), ioTimeInUs.toString(), backpressureTimeInUs.toString(),
+        flushTimeInUs.toString());
+  }
+
+  private static class InstanceHolder {
+
+    private static final FlushStatistics INSTANCE = new FlushStatistics();
+
+    private InstanceHolder() {
+    }
+  }
+}
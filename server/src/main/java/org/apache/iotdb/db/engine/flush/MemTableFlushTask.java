@@ -19,17 +19,24 @@
 package org.apache.iotdb.db.engine.flush;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.cost.statistic.Measurement;
+import org.apache.iotdb.db.cost.statistic.Operation;
 import org.apache.iotdb.db.engine.flush.pool.FlushSubTaskPoolManager;
 import org.apache.iotdb.db.engine.memtable.IMemTable;
 import org.apache.iotdb.db.engine.memtable.IWritableMemChunk;
 import org.apache.iotdb.db.exception.runtime.FlushRunTimeException;
 import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
-import org.apache.iotdb.tsfile.utils.Pair;
 import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
 import org.apache.iotdb.tsfile.write.chunk.IChunkWriter;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
@@ -37,24 +44,42 @@ import org.apache.iotdb.tsfile.write.writer.RestorableTsFileIOWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A MemTableFlushTask flushes a memtable in a pipeline: the caller thread sorts the series one by
+ * one, several encoding tasks encode the sorted series into chunks in parallel, and one io task
+ * writes the chunks into the file. The io task receives the encoding results through futures
+ * which are queued in the order of the series, so the chunks are always written device by device
+ * no matter which encoding task finishes first.
+ *
+ * The stages block on their queues instead of polling them, and the bytes of the chunks between
+ * the sorting and the io are limited by a {@link PipelineBuffer}, so the sorting waits when the
+ * encoded chunks pile up because the disk is slow.
+ */
 public class MemTableFlushTask {
 
   private static final Logger logger = LoggerFactory.getLogger(MemTableFlushTask.class);
   private static final FlushSubTaskPoolManager subTaskPoolManager = FlushSubTaskPoolManager
       .getInstance();
-  private final Future<?> encodingTaskFuture;
+
+  /**
+   * put into a queue to tell the consumers of the queue that there will be no more tasks.
+   */
+  private static final Object NO_MORE_TASKS = new Object();
+
+  private final List<Future<?>> encodingTaskFutures = new ArrayList<>();
   private final Future<?> ioTaskFuture;
   private RestorableTsFileIOWriter writer;
 
-  private final ConcurrentLinkedQueue<Object> ioTaskQueue = new ConcurrentLinkedQueue<>();
-  private final ConcurrentLinkedQueue<Object> encodingTaskQueue = new ConcurrentLinkedQueue<>();
+  private final BlockingQueue<Object> ioTaskQueue = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Object> encodingTaskQueue = new LinkedBlockingQueue<>();
+  private final int encodingTaskNum;
+  private final PipelineBuffer pipelineBuffer = new PipelineBuffer(
+      IoTDBDescriptor.getInstance().getConfig().getFlushPipelineBufferSize());
+  private final AtomicLong encodingTimeInNs = new AtomicLong();
   private String storageGroup;
 
   private IMemTable memTable;
 
-  private volatile boolean noMoreEncodingTask = false;
-  private volatile boolean noMoreIOTask = false;
-
   /**
    * @param memTable the memTable to flush
    * @param writer the writer where memTable will be flushed to (current tsfile writer or vm writer)
@@ -65,10 +90,14 @@ public class MemTableFlushTask {
     this.memTable = memTable;
     this.writer = writer;
     this.storageGroup = storageGroup;
-    this.encodingTaskFuture = subTaskPoolManager.submit(encodingTask);
+    this.encodingTaskNum = Math.max(1,
+        IoTDBDescriptor.getInstance().getConfig().getFlushEncodingThreadNum());
+    for (int i = 0; i < encodingTaskNum; i++) {
+      encodingTaskFutures.add(subTaskPoolManager.submit(encodingTask));
+    }
     this.ioTaskFuture = subTaskPoolManager.submit(ioTask);
-    logger.debug("flush task of Storage group {} memtable {} is created ",
-        storageGroup, memTable.getVersion());
+    logger.debug("flush task of Storage group {} memtable {} is created with {} encoding task(s)",
+        storageGroup, memTable.getVersion(), encodingTaskNum);
   }
 
   /**
@@ -80,34 +109,60 @@ public class MemTableFlushTask {
         storageGroup,
         memTable.memSize(),
         memTable.getTotalPointsNum() / memTable.getSeriesNumber());
-    long start = System.currentTimeMillis();
+    long start = System.nanoTime();
     long sortTime = 0;
+    long backpressureTime = 0;
 
-    for (String deviceId : memTable.getMemTableMap().keySet()) {
-      encodingTaskQueue.add(new StartFlushGroupIOTask(deviceId));
-      for (String measurementId : memTable.getMemTableMap().get(deviceId).keySet()) {
-        long startTime = System.currentTimeMillis();
-        IWritableMemChunk series = memTable.getMemTableMap().get(deviceId).get(measurementId);
-        MeasurementSchema desc = series.getSchema();
-        TVList tvList = series.getSortedTVList();
-        sortTime += System.currentTimeMillis() - startTime;
-        encodingTaskQueue.add(new Pair<>(tvList, desc));
+    try {
+      for (String deviceId : memTable.getMemTableMap().keySet()) {
+        if (pipelineBuffer.isClosed()) {
+          // the io task has stopped, it will report the reason
+          break;
+        }
+        ioTaskQueue.put(new StartFlushGroupIOTask(deviceId));
+        for (String measurementId : memTable.getMemTableMap().get(deviceId).keySet()) {
+          long startTime = System.nanoTime();
+          IWritableMemChunk series = memTable.getMemTableMap().get(deviceId).get(measurementId);
+          MeasurementSchema desc = series.getSchema();
+          TVList tvList = series.getSortedTVList();
+          long sortedTime = System.nanoTime();
+          sortTime += sortedTime - startTime;
+          EncodingMessage encodingMessage = new EncodingMessage(tvList, desc);
+          pipelineBuffer.reserve(encodingMessage.reservedSize);
+          backpressureTime += System.nanoTime() - sortedTime;
+          if (pipelineBuffer.isClosed()) {
+            break;
+          }
+          // the io task waits for the chunks in the order they are queued here
+          ioTaskQueue.put(encodingMessage);
+          encodingTaskQueue.put(encodingMessage);
+        }
+        ioTaskQueue.put(new EndChunkGroupIoTask());
       }
-      encodingTaskQueue.add(new EndChunkGroupIoTask());
+    } finally {
+      // let the sub tasks stop even if the sorting fails
+      for (int i = 0; i < encodingTaskNum; i++) {
+        encodingTaskQueue.add(NO_MORE_TASKS);
+      }
+      ioTaskQueue.add(NO_MORE_TASKS);
     }
-    noMoreEncodingTask = true;
     logger.debug(
-        "Storage group {} memtable {}, flushing into disk: data sort time cost {} ms.",
-        storageGroup, memTable.getVersion(), sortTime);
+        "Storage group {} memtable {}, flushing into disk: data sort time cost {} ms, waiting for "
+            + "the pipeline buffer cost {} ms.", storageGroup, memTable.getVersion(),
+        TimeUnit.NANOSECONDS.toMillis(sortTime), TimeUnit.NANOSECONDS.toMillis(backpressureTime));
 
     try {
-      encodingTaskFuture.get();
+      for (Future<?> encodingTaskFuture : encodingTaskFutures) {
+        encodingTaskFuture.get();
+      }
     } catch (InterruptedException | ExecutionException e) {
       // avoid ioTask waiting forever
-      noMoreIOTask = true;
       ioTaskFuture.cancel(true);
+      abortRemainingEncodingMessages(e);
       throw e;
     }
+    // the encoding tasks may have been aborted before consuming all the messages
+    abortRemainingEncodingMessages(null);
 
     ioTaskFuture.get();
 
@@ -117,9 +172,27 @@ public class MemTableFlushTask {
       throw new ExecutionException(e);
     }
 
+    long flushTime = System.nanoTime() - start;
+    FlushStatistics statistics = FlushStatistics.getInstance();
+    statistics.getSortTimeInUs().update(TimeUnit.NANOSECONDS.toMicros(sortTime));
+    statistics.getBackpressureTimeInUs().update(TimeUnit.NANOSECONDS.toMicros(backpressureTime));
+    statistics.getEncodingTimeInUs()
+        .update(TimeUnit.NANOSECONDS.toMicros(encodingTimeInNs.get()));
+    statistics.getFlushTimeInUs().update(TimeUnit.NANOSECONDS.toMicros(flushTime));
+    Measurement.INSTANCE.addOperationLatency(Operation.FLUSH_MEMTABLE, start);
     logger.info(
         "Storage group {} memtable {} flushing a memtable has finished! Time consumption: {}ms",
-        storageGroup, memTable, System.currentTimeMillis() - start);
+        storageGroup, memTable, TimeUnit.NANOSECONDS.toMillis(flushTime));
+  }
+
+  private void abortRemainingEncodingMessages(Exception cause) {
+    Object task;
+    while ((task = encodingTaskQueue.poll()) != null) {
+      if (task instanceof EncodingMessage) {
+        ((EncodingMessage) task).chunkWriterFuture.completeExceptionally(cause != null ? cause
+            : new IllegalStateException("the encoding tasks stopped before encoding the series"));
+      }
+    }
   }
 
   private Runnable encodingTask = new Runnable() {
@@ -160,95 +233,173 @@ public class MemTableFlushTask {
       }
     }
 
-    @SuppressWarnings("squid:S135")
     @Override
     public void run() {
       long memSerializeTime = 0;
-      boolean noMoreMessages = false;
       logger.debug("Storage group {} memtable {}, starts to encoding data.", storageGroup,
           memTable.getVersion());
       while (true) {
-        if (noMoreEncodingTask) {
-          noMoreMessages = true;
+        Object task;
+        try {
+          task = encodingTaskQueue.take();
+        } catch (InterruptedException e) {
+          logger.error("Storage group {} memtable {}, encoding task is interrupted.",
+              storageGroup, memTable.getVersion(), e);
+          // generally it is because the thread pool is shutdown so the task should be aborted
+          Thread.currentThread().interrupt();
+          break;
         }
-        Object task = encodingTaskQueue.poll();
-        if (task == null) {
-          if (noMoreMessages) {
-            break;
-          }
-          try {
-            TimeUnit.MILLISECONDS.sleep(10);
-          } catch (@SuppressWarnings("squid:S2142") InterruptedException e) {
-            logger.error("Storage group {} memtable {}, encoding task is interrupted.",
-                storageGroup, memTable.getVersion(), e);
-            // generally it is because the thread pool is shutdown so the task should be aborted
-            break;
-          }
-        } else {
-          if (task instanceof StartFlushGroupIOTask || task instanceof EndChunkGroupIoTask) {
-            ioTaskQueue.add(task);
-          } else {
-            long starTime = System.currentTimeMillis();
-            Pair<TVList, MeasurementSchema> encodingMessage = (Pair<TVList, MeasurementSchema>) task;
-            IChunkWriter seriesWriter = new ChunkWriterImpl(encodingMessage.right);
-            writeOneSeries(encodingMessage.left, seriesWriter, encodingMessage.right.getType());
-            ioTaskQueue.add(seriesWriter);
-            memSerializeTime += System.currentTimeMillis() - starTime;
-          }
+        if (task == NO_MORE_TASKS) {
+          break;
         }
+        long starTime = System.nanoTime();
+        EncodingMessage encodingMessage = (EncodingMessage) task;
+        try {
+          IChunkWriter seriesWriter = new ChunkWriterImpl(encodingMessage.schema);
+          writeOneSeries(encodingMessage.tvList, seriesWriter, encodingMessage.schema.getType());
+          // the encoded chunk usually takes less memory than the estimation of the raw data
+          long encodedSize = seriesWriter.estimateMaxSeriesMemSize();
+          pipelineBuffer.adjust(encodingMessage.reservedSize, encodedSize);
+          encodingMessage.reservedSize = encodedSize;
+          encodingMessage.chunkWriterFuture.complete(seriesWriter);
+        } catch (RuntimeException e) {
+          encodingMessage.chunkWriterFuture.completeExceptionally(e);
+          throw e;
+        }
+        memSerializeTime += System.nanoTime() - starTime;
       }
-      noMoreIOTask = true;
+      encodingTimeInNs.addAndGet(memSerializeTime);
       logger.debug("Storage group {}, flushing memtable {} into disk: Encoding data cost "
               + "{} ms.",
-          storageGroup, memTable.getVersion(), memSerializeTime);
+          storageGroup, memTable.getVersion(), TimeUnit.NANOSECONDS.toMillis(memSerializeTime));
     }
   };
 
-  @SuppressWarnings("squid:S135")
   private Runnable ioTask = () -> {
     long ioTime = 0;
-    boolean returnWhenNoTask = false;
     logger.debug("Storage group {} memtable {}, start io.", storageGroup, memTable.getVersion());
-    while (true) {
-      if (noMoreIOTask) {
-        returnWhenNoTask = true;
-      }
-      Object ioMessage = ioTaskQueue.poll();
-      if (ioMessage == null) {
-        if (returnWhenNoTask) {
-          break;
-        }
+    try {
+      while (true) {
+        Object ioMessage;
         try {
-          TimeUnit.MILLISECONDS.sleep(10);
-        } catch (@SuppressWarnings("squid:S2142") InterruptedException e) {
+          ioMessage = ioTaskQueue.take();
+        } catch (InterruptedException e) {
           logger.error("Storage group {} memtable {}, io task is interrupted.", storageGroup
               , memTable.getVersion(), e);
           // generally it is because the thread pool is shutdown so the task should be aborted
+          Thread.currentThread().interrupt();
           break;
         }
-      } else {
-        long starTime = System.currentTimeMillis();
-        try {
-          if (ioMessage instanceof StartFlushGroupIOTask) {
-            this.writer.startChunkGroup(((StartFlushGroupIOTask) ioMessage).deviceId);
-          } else if (ioMessage instanceof IChunkWriter) {
-            ChunkWriterImpl chunkWriter = (ChunkWriterImpl) ioMessage;
-            chunkWriter.writeToFileWriter(this.writer);
-          } else {
-            this.writer.endChunkGroup();
+        if (ioMessage == NO_MORE_TASKS) {
+          break;
+        }
+        long starTime = System.nanoTime();
+        if (ioMessage instanceof EncodingMessage) {
+          EncodingMessage encodingMessage = (EncodingMessage) ioMessage;
+          // wait for the encoding of the next series in order
+          writeChunk(encodingMessage);
+          pipelineBuffer.release(encodingMessage.reservedSize);
+        } else {
+          try {
+            if (ioMessage instanceof StartFlushGroupIOTask) {
+              this.writer.startChunkGroup(((StartFlushGroupIOTask) ioMessage).deviceId);
+            } else {
+              this.writer.endChunkGroup();
+            }
+          } catch (IOException e) {
+            logger.error("Storage group {} memtable {}, io task meets error.", storageGroup,
+                memTable.getVersion(), e);
+            throw new FlushRunTimeException(e);
           }
-        } catch (IOException e) {
-          logger.error("Storage group {} memtable {}, io task meets error.", storageGroup,
-              memTable.getVersion(), e);
-          throw new FlushRunTimeException(e);
         }
-        ioTime += System.currentTimeMillis() - starTime;
+        ioTime += System.nanoTime() - starTime;
       }
+    } finally {
+      // never let the sorting thread wait for a buffer that will not be released
+      pipelineBuffer.close();
     }
+    FlushStatistics.getInstance().getIoTimeInUs().update(TimeUnit.NANOSECONDS.toMicros(ioTime));
     logger.debug("flushing a memtable {} in storage group {}, io cost {}ms", memTable.getVersion(),
-        storageGroup, ioTime);
+        storageGroup, TimeUnit.NANOSECONDS.toMillis(ioTime));
   };
 
+  private void writeChunk(EncodingMessage encodingMessage) {
+    try {
+      ChunkWriterImpl chunkWriter = (ChunkWriterImpl) encodingMessage.chunkWriterFuture.get();
+      chunkWriter.writeToFileWriter(this.writer);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new FlushRunTimeException(e);
+    } catch (ExecutionException | IOException e) {
+      logger.error("Storage group {} memtable {}, io task meets error.", storageGroup,
+          memTable.getVersion(), e);
+      throw new FlushRunTimeException(e);
+    }
+  }
+
+  static class EncodingMessage {
+
+    private final TVList tvList;
+    private final MeasurementSchema schema;
+    private final CompletableFuture<IChunkWriter> chunkWriterFuture = new CompletableFuture<>();
+    /**
+     * the bytes reserved in the pipeline buffer, the raw size of the series before it is encoded
+     * and the size of the encoded chunk after that.
+     */
+    private long reservedSize;
+
+    EncodingMessage(TVList tvList, MeasurementSchema schema) {
+      this.tvList = tvList;
+      this.schema = schema;
+      this.reservedSize = (long) tvList.size() * (Long.BYTES + schema.getType().getDataTypeSize());
+    }
+  }
+
+  /**
+   * PipelineBuffer limits the bytes of the series which are sorted but not yet written into the
+   * file. Only the sorting thread waits for it, and the series are released in the order they are
+   * reserved, so the encoding and io tasks can always make progress.
+   */
+  static class PipelineBuffer {
+
+    private final long capacity;
+    private long usedSize = 0;
+    private boolean closed = false;
+
+    PipelineBuffer(long capacity) {
+      this.capacity = capacity;
+    }
+
+    synchronized void reserve(long size) throws InterruptedException {
+      // a series larger than the whole buffer is let through when the buffer is empty
+      while (!closed && capacity > 0 && usedSize > 0 && usedSize + size > capacity) {
+        wait();
+      }
+      usedSize += size;
+    }
+
+    synchronized void adjust(long oldSize, long newSize) {
+      usedSize += newSize - oldSize;
+      if (newSize < oldSize) {
+        notifyAll();
+      }
+    }
+
+    synchronized void release(long size) {
+      usedSize -= size;
+      notifyAll();
+    }
+
+    synchronized void close() {
+      closed = true;
+      notifyAll();
+    }
+
+    synchronized boolean isClosed() {
+      return closed;
+    }
+  }
+
   static class EndChunkGroupIoTask {
 
     EndChunkGroupIoTask() {
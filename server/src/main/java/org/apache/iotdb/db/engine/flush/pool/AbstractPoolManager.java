@@ -63,11 +63,14 @@ public abstract class AbstractPoolManager {
   }
 
   public int getWorkingTasksNumber() {
-    return ((ThreadPoolExecutor) pool).getActiveCount();
+    // the pool is null after it is stopped, but the metrics may still be read
+    ExecutorService currentPool = pool;
+    return currentPool == null ? 0 : ((ThreadPoolExecutor) currentPool).getActiveCount();
   }
 
   public int getWaitingTasksNumber() {
-    return ((ThreadPoolExecutor) pool).getQueue().size();
+    ExecutorService currentPool = pool;
+    return currentPool == null ? 0 : ((ThreadPoolExecutor) currentPool).getQueue().size();
   }
 
   public int getTotalTasks() {
@@ -249,10 +249,11 @@ public abstract class AbstractMemTable implements IMemTable {
     }
     List<TimeRange> deletionList = constructDeletionList(deviceId, measurement, timeLowerBound);
     IWritableMemChunk memChunk = memTableMap.get(deviceId).get(measurement);
-    TVList chunkCopy = memChunk.getTVList().clone();
+    TVList chunkSnapshot = memChunk.getSnapshotTVList();
 
-    chunkCopy.setDeletionList(deletionList);
-    return new ReadOnlyMemChunk(measurement, dataType, encoding, chunkCopy, props, getVersion());
+    chunkSnapshot.setDeletionList(deletionList);
+    return new ReadOnlyMemChunk(measurement, dataType, encoding, chunkSnapshot, props,
+        getVersion());
   }
 
   private List<TimeRange> constructDeletionList(String deviceId, String measurement,
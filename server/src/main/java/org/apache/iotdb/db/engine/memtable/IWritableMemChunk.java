@@ -54,6 +54,9 @@ public interface IWritableMemChunk {
 
   /**
    * [start, end)
+   *
+   * @param valueList a primitive array, or a ByteBuffer holding the serialized values of a
+   * non-TEXT column, see InsertTabletPlan.getColumns()
    */
   void write(long[] times, Object valueList, TSDataType dataType, int start, int end);
 
@@ -74,6 +77,14 @@ public interface IWritableMemChunk {
     return null;
   }
 
+  /**
+   * served for query requests, the points in the returned list are not changed by later
+   * insertions, sorting or deletions of this chunk.
+   */
+  default TVList getSnapshotTVList() {
+    return null;
+  }
+
   default long getMinTime() {
     return Long.MIN_VALUE;
   }
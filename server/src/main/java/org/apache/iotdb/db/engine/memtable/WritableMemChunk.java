@@ -18,6 +18,7 @@
  */
 package org.apache.iotdb.db.engine.memtable;
 
+import java.nio.ByteBuffer;
 import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -62,6 +63,10 @@ public class WritableMemChunk implements IWritableMemChunk {
 
   @Override
   public void write(long[] times, Object valueList, TSDataType dataType, int start, int end) {
+    if (valueList instanceof ByteBuffer) {
+      writeSerialized(times, (ByteBuffer) valueList, dataType, start, end);
+      return;
+    }
     switch (dataType) {
       case BOOLEAN:
         boolean[] boolValues = (boolean[]) valueList;
@@ -92,6 +97,33 @@ public class WritableMemChunk implements IWritableMemChunk {
     }
   }
 
+  /**
+   * copy the values of a column still serialized in the buffer of the request straight into the
+   * TVList, through a typed view of the buffer.
+   */
+  private void writeSerialized(long[] times, ByteBuffer column, TSDataType dataType, int start,
+      int end) {
+    switch (dataType) {
+      case BOOLEAN:
+        list.putBooleans(times, column, start, end);
+        break;
+      case INT32:
+        list.putInts(times, column.asIntBuffer(), start, end);
+        break;
+      case INT64:
+        list.putLongs(times, column.asLongBuffer(), start, end);
+        break;
+      case FLOAT:
+        list.putFloats(times, column.asFloatBuffer(), start, end);
+        break;
+      case DOUBLE:
+        list.putDoubles(times, column.asDoubleBuffer(), start, end);
+        break;
+      default:
+        throw new UnSupportedDataTypeException("Unsupported serialized data type:" + dataType);
+    }
+  }
+
   @Override
   public void putLong(long t, long v) {
     list.putLong(t, v);
@@ -163,6 +195,11 @@ public class WritableMemChunk implements IWritableMemChunk {
     return list;
   }
 
+  @Override
+  public TVList getSnapshotTVList() {
+    return list.getSnapshot();
+  }
+
   @Override
   public long count() {
     return list.size();
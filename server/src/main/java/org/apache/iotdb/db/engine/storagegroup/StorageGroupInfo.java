@@ -24,6 +24,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.rescon.SystemInfo;
+import org.apache.iotdb.db.writelog.node.ExclusiveWriteLogNode;
 
 /**
  * The storageGroupInfo records the total memory cost of the Storage Group.
@@ -65,7 +66,7 @@ public class StorageGroupInfo {
    */
   public void initTsFileProcessorInfo(TsFileProcessor tsFileProcessor) {
     if (reportedTsps.add(tsFileProcessor)) {
-      memoryCost.getAndAdd(IoTDBDescriptor.getInstance().getConfig().getWalBufferSize());
+      memoryCost.getAndAdd(ExclusiveWriteLogNode.getBufferMemoryCost());
     }
   }
 
@@ -25,6 +25,7 @@ import static org.apache.iotdb.tsfile.common.constant.TsFileConstant.TSFILE_SUFF
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -39,6 +40,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -146,7 +148,10 @@ public class StorageGroupProcessor {
    * a read write lock for guaranteeing concurrent safety when accessing all fields in this class
    * (i.e., schema, (un)sequenceFileList, work(un)SequenceTsFileProcessor,
    * closing(Un)SequenceTsFileProcessor, latestTimeForEachDevice, and
-   * partitionLatestFlushedTimeForEachDevice)
+   * partitionLatestFlushedTimeForEachDevice). Insertions only hold the read lock and are serialized
+   * by the insert lock of each TsFileProcessor, so insertions into different time partitions or
+   * into the sequence and unsequence files run in parallel. Creating, flushing and closing
+   * processors need the write lock.
    */
   private final ReadWriteLock insertLock = new ReentrantReadWriteLock();
   /**
@@ -184,7 +189,7 @@ public class StorageGroupProcessor {
    * changes upon timestamps of each device, and is used to update partitionLatestFlushedTimeForEachDevice
    * when a flush is issued.
    */
-  private Map<Long, Map<String, Long>> latestTimeForEachDevice = new HashMap<>();
+  private Map<Long, Map<String, Long>> latestTimeForEachDevice = new ConcurrentHashMap<>();
   /**
    * time partition id -> map, which contains device -> largest timestamp of the latest memtable to
    * be submitted to asyncTryToFlush partitionLatestFlushedTimeForEachDevice determines whether a
@@ -192,18 +197,18 @@ public class StorageGroupProcessor {
    * with timestamp less than or equals to the device's latestFlushedTime should go into an
    * unsequential file.
    */
-  private Map<Long, Map<String, Long>> partitionLatestFlushedTimeForEachDevice = new HashMap<>();
+  private Map<Long, Map<String, Long>> partitionLatestFlushedTimeForEachDevice = new ConcurrentHashMap<>();
 
   /**
    * used to record the latest flush time while upgrading and inserting
    */
-  private Map<Long, Map<String, Long>> newlyFlushedPartitionLatestFlushedTimeForEachDevice = new HashMap<>();
+  private Map<Long, Map<String, Long>> newlyFlushedPartitionLatestFlushedTimeForEachDevice = new ConcurrentHashMap<>();
   /**
    * global mapping of device -> largest timestamp of the latest memtable to * be submitted to
    * asyncTryToFlush, globalLatestFlushedTimeForEachDevice is utilized to maintain global
    * latestFlushedTime of devices and will be updated along with partitionLatestFlushedTimeForEachDevice
    */
-  private Map<String, Long> globalLatestFlushedTimeForEachDevice = new HashMap<>();
+  private Map<String, Long> globalLatestFlushedTimeForEachDevice = new ConcurrentHashMap<>();
   private String storageGroupName;
   private File storageGroupSysDir;
 
@@ -363,10 +368,10 @@ public class StorageGroupProcessor {
         long endTime = resource.getEndTime(index);
         endTimeMap.put(deviceId, endTime);
       }
-      latestTimeForEachDevice.computeIfAbsent(timePartitionId, l -> new HashMap<>())
+      latestTimeForEachDevice.computeIfAbsent(timePartitionId, l -> new ConcurrentHashMap<>())
           .putAll(endTimeMap);
       partitionLatestFlushedTimeForEachDevice
-          .computeIfAbsent(timePartitionId, id -> new HashMap<>())
+          .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>())
           .putAll(endTimeMap);
       globalLatestFlushedTimeForEachDevice.putAll(endTimeMap);
     }
@@ -395,14 +400,14 @@ public class StorageGroupProcessor {
         int index = entry.getValue();
         long endTime = resource.getEndTime(index);
         long endTimePartitionId = StorageEngine.getTimePartition(endTime);
-        latestTimeForEachDevice.computeIfAbsent(endTimePartitionId, l -> new HashMap<>())
+        latestTimeForEachDevice.computeIfAbsent(endTimePartitionId, l -> new ConcurrentHashMap<>())
             .put(deviceId, endTime);
         globalLatestFlushedTimeForEachDevice.put(deviceId, endTime);
 
         // set all the covered partition's LatestFlushedTime to Long.MAX_VALUE
         long partitionId = StorageEngine.getTimePartition(resource.getStartTime(index));
         while (partitionId <= endTimePartitionId) {
-          partitionLatestFlushedTimeForEachDevice.computeIfAbsent(partitionId, l -> new HashMap<>())
+          partitionLatestFlushedTimeForEachDevice.computeIfAbsent(partitionId, l -> new ConcurrentHashMap<>())
               .put(deviceId, Long.MAX_VALUE);
           if (!timePartitionIdVersionControllerMap.containsKey(partitionId)) {
             File directory = SystemFileFactory.INSTANCE
@@ -657,30 +662,42 @@ public class StorageGroupProcessor {
     if (!isAlive(insertRowPlan.getTime())) {
       throw new OutOfTTLException(insertRowPlan.getTime(), (System.currentTimeMillis() - dataTTL));
     }
-    writeLock();
-    try {
-      // init map
-      long timePartitionId = StorageEngine.getTimePartition(insertRowPlan.getTime());
-
-      partitionLatestFlushedTimeForEachDevice
-          .computeIfAbsent(timePartitionId, id -> new HashMap<>());
-
-      boolean isSequence =
-          insertRowPlan.getTime() > partitionLatestFlushedTimeForEachDevice.get(timePartitionId)
-              .getOrDefault(insertRowPlan.getDeviceId().getFullPath(), Long.MIN_VALUE);
+    long timePartitionId = StorageEngine.getTimePartition(insertRowPlan.getTime());
+    TsFileProcessor tsFileProcessor;
+    while (true) {
+      boolean isSequence;
+      insertLock.readLock().lock();
+      try {
+        // init map
+        isSequence = insertRowPlan.getTime() > partitionLatestFlushedTimeForEachDevice
+            .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>())
+            .getOrDefault(insertRowPlan.getDeviceId().getFullPath(), Long.MIN_VALUE);
+
+        //is unsequence and user set config to discard out of order data
+        if (!isSequence && IoTDBDescriptor.getInstance().getConfig()
+            .isEnableDiscardOutOfOrderData()) {
+          return;
+        }
 
-      //is unsequence and user set config to discard out of order data
-      if (!isSequence && IoTDBDescriptor.getInstance().getConfig()
-          .isEnableDiscardOutOfOrderData()) {
+        tsFileProcessor = getWorkTsFileProcessor(timePartitionId, isSequence);
+        if (tsFileProcessor != null) {
+          // insert to sequence or unSequence file
+          insertToTsFileProcessor(insertRowPlan, tsFileProcessor, timePartitionId);
+          break;
+        }
+      } finally {
+        insertLock.readLock().unlock();
+      }
+      // the processor of this partition does not exist yet, create it under the write lock and
+      // decide again, as a flush may have changed the latest flushed time meanwhile
+      if (getOrCreateTsFileProcessor(timePartitionId, isSequence) == null) {
         return;
       }
+    }
 
-      latestTimeForEachDevice.computeIfAbsent(timePartitionId, l -> new HashMap<>());
-      // insert to sequence or unSequence file
-      insertToTsFileProcessor(insertRowPlan, isSequence);
-
-    } finally {
-      writeUnlock();
+    // check memtable size and may asyncTryToFlush the work memtable
+    if (tsFileProcessor.shouldFlush()) {
+      tryToFlushWorkMemTable(tsFileProcessor);
     }
   }
 
@@ -691,95 +708,146 @@ public class StorageGroupProcessor {
    */
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   public void insertTablet(InsertTabletPlan insertTabletPlan) throws BatchInsertionException {
-    writeLock();
-    try {
-      TSStatus[] results = new TSStatus[insertTabletPlan.getRowCount()];
-      Arrays.fill(results, RpcUtils.SUCCESS_STATUS);
-      boolean noFailure = true;
-
-      /*
-       * assume that batch has been sorted by client
-       */
-      int loc = 0;
-      while (loc < insertTabletPlan.getRowCount()) {
-        long currTime = insertTabletPlan.getTimes()[loc];
-        // skip points that do not satisfy TTL
-        if (!isAlive(currTime)) {
-          results[loc] = RpcUtils.getStatus(TSStatusCode.OUT_OF_TTL_ERROR,
-              "time " + currTime + " in current line is out of TTL: " + dataTTL);
-          loc++;
-          noFailure = false;
-        } else {
-          break;
-        }
+    TSStatus[] results = new TSStatus[insertTabletPlan.getRowCount()];
+    Arrays.fill(results, RpcUtils.SUCCESS_STATUS);
+    boolean noFailure = true;
+
+    /*
+     * assume that batch has been sorted by client
+     */
+    int loc = 0;
+    while (loc < insertTabletPlan.getRowCount()) {
+      long currTime = insertTabletPlan.getTimes()[loc];
+      // skip points that do not satisfy TTL
+      if (!isAlive(currTime)) {
+        results[loc] = RpcUtils.getStatus(TSStatusCode.OUT_OF_TTL_ERROR,
+            "time " + currTime + " in current line is out of TTL: " + dataTTL);
+        loc++;
+        noFailure = false;
+      } else {
+        break;
       }
-      // loc pointing at first legal position
-      if (loc == insertTabletPlan.getRowCount()) {
-        throw new BatchInsertionException(results);
-      }
-      // before is first start point
-      int before = loc;
-      // before time partition
-      long beforeTimePartition = StorageEngine
-          .getTimePartition(insertTabletPlan.getTimes()[before]);
-      // init map
-      long lastFlushTime = partitionLatestFlushedTimeForEachDevice.
-          computeIfAbsent(beforeTimePartition, id -> new HashMap<>()).
-          computeIfAbsent(insertTabletPlan.getDeviceId().getFullPath(), id -> Long.MIN_VALUE);
-      // if is sequence
-      boolean isSequence = false;
-      while (loc < insertTabletPlan.getRowCount()) {
-        long time = insertTabletPlan.getTimes()[loc];
-        long curTimePartition = StorageEngine.getTimePartition(time);
-        // start next partition
-        if (curTimePartition != beforeTimePartition) {
-          // insert last time partition
-          if (isSequence || !IoTDBDescriptor.getInstance().getConfig()
-              .isEnableDiscardOutOfOrderData()) {
-            noFailure = insertTabletToTsFileProcessor(insertTabletPlan, before, loc, isSequence,
-                results,
-                beforeTimePartition) && noFailure;
+    }
+    // loc pointing at first legal position
+    if (loc == insertTabletPlan.getRowCount()) {
+      throw new BatchInsertionException(results);
+    }
+
+    // partitions whose processors can not be created, seq and unseq respectively
+    Set<Long> failedSeqPartitions = new HashSet<>();
+    Set<Long> failedUnseqPartitions = new HashSet<>();
+    List<TsFileProcessor> processorsToCheckFlush = new ArrayList<>();
+    while (true) {
+      TabletSegment missingSegment = null;
+      insertLock.readLock().lock();
+      try {
+        List<TabletSegment> segments = splitTabletIntoSegments(insertTabletPlan, loc);
+        for (TabletSegment segment : segments) {
+          segment.processor = getWorkTsFileProcessor(segment.timePartitionId, segment.sequence);
+          if (segment.processor == null && !(segment.sequence ? failedSeqPartitions
+              : failedUnseqPartitions).contains(segment.timePartitionId)) {
+            missingSegment = segment;
+            break;
           }
-          // re initialize
-          before = loc;
-          beforeTimePartition = curTimePartition;
-          lastFlushTime = partitionLatestFlushedTimeForEachDevice.
-              computeIfAbsent(beforeTimePartition, id -> new HashMap<>()).
-              computeIfAbsent(insertTabletPlan.getDeviceId().getFullPath(), id -> Long.MIN_VALUE);
-          isSequence = false;
         }
-        // still in this partition
-        else {
-          // judge if we should insert sequence
-          if (!isSequence && time > lastFlushTime) {
-            // insert into unsequence and then start sequence
-            if (!IoTDBDescriptor.getInstance().getConfig().isEnableDiscardOutOfOrderData()) {
-              noFailure =
-                  insertTabletToTsFileProcessor(insertTabletPlan, before, loc, false, results,
-                      beforeTimePartition) && noFailure;
-            }
-            before = loc;
-            isSequence = true;
+        if (missingSegment == null) {
+          for (TabletSegment segment : segments) {
+            noFailure = insertTabletToTsFileProcessor(insertTabletPlan, segment, results,
+                processorsToCheckFlush) && noFailure;
           }
-          loc++;
+          long globalLatestFlushedTime = globalLatestFlushedTimeForEachDevice.getOrDefault(
+              insertTabletPlan.getDeviceId().getFullPath(), Long.MIN_VALUE);
+          tryToUpdateBatchInsertLastCache(insertTabletPlan, globalLatestFlushedTime);
+          break;
         }
+      } finally {
+        insertLock.readLock().unlock();
       }
+      // create the missing processor under the write lock and split the tablet again
+      if (getOrCreateTsFileProcessor(missingSegment.timePartitionId, missingSegment.sequence)
+          == null) {
+        (missingSegment.sequence ? failedSeqPartitions : failedUnseqPartitions)
+            .add(missingSegment.timePartitionId);
+      }
+    }
 
-      // do not forget last part
-      if (before < loc && (isSequence || !IoTDBDescriptor.getInstance().getConfig()
-          .isEnableDiscardOutOfOrderData())) {
-        noFailure = insertTabletToTsFileProcessor(insertTabletPlan, before, loc, isSequence,
-            results, beforeTimePartition) && noFailure;
+    // check memtable size and may async try to flush the work memtable
+    for (TsFileProcessor tsFileProcessor : processorsToCheckFlush) {
+      if (tsFileProcessor.shouldFlush()) {
+        tryToFlushWorkMemTable(tsFileProcessor);
       }
-      long globalLatestFlushedTime = globalLatestFlushedTimeForEachDevice.getOrDefault(
-          insertTabletPlan.getDeviceId().getFullPath(), Long.MIN_VALUE);
-      tryToUpdateBatchInsertLastCache(insertTabletPlan, globalLatestFlushedTime);
+    }
+
+    if (!noFailure) {
+      throw new BatchInsertionException(results);
+    }
+  }
 
-      if (!noFailure) {
-        throw new BatchInsertionException(results);
+  /**
+   * Split the rows [loc, rowCount) of a tablet into segments, each of which belongs to one time
+   * partition and is either sequence or unsequence. Unsequence segments are dropped if out of
+   * order data should be discarded. The caller should hold the read lock.
+   */
+  private List<TabletSegment> splitTabletIntoSegments(InsertTabletPlan insertTabletPlan,
+      int loc) {
+    List<TabletSegment> segments = new ArrayList<>();
+    boolean discardUnsequence = IoTDBDescriptor.getInstance().getConfig()
+        .isEnableDiscardOutOfOrderData();
+    // before is first start point
+    int before = loc;
+    // before time partition
+    long beforeTimePartition = StorageEngine
+        .getTimePartition(insertTabletPlan.getTimes()[before]);
+    // init map
+    long lastFlushTime = partitionLatestFlushedTimeForEachDevice.
+        computeIfAbsent(beforeTimePartition, id -> new ConcurrentHashMap<>()).
+        computeIfAbsent(insertTabletPlan.getDeviceId().getFullPath(), id -> Long.MIN_VALUE);
+    // if is sequence
+    boolean isSequence = false;
+    while (loc < insertTabletPlan.getRowCount()) {
+      long time = insertTabletPlan.getTimes()[loc];
+      long curTimePartition = StorageEngine.getTimePartition(time);
+      // start next partition
+      if (curTimePartition != beforeTimePartition) {
+        // insert last time partition
+        if (isSequence || !discardUnsequence) {
+          addTabletSegment(segments, before, loc, isSequence, beforeTimePartition);
+        }
+        // re initialize
+        before = loc;
+        beforeTimePartition = curTimePartition;
+        lastFlushTime = partitionLatestFlushedTimeForEachDevice.
+            computeIfAbsent(beforeTimePartition, id -> new ConcurrentHashMap<>()).
+            computeIfAbsent(insertTabletPlan.getDeviceId().getFullPath(), id -> Long.MIN_VALUE);
+        isSequence = false;
+      }
+      // still in this partition
+      else {
+        // judge if we should insert sequence
+        if (!isSequence && time > lastFlushTime) {
+          // insert into unsequence and then start sequence
+          if (!discardUnsequence) {
+            addTabletSegment(segments, before, loc, false, beforeTimePartition);
+          }
+          before = loc;
+          isSequence = true;
+        }
+        loc++;
       }
-    } finally {
-      writeUnlock();
+    }
+
+    // do not forget last part
+    if (isSequence || !discardUnsequence) {
+      addTabletSegment(segments, before, loc, isSequence, beforeTimePartition);
+    }
+    return segments;
+  }
+
+  private void addTabletSegment(List<TabletSegment> segments, int start, int end,
+      boolean sequence, long timePartitionId) {
+    // skip when start >= end
+    if (start < end) {
+      segments.add(new TabletSegment(start, end, sequence, timePartitionId));
     }
   }
 
@@ -791,52 +859,43 @@ public class StorageGroupProcessor {
   }
 
   /**
-   * insert batch to tsfile processor thread-safety that the caller need to guarantee The rows to be
-   * inserted are in the range [start, end)
+   * insert batch to tsfile processor, the caller should hold the read lock. The rows to be inserted
+   * are in the range [segment.start, segment.end)
    *
    * @param insertTabletPlan insert a tablet of a device
-   * @param sequence whether is sequence
-   * @param start start index of rows to be inserted in insertTabletPlan
-   * @param end end index of rows to be inserted in insertTabletPlan
+   * @param segment the rows, the time partition and the processor to insert into
    * @param results result array
-   * @param timePartitionId time partition id
+   * @param processorsToCheckFlush the processor is added into it if the insertion succeeds
    * @return false if any failure occurs when inserting the tablet, true otherwise
    */
   private boolean insertTabletToTsFileProcessor(InsertTabletPlan insertTabletPlan,
-      int start, int end, boolean sequence, TSStatus[] results, long timePartitionId) {
-    // return when start >= end
-    if (start >= end) {
-      return true;
-    }
-
-    TsFileProcessor tsFileProcessor = getOrCreateTsFileProcessor(timePartitionId, sequence);
+      TabletSegment segment, TSStatus[] results, List<TsFileProcessor> processorsToCheckFlush) {
+    TsFileProcessor tsFileProcessor = segment.processor;
     if (tsFileProcessor == null) {
-      for (int i = start; i < end; i++) {
+      for (int i = segment.start; i < segment.end; i++) {
         results[i] = RpcUtils.getStatus(TSStatusCode.INTERNAL_SERVER_ERROR,
-            "can not create TsFileProcessor, timePartitionId: " + timePartitionId);
+            "can not create TsFileProcessor, timePartitionId: " + segment.timePartitionId);
       }
       return false;
     }
 
     try {
-      tsFileProcessor.insertTablet(insertTabletPlan, start, end, results);
+      tsFileProcessor.insertTablet(insertTabletPlan, segment.start, segment.end, results);
     } catch (WriteProcessException e) {
       logger.error("insert to TsFileProcessor error ", e);
       return false;
     }
 
-    latestTimeForEachDevice.computeIfAbsent(timePartitionId, t -> new HashMap<>());
     // try to update the latest time of the device of this tsRecord
-    if (sequence && latestTimeForEachDevice.get(timePartitionId)
-        .getOrDefault(insertTabletPlan.getDeviceId().getFullPath(), Long.MIN_VALUE)
-        < insertTabletPlan.getTimes()[end - 1]) {
-      latestTimeForEachDevice.get(timePartitionId)
-          .put(insertTabletPlan.getDeviceId().getFullPath(), insertTabletPlan.getTimes()[end - 1]);
+    if (segment.sequence) {
+      latestTimeForEachDevice
+          .computeIfAbsent(segment.timePartitionId, t -> new ConcurrentHashMap<>())
+          .merge(insertTabletPlan.getDeviceId().getFullPath(),
+              insertTabletPlan.getTimes()[segment.end - 1], Math::max);
     }
 
-    // check memtable size and may async try to flush the work memtable
-    if (tsFileProcessor.shouldFlush()) {
-      fileFlushPolicy.apply(this, tsFileProcessor, sequence);
+    if (!processorsToCheckFlush.contains(tsFileProcessor)) {
+      processorsToCheckFlush.add(tsFileProcessor);
     }
     return true;
   }
@@ -864,36 +923,22 @@ public class StorageGroupProcessor {
     }
   }
 
-  private void insertToTsFileProcessor(InsertRowPlan insertRowPlan, boolean sequence)
-      throws WriteProcessException {
-    long timePartitionId = StorageEngine.getTimePartition(insertRowPlan.getTime());
-
-    TsFileProcessor tsFileProcessor = getOrCreateTsFileProcessor(timePartitionId, sequence);
-
-    if (tsFileProcessor == null) {
-      return;
-    }
-
+  /**
+   * insert a row to tsfile processor, the caller should hold the read lock.
+   */
+  private void insertToTsFileProcessor(InsertRowPlan insertRowPlan,
+      TsFileProcessor tsFileProcessor, long timePartitionId) throws WriteProcessException {
     // insert TsFileProcessor
     tsFileProcessor.insert(insertRowPlan);
 
     // try to update the latest time of the device of this tsRecord
-    if (latestTimeForEachDevice.get(timePartitionId)
-        .getOrDefault(insertRowPlan.getDeviceId().getFullPath(), Long.MIN_VALUE) < insertRowPlan
-        .getTime()) {
-      latestTimeForEachDevice.get(timePartitionId)
-          .put(insertRowPlan.getDeviceId().getFullPath(), insertRowPlan.getTime());
-    }
+    latestTimeForEachDevice.computeIfAbsent(timePartitionId, l -> new ConcurrentHashMap<>())
+        .merge(insertRowPlan.getDeviceId().getFullPath(), insertRowPlan.getTime(), Math::max);
 
     long globalLatestFlushTime = globalLatestFlushedTimeForEachDevice.getOrDefault(
         insertRowPlan.getDeviceId().getFullPath(), Long.MIN_VALUE);
 
     tryToUpdateInsertLastCache(insertRowPlan, globalLatestFlushTime);
-
-    // check memtable size and may asyncTryToFlush the work memtable
-    if (tsFileProcessor.shouldFlush()) {
-      fileFlushPolicy.apply(this, tsFileProcessor, sequence);
-    }
   }
 
   private void tryToUpdateInsertLastCache(InsertRowPlan plan, Long latestFlushedTime) {
@@ -930,6 +975,33 @@ public class StorageGroupProcessor {
     }
   }
 
+  /**
+   * Flush the work memtable of the processor if it is still working and should be flushed. The
+   * insertions only hold the read lock, so this is checked again under the write lock.
+   */
+  private void tryToFlushWorkMemTable(TsFileProcessor tsFileProcessor) {
+    writeLock();
+    try {
+      TreeMap<Long, TsFileProcessor> workProcessors = tsFileProcessor.isSequence()
+          ? workSequenceTsFileProcessors : workUnsequenceTsFileProcessors;
+      if (workProcessors.get(tsFileProcessor.getTimeRangeId()) == tsFileProcessor
+          && tsFileProcessor.shouldFlush()) {
+        fileFlushPolicy.apply(this, tsFileProcessor, tsFileProcessor.isSequence());
+      }
+    } finally {
+      writeUnlock();
+    }
+  }
+
+  /**
+   * @return the working processor of the time partition, or null if it does not exist. The caller
+   * should hold the read lock or the write lock.
+   */
+  private TsFileProcessor getWorkTsFileProcessor(long timeRangeId, boolean sequence) {
+    return sequence ? workSequenceTsFileProcessors.get(timeRangeId)
+        : workUnsequenceTsFileProcessors.get(timeRangeId);
+  }
+
   private TsFileProcessor getOrCreateTsFileProcessor(long timeRangeId, boolean sequence) {
     TsFileProcessor tsFileProcessor = null;
     try {
@@ -1653,7 +1725,7 @@ public class StorageGroupProcessor {
 
     for (Entry<String, Long> entry : curPartitionDeviceLatestTime.entrySet()) {
       partitionLatestFlushedTimeForEachDevice
-          .computeIfAbsent(processor.getTimeRangeId(), id -> new HashMap<>())
+          .computeIfAbsent(processor.getTimeRangeId(), id -> new ConcurrentHashMap<>())
           .put(entry.getKey(), entry.getValue());
       updateNewlyFlushedPartitionLatestFlushedTimeForEachDevice(processor.getTimeRangeId(),
           entry.getKey(), entry.getValue());
@@ -1672,7 +1744,7 @@ public class StorageGroupProcessor {
   public void updateNewlyFlushedPartitionLatestFlushedTimeForEachDevice(long partitionId,
       String deviceId, long time) {
     newlyFlushedPartitionLatestFlushedTimeForEachDevice
-        .computeIfAbsent(partitionId, id -> new HashMap<>())
+        .computeIfAbsent(partitionId, id -> new ConcurrentHashMap<>())
         .compute(deviceId, (k, v) -> v == null ? time : Math.max(v, time));
   }
 
@@ -1786,7 +1858,7 @@ public class StorageGroupProcessor {
           long endTime = endTimeMap.getValue();
           if (latestFlushTimeForPartition.getOrDefault(device, Long.MIN_VALUE) < endTime) {
             partitionLatestFlushedTimeForEachDevice
-                .computeIfAbsent(timePartitionId, id -> new HashMap<>()).put(device, endTime);
+                .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>()).put(device, endTime);
           }
         }
       }
@@ -1809,32 +1881,113 @@ public class StorageGroupProcessor {
   /**
    * Load a new tsfile to storage group processor. Tne file may have overlap with other files.
    * <p>
-   * or unsequence list.
+   * Firstly, move the file into a sequence data folder by prepareNewTsFileForSync().
    * <p>
-   * Secondly, execute the loading process by the type.
-   * <p>
-   * Finally, update the latestTimeForEachDevice and partitionLatestFlushedTimeForEachDevice.
+   * Secondly, add the file into the sequence list by loadPreparedTsFileForSync().
    *
    * @param newTsFileResource tsfile resource
    * @UsedBy sync module.
    */
   public void loadNewTsFileForSync(TsFileResource newTsFileResource) throws LoadFileException {
-    File tsfileToBeInserted = newTsFileResource.getTsFile();
-    long newFilePartitionId = newTsFileResource.getTimePartitionWithCheck();
-    writeLock();
-    tsFileManagement.mergeLock.writeLock().lock();
-    tsFileManagement.writeLock();
-    try {
-      if (loadTsFileByType(LoadTsFileType.LOAD_SEQUENCE, tsfileToBeInserted, newTsFileResource,
-          newFilePartitionId)) {
-        updateLatestTimeMap(newTsFileResource);
+    if (prepareNewTsFileForSync(newTsFileResource)) {
+      loadPreparedTsFileForSync(newTsFileResource);
+    }
+  }
+
+  /**
+   * Move a synced tsfile and its .resource file into a sequence data folder without any lock, which
+   * may copy the files across disks. The file is invisible to queries until it is loaded by
+   * loadPreparedTsFileForSync(), and it is recovered with the other files of the folder if the
+   * server restarts before that.
+   *
+   * @param newTsFileResource tsfile resource, whose file is set to the one in the data folder
+   * @return false if a file of the same name is already in the data folders
+   * @UsedBy sync module.
+   */
+  public boolean prepareNewTsFileForSync(TsFileResource newTsFileResource)
+      throws LoadFileException {
+    File syncedTsFile = newTsFileResource.getTsFile();
+    String relativePath = storageGroupName + File.separatorChar
+        + newTsFileResource.getTimePartitionWithCheck() + File.separator + syncedTsFile.getName();
+    for (String folder : DirectoryManager.getInstance().getAllSequenceFileFolders()) {
+      if (fsFactory.getFile(folder, relativePath).exists()) {
+        logger.error("The file {} has already been loaded in sequence list", relativePath);
+        return false;
       }
+    }
+    File targetFile;
+    try {
+      targetFile = fsFactory
+          .getFile(DirectoryManager.getInstance().getNextFolderForSequenceFile(), relativePath);
     } catch (DiskSpaceInsufficientException e) {
       logger.error(
           "Failed to append the tsfile {} to storage group processor {} because the disk space is insufficient.",
-          tsfileToBeInserted.getAbsolutePath(), tsfileToBeInserted.getParentFile().getName());
+          syncedTsFile.getAbsolutePath(), syncedTsFile.getParentFile().getName());
       IoTDBDescriptor.getInstance().getConfig().setReadOnly(true);
       throw new LoadFileException(e);
+    }
+    if (!targetFile.getParentFile().exists()) {
+      targetFile.getParentFile().mkdirs();
+    }
+
+    // the .resource file is moved first, as a tsfile without it is recovered as an unsealed one
+    File syncedResourceFile = fsFactory.getFile(
+        syncedTsFile.getAbsolutePath() + TsFileResource.RESOURCE_SUFFIX);
+    File targetResourceFile = fsFactory.getFile(
+        targetFile.getAbsolutePath() + TsFileResource.RESOURCE_SUFFIX);
+    try {
+      // left by a preparation interrupted before the tsfile is moved
+      Files.deleteIfExists(targetResourceFile.toPath());
+      FileUtils.moveFile(syncedResourceFile, targetResourceFile);
+    } catch (IOException e) {
+      logger.error("File renaming failed when loading .resource file. Origin: {}, Target: {}",
+          syncedResourceFile.getAbsolutePath(), targetResourceFile.getAbsolutePath(), e);
+      throw new LoadFileException(String.format(
+          "File renaming failed when loading .resource file. Origin: %s, Target: %s, because %s",
+          syncedResourceFile.getAbsolutePath(), targetResourceFile.getAbsolutePath(),
+          e.getMessage()));
+    }
+    try {
+      FileUtils.moveFile(syncedTsFile, targetFile);
+    } catch (IOException e) {
+      logger.error("File renaming failed when loading tsfile. Origin: {}, Target: {}",
+          syncedTsFile.getAbsolutePath(), targetFile.getAbsolutePath(), e);
+      throw new LoadFileException(String.format(
+          "File renaming failed when loading tsfile. Origin: %s, Target: %s, because %s",
+          syncedTsFile.getAbsolutePath(), targetFile.getAbsolutePath(), e.getMessage()));
+    }
+    logger.info("Prepare tsfile for sequence list, move file from {} to {}",
+        syncedTsFile.getAbsolutePath(), targetFile.getAbsolutePath());
+    newTsFileResource.setFile(targetFile);
+    return true;
+  }
+
+  /**
+   * Add a tsfile prepared by prepareNewTsFileForSync() into the sequence list, and update the file
+   * versions, latestTimeForEachDevice and partitionLatestFlushedTimeForEachDevice. Only the
+   * in-memory structures are changed while the locks are held.
+   *
+   * @param newTsFileResource tsfile resource in a data folder
+   * @return the time in ns the locks are held to add the file, or -1 if the file has already been
+   * loaded
+   * @UsedBy sync module.
+   */
+  public long loadPreparedTsFileForSync(TsFileResource newTsFileResource) {
+    long filePartitionId = newTsFileResource.getTimePartition();
+    writeLock();
+    tsFileManagement.mergeLock.writeLock().lock();
+    tsFileManagement.writeLock();
+    long startTime = System.nanoTime();
+    try {
+      if (tsFileManagement.contains(newTsFileResource, true)) {
+        logger.error("The file {} has already been loaded in sequence list", newTsFileResource);
+        return -1;
+      }
+      tsFileManagement.add(newTsFileResource, true);
+      updatePartitionDirectFileVersions(filePartitionId, newTsFileResource);
+      updateLatestTimeMap(newTsFileResource);
+      logger.info("Load tsfile {} in sequence list", newTsFileResource.getTsFile());
+      return System.nanoTime() - startTime;
     } finally {
       tsFileManagement.writeUnlock();
       tsFileManagement.mergeLock.writeLock().unlock();
@@ -2143,7 +2296,7 @@ public class StorageGroupProcessor {
       int index = entry.getValue();
       long endTime = newTsFileResource.getEndTime(index);
       long timePartitionId = StorageEngine.getTimePartition(endTime);
-      if (!latestTimeForEachDevice.computeIfAbsent(timePartitionId, id -> new HashMap<>())
+      if (!latestTimeForEachDevice.computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>())
           .containsKey(device)
           || latestTimeForEachDevice.get(timePartitionId).get(device) < endTime) {
         latestTimeForEachDevice.get(timePartitionId).put(device, endTime);
@@ -2154,7 +2307,7 @@ public class StorageGroupProcessor {
 
       if (latestFlushTimeForPartition.getOrDefault(device, Long.MIN_VALUE) < endTime) {
         partitionLatestFlushedTimeForEachDevice
-            .computeIfAbsent(timePartitionId, id -> new HashMap<>()).put(device, endTime);
+            .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>()).put(device, endTime);
       }
       if (globalLatestFlushedTimeForEachDevice.getOrDefault(device, Long.MIN_VALUE) < endTime) {
         globalLatestFlushedTimeForEachDevice.put(device, endTime);
@@ -2237,13 +2390,18 @@ public class StorageGroupProcessor {
           syncedResourceFile.getAbsolutePath(), targetResourceFile.getAbsolutePath(),
           e.getMessage()));
     }
+    updatePartitionDirectFileVersions(filePartitionId, tsFileResource);
+    return true;
+  }
+
+  private void updatePartitionDirectFileVersions(long filePartitionId,
+      TsFileResource tsFileResource) {
     partitionDirectFileVersions.computeIfAbsent(filePartitionId,
         p -> new HashSet<>()).addAll(tsFileResource.getHistoricalVersions());
     if (!tsFileResource.getHistoricalVersions().isEmpty()) {
       updatePartitionFileVersion(filePartitionId,
           Collections.max(tsFileResource.getHistoricalVersions()));
     }
-    return true;
   }
 
   /**
@@ -2526,4 +2684,23 @@ public class StorageGroupProcessor {
       List<FlushListener> customFlushListeners) {
     this.customFlushListeners = customFlushListeners;
   }
+
+  /**
+   * rows [start, end) of a tablet that go into the same TsFileProcessor
+   */
+  private static class TabletSegment {
+
+    private final int start;
+    private final int end;
+    private final boolean sequence;
+    private final long timePartitionId;
+    private TsFileProcessor processor;
+
+    private TabletSegment(int start, int end, boolean sequence, long timePartitionId) {
+      this.start = start;
+      this.end = end;
+      this.sequence = sequence;
+      this.timePartitionId = timePartitionId;
+    }
+  }
 }
@@ -28,7 +28,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.iotdb.db.conf.IoTDBConfig;
@@ -101,6 +103,13 @@ public class TsFileProcessor {
    */
   private volatile boolean managedByFlushManager;
   private final ReadWriteLock flushQueryLock = new ReentrantReadWriteLock();
+  /**
+   * Serializes the insertions into this processor and guards the work memtable and the time index
+   * of the unsealed resource against concurrent queries. The StorageGroupProcessor only holds its
+   * read lock during insertions, so insertions into different processors of the same storage group
+   * run in parallel.
+   */
+  private final Lock insertLock = new ReentrantLock();
   /**
    * It is set by the StorageGroupProcessor and checked by flush threads. (If shouldClose == true
    * and its flushingMemTables are all flushed, then the flush thread will close this file.)
@@ -117,7 +126,7 @@ public class TsFileProcessor {
   private WriteLogNode logNode;
   private final boolean sequence;
   private long totalMemTableSize;
-  private boolean shouldFlush = false;
+  private volatile boolean shouldFlush = false;
 
   private static final String FLUSH_QUERY_WRITE_LOCKED = "{}: {} get flushQueryLock write lock";
   private static final String FLUSH_QUERY_WRITE_RELEASE = "{}: {} get flushQueryLock write lock released";
@@ -172,7 +181,15 @@ public class TsFileProcessor {
    * @param insertRowPlan physical plan of insertion
    */
   public void insert(InsertRowPlan insertRowPlan) throws WriteProcessException {
+    insertLock.lock();
+    try {
+      insertIntern(insertRowPlan);
+    } finally {
+      insertLock.unlock();
+    }
+  }
 
+  private void insertIntern(InsertRowPlan insertRowPlan) throws WriteProcessException {
     if (workMemTable == null) {
       workMemTable = new PrimitiveMemTable(enableMemControl);
     }
@@ -214,7 +231,16 @@ public class TsFileProcessor {
    */
   public void insertTablet(InsertTabletPlan insertTabletPlan, int start, int end,
       TSStatus[] results) throws WriteProcessException {
+    insertLock.lock();
+    try {
+      insertTabletIntern(insertTabletPlan, start, end, results);
+    } finally {
+      insertLock.unlock();
+    }
+  }
 
+  private void insertTabletIntern(InsertTabletPlan insertTabletPlan, int start, int end,
+      TSStatus[] results) throws WriteProcessException {
     if (workMemTable == null) {
       workMemTable = new PrimitiveMemTable(enableMemControl);
     }
@@ -896,6 +922,7 @@ public class TsFileProcessor {
           tsFileResource.getTsFile().getName());
     }
     flushQueryLock.readLock().lock();
+    insertLock.lock();
     try {
       List<ReadOnlyMemChunk> readOnlyMemChunks = new ArrayList<>();
       for (IMemTable flushingMemTable : flushingMemTables) {
@@ -937,6 +964,7 @@ public class TsFileProcessor {
       logger.error("{}: {} get ReadOnlyMemChunk has error", storageGroupName,
           tsFileResource.getTsFile().getName(), e);
     } finally {
+      insertLock.unlock();
       flushQueryLock.readLock().unlock();
       if (logger.isDebugEnabled()) {
         logger.debug("{}: {} release flushQueryLock", storageGroupName,
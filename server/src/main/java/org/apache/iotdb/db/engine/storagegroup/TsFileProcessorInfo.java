@@ -18,7 +18,7 @@
  */
 package org.apache.iotdb.db.engine.storagegroup;
 
-import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.writelog.node.ExclusiveWriteLogNode;
 
 /**
  * The TsFileProcessorInfo records the memory cost of this TsFileProcessor.
@@ -38,7 +38,7 @@ public class TsFileProcessorInfo {
 
   public TsFileProcessorInfo(StorageGroupInfo storageGroupInfo) {
     this.storageGroupInfo = storageGroupInfo;
-    this.memCost = IoTDBDescriptor.getInstance().getConfig().getWalBufferSize();
+    this.memCost = ExclusiveWriteLogNode.getBufferMemoryCost();
   }
 
   /**
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MLogReader reads the plans written by MLogWriter. The reading stops at the first incomplete or
+ * broken log, which is left by a crash when the log was written, and the broken logs can be
+ * truncated by truncateBrokenLogs() so that the later logs are appended after the complete ones.
+ */
+public class MLogReader implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(MLogReader.class);
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File logFile;
+  private final long fileLength;
+  private final DataInputStream logStream;
+  private final CRC32 checksum = new CRC32();
+  private byte[] logBuffer = new byte[1024];
+
+  // the length of the complete logs which have been read
+  private long validLength = 0;
+  private boolean end = false;
+
+  public MLogReader(File logFile) throws IOException {
+    this.logFile = logFile;
+    this.fileLength = logFile.length();
+    this.logStream = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(logFile), BUFFER_SIZE));
+  }
+
+  /**
+   * @return the next plan in the log, or null if all the complete logs are read
+   */
+  public PhysicalPlan next() throws IOException {
+    while (!end) {
+      int length;
+      try {
+        length = logStream.readInt();
+        if (length < 0 || length > fileLength - validLength) {
+          end = true;
+          break;
+        }
+        if (logBuffer.length < length) {
+          logBuffer = new byte[Math.max(length, logBuffer.length * 2)];
+        }
+        logStream.readFully(logBuffer, 0, length);
+        long expectedChecksum = logStream.readLong();
+        checksum.reset();
+        checksum.update(logBuffer, 0, length);
+        if (checksum.getValue() != expectedChecksum) {
+          end = true;
+          break;
+        }
+      } catch (EOFException e) {
+        end = true;
+        break;
+      }
+      validLength += Integer.BYTES + length + Long.BYTES;
+
+      try {
+        return PhysicalPlan.Factory.create(ByteBuffer.wrap(logBuffer, 0, length));
+      } catch (IllegalPathException | IOException | RuntimeException e) {
+        // the log is complete, so only the log is skipped
+        logger.error("Cannot deserialize the log ending at {} of {}", validLength, logFile, e);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return whether there are incomplete or broken logs after the complete ones that are read
+   */
+  public boolean isFileCorrupted() {
+    return end && validLength < fileLength;
+  }
+
+  /**
+   * close the reader and truncate the incomplete or broken logs after the ones that are read.
+   */
+  public void truncateBrokenLogs() throws IOException {
+    close();
+    logger.warn("{} is corrupted, truncate it from {} to {}", logFile, fileLength, validLength);
+    try (FileOutputStream outputStream = new FileOutputStream(logFile, true);
+        FileChannel channel = outputStream.getChannel()) {
+      channel.truncate(validLength);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    logStream.close();
+  }
+}
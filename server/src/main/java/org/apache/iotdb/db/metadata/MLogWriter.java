@@ -18,33 +18,49 @@
  */
 package org.apache.iotdb.db.metadata;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeAliasPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeTagOffsetPlan;
 import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
-import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.apache.iotdb.db.qp.physical.sys.DeleteStorageGroupPlan;
+import org.apache.iotdb.db.qp.physical.sys.DeleteTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetStorageGroupPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetTTLPlan;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class MLogWriter {
+/**
+ * MLogWriter appends the metadata operations to mlog.bin as serialized physical plans. A log is:
+ * <pre>
+ * length(int) plan(bytes) checksum(long)
+ * </pre>
+ * where the checksum is the CRC32 of the plan, so that a log torn by a crash can be detected and
+ * truncated by MLogReader.
+ */
+public class MLogWriter implements AutoCloseable {
 
   private static final Logger logger = LoggerFactory.getLogger(MLogWriter.class);
-  private static final String STRING_TYPE = "%s,%s,%s" + System.lineSeparator();
-  private static final String LINE_SEPARATOR = System.lineSeparator();
   private final File logFile;
   private FileOutputStream fileOutputStream;
   private FileChannel channel;
-  private final AtomicInteger lineNumber;
+  private final AtomicInteger logNum;
+
+  private final PublicBAOS logBuffer = new PublicBAOS();
+  private final DataOutputStream logStream = new DataOutputStream(logBuffer);
+  private final CRC32 checksum = new CRC32();
 
   public MLogWriter(String schemaDir, String logFileName) throws IOException {
     File metadataDir = SystemFileFactory.INSTANCE.getFile(schemaDir);
@@ -59,138 +75,110 @@ public class MLogWriter {
     logFile = SystemFileFactory.INSTANCE.getFile(schemaDir + File.separator + logFileName);
     fileOutputStream = new FileOutputStream(logFile, true);
     channel = fileOutputStream.getChannel();
-    lineNumber = new AtomicInteger(0);
+    logNum = new AtomicInteger(0);
   }
 
-  public void close() throws IOException {
+  @Override
+  public synchronized void close() throws IOException {
     fileOutputStream.close();
   }
 
   public void createTimeseries(CreateTimeSeriesPlan plan, long offset) throws IOException {
-    StringBuilder buf = new StringBuilder();
-    buf.append(String.format("%s,%s,%s,%s,%s", MetadataOperationType.CREATE_TIMESERIES,
-            plan.getPath().getFullPath(), plan.getDataType().serialize(),
-            plan.getEncoding().serialize(), plan.getCompressor().serialize()));
-
-    buf.append(",");
-    if (plan.getProps() != null) {
-      boolean first = true;
-      for (Map.Entry<String, String> entry : plan.getProps().entrySet()) {
-        if (first) {
-          buf.append(String.format("%s=%s", entry.getKey(), entry.getValue()));
-          first = false;
-        } else {
-          buf.append(String.format("&%s=%s", entry.getKey(), entry.getValue()));
-        }
-      }
-    }
-
-    buf.append(",");
-    if (plan.getAlias() != null) {
-      buf.append(plan.getAlias());
-    }
+    // the tags and attributes are in the tag file, only their offset is logged
+    CreateTimeSeriesPlan logPlan = new CreateTimeSeriesPlan(plan.getPath(), plan.getDataType(),
+        plan.getEncoding(), plan.getCompressor(), plan.getProps(), null, null, plan.getAlias());
+    logPlan.setTagOffset(offset);
+    putLog(logPlan);
+  }
 
-    buf.append(",");
-    if (offset >= 0) {
-      buf.append(offset);
-    }
-    buf.append(LINE_SEPARATOR);
-    channel.write(ByteBuffer.wrap(buf.toString().getBytes()));
-    lineNumber.incrementAndGet();
+  public void deleteTimeseries(PartialPath path) throws IOException {
+    putLog(new DeleteTimeSeriesPlan(Collections.singletonList(path)));
   }
 
-  public void deleteTimeseries(String path) throws IOException {
-    String outputStr = MetadataOperationType.DELETE_TIMESERIES + "," + path + LINE_SEPARATOR;
-    ByteBuffer buff = ByteBuffer.wrap(outputStr.getBytes());
-    channel.write(buff);
+  public void setStorageGroup(PartialPath storageGroup) throws IOException {
+    putLog(new SetStorageGroupPlan(storageGroup));
   }
 
-  public void setStorageGroup(String storageGroup) throws IOException {
-    String outputStr = MetadataOperationType.SET_STORAGE_GROUP + "," + storageGroup + LINE_SEPARATOR;
-    ByteBuffer buff = ByteBuffer.wrap(outputStr.getBytes());
-    channel.write(buff);
-    lineNumber.incrementAndGet();
+  public void deleteStorageGroup(PartialPath storageGroup) throws IOException {
+    putLog(new DeleteStorageGroupPlan(Collections.singletonList(storageGroup)));
   }
 
-  public void deleteStorageGroup(String storageGroup) throws IOException {
-    String outputStr = MetadataOperationType.DELETE_STORAGE_GROUP + "," + storageGroup + LINE_SEPARATOR;
-    ByteBuffer buff = ByteBuffer.wrap(outputStr.getBytes());
-    channel.write(buff);
-    lineNumber.incrementAndGet();
+  public void setTTL(PartialPath storageGroup, long ttl) throws IOException {
+    putLog(new SetTTLPlan(storageGroup, ttl));
   }
 
-  public void setTTL(String storageGroup, long ttl) throws IOException {
-    String outputStr = String.format(STRING_TYPE, MetadataOperationType.SET_TTL, storageGroup, ttl);
-    ByteBuffer buff = ByteBuffer.wrap(outputStr.getBytes());
-    channel.write(buff);
-    lineNumber.incrementAndGet();
+  public void changeOffset(PartialPath path, long offset) throws IOException {
+    putLog(new ChangeTagOffsetPlan(path, offset));
   }
 
-  public void changeOffset(String path, long offset) throws IOException {
-    String outputStr = String.format(STRING_TYPE, MetadataOperationType.CHANGE_OFFSET, path, offset);
-    ByteBuffer buff = ByteBuffer.wrap(outputStr.getBytes());
-    channel.write(buff);
-    lineNumber.incrementAndGet();
+  public void changeAlias(PartialPath path, String alias) throws IOException {
+    putLog(new ChangeAliasPlan(path, alias));
   }
 
-  public void changeAlias(String path, String alias) throws IOException {
-    String outputStr = String.format(STRING_TYPE, MetadataOperationType.CHANGE_ALIAS, path, alias);
-    ByteBuffer buff = ByteBuffer.wrap(outputStr.getBytes());
-    channel.write(buff);
-    lineNumber.incrementAndGet();
+  /**
+   * log the creation of a batch of timeseries without tags and attributes, which are appended to
+   * the log by one write.
+   */
+  public void createTimeseries(List<CreateTimeSeriesPlan> plans) throws IOException {
+    putLogs(plans);
   }
 
-  public static void upgradeMLog(String schemaDir, String logFileName) throws IOException {
-    File logFile = SystemFileFactory.INSTANCE.getFile(schemaDir + File.separator + logFileName);
-    File tmpLogFile = SystemFileFactory.INSTANCE.getFile(logFile.getAbsolutePath() + ".tmp");
+  /**
+   * append a plan to the log.
+   */
+  public void putLog(PhysicalPlan plan) throws IOException {
+    putLogs(Collections.singletonList(plan));
+  }
 
-    // if both old mlog and mlog.tmp do not exist, nothing to do
-    if (!logFile.exists() && !tmpLogFile.exists()) {
-      return;
-    } else if (!logFile.exists() && tmpLogFile.exists()) {
-      // if old mlog doesn't exsit but mlog.tmp exists, rename tmp file to mlog  
-      FSFactoryProducer.getFSFactory().moveFile(tmpLogFile, logFile);
-      return;
+  /**
+   * append the plans to the log by one write, each plan is still a separate log.
+   */
+  public synchronized void putLogs(List<? extends PhysicalPlan> plans) throws IOException {
+    logBuffer.reset();
+    for (PhysicalPlan plan : plans) {
+      int start = logBuffer.size();
+      // the length is filled after the plan is serialized
+      logStream.writeInt(0);
+      plan.serialize(logStream);
+      int length = logBuffer.size() - start - Integer.BYTES;
+      ByteBuffer.wrap(logBuffer.getBuf()).putInt(start, length);
+      checksum.reset();
+      checksum.update(logBuffer.getBuf(), start + Integer.BYTES, length);
+      logStream.writeLong(checksum.getValue());
     }
+    logStream.flush();
 
-    // if both old mlog and mlog.tmp exist, delete mlog tmp, then do upgrading
-    if (tmpLogFile.exists() && !tmpLogFile.delete()) {
-      throw new IOException("Deleting " + tmpLogFile + "failed.");
-    }
-    // upgrading
-    try (BufferedReader reader = new BufferedReader(new FileReader(logFile));
-        BufferedWriter writer = new BufferedWriter(new FileWriter(tmpLogFile, true))) {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        StringBuilder buf = new StringBuilder();
-        buf.append(line);
-        if (line.startsWith(MetadataOperationType.CREATE_TIMESERIES)) {
-          buf.append(",,,");
-        }
-        writer.write(buf.toString());
-        writer.newLine();
-        writer.flush();
-      }
+    ByteBuffer buffer = ByteBuffer.wrap(logBuffer.getBuf(), 0, logBuffer.size());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
     }
+    logNum.addAndGet(plans.size());
+  }
+
+  /**
+   * force the written logs to the disk.
+   */
+  public synchronized void force() throws IOException {
+    channel.force(true);
   }
 
-  public void clear() throws IOException {
+  public synchronized void clear() throws IOException {
     channel.close();
     fileOutputStream.close();
     Files.delete(logFile.toPath());
     fileOutputStream = new FileOutputStream(logFile, true);
     channel = fileOutputStream.getChannel();
-    lineNumber.set(0);
+    logNum.set(0);
   }
 
-  int getLineNumber() {
-    return lineNumber.get();
+  int getLogNum() {
+    return logNum.get();
   }
 
   /**
    * only used for initialize a mlog file writer.
    */
-  void setLineNumber(int number) {
-    lineNumber.set(number);
+  void setLogNum(int number) {
+    logNum.set(number);
   }
 }
@@ -21,26 +21,26 @@ package org.apache.iotdb.db.metadata;
 import static java.util.stream.Collectors.toList;
 import static org.apache.iotdb.tsfile.common.constant.TsFileConstant.PATH_SEPARATOR;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -58,6 +58,7 @@ import org.apache.iotdb.db.exception.metadata.PathAlreadyExistException;
 import org.apache.iotdb.db.exception.metadata.PathNotExistException;
 import org.apache.iotdb.db.exception.metadata.StorageGroupAlreadySetException;
 import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
+import org.apache.iotdb.db.metadata.mnode.DeviceNodeCache;
 import org.apache.iotdb.db.metadata.mnode.MNode;
 import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
 import org.apache.iotdb.db.metadata.mnode.StorageGroupMNode;
@@ -66,7 +67,12 @@ import org.apache.iotdb.db.qp.constant.SQLConstant;
 import org.apache.iotdb.db.qp.physical.crud.InsertPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeAliasPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeTagOffsetPlan;
 import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetStorageGroupPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetTTLPlan;
 import org.apache.iotdb.db.qp.physical.sys.ShowTimeSeriesPlan;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.dataset.ShowTimeSeriesResult;
@@ -74,6 +80,7 @@ import org.apache.iotdb.db.rescon.PrimitiveArrayManager;
 import org.apache.iotdb.db.utils.RandomDeleteCache;
 import org.apache.iotdb.db.utils.SchemaUtils;
 import org.apache.iotdb.db.utils.TypeInferenceUtils;
+import org.apache.iotdb.db.utils.TestOnly;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.exception.cache.CacheException;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
@@ -95,10 +102,6 @@ import org.slf4j.LoggerFactory;
 public class MManager {
 
   public static final String TIME_SERIES_TREE_HEADER = "===  Timeseries Tree  ===\n\n";
-  private static final String TAG_FORMAT = "tag key is %s, tag value is %s, tlog offset is %d";
-  private static final String DEBUG_MSG = "%s : TimeSeries %s is removed from tag inverted index, ";
-  private static final String DEBUG_MSG_1 = "%s: TimeSeries %s's tag info has been removed from tag inverted index ";
-  private static final String PREVIOUS_CONDITION = "before deleting it, tag key is %s, tag value is %s, tlog offset is %d, contains key %b";
 
   private static final int UPDATE_SCHEMA_MAP_IN_ARRAYPOOL_THRESHOLD = 5000;
 
@@ -117,11 +120,13 @@ public class MManager {
   private MTree mtree;
   private MLogWriter logWriter;
   private TagLogFile tagLogFile;
+  // pages the measurements of the devices out of memory if enable_schema_paging is true
+  private DeviceNodeCache deviceNodeCache;
   private boolean isRecovering;
   // device -> DeviceMNode
   private RandomDeleteCache<PartialPath, MNode> mNodeCache;
-  // tag key -> tag value -> LeafMNode
-  private Map<String, Map<String, Set<MeasurementMNode>>> tagIndex = new ConcurrentHashMap<>();
+  // tag key -> tag value -> series
+  private TagIndex tagIndex;
 
   // data type -> number
   private Map<TSDataType, Integer> schemaDataTypeNumMap = new ConcurrentHashMap<>();
@@ -209,18 +214,28 @@ public class MManager {
     logFile = SystemFileFactory.INSTANCE.getFile(logFilePath);
 
     try {
+      SchemaFileConverter.convert(config.getSchemaDir());
       tagLogFile = new TagLogFile(config.getSchemaDir(), MetadataConstant.TAG_LOG);
+      tagIndex = new TagIndex(config.getSchemaDir(), config.getTagIndexFlushThreshold());
+      if (config.isEnableSchemaPaging()) {
+        deviceNodeCache = new DeviceNodeCache(new MeasurementPageFile(config.getSchemaDir(),
+            MetadataConstant.MEASUREMENT_PAGE_FILE), config.getSchemaPagingCacheSize());
+        MNode.setDeviceNodeCache(deviceNodeCache);
+      }
 
       isRecovering = true;
-      int lineNumber = initFromLog(logFile);
+      int logNum = initFromLog(logFile);
       List<PartialPath> storageGroups = mtree.getAllStorageGroupPaths();
       for (PartialPath sg : storageGroups) {
         MNode node = mtree.getNodeByPath(sg);
         totalSeriesNumber.addAndGet(node.getLeafCount());
       }
+      if (tagIndex.isRebuildNeeded()) {
+        rebuildTagIndex();
+      }
 
       logWriter = new MLogWriter(config.getSchemaDir(), MetadataConstant.METADATA_LOG);
-      logWriter.setLineNumber(lineNumber);
+      logWriter.setLogNum(logNum);
       isRecovering = false;
     } catch (IOException | MetadataException e) {
       mtree = new MTree();
@@ -231,7 +246,7 @@ public class MManager {
   }
 
   /**
-   * @return line number of the logFile
+   * @return the number of logs in the logFile
    */
   @SuppressWarnings("squid:S3776")
   private int initFromLog(File logFile) throws IOException {
@@ -255,28 +270,35 @@ public class MManager {
     // init the metadata from the operation log
     if (logFile.exists()) {
       int idx = 0;
-      try (FileReader fr = new FileReader(logFile);
-          BufferedReader br = new BufferedReader(fr)) {
-        String cmd;
-        while ((cmd = br.readLine()) != null) {
+      try (MLogReader mLogReader = new MLogReader(logFile)) {
+        PhysicalPlan plan;
+        while ((plan = mLogReader.next()) != null) {
           try {
-            operation(cmd);
+            operation(plan);
             idx++;
           } catch (Exception e) {
-            logger.error("Can not operate cmd {}", cmd, e);
+            logger.error("Can not operate cmd {}", plan, e);
           }
         }
+        if (mLogReader.isFileCorrupted()) {
+          mLogReader.truncateBrokenLogs();
+        }
       }
-      logger.debug("spend {} ms to deserialize mtree from mlog.txt",
+      logger.debug("spend {} ms to deserialize mtree from mlog.bin",
           System.currentTimeMillis() - time);
       return idx;
     } else if (mtreeSnapshot.exists()) {
-      throw new IOException("mtree snapshot file exists but mlog.txt does not exist.");
+      throw new IOException("mtree snapshot file exists but mlog.bin does not exist.");
     } else {
       return 0;
     }
   }
 
+  @TestOnly
+  public DeviceNodeCache getDeviceNodeCache() {
+    return deviceNodeCache;
+  }
+
   /**
    * function for clearing MTree
    */
@@ -284,8 +306,11 @@ public class MManager {
     try {
       this.mtree = new MTree();
       this.mNodeCache.clear();
-      this.tagIndex.clear();
       this.totalSeriesNumber.set(0);
+      if (tagIndex != null) {
+        tagIndex.close();
+        tagIndex = null;
+      }
       if (logWriter != null) {
         logWriter.close();
         logWriter = null;
@@ -294,6 +319,11 @@ public class MManager {
         tagLogFile.close();
         tagLogFile = null;
       }
+      if (deviceNodeCache != null) {
+        MNode.setDeviceNodeCache(null);
+        deviceNodeCache.close();
+        deviceNodeCache = null;
+      }
       this.schemaDataTypeNumMap.clear();
       this.reportedDataTypeTotalNum = 0L;
       initialized = false;
@@ -306,92 +336,63 @@ public class MManager {
     }
   }
 
+  /**
+   * apply a log of mlog.txt, which is the format of the schema in the sync protocol.
+   */
   public void operation(String cmd) throws IOException, MetadataException {
-    // see createTimeseries() to get the detailed format of the cmd
-    String[] args = cmd.trim().split(",", -1);
-    switch (args[0]) {
-      case MetadataOperationType.CREATE_TIMESERIES:
-        if (args.length > 8) {
-          String[] tmpArgs = new String[8];
-          tmpArgs[0] = args[0];
-          int i = 1;
-          tmpArgs[1] = "";
-          for (; i < args.length - 7; i++) {
-            tmpArgs[1] += args[i] + ",";
-          }
-          tmpArgs[1] += args[i++];
-          for (int j = 2; j < 8; j++) {
-            tmpArgs[j] = args[i++];
-          }
-          args = tmpArgs;
-        }
-        Map<String, String> props = null;
-        if (!args[5].isEmpty()) {
-          String[] keyValues = args[5].split("&");
-          String[] kv;
-          props = new HashMap<>();
-          for (String keyValue : keyValues) {
-            kv = keyValue.split("=");
-            props.put(kv[0], kv[1]);
-          }
-        }
+    operation(SchemaFileConverter.parseTxtLog(cmd));
+  }
 
-        String alias = null;
-        if (!args[6].isEmpty()) {
-          alias = args[6];
-        }
-        long offset = -1L;
-        Map<String, String> tagMap = null;
-        if (!args[7].isEmpty()) {
-          offset = Long.parseLong(args[7]);
-          tagMap = tagLogFile.readTag(config.getTagAttributeTotalSize(), offset);
+  /**
+   * apply a plan read from mlog.bin
+   */
+  public void operation(PhysicalPlan plan) throws IOException, MetadataException {
+    switch (plan.getOperatorType()) {
+      case CREATE_TIMESERIES:
+        CreateTimeSeriesPlan createTimeSeriesPlan = (CreateTimeSeriesPlan) plan;
+        long offset = createTimeSeriesPlan.getTagOffset();
+        // the tag index is recovered from its own file
+        if (offset >= 0 && !isRecovering) {
+          createTimeSeriesPlan
+              .setTags(tagLogFile.readTag(config.getTagAttributeTotalSize(), offset));
         }
-
-        CreateTimeSeriesPlan plan = new CreateTimeSeriesPlan(new PartialPath(args[1]),
-            TSDataType.deserialize(Short.parseShort(args[2])),
-            TSEncoding.deserialize(Short.parseShort(args[3])),
-            CompressionType.deserialize(Short.parseShort(args[4])), props, tagMap, null, alias);
-
-        createTimeseries(plan, offset);
+        createTimeseries(createTimeSeriesPlan, offset);
         break;
-      case MetadataOperationType.DELETE_TIMESERIES:
-        if (args.length > 2) {
-          StringBuilder tmp = new StringBuilder();
-          for (int i = 1; i < args.length - 1; i++) {
-            tmp.append(args[i]).append(",");
+      case DELETE_TIMESERIES:
+        for (PartialPath path : plan.getPaths()) {
+          String failedTimeseries = deleteTimeseries(path);
+          if (!failedTimeseries.isEmpty()) {
+            throw new DeleteFailedException(failedTimeseries);
           }
-          tmp.append(args[args.length - 1]);
-          args[1] = tmp.toString();
-        }
-        String failedTimeseries = deleteTimeseries(new PartialPath(args[1]));
-        if (!failedTimeseries.isEmpty()) {
-          throw new DeleteFailedException(failedTimeseries);
         }
         break;
-      case MetadataOperationType.SET_STORAGE_GROUP:
+      case SET_STORAGE_GROUP:
         try {
-          setStorageGroup(new PartialPath(args[1]));
+          setStorageGroup(((SetStorageGroupPlan) plan).getPath());
         }
         // two time series may set one storage group concurrently,
         // that's normal in our concurrency control protocol
-        catch (MetadataException e){
-          logger.info("concurrently operate set storage group cmd {} twice", cmd);
+        catch (MetadataException e) {
+          logger.info("concurrently operate set storage group cmd {} twice", plan);
         }
         break;
-      case MetadataOperationType.DELETE_STORAGE_GROUP:
-        deleteStorageGroups(Collections.singletonList(new PartialPath(args[1])));
+      case DELETE_STORAGE_GROUP:
+        deleteStorageGroups(plan.getPaths());
         break;
-      case MetadataOperationType.SET_TTL:
-        setTTL(new PartialPath(args[1]), Long.parseLong(args[2]));
+      case TTL:
+        SetTTLPlan setTTLPlan = (SetTTLPlan) plan;
+        setTTL(setTTLPlan.getStorageGroup(), setTTLPlan.getDataTTL());
         break;
-      case MetadataOperationType.CHANGE_OFFSET:
-        changeOffset(new PartialPath(args[1]), Long.parseLong(args[2]));
+      case CHANGE_TAG_OFFSET:
+        ChangeTagOffsetPlan changeTagOffsetPlan = (ChangeTagOffsetPlan) plan;
+        changeOffset(changeTagOffsetPlan.getPath(), changeTagOffsetPlan.getOffset());
         break;
-      case MetadataOperationType.CHANGE_ALIAS:
-        changeAlias(new PartialPath(args[1]), args[2]);
+      case CHANGE_ALIAS:
+        ChangeAliasPlan changeAliasPlan = (ChangeAliasPlan) plan;
+        changeAlias(changeAliasPlan.getPath(), changeAliasPlan.getAlias());
         break;
       default:
-        logger.error("Unrecognizable command {}", cmd);
+        logger.error("Unrecognizable command {}", plan);
     }
   }
 
@@ -426,18 +427,6 @@ public class MManager {
           .createTimeseries(path, type, plan.getEncoding(), plan.getCompressor(),
               plan.getProps(), plan.getAlias());
 
-      // update tag index
-      if (plan.getTags() != null) {
-        // tag key, tag value
-        for (Entry<String, String> entry : plan.getTags().entrySet()) {
-          if (entry.getKey() == null || entry.getValue() == null) {
-            continue;
-          }
-          tagIndex.computeIfAbsent(entry.getKey(), k -> new ConcurrentHashMap<>())
-              .computeIfAbsent(entry.getValue(), v -> new CopyOnWriteArraySet<>()).add(leafMNode);
-        }
-      }
-
       // update statistics and schemaDataTypeNumMap
       totalSeriesNumber.addAndGet(1);
       if (totalSeriesNumber.get() * ESTIMATED_SERIES_SIZE >= MTREE_SIZE_THRESHOLD) {
@@ -454,6 +443,10 @@ public class MManager {
           offset = tagLogFile.write(plan.getTags(), plan.getAttributes());
         }
         logWriter.createTimeseries(plan, offset);
+        // update tag index
+        if (offset >= 0) {
+          tagIndex.add(getSeriesId(offset), path.getFullPath(), plan.getTags());
+        }
       }
       leafMNode.setOffset(offset);
 
@@ -504,7 +497,7 @@ public class MManager {
             if (emptyStorageGroup != null) {
               StorageEngine.getInstance().deleteAllDataFilesInOneStorageGroup(emptyStorageGroup);
             }
-            logWriter.deleteTimeseries(p.getFullPath());
+            logWriter.deleteTimeseries(p);
           }
         } catch (DeleteFailedException e) {
           failedNames.add(e.getName());
@@ -519,37 +512,48 @@ public class MManager {
   /**
    * remove the node from the tag inverted index
    */
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   private void removeFromTagInvertedIndex(MeasurementMNode node) throws IOException {
-    if (node.getOffset() < 0) {
+    // the tag index is recovered from its own file
+    if (node.getOffset() < 0 || isRecovering) {
       return;
     }
     Map<String, String> tagMap =
         tagLogFile.readTag(config.getTagAttributeTotalSize(), node.getOffset());
-    if (tagMap != null) {
-      for (Entry<String, String> entry : tagMap.entrySet()) {
-        if (tagIndex.containsKey(entry.getKey()) && tagIndex.get(entry.getKey())
-            .containsKey(entry.getValue())) {
-          if (logger.isDebugEnabled()) {
-            logger.debug(String.format(DEBUG_MSG, "Delete" + TAG_FORMAT,
-                node.getFullPath(), entry.getKey(), entry.getValue(), node.getOffset()));
-          }
-          tagIndex.get(entry.getKey()).get(entry.getValue()).remove(node);
-          if (tagIndex.get(entry.getKey()).get(entry.getValue()).isEmpty()) {
-            tagIndex.get(entry.getKey()).remove(entry.getValue());
-            if (tagIndex.get(entry.getKey()).isEmpty()) {
-              tagIndex.remove(entry.getKey());
-            }
-          }
-        } else {
-          if (logger.isDebugEnabled()) {
-            logger.debug(String.format(DEBUG_MSG_1, "Delete" + PREVIOUS_CONDITION,
-                node.getFullPath(), entry.getKey(), entry.getValue(), node.getOffset(),
-                tagIndex.containsKey(entry.getKey())));
-          }
-        }
+    if (logger.isDebugEnabled()) {
+      logger.debug("Delete TimeSeries {} with tags {} from tag inverted index, tlog offset is {}",
+          node.getFullPath(), tagMap, node.getOffset());
+    }
+    tagIndex.delete(getSeriesId(node.getOffset()), tagMap);
+  }
+
+  /**
+   * @return the id of the series in the tag index
+   */
+  private static int getSeriesId(long tagOffset) {
+    return (int) (tagOffset / config.getTagAttributeTotalSize());
+  }
+
+  /**
+   * rebuild the tag index from the tags of all the series in tlog.txt. The changes are written as
+   * runs of the index as they accumulate, so the series are not kept in memory.
+   */
+  private void rebuildTagIndex() throws IOException, MetadataException {
+    long time = System.currentTimeMillis();
+    tagIndex.reset();
+    int seriesNum = 0;
+    Iterator<MeasurementMNode> iterator = mtree
+        .getMeasurementMNodeIterator(new PartialPath(MetadataConstant.ROOT));
+    while (iterator.hasNext()) {
+      MeasurementMNode node = iterator.next();
+      if (node.getOffset() >= 0) {
+        tagIndex.add(getSeriesId(node.getOffset()), node.getFullPath(),
+            tagLogFile.readTag(config.getTagAttributeTotalSize(), node.getOffset()));
+        seriesNum++;
       }
     }
+    tagIndex.flush();
+    logger.info("spend {} ms to rebuild the tag index of {} series",
+        System.currentTimeMillis() - time, seriesNum);
   }
 
   /**
@@ -586,7 +590,7 @@ public class MManager {
     try {
       mtree.setStorageGroup(storageGroup);
       if (!isRecovering) {
-        logWriter.setStorageGroup(storageGroup.getFullPath());
+        logWriter.setStorageGroup(storageGroup);
       }
     } catch (IOException e) {
       throw new MetadataException(e.getMessage());
@@ -620,7 +624,7 @@ public class MManager {
 
         // if success
         if (!isRecovering) {
-          logWriter.deleteStorageGroup(storageGroup.getFullPath());
+          logWriter.deleteStorageGroup(storageGroup);
         }
       }
     } catch (IOException e) {
@@ -699,6 +703,17 @@ public class MManager {
     return mtree.getDevices(prefixPath);
   }
 
+  /**
+   * Get a lazy iterator of all devices under the given prefix path, which traverses the MTree as
+   * the devices are pulled.
+   *
+   * @param prefixPath a prefix path or a full path, may contain '*'.
+   */
+  public Iterator<PartialPath> getDeviceIterator(PartialPath prefixPath)
+      throws MetadataException {
+    return mtree.getDeviceIterator(prefixPath);
+  }
+
   /**
    * Get all nodes from the given level
    *
@@ -810,85 +825,57 @@ public class MManager {
     return mtree.getNodesCountInGivenLevel(prefixPath, level);
   }
 
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
-  private List<ShowTimeSeriesResult> showTimeseriesWithIndex(ShowTimeSeriesPlan plan,
+  /**
+   * Get the series matched by the tag conditions of the plan through the tag index, sorted by
+   * heat or by their paths.
+   */
+  private List<MeasurementMNode> getMatchedTimeseriesWithIndex(ShowTimeSeriesPlan plan,
       QueryContext context) throws MetadataException {
-    if (!tagIndex.containsKey(plan.getKey())) {
-      throw new MetadataException("The key " + plan.getKey() + " is not a tag.");
-    }
-    Map<String, Set<MeasurementMNode>> value2Node = tagIndex.get(plan.getKey());
-    if (value2Node.isEmpty()) {
-      throw new MetadataException("The key " + plan.getKey() + " is not a tag.");
-    }
-
     List<MeasurementMNode> allMatchedNodes = new ArrayList<>();
-    if (plan.isContains()) {
-      for (Entry<String, Set<MeasurementMNode>> entry : value2Node.entrySet()) {
-        if (entry.getKey() == null || entry.getValue() == null) {
-          continue;
-        }
-        String tagValue = entry.getKey();
-        if (tagValue.contains(plan.getValue())) {
-          allMatchedNodes.addAll(entry.getValue());
+    String[] prefixNodes = plan.getPath().getNodes();
+    try {
+      for (TagCondition condition : plan.getTagConditions()) {
+        if (!tagIndex.containsKey(condition.getKey())) {
+          throw new MetadataException("The key " + condition.getKey() + " is not a tag.");
         }
       }
-    } else {
-      for (Entry<String, Set<MeasurementMNode>> entry : value2Node.entrySet()) {
-        if (entry.getKey() == null || entry.getValue() == null) {
+      BitSet seriesIds = tagIndex.query(plan.getTagConditions());
+      for (Entry<Integer, String> entry : tagIndex.getPaths(seriesIds).entrySet()) {
+        PartialPath path = new PartialPath(entry.getValue());
+        if (!match(path, prefixNodes)) {
           continue;
         }
-        String tagValue = entry.getKey();
-        if (plan.getValue().equals(tagValue)) {
-          allMatchedNodes.addAll(entry.getValue());
+        MNode node;
+        try {
+          node = mtree.getNodeByPath(path);
+        } catch (PathNotExistException e) {
+          continue;
+        }
+        // skip the series which is deleted and created again without tags
+        if (node instanceof MeasurementMNode && ((MeasurementMNode) node).getOffset() >= 0
+            && getSeriesId(((MeasurementMNode) node).getOffset()) == entry.getKey()) {
+          allMatchedNodes.add((MeasurementMNode) node);
         }
       }
+    } catch (IOException e) {
+      throw new MetadataException("Cannot query the tag index", e);
     }
 
     // if ordered by heat, we sort all the timeseries by the descending order of the last insert timestamp
     if (plan.isOrderByHeat()) {
-      allMatchedNodes = allMatchedNodes.stream().sorted(Comparator
-          .comparingLong((MeasurementMNode mNode) -> MTree.getLastTimeStamp(mNode, context))
-          .reversed().thenComparing(MNode::getFullPath)).collect(toList());
+      List<Pair<MeasurementMNode, Long>> nodesWithLast = new ArrayList<>(allMatchedNodes.size());
+      for (MeasurementMNode node : allMatchedNodes) {
+        nodesWithLast.add(new Pair<>(node, MTree.getLastTimeStamp(node, context)));
+      }
+      nodesWithLast.sort(Comparator
+          .comparingLong((Pair<MeasurementMNode, Long> p) -> p.right).reversed()
+          .thenComparing(p -> p.left.getFullPath()));
+      return nodesWithLast.stream().map(p -> p.left).collect(toList());
     } else {
       // otherwise, we just sort them by the alphabetical order
-      allMatchedNodes = allMatchedNodes.stream().sorted(Comparator.comparing(MNode::getFullPath))
-          .collect(toList());
+      allMatchedNodes.sort(Comparator.comparing(MNode::getFullPath));
+      return allMatchedNodes;
     }
-
-    List<ShowTimeSeriesResult> res = new LinkedList<>();
-    String[] prefixNodes = plan.getPath().getNodes();
-    int curOffset = -1;
-    int count = 0;
-    int limit = plan.getLimit();
-    int offset = plan.getOffset();
-    for (MeasurementMNode leaf : allMatchedNodes) {
-      if (match(leaf.getPartialPath(), prefixNodes)) {
-        if (limit != 0 || offset != 0) {
-          curOffset++;
-          if (curOffset < offset || count == limit) {
-            continue;
-          }
-        }
-        try {
-          Pair<Map<String, String>, Map<String, String>> tagAndAttributePair =
-              tagLogFile.read(config.getTagAttributeTotalSize(), leaf.getOffset());
-          MeasurementSchema measurementSchema = leaf.getSchema();
-          res.add(new ShowTimeSeriesResult(leaf.getFullPath(), leaf.getAlias(),
-              getStorageGroupPath(leaf.getPartialPath()).getFullPath(),
-              measurementSchema.getType(),
-              measurementSchema.getEncodingType(),
-              measurementSchema.getCompressor(), tagAndAttributePair.left,
-              tagAndAttributePair.right));
-          if (limit != 0) {
-            count++;
-          }
-        } catch (IOException e) {
-          throw new MetadataException(
-              "Something went wrong while deserialize tag info of " + leaf.getFullPath(), e);
-        }
-      }
-    }
-    return res;
   }
 
   /**
@@ -907,14 +894,56 @@ public class MManager {
     return true;
   }
 
-  public List<ShowTimeSeriesResult> showTimeseries(ShowTimeSeriesPlan plan, QueryContext context)
-      throws MetadataException {
-    // show timeseries with index
-    if (plan.getKey() != null && plan.getValue() != null) {
-      return showTimeseriesWithIndex(plan, context);
+  /**
+   * Get the series matched by the plan without reading their tags and attributes, the limit and
+   * offset of the plan are not applied. Without tag conditions or ordering by heat, the MTree is
+   * traversed lazily as the series are pulled, so that they can be fetched in batches.
+   */
+  public Iterator<MeasurementMNode> getMatchedTimeseries(ShowTimeSeriesPlan plan,
+      QueryContext context) throws MetadataException {
+    if (!plan.getTagConditions().isEmpty()) {
+      return getMatchedTimeseriesWithIndex(plan, context).iterator();
+    } else if (plan.isOrderByHeat()) {
+      return mtree.getMeasurementMNodesByHeatOrder(plan.getPath(), context).iterator();
     } else {
-      return showTimeseriesWithoutIndex(plan, context);
+      return mtree.getMeasurementMNodeIterator(plan.getPath());
+    }
+  }
+
+  /**
+   * Get the results of the given series. Their tags and attributes are read in the order of their
+   * offsets, so that tlog.txt is read sequentially.
+   */
+  public List<ShowTimeSeriesResult> getShowTimeseriesResults(List<MeasurementMNode> nodes)
+      throws MetadataException {
+    Integer[] order = new Integer[nodes.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingLong(i -> nodes.get(i).getOffset()));
+    long[] offsets = new long[order.length];
+    for (int i = 0; i < order.length; i++) {
+      offsets[i] = nodes.get(order[i]).getOffset();
+    }
+    List<Pair<Map<String, String>, Map<String, String>>> tagAndAttributePairs;
+    try {
+      tagAndAttributePairs = tagLogFile.read(config.getTagAttributeTotalSize(), offsets);
+    } catch (IOException e) {
+      throw new MetadataException("Something went wrong while deserialize tag info", e);
+    }
+
+    ShowTimeSeriesResult[] res = new ShowTimeSeriesResult[order.length];
+    for (int i = 0; i < order.length; i++) {
+      MeasurementMNode leaf = nodes.get(order[i]);
+      MeasurementSchema measurementSchema = leaf.getSchema();
+      Pair<Map<String, String>, Map<String, String>> tagAndAttributePair =
+          tagAndAttributePairs.get(i);
+      res[order[i]] = new ShowTimeSeriesResult(leaf.getFullPath(), leaf.getAlias(),
+          getStorageGroupPath(leaf.getPartialPath()).getFullPath(), measurementSchema.getType(),
+          measurementSchema.getEncodingType(), measurementSchema.getCompressor(),
+          tagAndAttributePair.left, tagAndAttributePair.right);
     }
+    return Arrays.asList(res);
   }
 
   /**
@@ -922,36 +951,17 @@ public class MManager {
    *
    * @param plan show time series query plan
    */
-  private List<ShowTimeSeriesResult> showTimeseriesWithoutIndex(ShowTimeSeriesPlan plan,
-      QueryContext context) throws MetadataException {
-    List<Pair<PartialPath, String[]>> ans;
-    if (plan.isOrderByHeat()) {
-      ans = mtree.getAllMeasurementSchemaByHeatOrder(plan, context);
-    } else {
-      ans = mtree.getAllMeasurementSchema(plan);
+  public List<ShowTimeSeriesResult> showTimeseries(ShowTimeSeriesPlan plan, QueryContext context)
+      throws MetadataException {
+    Iterator<MeasurementMNode> iterator = getMatchedTimeseries(plan, context);
+    for (int i = 0; i < plan.getOffset() && iterator.hasNext(); i++) {
+      iterator.next();
     }
-    List<ShowTimeSeriesResult> res = new LinkedList<>();
-    for (Pair<PartialPath, String[]> ansString : ans) {
-      long tagFileOffset = Long.parseLong(ansString.right[5]);
-      try {
-        Pair<Map<String, String>, Map<String, String>> tagAndAttributePair =
-            new Pair<>(Collections.emptyMap(), Collections.emptyMap());
-        if (tagFileOffset >= 0) {
-          tagAndAttributePair = tagLogFile.read(config.getTagAttributeTotalSize(), tagFileOffset);
-        }
-        res.add(new ShowTimeSeriesResult(ansString.left.getFullPath(), ansString.right[0],
-            ansString.right[1],
-            TSDataType.valueOf(ansString.right[2]), TSEncoding.valueOf(ansString.right[3]),
-            CompressionType.valueOf(ansString.right[4]), tagAndAttributePair.left,
-            tagAndAttributePair.right));
-      } catch (IOException e) {
-        throw new MetadataException(
-            "Something went wrong while deserialize tag info of " + ansString.left.getFullPath(),
-            e);
-      }
+    List<MeasurementMNode> nodes = new ArrayList<>();
+    while (iterator.hasNext() && (plan.getLimit() == 0 || nodes.size() < plan.getLimit())) {
+      nodes.add(iterator.next());
     }
-    return res;
-
+    return getShowTimeseriesResults(nodes);
   }
 
   protected MeasurementMNode getMeasurementMNode(MNode deviceMNode, String measurement) {
@@ -1104,7 +1114,7 @@ public class MManager {
   public void setTTL(PartialPath storageGroup, long dataTTL) throws MetadataException, IOException {
     getStorageGroupNodeByStorageGroupPath(storageGroup).setDataTTL(dataTTL);
     if (!isRecovering) {
-      logWriter.setTTL(storageGroup.getFullPath(), dataTTL);
+      logWriter.setTTL(storageGroup, dataTTL);
     }
   }
 
@@ -1177,7 +1187,7 @@ public class MManager {
 
       leafMNode.setAlias(alias);
       // persist to WAL
-      logWriter.changeAlias(fullPath.getFullPath(), alias);
+      logWriter.changeAlias(fullPath, alias);
     }
 
     if (tagsMap == null && attributesMap == null) {
@@ -1186,59 +1196,30 @@ public class MManager {
     // no tag or attribute, we need to add a new record in log
     if (leafMNode.getOffset() < 0) {
       long offset = tagLogFile.write(tagsMap, attributesMap);
-      logWriter.changeOffset(fullPath.getFullPath(), offset);
+      logWriter.changeOffset(fullPath, offset);
       leafMNode.setOffset(offset);
       // update inverted Index map
-      if (tagsMap != null) {
-        for (Entry<String, String> entry : tagsMap.entrySet()) {
-          tagIndex.computeIfAbsent(entry.getKey(), k -> new ConcurrentHashMap<>())
-              .computeIfAbsent(entry.getValue(), v -> new CopyOnWriteArraySet<>()).add(leafMNode);
-        }
-      }
+      tagIndex.add(getSeriesId(offset), leafMNode.getFullPath(), tagsMap);
       return;
     }
 
     Pair<Map<String, String>, Map<String, String>> pair =
         tagLogFile.read(config.getTagAttributeTotalSize(), leafMNode.getOffset());
 
+    Map<String, String> beforeTags = new HashMap<>();
+    Map<String, String> changedTags = new HashMap<>();
     if (tagsMap != null) {
       for (Entry<String, String> entry : tagsMap.entrySet()) {
         String key = entry.getKey();
         String value = entry.getValue();
-        String beforeValue = pair.left.get(key);
-        pair.left.put(key, value);
-        // if the key has existed and the value is not equal to the new one
-        // we should remove before key-value from inverted index map
-        if (beforeValue != null && !beforeValue.equals(value)) {
-
-          if (tagIndex.containsKey(key) && tagIndex.get(key).containsKey(beforeValue)) {
-            if (logger.isDebugEnabled()) {
-              logger.debug(String.format(
-                  DEBUG_MSG, "Upsert"
-                      + TAG_FORMAT,
-                  leafMNode.getFullPath(), key, beforeValue, leafMNode.getOffset()));
-            }
-
-            tagIndex.get(key).get(beforeValue).remove(leafMNode);
-            if (tagIndex.get(key).get(beforeValue).isEmpty()) {
-              tagIndex.get(key).remove(beforeValue);
-            }
-          } else {
-            if (logger.isDebugEnabled()) {
-              logger.debug(String.format(
-                  DEBUG_MSG_1, "Upsert"
-                      + PREVIOUS_CONDITION,
-                  leafMNode.getFullPath(), key, beforeValue, leafMNode.getOffset(),
-                  tagIndex.containsKey(key)));
-            }
-          }
-        }
-
+        String beforeValue = pair.left.put(key, value);
         // if the key doesn't exist or the value is not equal to the new one
-        // we should add a new key-value to inverted index map
+        // we should move the series to the new key-value in inverted index map
         if (beforeValue == null || !beforeValue.equals(value)) {
-          tagIndex.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
-              .computeIfAbsent(value, v -> new CopyOnWriteArraySet<>()).add(leafMNode);
+          if (beforeValue != null) {
+            beforeTags.put(key, beforeValue);
+          }
+          changedTags.put(key, value);
         }
       }
     }
@@ -1247,6 +1228,10 @@ public class MManager {
 
     // persist the change to disk
     tagLogFile.write(pair.left, pair.right, leafMNode.getOffset());
+
+    int seriesId = getSeriesId(leafMNode.getOffset());
+    tagIndex.remove(seriesId, beforeTags);
+    tagIndex.add(seriesId, leafMNode.getFullPath(), changedTags);
   }
 
   /**
@@ -1265,7 +1250,7 @@ public class MManager {
     // no tag or attribute, we need to add a new record in log
     if (leafMNode.getOffset() < 0) {
       long offset = tagLogFile.write(Collections.emptyMap(), attributesMap);
-      logWriter.changeOffset(fullPath.getFullPath(), offset);
+      logWriter.changeOffset(fullPath, offset);
       leafMNode.setOffset(offset);
       return;
     }
@@ -1303,13 +1288,10 @@ public class MManager {
     // no tag or attribute, we need to add a new record in log
     if (leafMNode.getOffset() < 0) {
       long offset = tagLogFile.write(tagsMap, Collections.emptyMap());
-      logWriter.changeOffset(fullPath.getFullPath(), offset);
+      logWriter.changeOffset(fullPath, offset);
       leafMNode.setOffset(offset);
       // update inverted Index map
-      for (Entry<String, String> entry : tagsMap.entrySet()) {
-        tagIndex.computeIfAbsent(entry.getKey(), k -> new ConcurrentHashMap<>())
-            .computeIfAbsent(entry.getValue(), v -> new CopyOnWriteArraySet<>()).add(leafMNode);
-      }
+      tagIndex.add(getSeriesId(offset), leafMNode.getFullPath(), tagsMap);
       return;
     }
 
@@ -1330,8 +1312,7 @@ public class MManager {
     tagLogFile.write(pair.left, pair.right, leafMNode.getOffset());
 
     // update tag inverted map
-    tagsMap.forEach((key, value) -> tagIndex.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
-        .computeIfAbsent(value, v -> new CopyOnWriteArraySet<>()).add(leafMNode));
+    tagIndex.add(getSeriesId(leafMNode.getOffset()), leafMNode.getFullPath(), tagsMap);
   }
 
   /**
@@ -1369,36 +1350,8 @@ public class MManager {
     // persist the change to disk
     tagLogFile.write(pair.left, pair.right, leafMNode.getOffset());
 
-    for (Entry<String, String> entry : deleteTag.entrySet()) {
-      String key = entry.getKey();
-      String value = entry.getValue();
-      // change the tag inverted index map
-      if (tagIndex.containsKey(key) && tagIndex.get(key).containsKey(value)) {
-        if (logger.isDebugEnabled()) {
-          logger.debug(String.format(
-              DEBUG_MSG, "Drop"
-                  + TAG_FORMAT,
-              leafMNode.getFullPath(), entry.getKey(), entry.getValue(), leafMNode.getOffset()));
-        }
-
-        tagIndex.get(key).get(value).remove(leafMNode);
-        if (tagIndex.get(key).get(value).isEmpty()) {
-          tagIndex.get(key).remove(value);
-          if (tagIndex.get(key).isEmpty()) {
-            tagIndex.remove(key);
-          }
-        }
-      } else {
-        if (logger.isDebugEnabled()) {
-          logger.debug(String.format(
-              DEBUG_MSG_1, "Drop"
-                  + PREVIOUS_CONDITION,
-              leafMNode.getFullPath(), key, value, leafMNode.getOffset(),
-              tagIndex.containsKey(key)));
-        }
-      }
-
-    }
+    // change the tag inverted index map
+    tagIndex.remove(getSeriesId(leafMNode.getOffset()), deleteTag);
   }
 
   /**
@@ -1446,33 +1399,10 @@ public class MManager {
     // persist the change to disk
     tagLogFile.write(pair.left, pair.right, leafMNode.getOffset());
 
-    for (Entry<String, String> entry : oldTagValue.entrySet()) {
-      String key = entry.getKey();
-      String beforeValue = entry.getValue();
-      String currentValue = newTagValue.get(key);
-      // change the tag inverted index map
-      if (tagIndex.containsKey(key) && tagIndex.get(key).containsKey(beforeValue)) {
-
-        if (logger.isDebugEnabled()) {
-          logger.debug(String.format(
-              DEBUG_MSG, "Set"
-                  + TAG_FORMAT,
-              leafMNode.getFullPath(), entry.getKey(), beforeValue, leafMNode.getOffset()));
-        }
-
-        tagIndex.get(key).get(beforeValue).remove(leafMNode);
-      } else {
-        if (logger.isDebugEnabled()) {
-          logger.debug(String.format(
-              DEBUG_MSG_1, "Set"
-                  + PREVIOUS_CONDITION,
-              leafMNode.getFullPath(), key, beforeValue, leafMNode.getOffset(),
-              tagIndex.containsKey(key)));
-        }
-      }
-      tagIndex.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
-          .computeIfAbsent(currentValue, k -> new CopyOnWriteArraySet<>()).add(leafMNode);
-    }
+    // change the tag inverted index map
+    int seriesId = getSeriesId(leafMNode.getOffset());
+    tagIndex.remove(seriesId, oldTagValue);
+    tagIndex.add(seriesId, leafMNode.getFullPath(), newTagValue);
   }
 
   /**
@@ -1512,28 +1442,9 @@ public class MManager {
       // persist the change to disk
       tagLogFile.write(pair.left, pair.right, leafMNode.getOffset());
       // change the tag inverted index map
-      if (tagIndex.containsKey(oldKey) && tagIndex.get(oldKey).containsKey(value)) {
-
-        if (logger.isDebugEnabled()) {
-          logger.debug(String.format(
-              DEBUG_MSG, "Rename"
-                  + TAG_FORMAT,
-              leafMNode.getFullPath(), oldKey, value, leafMNode.getOffset()));
-        }
-
-        tagIndex.get(oldKey).get(value).remove(leafMNode);
-
-      } else {
-        if (logger.isDebugEnabled()) {
-          logger.debug(String.format(
-              DEBUG_MSG_1, "Rename"
-                  + PREVIOUS_CONDITION,
-              leafMNode.getFullPath(), oldKey, value, leafMNode.getOffset(),
-              tagIndex.containsKey(oldKey)));
-        }
-      }
-      tagIndex.computeIfAbsent(newKey, k -> new ConcurrentHashMap<>())
-          .computeIfAbsent(value, k -> new CopyOnWriteArraySet<>()).add(leafMNode);
+      int seriesId = getSeriesId(leafMNode.getOffset());
+      tagIndex.remove(seriesId, Collections.singletonMap(oldKey, value));
+      tagIndex.add(seriesId, leafMNode.getFullPath(), Collections.singletonMap(newKey, value));
     } else if (pair.right.containsKey(oldKey)) {
       // check attribute map
       pair.right.put(newKey, pair.right.remove(oldKey));
@@ -1657,7 +1568,11 @@ public class MManager {
   public void updateLastCache(PartialPath seriesPath, TimeValuePair timeValuePair,
       boolean highPriorityUpdate, Long latestFlushedTime,
       MeasurementMNode node) {
-    if (node != null) {
+    if (node != null && node.getParent() != null) {
+      // the node may have been paged out with its device and loaded again since it was got
+      node.getParent()
+          .updateChildCachedLast(node, timeValuePair, highPriorityUpdate, latestFlushedTime);
+    } else if (node != null) {
       node.updateCachedLast(timeValuePair, highPriorityUpdate, latestFlushedTime);
     } else {
       try {
@@ -1689,14 +1604,14 @@ public class MManager {
         logger.debug("MTree snapshot need not be created. Time from last modification: {} ms.",
             System.currentTimeMillis() - logFile.lastModified());
       }
-    } else if (logWriter.getLineNumber() < mtreeSnapshotInterval) {
+    } else if (logWriter.getLogNum() < mtreeSnapshotInterval) {
       if (logger.isDebugEnabled()) {
-        logger.debug("MTree snapshot need not be created. New mlog line number: {}.",
-            logWriter.getLineNumber());
+        logger.debug("MTree snapshot need not be created. New mlog number: {}.",
+            logWriter.getLogNum());
       }
     } else {
-      logger.info("New mlog line number: {}, time from last modification: {} ms",
-          logWriter.getLineNumber(), System.currentTimeMillis() - logFile.lastModified());
+      logger.info("New mlog number: {}, time from last modification: {} ms",
+          logWriter.getLogNum(), System.currentTimeMillis() - logFile.lastModified());
       createMTreeSnapshot();
     }
   }
@@ -1742,7 +1657,12 @@ public class MManager {
     // 1. get device node
     MNode deviceMNode = getDeviceNodeWithAutoCreate(deviceId);
 
-    // 2. get schema of each measurement
+    // 2. create the missing measurements at once
+    if (config.isAutoCreateSchemaEnabled()) {
+      internalCreateTimeseries(deviceId, deviceMNode, plan);
+    }
+
+    // 3. get schema of each measurement
     for (int i = 0; i < measurementList.length; i++) {
       try {
         // if do not has measurement
@@ -1756,7 +1676,7 @@ public class MManager {
               throw new PathNotExistException(deviceId + PATH_SEPARATOR + measurementList[i]);
             }
           } else {
-            // create it
+            // create it, which is only left for the measurements failed to be created at once
 
             TSDataType dataType = getTypeInLoc(plan, i);
             // create it, may concurrent created by multiple thread
@@ -1814,6 +1734,82 @@ public class MManager {
     return deviceMNode;
   }
 
+  /**
+   * Create the measurements of the plan missing in the device by one update of the MTree and one
+   * write of mlog. The measurements which fail to be created at once, e.g., whose data types cannot
+   * be inferred, are skipped and left to be created one by one, so that the failures are handled
+   * for each measurement.
+   */
+  private void internalCreateTimeseries(PartialPath deviceId, MNode deviceMNode, InsertPlan plan)
+      throws MetadataException {
+    String[] measurementList = plan.getMeasurements();
+    List<String> measurements = new ArrayList<>();
+    List<TSDataType> dataTypes = new ArrayList<>();
+    List<TSEncoding> encodings = new ArrayList<>();
+    Set<String> measurementSet = new HashSet<>();
+    for (int i = 0; i < measurementList.length; i++) {
+      String measurement = measurementList[i];
+      if (measurement == null || deviceMNode.hasChild(measurement)
+          || !measurementSet.add(measurement)) {
+        continue;
+      }
+      try {
+        TSDataType dataType = getTypeInLoc(plan, i);
+        TSEncoding encoding = getDefaultEncoding(dataType);
+        SchemaUtils.checkDataTypeWithEncoding(dataType, encoding);
+        measurements.add(measurement);
+        dataTypes.add(dataType);
+        encodings.add(encoding);
+      } catch (MetadataException e) {
+        // left to be created one by one
+      }
+    }
+    if (measurements.isEmpty() || !allowToCreateNewSeries) {
+      return;
+    }
+
+    CompressionType compressor = TSFileDescriptor.getInstance().getConfig().getCompressor();
+    List<MeasurementMNode> leaves;
+    try {
+      leaves = mtree.createTimeseries(deviceMNode, measurements, dataTypes, encodings, compressor);
+    } catch (StorageGroupNotSetException e) {
+      // left to be created one by one, which sets the storage group
+      return;
+    }
+    if (leaves.isEmpty()) {
+      return;
+    }
+
+    // update statistics and schemaDataTypeNumMap
+    totalSeriesNumber.addAndGet(leaves.size());
+    if (totalSeriesNumber.get() * ESTIMATED_SERIES_SIZE >= MTREE_SIZE_THRESHOLD) {
+      logger.warn("Current series number {} is too large...", totalSeriesNumber);
+      allowToCreateNewSeries = false;
+    }
+    Map<TSDataType, Integer> dataTypeNums = new EnumMap<>(TSDataType.class);
+    for (MeasurementMNode leaf : leaves) {
+      dataTypeNums.merge(leaf.getSchema().getType(), 1, Integer::sum);
+    }
+    for (Entry<TSDataType, Integer> entry : dataTypeNums.entrySet()) {
+      updateSchemaDataTypeNumMap(entry.getKey(), entry.getValue());
+    }
+
+    // write log
+    if (!isRecovering) {
+      List<CreateTimeSeriesPlan> plans = new ArrayList<>(leaves.size());
+      for (MeasurementMNode leaf : leaves) {
+        MeasurementSchema schema = leaf.getSchema();
+        plans.add(new CreateTimeSeriesPlan(deviceId.concatNode(leaf.getName()), schema.getType(),
+            schema.getEncodingType(), schema.getCompressor(), null, null, null, null));
+      }
+      try {
+        logWriter.createTimeseries(plans);
+      } catch (IOException e) {
+        throw new MetadataException(e.getMessage());
+      }
+    }
+  }
+
   /**
    * create timeseries with ignore PathAlreadyExistException
    */
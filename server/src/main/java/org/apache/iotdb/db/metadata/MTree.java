@@ -28,10 +28,8 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayDeque;
@@ -41,16 +39,17 @@ import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBConstant;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
@@ -118,8 +117,30 @@ public class MTree implements Serializable {
     }
   }
 
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  /**
+   * deserialize the MTree from the binary snapshot, the storage groups are loaded in parallel.
+   */
   public static MTree deserializeFrom(File mtreeSnapshot) {
+    try {
+      return new MTree(
+          MTreeSnapshotFile.read(mtreeSnapshot, Runtime.getRuntime().availableProcessors()));
+    } catch (IOException e) {
+      logger.error("Failed to deserialize from {}. Use a new MTree.", mtreeSnapshot.getPath(), e);
+      return new MTree();
+    } finally {
+      limit = new ThreadLocal<>();
+      offset = new ThreadLocal<>();
+      count = new ThreadLocal<>();
+      curOffset = new ThreadLocal<>();
+    }
+  }
+
+  /**
+   * deserialize the MTree from the snapshot of the text format before version 2, which is only
+   * used to convert the snapshot to the binary format.
+   */
+  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  static MTree deserializeFromTxt(File mtreeSnapshot) throws IOException {
     try (BufferedReader br = new BufferedReader(new FileReader(mtreeSnapshot))) {
       String s;
       Deque<MNode> nodeStack = new ArrayDeque<>();
@@ -157,9 +178,6 @@ public class MTree implements Serializable {
         }
       }
       return new MTree(node);
-    } catch (IOException e) {
-      logger.warn("Failed to deserialize from {}. Use a new MTree.", mtreeSnapshot.getPath());
-      return new MTree();
     } finally {
       limit = new ThreadLocal<>();
       offset = new ThreadLocal<>();
@@ -278,6 +296,41 @@ public class MTree implements Serializable {
     }
   }
 
+  /**
+   * Add a batch of timeseries of a device to MTree at once. The measurements which already exist
+   * in the device, e.g., created by other threads concurrently, are skipped. This is only used for
+   * automatically creating schema
+   *
+   * @param deviceNode the device node, which should be in a storage group
+   * @return the created leaf nodes
+   */
+  List<MeasurementMNode> createTimeseries(MNode deviceNode, List<String> measurements,
+      List<TSDataType> dataTypes, List<TSEncoding> encodings, CompressionType compressor)
+      throws MetadataException {
+    MNode cur = deviceNode;
+    while (cur != null && !(cur instanceof StorageGroupMNode)) {
+      cur = cur.getParent();
+    }
+    if (cur == null) {
+      throw new StorageGroupNotSetException(deviceNode.getFullPath());
+    }
+
+    List<MeasurementMNode> leaves = new ArrayList<>(measurements.size());
+    synchronized (this) {
+      for (int i = 0; i < measurements.size(); i++) {
+        String leafName = measurements.get(i);
+        if (deviceNode.hasChild(leafName)) {
+          continue;
+        }
+        MeasurementMNode leaf = new MeasurementMNode(deviceNode, leafName, null,
+            dataTypes.get(i), encodings.get(i), compressor, Collections.emptyMap());
+        deviceNode.addChild(leafName, leaf);
+        leaves.add(leaf);
+      }
+    }
+    return leaves;
+  }
+
   /**
    * Add an interval path to MTree. This is only used for automatically creating schema
    *
@@ -963,31 +1016,23 @@ public class MTree implements Serializable {
   }
 
   /**
-   * Get all time series schema under the given path order by insert frequency
+   * Get all time series under the given path order by insert frequency, which is represented by
+   * the descending order of the last timestamp of each series.
    *
-   * <p>result: [name, alias, storage group, dataType, encoding, compression, offset]
+   * @param prefixPath a prefix path or a full path, may contain '*'.
    */
-  List<Pair<PartialPath, String[]>> getAllMeasurementSchemaByHeatOrder(ShowTimeSeriesPlan plan,
+  List<MeasurementMNode> getMeasurementMNodesByHeatOrder(PartialPath prefixPath,
       QueryContext queryContext) throws MetadataException {
-    String[] nodes = plan.getPath().getNodes();
-    if (nodes.length == 0 || !nodes[0].equals(root.getName())) {
-      throw new IllegalPathException(plan.getPath().getFullPath());
-    }
-    List<Pair<PartialPath, String[]>> allMatchedNodes = new ArrayList<>();
-
-    findPath(root, nodes, 1, allMatchedNodes, false, true, queryContext);
-
-    Stream<Pair<PartialPath, String[]>> sortedStream = allMatchedNodes.stream().sorted(
-        Comparator.comparingLong((Pair<PartialPath, String[]> p) -> Long.parseLong(p.right[6]))
-            .reversed()
-            .thenComparing((Pair<PartialPath, String[]> p) -> p.left));
-
-    // no limit
-    if (plan.getLimit() == 0) {
-      return sortedStream.collect(toList());
-    } else {
-      return sortedStream.skip(plan.getOffset()).limit(plan.getLimit()).collect(toList());
-    }
+    List<Pair<MeasurementMNode, Long>> allMatchedNodes = new ArrayList<>();
+    Iterator<MeasurementMNode> iterator = getMeasurementMNodeIterator(prefixPath);
+    while (iterator.hasNext()) {
+      MeasurementMNode node = iterator.next();
+      allMatchedNodes.add(new Pair<>(node, getLastTimeStamp(node, queryContext)));
+    }
+    allMatchedNodes.sort(Comparator
+        .comparingLong((Pair<MeasurementMNode, Long> p) -> p.right).reversed()
+        .thenComparing(p -> p.left.getFullPath()));
+    return allMatchedNodes.stream().map(p -> p.left).collect(toList());
   }
 
   /**
@@ -1014,10 +1059,10 @@ public class MTree implements Serializable {
     count.set(0);
     if (offset.get() != 0 || limit.get() != 0) {
       res = new LinkedList<>();
-      findPath(root, nodes, 1, res, true, false, null);
+      findPath(root, nodes, 1, res, true);
     } else {
       res = new LinkedList<>();
-      findPath(root, nodes, 1, res, false, false, null);
+      findPath(root, nodes, 1, res, false);
     }
     // avoid memory leaks
     limit.remove();
@@ -1032,14 +1077,13 @@ public class MTree implements Serializable {
   /**
    * Iterate through MTree to fetch metadata info of all leaf nodes under the given seriesPath
    *
-   * @param needLast             if false, lastTimeStamp in timeseriesSchemaList will be null
    * @param timeseriesSchemaList List<timeseriesSchema> result: [name, alias, storage group,
-   *                             dataType, encoding, compression, offset, lastTimeStamp]
+   *                             dataType, encoding, compression, offset]
    */
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   private void findPath(MNode node, String[] nodes, int idx,
       List<Pair<PartialPath, String[]>> timeseriesSchemaList,
-      boolean hasLimit, boolean needLast, QueryContext queryContext) throws MetadataException {
+      boolean hasLimit) throws MetadataException {
     if (node instanceof MeasurementMNode && nodes.length <= idx) {
       if (hasLimit) {
         curOffset.set(curOffset.get() + 1);
@@ -1049,7 +1093,7 @@ public class MTree implements Serializable {
       }
 
       PartialPath nodePath = node.getPartialPath();
-      String[] tsRow = new String[7];
+      String[] tsRow = new String[6];
       tsRow[0] = ((MeasurementMNode) node).getAlias();
       MeasurementSchema measurementSchema = ((MeasurementMNode) node).getSchema();
       tsRow[1] = getStorageGroupPath(nodePath).getFullPath();
@@ -1057,8 +1101,6 @@ public class MTree implements Serializable {
       tsRow[3] = measurementSchema.getEncodingType().toString();
       tsRow[4] = measurementSchema.getCompressor().toString();
       tsRow[5] = String.valueOf(((MeasurementMNode) node).getOffset());
-      tsRow[6] =
-          needLast ? String.valueOf(getLastTimeStamp((MeasurementMNode) node, queryContext)) : null;
       Pair<PartialPath, String[]> temp = new Pair<>(nodePath, tsRow);
       timeseriesSchemaList.add(temp);
 
@@ -1070,15 +1112,14 @@ public class MTree implements Serializable {
     if (!nodeReg.contains(PATH_WILDCARD)) {
       MNode next = node.getChild(nodeReg);
       if (next != null) {
-        findPath(next, nodes, idx + 1, timeseriesSchemaList, hasLimit, needLast,
-            queryContext);
+        findPath(next, nodes, idx + 1, timeseriesSchemaList, hasLimit);
       }
     } else {
       for (MNode child : node.getChildren().values()) {
         if (!Pattern.matches(nodeReg.replace("*", ".*"), child.getName())) {
           continue;
         }
-        findPath(child, nodes, idx + 1, timeseriesSchemaList, hasLimit, needLast, queryContext);
+        findPath(child, nodes, idx + 1, timeseriesSchemaList, hasLimit);
         if (hasLimit && count.get().intValue() == limit.get().intValue()) {
           return;
         }
@@ -1086,6 +1127,149 @@ public class MTree implements Serializable {
     }
   }
 
+  /**
+   * Get a lazy iterator of all time series under the given path, in the same order as
+   * getAllMeasurementSchema. The MTree is traversed as the series are pulled, so the series can be
+   * fetched in batches without collecting them all.
+   *
+   * @param prefixPath a prefix path or a full path, may contain '*'.
+   */
+  Iterator<MeasurementMNode> getMeasurementMNodeIterator(PartialPath prefixPath)
+      throws MetadataException {
+    String[] nodes = prefixPath.getNodes();
+    if (nodes.length == 0 || !nodes[0].equals(root.getName())) {
+      throw new IllegalPathException(prefixPath.getFullPath());
+    }
+    return new MatchedNodeIterator<MeasurementMNode>(root, nodes) {
+      @Override
+      MeasurementMNode match(MNode node, int idx) {
+        return node instanceof MeasurementMNode && idx >= nodes.length ? (MeasurementMNode) node
+            : null;
+      }
+    };
+  }
+
+  /**
+   * Get a lazy iterator of all devices under the given path. The children of each node are
+   * visited in the order of their names, so the devices are in the order of their paths unless
+   * the name of a node is a prefix of a sibling and followed by a character before '.'.
+   *
+   * @param prefixPath a prefix path or a full path, may contain '*'.
+   */
+  Iterator<PartialPath> getDeviceIterator(PartialPath prefixPath) throws MetadataException {
+    String[] nodes = prefixPath.getNodes();
+    if (nodes.length == 0 || !nodes[0].equals(root.getName())) {
+      throw new IllegalPathException(prefixPath.getFullPath());
+    }
+    return new MatchedNodeIterator<PartialPath>(root, nodes) {
+      @Override
+      PartialPath match(MNode node, int idx) {
+        if (idx < nodes.length) {
+          return null;
+        }
+        for (MNode child : node.getChildren().values()) {
+          if (child instanceof MeasurementMNode) {
+            return node.getPartialPath();
+          }
+        }
+        return null;
+      }
+
+      @Override
+      Iterator<MNode> getChildren(MNode node, int idx) {
+        // skip the measurements without sub devices, which are the most of the nodes
+        List<MNode> children = new ArrayList<>();
+        super.getChildren(node, idx).forEachRemaining(child -> {
+          if (!(child instanceof MeasurementMNode) || !child.getChildren().isEmpty()) {
+            children.add(child);
+          }
+        });
+        children.sort(Comparator.comparing(MNode::getName));
+        return children.iterator();
+      }
+    };
+  }
+
+  /**
+   * Traverse the MTree lazily in depth-first order to get the nodes matching a path, which may
+   * contain '*'. Only the children still to visit of the nodes from the root to the current node
+   * are kept, which are weakly consistent with concurrent modifications of the MTree.
+   *
+   * @param <T> the result of a matched node
+   */
+  private abstract static class MatchedNodeIterator<T> implements Iterator<T> {
+
+    // split the prefix path with '.'
+    final String[] nodes;
+    // the regex of each node of the path that contains '*'
+    private final Pattern[] patterns;
+    // the children to visit of the nodes from the root to the current node, the children on the
+    // top are matched with nodes[stack.size()]
+    private final Deque<Iterator<MNode>> stack = new ArrayDeque<>();
+    private T next;
+
+    MatchedNodeIterator(MNode root, String[] nodes) {
+      this.nodes = nodes;
+      this.patterns = new Pattern[nodes.length];
+      stack.push(getChildren(root, 1));
+    }
+
+    /**
+     * @param node a node matched with nodes[idx - 1], or a descendant of the node matched with
+     *             the last one
+     * @return the result of the node, or null if the node is not a result
+     */
+    abstract T match(MNode node, int idx);
+
+    /**
+     * @return the children of the node which are matched with nodes[idx]
+     */
+    Iterator<MNode> getChildren(MNode node, int idx) {
+      String nodeReg = MetaUtils.getNodeRegByIdx(idx, nodes);
+      if (!nodeReg.contains(PATH_WILDCARD)) {
+        MNode child = node.getChild(nodeReg);
+        return child == null ? Collections.emptyIterator()
+            : Collections.singletonList(child).iterator();
+      }
+      if (nodeReg.equals(PATH_WILDCARD)) {
+        return node.getChildren().values().iterator();
+      }
+      if (patterns[idx] == null) {
+        // use '.*' to replace '*' to form a regex to match
+        patterns[idx] = Pattern.compile(nodeReg.replace("*", ".*"));
+      }
+      Pattern pattern = patterns[idx];
+      return node.getChildren().values().stream()
+          .filter(child -> pattern.matcher(child.getName()).matches()).iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && !stack.isEmpty()) {
+        Iterator<MNode> children = stack.peek();
+        if (!children.hasNext()) {
+          stack.pop();
+          continue;
+        }
+        MNode child = children.next();
+        int idx = stack.size() + 1;
+        next = match(child, idx);
+        stack.push(getChildren(child, idx));
+      }
+      return next != null;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      T result = next;
+      next = null;
+      return result;
+    }
+  }
+
   /**
    * Get child node path in the next level of the given path.
    *
@@ -1152,53 +1336,11 @@ public class MTree implements Serializable {
    * @return a list contains all distinct devices names
    */
   Set<PartialPath> getDevices(PartialPath prefixPath) throws MetadataException {
-    String[] nodes = prefixPath.getNodes();
-    if (nodes.length == 0 || !nodes[0].equals(root.getName())) {
-      throw new IllegalPathException(prefixPath.getFullPath());
-    }
     Set<PartialPath> devices = new TreeSet<>();
-    findDevices(root, nodes, 1, devices);
+    getDeviceIterator(prefixPath).forEachRemaining(devices::add);
     return devices;
   }
 
-  /**
-   * Traverse the MTree to match all devices with prefix path.
-   *
-   * @param node  the current traversing node
-   * @param nodes split the prefix path with '.'
-   * @param idx   the current index of array nodes
-   * @param res   store all matched device names
-   */
-  @SuppressWarnings("squid:S3776")
-  private void findDevices(MNode node, String[] nodes, int idx, Set<PartialPath> res) {
-    String nodeReg = MetaUtils.getNodeRegByIdx(idx, nodes);
-    // the node path doesn't contains '*'
-    if (!nodeReg.contains(PATH_WILDCARD)) {
-      MNode next = node.getChild(nodeReg);
-      if (next != null) {
-        if (next instanceof MeasurementMNode && idx >= nodes.length) {
-          res.add(node.getPartialPath());
-        } else {
-          findDevices(next, nodes, idx + 1, res);
-        }
-      }
-    } else { // the node path contains '*'
-      boolean deviceAdded = false;
-      for (MNode child : node.getChildren().values()) {
-        // use '.*' to replace '*' to form a regex to match
-        // if the match failed, skip it.
-        if (!Pattern.matches(nodeReg.replace("*", ".*"), child.getName())) {
-          continue;
-        }
-        if (child instanceof MeasurementMNode && !deviceAdded && idx >= nodes.length) {
-          res.add(node.getPartialPath());
-          deviceAdded = true;
-        }
-        findDevices(child, nodes, idx + 1, res);
-      }
-    }
-  }
-
   /**
    * Get all paths from root to the given level.
    */
@@ -1253,10 +1395,7 @@ public class MTree implements Serializable {
   }
 
   public void serializeTo(String snapshotPath) throws IOException {
-    try (BufferedWriter bw = new BufferedWriter(
-        new FileWriter(SystemFileFactory.INSTANCE.getFile(snapshotPath)))) {
-      root.serializeTo(bw);
-    }
+    MTreeSnapshotFile.write(root, SystemFileFactory.INSTANCE.getFile(snapshotPath));
   }
 
   @Override
@@ -0,0 +1,426 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.metadata.mnode.MNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.metadata.mnode.StorageGroupMNode;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+/**
+ * MTreeSnapshotFile writes and reads the binary snapshot of an MTree, which is:
+ * <pre>
+ * magic(bytes) version(int) upperSection storageGroupSection*
+ * </pre>
+ * Each section is {@code length(int) checksum(long) body}, where the checksum is the CRC32 of the
+ * body. The body of the upper section holds the nodes from the root to the storage groups, and the
+ * body of each storage group section holds the subtree of a storage group, in the order the
+ * storage groups appear in the upper section, so the storage groups are loaded in parallel.
+ * <p>
+ * A node is written in pre-order as:
+ * <pre>
+ * type(byte) sharedPrefixLength(varint) nameSuffix(string) [dataTTL(long)] [measurement]
+ * childNum(varint)
+ * </pre>
+ * The children are sorted by name and each name is written as the suffix after the prefix it
+ * shares with the previous sibling, so the series like s1, s2, ... cost a few bytes each.
+ */
+class MTreeSnapshotFile {
+
+  private static final byte[] MAGIC = "MTree".getBytes(StandardCharsets.UTF_8);
+  private static final int VERSION = 2;
+  private static final int SECTION_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+  private MTreeSnapshotFile() {
+    // util class
+  }
+
+  static void write(MNode root, File file) throws IOException {
+    try (FileOutputStream fileStream = new FileOutputStream(file);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream))) {
+      out.write(MAGIC);
+      out.writeInt(VERSION);
+
+      List<StorageGroupMNode> storageGroups = new ArrayList<>();
+      PublicBAOS body = new PublicBAOS();
+      writeUpperNode(root, null, body, storageGroups);
+      writeSection(body, out);
+
+      for (StorageGroupMNode storageGroup : storageGroups) {
+        body.reset();
+        writeChildren(storageGroup, body);
+        writeSection(body, out);
+      }
+      // the snapshot is renamed over the old one, so it must be on the disk before that
+      out.flush();
+      fileStream.getFD().sync();
+    }
+  }
+
+  private static void writeSection(PublicBAOS body, DataOutputStream out) throws IOException {
+    CRC32 checksum = new CRC32();
+    checksum.update(body.getBuf(), 0, body.size());
+    out.writeInt(body.size());
+    out.writeLong(checksum.getValue());
+    out.write(body.getBuf(), 0, body.size());
+  }
+
+  private static void writeUpperNode(MNode node, String previousName, PublicBAOS out,
+      List<StorageGroupMNode> storageGroups) {
+    if (node instanceof StorageGroupMNode) {
+      StorageGroupMNode storageGroup = (StorageGroupMNode) node;
+      writeNodeHeader(node, previousName, out);
+      writeLong(storageGroup.getDataTTL(), out);
+      // the children are in the section of the storage group
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(0, out);
+      storageGroups.add(storageGroup);
+      return;
+    }
+    writeNodeHeader(node, previousName, out);
+    List<MNode> children = sortedChildren(node);
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(children.size(), out);
+    String previousChildName = null;
+    for (MNode child : children) {
+      writeUpperNode(child, previousChildName, out, storageGroups);
+      previousChildName = child.getName();
+    }
+  }
+
+  private static void writeChildren(MNode node, PublicBAOS out) {
+    List<MNode> children = sortedChildren(node);
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(children.size(), out);
+    String previousChildName = null;
+    for (MNode child : children) {
+      writeNodeHeader(child, previousChildName, out);
+      if (child instanceof MeasurementMNode) {
+        writeMeasurement((MeasurementMNode) child, out);
+      }
+      writeChildren(child, out);
+      previousChildName = child.getName();
+    }
+  }
+
+  private static List<MNode> sortedChildren(MNode node) {
+    List<MNode> children = new ArrayList<>(node.getChildren().values());
+    children.sort(Comparator.comparing(MNode::getName));
+    return children;
+  }
+
+  private static void writeNodeHeader(MNode node, String previousName, PublicBAOS out) {
+    short type;
+    if (node instanceof StorageGroupMNode) {
+      type = MetadataConstant.STORAGE_GROUP_MNODE_TYPE;
+    } else if (node instanceof MeasurementMNode) {
+      type = MetadataConstant.MEASUREMENT_MNODE_TYPE;
+    } else {
+      type = MetadataConstant.MNODE_TYPE;
+    }
+    out.write(type);
+
+    String name = node.getName();
+    int sharedLength = 0;
+    if (previousName != null) {
+      int maxLength = Math.min(name.length(), previousName.length());
+      while (sharedLength < maxLength
+          && name.charAt(sharedLength) == previousName.charAt(sharedLength)) {
+        sharedLength++;
+      }
+      // do not split a surrogate pair, the halves cannot be encoded separately
+      if (sharedLength > 0 && Character.isHighSurrogate(name.charAt(sharedLength - 1))) {
+        sharedLength--;
+      }
+    }
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(sharedLength, out);
+    writeString(name.substring(sharedLength), out);
+  }
+
+  private static void writeMeasurement(MeasurementMNode measurement, PublicBAOS out) {
+    writeNullableString(measurement.getAlias(), out);
+    MeasurementSchema schema = measurement.getSchema();
+    out.write(schema.getType().serialize());
+    out.write(schema.getEncodingType().serialize());
+    out.write(schema.getCompressor().serialize());
+    Map<String, String> props = schema.getProps();
+    if (props == null) {
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(0, out);
+    } else {
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(props.size() + 1, out);
+      for (Map.Entry<String, String> entry : props.entrySet()) {
+        writeString(entry.getKey(), out);
+        writeString(entry.getValue(), out);
+      }
+    }
+    // the offset is -1 if there are no tags, so the unsigned offset + 1 takes a byte
+    writeUnsignedVarLong(measurement.getOffset() + 1, out);
+  }
+
+  private static void writeString(String value, PublicBAOS out) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(bytes.length, out);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private static void writeNullableString(String value, PublicBAOS out) {
+    if (value == null) {
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(0, out);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(bytes.length + 1, out);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private static void writeLong(long value, PublicBAOS out) {
+    for (int i = Long.BYTES - 1; i >= 0; i--) {
+      out.write((int) (value >>> (i * Byte.SIZE)));
+    }
+  }
+
+  private static void writeUnsignedVarLong(long value, PublicBAOS out) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  /**
+   * read the snapshot, the subtrees of the storage groups are deserialized by the given number of
+   * threads.
+   *
+   * @return the root of the MTree
+   */
+  static MNode read(File file, int threadNum) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Integer.BYTES);
+      readFully(channel, header, file);
+      byte[] magic = new byte[MAGIC.length];
+      header.get(magic);
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new IOException(file + " is not an MTree snapshot");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException(
+            String.format("Unsupported version %d of MTree snapshot %s", version, file));
+      }
+
+      List<StorageGroupMNode> storageGroups = new ArrayList<>();
+      MNode root = readUpperNode(readSection(channel, file), null, null, storageGroups);
+      if (storageGroups.size() <= 1 || threadNum <= 1) {
+        for (StorageGroupMNode storageGroup : storageGroups) {
+          readChildren(readSection(channel, file), storageGroup);
+        }
+        return root;
+      }
+
+      ExecutorService pool = IoTDBThreadPoolFactory
+          .newFixedThreadPool(Math.min(threadNum, storageGroups.size()), "MTree-Snapshot-Loader");
+      try {
+        List<Future<Void>> futures = new ArrayList<>(storageGroups.size());
+        for (StorageGroupMNode storageGroup : storageGroups) {
+          ByteBuffer section = readSection(channel, file);
+          futures.add(pool.submit(() -> {
+            readChildren(section, storageGroup);
+            return null;
+          }));
+        }
+        for (Future<Void> future : futures) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted when reading " + file, e);
+      } catch (ExecutionException e) {
+        throw new IOException("Cannot read " + file, e.getCause());
+      } finally {
+        pool.shutdownNow();
+      }
+      return root;
+    }
+  }
+
+  private static ByteBuffer readSection(FileChannel channel, File file) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(SECTION_HEADER_SIZE);
+    readFully(channel, header, file);
+    int length = header.getInt();
+    long expectedChecksum = header.getLong();
+    if (length < 0 || length > channel.size() - channel.position()) {
+      throw new IOException(String.format("Section at %d of %s is incomplete",
+          channel.position() - SECTION_HEADER_SIZE, file));
+    }
+    ByteBuffer body = ByteBuffer.allocate(length);
+    readFully(channel, body, file);
+    CRC32 checksum = new CRC32();
+    checksum.update(body.array(), 0, length);
+    if (checksum.getValue() != expectedChecksum) {
+      throw new IOException(String.format("Section at %d of %s is broken",
+          channel.position() - length - SECTION_HEADER_SIZE, file));
+    }
+    return body;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, File file)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException(file + " is incomplete");
+      }
+    }
+    buffer.flip();
+  }
+
+  private static MNode readUpperNode(ByteBuffer buffer, MNode parent, String previousName,
+      List<StorageGroupMNode> storageGroups) {
+    byte type = buffer.get();
+    String name = readName(buffer, previousName);
+    if (type == MetadataConstant.STORAGE_GROUP_MNODE_TYPE) {
+      StorageGroupMNode storageGroup = new StorageGroupMNode(parent, name, buffer.getLong());
+      ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+      storageGroups.add(storageGroup);
+      return storageGroup;
+    }
+    MNode node = new MNode(parent, name);
+    int childNum = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    if (childNum > 0) {
+      ConcurrentMap<String, MNode> children = new ConcurrentHashMap<>(childNum * 4 / 3 + 1);
+      String previousChildName = null;
+      for (int i = 0; i < childNum; i++) {
+        MNode child = readUpperNode(buffer, node, previousChildName, storageGroups);
+        children.put(child.getName(), child);
+        previousChildName = child.getName();
+      }
+      node.setChildren(children);
+    }
+    return node;
+  }
+
+  /**
+   * read the children of the node, which are attached to the node after all of them are read.
+   */
+  private static void readChildren(ByteBuffer buffer, MNode node) {
+    int childNum = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    if (childNum == 0) {
+      return;
+    }
+    ConcurrentMap<String, MNode> children = new ConcurrentHashMap<>(childNum * 4 / 3 + 1);
+    String previousChildName = null;
+    for (int i = 0; i < childNum; i++) {
+      byte type = buffer.get();
+      String name = readName(buffer, previousChildName);
+      MNode child;
+      if (type == MetadataConstant.MEASUREMENT_MNODE_TYPE) {
+        MeasurementMNode measurement = readMeasurement(buffer, node, name);
+        if (measurement.getAlias() != null) {
+          node.addAlias(measurement.getAlias(), measurement);
+        }
+        child = measurement;
+      } else {
+        child = new MNode(node, name);
+      }
+      readChildren(buffer, child);
+      children.put(name, child);
+      previousChildName = name;
+    }
+    node.setChildren(children);
+  }
+
+  private static String readName(ByteBuffer buffer, String previousName) {
+    int sharedLength = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    String suffix = readString(buffer);
+    return sharedLength == 0 ? suffix : previousName.substring(0, sharedLength) + suffix;
+  }
+
+  private static MeasurementMNode readMeasurement(ByteBuffer buffer, MNode parent, String name) {
+    String alias = readNullableString(buffer);
+    TSDataType dataType = TSDataType.deserialize(buffer.get());
+    TSEncoding encoding = TSEncoding.deserialize(buffer.get());
+    CompressionType compressor = CompressionType.deserialize(buffer.get());
+    int propNum = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer) - 1;
+    Map<String, String> props = null;
+    if (propNum >= 0) {
+      props = new HashMap<>(propNum * 4 / 3 + 1);
+      for (int i = 0; i < propNum; i++) {
+        props.put(readString(buffer), readString(buffer));
+      }
+    }
+    MeasurementMNode measurement = new MeasurementMNode(null, name, alias, dataType, encoding,
+        compressor, props);
+    // the parent is set after the offset, so the parent is not notified of the change
+    measurement.setOffset(readUnsignedVarLong(buffer) - 1);
+    measurement.setParent(parent);
+    return measurement;
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+
+  private static String readNullableString(ByteBuffer buffer) {
+    int length = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer) - 1;
+    if (length < 0) {
+      return null;
+    }
+    String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+
+  private static long readUnsignedVarLong(ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+import org.apache.iotdb.db.metadata.mnode.MNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MeasurementPageFile stores the measurements of the devices which are paged out of memory. The
+ * measurements of a device are written as a page each time they are paged out after being
+ * modified. A page is:
+ * <pre>
+ * length(int) measurementNum(int) (schema alias(string) tagOffset(long))*measurementNum
+ * </pre>
+ * A page is stored in a slot whose size is the page size rounded up to a power of 2. A page
+ * rewritten with the same slot size overwrites its previous page, and a slot left by a page which
+ * grew or shrank, or by a deleted device, is reused by the next page of that slot size. So the
+ * file does not grow with the number of rewrites, and at most half of a slot is unused.
+ * The file is only a swap space of the MTree, which is rebuilt from mlog.txt and the MTree
+ * snapshot at startup, so it is truncated when opened and never forced.
+ */
+public class MeasurementPageFile implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(MeasurementPageFile.class);
+
+  private final File file;
+
+  private final FileChannel fileChannel;
+
+  private static final int MIN_SLOT_SIZE = 64;
+
+  /**
+   * slot size -> offsets of the free slots of that size, guarded by this.
+   */
+  private final Map<Integer, Deque<Long>> freeSlots = new HashMap<>();
+
+  /**
+   * the end of the last slot, which may be beyond the end of the file as its page may be shorter
+   * than the slot, guarded by this.
+   */
+  private long endOffset = 0;
+
+  public MeasurementPageFile(String schemaDir, String fileName) throws IOException {
+    File metadataDir = SystemFileFactory.INSTANCE.getFile(schemaDir);
+    if (!metadataDir.exists()) {
+      if (metadataDir.mkdirs()) {
+        logger.info("create schema folder {}.", metadataDir);
+      } else {
+        logger.info("create schema folder {} failed.", metadataDir);
+      }
+    }
+    file = SystemFileFactory.INSTANCE.getFile(schemaDir + File.separator + fileName);
+    fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /**
+   * write the measurements of a device as a page, in the slot of its previous page if it fits.
+   *
+   * @param previousOffset the offset of the previous page of the device, or -1 if there is none
+   * @return the offset of the page
+   */
+  public long write(Collection<MNode> measurements, long previousOffset) throws IOException {
+    PublicBAOS out = new PublicBAOS();
+    // the length is filled after the page is serialized
+    ReadWriteIOUtils.write(0, out);
+    ReadWriteIOUtils.write(measurements.size(), out);
+    for (MNode node : measurements) {
+      MeasurementMNode measurement = (MeasurementMNode) node;
+      measurement.getSchema().serializeTo(out);
+      ReadWriteIOUtils.write(measurement.getAlias(), out);
+      ReadWriteIOUtils.write(measurement.getOffset(), out);
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(out.getBuf(), 0, out.size());
+    buffer.putInt(0, out.size() - Integer.BYTES);
+    int slotSize = slotSize(out.size());
+    synchronized (this) {
+      long offset = -1;
+      if (previousOffset >= 0) {
+        int previousSlotSize = slotSize(readPageSize(previousOffset));
+        if (previousSlotSize == slotSize) {
+          offset = previousOffset;
+        } else {
+          freeSlots.computeIfAbsent(previousSlotSize, k -> new ArrayDeque<>())
+              .push(previousOffset);
+        }
+      }
+      if (offset < 0) {
+        offset = allocate(slotSize);
+      }
+      while (buffer.hasRemaining()) {
+        fileChannel.write(buffer, offset + buffer.position());
+      }
+      return offset;
+    }
+  }
+
+  /**
+   * free the slot of a page which is no longer read, so it is reused by another page.
+   */
+  public synchronized void free(long offset) throws IOException {
+    freeSlots.computeIfAbsent(slotSize(readPageSize(offset)), k -> new ArrayDeque<>())
+        .push(offset);
+  }
+
+  private long allocate(int slotSize) {
+    Deque<Long> slots = freeSlots.get(slotSize);
+    if (slots != null && !slots.isEmpty()) {
+      return slots.pop();
+    }
+    long offset = endOffset;
+    endOffset += slotSize;
+    return offset;
+  }
+
+  private int readPageSize(long offset) throws IOException {
+    ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    readFully(lengthBuffer, offset);
+    return lengthBuffer.getInt(0) + Integer.BYTES;
+  }
+
+  private static int slotSize(int pageSize) {
+    return Math.max(MIN_SLOT_SIZE, Integer.highestOneBit(pageSize - 1) << 1);
+  }
+
+  /**
+   * read the measurements of a device, whose parents are not set.
+   *
+   * @param offset the offset of the page returned by write()
+   */
+  public List<MeasurementMNode> read(long offset) throws IOException {
+    ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    readFully(lengthBuffer, offset);
+    ByteBuffer buffer = ByteBuffer.allocate(lengthBuffer.getInt(0));
+    readFully(buffer, offset + Integer.BYTES);
+    buffer.flip();
+
+    int measurementNum = ReadWriteIOUtils.readInt(buffer);
+    List<MeasurementMNode> measurements = new ArrayList<>(measurementNum);
+    for (int i = 0; i < measurementNum; i++) {
+      MeasurementSchema schema = MeasurementSchema.deserializeFrom(buffer);
+      String alias = ReadWriteIOUtils.readString(buffer);
+      MeasurementMNode measurement = new MeasurementMNode(null, schema.getMeasurementId(), schema,
+          alias);
+      measurement.setOffset(ReadWriteIOUtils.readLong(buffer));
+      measurements.add(measurement);
+    }
+    return measurements;
+  }
+
+  private void readFully(ByteBuffer buffer, long offset) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (fileChannel.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException(String.format("Page at %d of %s is incomplete", offset, file));
+      }
+    }
+  }
+
+  public long size() throws IOException {
+    return fileChannel.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    fileChannel.close();
+    if (!file.delete()) {
+      logger.warn("Cannot delete {}", file);
+    }
+  }
+}
@@ -26,15 +26,23 @@ public class MetadataConstant {
     // allowed to do nothing
   }
 
-  private static final String MTREE_VERSION = "1";
+  private static final String MTREE_VERSION = "2";
+  private static final String MTREE_TXT_VERSION = "1";
 
   public static final String ROOT = "root";
-  public static final String METADATA_LOG = "mlog.txt";
+  public static final String METADATA_LOG = "mlog.bin";
+  public static final String METADATA_TXT_LOG = "mlog.txt";
   public static final String TAG_LOG = "tlog.txt";
+  public static final String TAG_INDEX_PREFIX = "tindex" + IoTDBConstant.FILE_NAME_SEPARATOR;
+  public static final String TAG_INDEX_SUFFIX = ".bin";
+  public static final String TAG_INDEX_TMP_SUFFIX = ".tmp";
+  public static final String MEASUREMENT_PAGE_FILE = "measurement_pages.bin";
   public static final String MTREE_SNAPSHOT =
       "mtree" + IoTDBConstant.FILE_NAME_SEPARATOR + MTREE_VERSION + ".snapshot";
   public static final String MTREE_SNAPSHOT_TMP =
       "mtree" + IoTDBConstant.FILE_NAME_SEPARATOR + MTREE_VERSION + ".snapshot.tmp";
+  public static final String MTREE_TXT_SNAPSHOT =
+      "mtree" + IoTDBConstant.FILE_NAME_SEPARATOR + MTREE_TXT_VERSION + ".snapshot";
 
 
   public static final short MNODE_TYPE = 0;
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeAliasPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeTagOffsetPlan;
+import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.DeleteStorageGroupPlan;
+import org.apache.iotdb.db.qp.physical.sys.DeleteTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetStorageGroupPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetTTLPlan;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SchemaFileConverter converts the schema files of the text formats, mlog.txt and the MTree
+ * snapshot of version 1, to mlog.bin and the binary MTree snapshot. It also translates between
+ * the plans and the logs of mlog.txt, which are still the format of the schema in the sync
+ * protocol.
+ */
+public class SchemaFileConverter {
+
+  private static final Logger logger = LoggerFactory.getLogger(SchemaFileConverter.class);
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private SchemaFileConverter() {
+    // util class
+  }
+
+  /**
+   * convert the schema files of the text formats in the schema folder, which are deleted after
+   * the conversion.
+   *
+   * @return whether any file is converted
+   */
+  public static boolean convert(String schemaDir) throws IOException {
+    File txtLogFile = getFile(schemaDir, MetadataConstant.METADATA_TXT_LOG);
+    File txtSnapshot = getFile(schemaDir, MetadataConstant.MTREE_TXT_SNAPSHOT);
+    File logFile = getFile(schemaDir, MetadataConstant.METADATA_LOG);
+    if (logFile.exists()) {
+      // the conversion is finished, but the text files may be left by a crash
+      Files.deleteIfExists(txtSnapshot.toPath());
+      Files.deleteIfExists(txtLogFile.toPath());
+      return false;
+    }
+    if (!txtLogFile.exists()) {
+      return false;
+    }
+
+    long time = System.currentTimeMillis();
+    if (txtSnapshot.exists()) {
+      File snapshot = getFile(schemaDir, MetadataConstant.MTREE_SNAPSHOT);
+      File tmpSnapshot = getFile(schemaDir, MetadataConstant.MTREE_SNAPSHOT_TMP);
+      MTree.deserializeFromTxt(txtSnapshot).serializeTo(tmpSnapshot.getPath());
+      Files.move(tmpSnapshot.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    File tmpLogFile = getFile(schemaDir, MetadataConstant.METADATA_LOG + TMP_SUFFIX);
+    Files.deleteIfExists(tmpLogFile.toPath());
+    int logNum = 0;
+    try (BufferedReader reader = new BufferedReader(new FileReader(txtLogFile));
+        MLogWriter writer = new MLogWriter(schemaDir, tmpLogFile.getName())) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        try {
+          writer.putLog(parseTxtLog(line));
+          logNum++;
+        } catch (MetadataException e) {
+          logger.error("Cannot convert the log {} of {}", line, txtLogFile, e);
+        }
+      }
+      // mlog.txt is deleted once mlog.bin exists, so the new log must be on the disk before that
+      writer.force();
+    }
+    Files.move(tmpLogFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Files.deleteIfExists(txtSnapshot.toPath());
+    Files.delete(txtLogFile.toPath());
+    logger.info("Converted {} logs of {} to {} in {} ms", logNum, txtLogFile, logFile,
+        System.currentTimeMillis() - time);
+    return true;
+  }
+
+  private static File getFile(String schemaDir, String fileName) {
+    return SystemFileFactory.INSTANCE.getFile(schemaDir + File.separator + fileName);
+  }
+
+  /**
+   * parse a log of mlog.txt, see toTxtLog() for the format.
+   */
+  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  public static PhysicalPlan parseTxtLog(String cmd) throws MetadataException {
+    String[] args = cmd.trim().split(",", -1);
+    switch (args[0]) {
+      case MetadataOperationType.CREATE_TIMESERIES:
+        if (args.length > 8) {
+          // the path contains commas
+          String[] tmpArgs = new String[8];
+          tmpArgs[0] = args[0];
+          int i = 1;
+          tmpArgs[1] = "";
+          for (; i < args.length - 7; i++) {
+            tmpArgs[1] += args[i] + ",";
+          }
+          tmpArgs[1] += args[i++];
+          for (int j = 2; j < 8; j++) {
+            tmpArgs[j] = args[i++];
+          }
+          args = tmpArgs;
+        }
+        if (args.length < 8) {
+          throw new MetadataException("Incomplete command " + cmd);
+        }
+        Map<String, String> props = null;
+        if (!args[5].isEmpty()) {
+          String[] keyValues = args[5].split("&");
+          String[] kv;
+          props = new HashMap<>();
+          for (String keyValue : keyValues) {
+            kv = keyValue.split("=");
+            props.put(kv[0], kv[1]);
+          }
+        }
+
+        String alias = null;
+        if (!args[6].isEmpty()) {
+          alias = args[6];
+        }
+        long offset = -1L;
+        if (!args[7].isEmpty()) {
+          offset = Long.parseLong(args[7]);
+        }
+
+        CreateTimeSeriesPlan plan = new CreateTimeSeriesPlan(new PartialPath(args[1]),
+            TSDataType.deserialize(Short.parseShort(args[2])),
+            TSEncoding.deserialize(Short.parseShort(args[3])),
+            CompressionType.deserialize(Short.parseShort(args[4])), props, null, null, alias);
+        plan.setTagOffset(offset);
+        return plan;
+      case MetadataOperationType.DELETE_TIMESERIES:
+        return new DeleteTimeSeriesPlan(
+            Collections.singletonList(new PartialPath(joinPath(args, args.length))));
+      case MetadataOperationType.SET_STORAGE_GROUP:
+        return new SetStorageGroupPlan(new PartialPath(args[1]));
+      case MetadataOperationType.DELETE_STORAGE_GROUP:
+        return new DeleteStorageGroupPlan(
+            Collections.singletonList(new PartialPath(args[1])));
+      case MetadataOperationType.SET_TTL:
+        return new SetTTLPlan(new PartialPath(args[1]), Long.parseLong(args[2]));
+      case MetadataOperationType.CHANGE_OFFSET:
+        return new ChangeTagOffsetPlan(new PartialPath(joinPath(args, args.length - 1)),
+            Long.parseLong(args[args.length - 1]));
+      case MetadataOperationType.CHANGE_ALIAS:
+        return new ChangeAliasPlan(new PartialPath(joinPath(args, args.length - 1)),
+            args[args.length - 1]);
+      default:
+        throw new MetadataException("Unrecognizable command " + cmd);
+    }
+  }
+
+  /**
+   * join args[1, end) as the path, which may contain commas.
+   */
+  private static String joinPath(String[] args, int end) throws IllegalPathException {
+    if (end < 2) {
+      throw new IllegalPathException(String.join(",", args));
+    }
+    StringBuilder path = new StringBuilder(args[1]);
+    for (int i = 2; i < end; i++) {
+      path.append(",").append(args[i]);
+    }
+    return path.toString();
+  }
+
+  /**
+   * format a plan as the log of mlog.txt, which is "type,path[,args]". A plan of several paths is
+   * formatted as the lines of the paths.
+   */
+  public static String toTxtLog(PhysicalPlan plan) throws MetadataException {
+    StringBuilder buf = new StringBuilder();
+    switch (plan.getOperatorType()) {
+      case CREATE_TIMESERIES:
+        CreateTimeSeriesPlan createPlan = (CreateTimeSeriesPlan) plan;
+        buf.append(String.format("%s,%s,%s,%s,%s", MetadataOperationType.CREATE_TIMESERIES,
+            createPlan.getPath().getFullPath(), createPlan.getDataType().serialize(),
+            createPlan.getEncoding().serialize(), createPlan.getCompressor().serialize()));
+
+        buf.append(",");
+        if (createPlan.getProps() != null) {
+          boolean first = true;
+          for (Map.Entry<String, String> entry : createPlan.getProps().entrySet()) {
+            if (!first) {
+              buf.append("&");
+            }
+            buf.append(entry.getKey()).append("=").append(entry.getValue());
+            first = false;
+          }
+        }
+
+        buf.append(",");
+        if (createPlan.getAlias() != null) {
+          buf.append(createPlan.getAlias());
+        }
+
+        buf.append(",");
+        if (createPlan.getTagOffset() >= 0) {
+          buf.append(createPlan.getTagOffset());
+        }
+        break;
+      case DELETE_TIMESERIES:
+        appendPaths(buf, MetadataOperationType.DELETE_TIMESERIES, plan);
+        break;
+      case SET_STORAGE_GROUP:
+        buf.append(MetadataOperationType.SET_STORAGE_GROUP).append(",")
+            .append(((SetStorageGroupPlan) plan).getPath().getFullPath());
+        break;
+      case DELETE_STORAGE_GROUP:
+        appendPaths(buf, MetadataOperationType.DELETE_STORAGE_GROUP, plan);
+        break;
+      case TTL:
+        SetTTLPlan setTTLPlan = (SetTTLPlan) plan;
+        buf.append(MetadataOperationType.SET_TTL).append(",")
+            .append(setTTLPlan.getStorageGroup().getFullPath()).append(",")
+            .append(setTTLPlan.getDataTTL());
+        break;
+      case CHANGE_TAG_OFFSET:
+        ChangeTagOffsetPlan changeTagOffsetPlan = (ChangeTagOffsetPlan) plan;
+        buf.append(MetadataOperationType.CHANGE_OFFSET).append(",")
+            .append(changeTagOffsetPlan.getPath().getFullPath()).append(",")
+            .append(changeTagOffsetPlan.getOffset());
+        break;
+      case CHANGE_ALIAS:
+        ChangeAliasPlan changeAliasPlan = (ChangeAliasPlan) plan;
+        buf.append(MetadataOperationType.CHANGE_ALIAS).append(",")
+            .append(changeAliasPlan.getPath().getFullPath()).append(",")
+            .append(changeAliasPlan.getAlias());
+        break;
+      default:
+        throw new MetadataException("Unrecognizable plan " + plan);
+    }
+    return buf.toString();
+  }
+
+  private static void appendPaths(StringBuilder buf, String type, PhysicalPlan plan) {
+    boolean first = true;
+    for (PartialPath path : plan.getPaths()) {
+      if (!first) {
+        buf.append(System.lineSeparator());
+      }
+      buf.append(type).append(",").append(path.getFullPath());
+      first = false;
+    }
+  }
+
+  /**
+   * convert the schema files of the text formats offline.
+   *
+   * @param args the schema folder, which is data/system/schema by default
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      logger.error("Usage: SchemaFileConverter <schema folder>");
+      return;
+    }
+    if (!convert(args[0])) {
+      logger.info("There are no schema files of the text formats in {}", args[0]);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+/**
+ * A condition on the value of a tag in the where clause of "show timeseries". The comparisons are
+ * numeric if the given value is a number, so that "temperature > 9" matches "10", and
+ * lexicographic otherwise.
+ */
+public class TagCondition {
+
+  public enum Type {
+    EQUAL("="), CONTAINS(" contains "), STARTS_WITH(" startswith "), GREATER_THAN(">"),
+    GREATER_THAN_OR_EQUAL(">="), LESS_THAN("<"), LESS_THAN_OR_EQUAL("<=");
+
+    private final String symbol;
+
+    Type(String symbol) {
+      this.symbol = symbol;
+    }
+  }
+
+  private final Type type;
+  private final String key;
+  private final String value;
+  // the value as a number if the comparison is numeric
+  private final Double number;
+
+  public TagCondition(Type type, String key, String value) {
+    this.type = type;
+    this.key = key;
+    this.value = value;
+    this.number = isComparison() ? parseNumber(value) : null;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  private boolean isComparison() {
+    return type == Type.GREATER_THAN || type == Type.GREATER_THAN_OR_EQUAL
+        || type == Type.LESS_THAN || type == Type.LESS_THAN_OR_EQUAL;
+  }
+
+  private static Double parseNumber(String value) {
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return whether the value of the tag satisfies the condition
+   */
+  public boolean matches(String tagValue) {
+    switch (type) {
+      case EQUAL:
+        return value.equals(tagValue);
+      case CONTAINS:
+        return tagValue.contains(value);
+      case STARTS_WITH:
+        return tagValue.startsWith(value);
+      default:
+        int compare;
+        if (number != null) {
+          Double tagNumber = parseNumber(tagValue);
+          if (tagNumber == null) {
+            return false;
+          }
+          compare = tagNumber.compareTo(number);
+        } else {
+          compare = tagValue.compareTo(value);
+        }
+        return type == Type.GREATER_THAN ? compare > 0
+            : type == Type.GREATER_THAN_OR_EQUAL ? compare >= 0
+                : type == Type.LESS_THAN ? compare < 0 : compare <= 0;
+    }
+  }
+
+  /**
+   * @return the smallest value in lexicographic order that may satisfy the condition
+   */
+  String getLowerBound() {
+    switch (type) {
+      case EQUAL:
+      case STARTS_WITH:
+        return value;
+      case GREATER_THAN:
+      case GREATER_THAN_OR_EQUAL:
+        return number == null ? value : "";
+      default:
+        return "";
+    }
+  }
+
+  /**
+   * @return whether neither the value nor any value after it in lexicographic order satisfies the
+   * condition
+   */
+  boolean isBeyondUpperBound(String tagValue) {
+    switch (type) {
+      case EQUAL:
+        return tagValue.compareTo(value) > 0;
+      case STARTS_WITH:
+        // the values starting with the prefix are contiguous from the prefix
+        return tagValue.compareTo(value) > 0 && !tagValue.startsWith(value);
+      case LESS_THAN:
+        return number == null && tagValue.compareTo(value) >= 0;
+      case LESS_THAN_OR_EQUAL:
+        return number == null && tagValue.compareTo(value) > 0;
+      default:
+        return false;
+    }
+  }
+
+  public void serialize(DataOutputStream outputStream) throws IOException {
+    outputStream.write(type.ordinal());
+    ReadWriteIOUtils.write(key, outputStream);
+    ReadWriteIOUtils.write(value, outputStream);
+  }
+
+  public static TagCondition deserialize(ByteBuffer buffer) {
+    Type type = Type.values()[buffer.get()];
+    return new TagCondition(type, ReadWriteIOUtils.readString(buffer),
+        ReadWriteIOUtils.readString(buffer));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TagCondition that = (TagCondition) o;
+    return type == that.type && Objects.equals(key, that.key) && Objects.equals(value,
+        that.value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, key, value);
+  }
+
+  @Override
+  public String toString() {
+    return key + type.symbol + value;
+  }
+}
@@ -0,0 +1,1201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.concurrent.ThreadName;
+import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TagIndex is the inverted index from the tags to the series. It is a log-structured merge tree:
+ * the changes are kept in memory and written as a new run when there are too many of them or when
+ * the index is closed, and the runs are merged in the background. A run is kept in
+ * tindex-{seq}.bin, which holds the postings sorted by the tag key and value, followed by the
+ * paths of the series sorted by their ids:
+ * <pre>
+ * magic(bytes) version(int) clean(byte) level(byte) postingBlock* pathBlock* footer
+ * footerLength(int) checksum(long)
+ * </pre>
+ * Each block is {@code length(int) checksum(long) body} and is cut after about BLOCK_SIZE bytes.
+ * The body of a posting block is {@code (key(string) value(string) addedNum(varint)
+ * addedIdDelta(varint)* removedNum(varint) removedIdDelta(varint)*)*} and the body of a path block
+ * is {@code (idDelta(varint) removed(byte) [sharedPrefixLength(varint) pathSuffix(string)])*}. A
+ * run holds the ids added to and removed from each posting and the paths set and removed since
+ * the runs before it, the oldest run only holds what exists. The footer holds the first key and
+ * value of each posting block and the first id of each path block, which is all that is loaded
+ * when a run is opened, the blocks are read when they are queried.
+ * <p>
+ * A written run is of level 0, and TIER_SIZE consecutive runs of the same level are merged into a
+ * run of the next level by a background thread, so a change is rewritten about log(TIER_SIZE,
+ * runs) times instead of once per flush, and neither the changes nor the queries wait for a merge.
+ * <p>
+ * A series is identified by the offset of its tags in tlog.txt divided by the size of a record.
+ * The clean flag of the newest run is only set when the index is closed, so the runs left by a
+ * crash, which miss the changes in memory, are rebuilt from the MTree and tlog.txt.
+ */
+class TagIndex implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(TagIndex.class);
+
+  private static final byte[] MAGIC = "TagIndex".getBytes(StandardCharsets.UTF_8);
+  private static final int VERSION = 2;
+  private static final int CLEAN_FLAG_POSITION = MAGIC.length + Integer.BYTES;
+  private static final int HEADER_SIZE = CLEAN_FLAG_POSITION + 2;
+  private static final int BLOCK_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+  private static final int BLOCK_SIZE = 4 * 1024;
+  private static final int TIER_SIZE = 4;
+  private static final int[] NO_IDS = new int[0];
+
+  private final File dir;
+  private final int flushThreshold;
+  private final ExecutorService mergeThread;
+
+  // the runs from the oldest to the newest
+  private final List<Run> runs = new ArrayList<>();
+  private long nextSeq;
+  private boolean merging;
+  // a merge failed after it changed the runs on disk, so they are rebuilt after a restart
+  private boolean inconsistent;
+  private boolean rebuildNeeded;
+
+  // the changes not written as a run, tag key -> tag value -> changed ids
+  private final TreeMap<String, TreeMap<String, PostingDelta>> postingDeltas = new TreeMap<>();
+  private final TreeMap<Integer, String> addedPaths = new TreeMap<>();
+  private final TreeSet<Integer> removedPaths = new TreeSet<>();
+  private int changeNum;
+
+  TagIndex(String schemaDir, int flushThreshold) throws IOException {
+    this.dir = SystemFileFactory.INSTANCE.getFile(schemaDir);
+    this.flushThreshold = flushThreshold;
+    this.mergeThread = IoTDBThreadPoolFactory
+        .newSingleThreadExecutor(ThreadName.TAG_INDEX_MERGE.getName());
+    List<Long> seqs = new ArrayList<>();
+    File[] files = dir.listFiles();
+    for (File runFile : files == null ? new File[0] : files) {
+      String name = runFile.getName();
+      if (!name.startsWith(MetadataConstant.TAG_INDEX_PREFIX)) {
+        continue;
+      }
+      if (name.endsWith(MetadataConstant.TAG_INDEX_TMP_SUFFIX)) {
+        Files.deleteIfExists(runFile.toPath());
+      } else if (name.endsWith(MetadataConstant.TAG_INDEX_SUFFIX)) {
+        seqs.add(Long.parseLong(name.substring(MetadataConstant.TAG_INDEX_PREFIX.length(),
+            name.length() - MetadataConstant.TAG_INDEX_SUFFIX.length())));
+      }
+    }
+    if (seqs.isEmpty()) {
+      rebuildNeeded = true;
+      return;
+    }
+    Collections.sort(seqs);
+    nextSeq = seqs.get(seqs.size() - 1) + 1;
+    try {
+      for (long seq : seqs) {
+        runs.add(new Run(runFile(seq)));
+      }
+      Run newest = runs.get(runs.size() - 1);
+      if (newest.clean) {
+        // the flag is set again when the index is closed
+        newest.markClean(false);
+      } else {
+        logger.warn("The tag index in {} was not closed, it will be rebuilt", dir);
+        rebuildNeeded = true;
+        dropRuns();
+      }
+    } catch (IOException e) {
+      logger.warn("Cannot read the tag index in {}, it will be rebuilt", dir, e);
+      rebuildNeeded = true;
+      dropRuns();
+    }
+  }
+
+  /**
+   * @return whether the index is missing or was not closed, so the series with tags have to be
+   * added again after reset()
+   */
+  boolean isRebuildNeeded() {
+    return rebuildNeeded;
+  }
+
+  /**
+   * drop the runs and the changes to rebuild the index.
+   */
+  synchronized void reset() throws IOException {
+    dropRuns();
+    clearChanges();
+  }
+
+  /**
+   * add the tags of a series, the path of the series is updated as well.
+   */
+  synchronized void add(int id, String path, Map<String, String> tags) throws IOException {
+    if (tags == null || tags.isEmpty()) {
+      return;
+    }
+    removedPaths.remove(id);
+    addedPaths.put(id, path);
+    for (Entry<String, String> entry : tags.entrySet()) {
+      if (entry.getKey() != null && entry.getValue() != null) {
+        getDelta(entry.getKey(), entry.getValue()).add(id);
+      }
+    }
+    changeNum += tags.size() + 1;
+    flushIfNeeded();
+  }
+
+  /**
+   * remove some tags of a series, which still exists.
+   */
+  synchronized void remove(int id, Map<String, String> tags) throws IOException {
+    if (tags == null || tags.isEmpty()) {
+      return;
+    }
+    for (Entry<String, String> entry : tags.entrySet()) {
+      if (entry.getKey() != null && entry.getValue() != null) {
+        getDelta(entry.getKey(), entry.getValue()).remove(id);
+      }
+    }
+    changeNum += tags.size();
+    flushIfNeeded();
+  }
+
+  /**
+   * remove all the tags and the path of a deleted series.
+   */
+  synchronized void delete(int id, Map<String, String> tags) throws IOException {
+    addedPaths.remove(id);
+    removedPaths.add(id);
+    changeNum++;
+    remove(id, tags);
+    flushIfNeeded();
+  }
+
+  private PostingDelta getDelta(String key, String value) {
+    return postingDeltas.computeIfAbsent(key, k -> new TreeMap<>())
+        .computeIfAbsent(value, v -> new PostingDelta());
+  }
+
+  /**
+   * @return whether any series has a tag with the key
+   */
+  synchronized boolean containsKey(String key) throws IOException {
+    PostingMerger merger = new PostingMerger(postingSources(key, ""));
+    while (merger.next()) {
+      if (!merger.key.equals(key)) {
+        break;
+      }
+      if (merger.added.length > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the ids of the series whose tags satisfy all the conditions
+   */
+  synchronized BitSet query(List<TagCondition> conditions) throws IOException {
+    BitSet result = null;
+    for (TagCondition condition : conditions) {
+      BitSet ids = query(condition);
+      if (result == null) {
+        result = ids;
+      } else {
+        result.and(ids);
+      }
+      if (result.isEmpty()) {
+        break;
+      }
+    }
+    return result == null ? new BitSet() : result;
+  }
+
+  private BitSet query(TagCondition condition) throws IOException {
+    String key = condition.getKey();
+    BitSet result = new BitSet();
+    PostingMerger merger = new PostingMerger(postingSources(key, condition.getLowerBound()));
+    while (merger.next()) {
+      if (!merger.key.equals(key) || condition.isBeyondUpperBound(merger.value)) {
+        break;
+      }
+      if (condition.matches(merger.value)) {
+        for (int id : merger.added) {
+          result.set(id);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the postings of all the runs and the changes from the first one not less than the key
+   * and value, from the oldest to the newest
+   */
+  private List<PostingSource> postingSources(String startKey, String startValue) {
+    List<PostingSource> sources = new ArrayList<>(runs.size() + 1);
+    for (Run run : runs) {
+      sources.add(new PostingCursor(run, startKey, startValue));
+    }
+    sources.add(new DeltaPostingCursor(startKey, startValue));
+    return sources;
+  }
+
+  /**
+   * @return the paths of the series, a path block of a run is read at most once as the ids are
+   * visited in order
+   */
+  synchronized Map<Integer, String> getPaths(BitSet ids) throws IOException {
+    Map<Integer, String> paths = new HashMap<>();
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      if (removedPaths.contains(id)) {
+        continue;
+      }
+      String path = addedPaths.get(id);
+      // the newest run holding the id decides
+      for (int i = runs.size() - 1; path == null && i >= 0; i--) {
+        path = runs.get(i).findPath(id);
+      }
+      if (path != null && !path.isEmpty()) {
+        paths.put(id, path);
+      }
+    }
+    return paths;
+  }
+
+  private void flushIfNeeded() throws IOException {
+    if (changeNum >= flushThreshold) {
+      flush();
+    }
+  }
+
+  /**
+   * write the changes as a new run, which is merged with the runs before it in the background.
+   */
+  synchronized void flush() throws IOException {
+    if (changeNum == 0 && !runs.isEmpty()) {
+      return;
+    }
+    long startTime = System.currentTimeMillis();
+    File runFile = runFile(nextSeq++);
+    File tmpFile = tmpFile(runFile);
+    boolean oldest = runs.isEmpty();
+    try (RunWriter writer = new RunWriter(tmpFile, 0)) {
+      writePostings(writer,
+          Collections.singletonList(new DeltaPostingCursor("", "")), oldest);
+      writer.finishPostings();
+      writePaths(writer, Collections.singletonList(new DeltaPathCursor()), oldest);
+      writer.finish();
+    }
+    Files.move(tmpFile.toPath(), runFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    runs.add(new Run(runFile));
+    clearChanges();
+    rebuildNeeded = false;
+    logger.debug("spend {} ms to write {}", System.currentTimeMillis() - startTime, runFile);
+    mergeIfNeeded();
+  }
+
+  /**
+   * start merging the oldest TIER_SIZE consecutive runs of the same level, if there are any and
+   * no merge is running.
+   */
+  private void mergeIfNeeded() {
+    if (merging || mergeThread.isShutdown()) {
+      return;
+    }
+    for (int i = 0; i + TIER_SIZE <= runs.size(); i++) {
+      int level = runs.get(i).level;
+      int end = i + 1;
+      while (end < i + TIER_SIZE && runs.get(end).level == level) {
+        end++;
+      }
+      if (end == i + TIER_SIZE) {
+        List<Run> inputs = new ArrayList<>(runs.subList(i, end));
+        boolean oldest = i == 0;
+        try {
+          mergeThread.submit(() -> merge(inputs, oldest));
+          merging = true;
+        } catch (RejectedExecutionException e) {
+          // the index is being closed
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * merge consecutive runs into a run of the next level, which replaces the newest of them. Only
+   * the replacement holds the lock of the index.
+   *
+   * @param oldest whether the first run is the oldest one, then the removed ids and paths are
+   * dropped
+   */
+  private void merge(List<Run> inputs, boolean oldest) {
+    long startTime = System.currentTimeMillis();
+    Run newest = inputs.get(inputs.size() - 1);
+    File tmpFile = tmpFile(newest.file);
+    try {
+      try (RunWriter writer = new RunWriter(tmpFile, newest.level + 1)) {
+        List<PostingSource> postingSources = new ArrayList<>(inputs.size());
+        List<PathSource> pathSources = new ArrayList<>(inputs.size());
+        for (Run run : inputs) {
+          postingSources.add(new PostingCursor(run, "", ""));
+          pathSources.add(new PathCursor(run));
+        }
+        writePostings(writer, postingSources, oldest);
+        writer.finishPostings();
+        writePaths(writer, pathSources, oldest);
+        writer.finish();
+      }
+    } catch (IOException e) {
+      logger.error("Cannot merge {} runs of the tag index in {}", inputs.size(), dir, e);
+      deleteQuietly(tmpFile);
+      synchronized (this) {
+        merging = false;
+      }
+      return;
+    }
+
+    synchronized (this) {
+      merging = false;
+      int index = runs.indexOf(inputs.get(0));
+      if (index < 0) {
+        // the index is reset
+        deleteQuietly(tmpFile);
+        return;
+      }
+      try {
+        for (Run run : inputs) {
+          run.close();
+          if (run != newest) {
+            Files.delete(run.file.toPath());
+          }
+        }
+        Files.move(tmpFile.toPath(), newest.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        runs.subList(index, index + inputs.size()).clear();
+        runs.add(index, new Run(newest.file));
+      } catch (IOException e) {
+        logger.error("Cannot replace {} runs of the tag index in {}, it will be rebuilt after a "
+            + "restart", inputs.size(), dir, e);
+        inconsistent = true;
+        return;
+      }
+      logger.debug("spend {} ms to merge {} runs into {}", System.currentTimeMillis() - startTime,
+          inputs.size(), newest.file);
+      mergeIfNeeded();
+    }
+  }
+
+  private static void writePostings(RunWriter writer, List<PostingSource> sources,
+      boolean oldest) throws IOException {
+    PostingMerger merger = new PostingMerger(sources);
+    while (merger.next()) {
+      writer.addPosting(merger.key, merger.value, merger.added, oldest ? NO_IDS : merger.removed);
+    }
+  }
+
+  private static void writePaths(RunWriter writer, List<PathSource> sources, boolean oldest)
+      throws IOException {
+    boolean[] hasCurrent = new boolean[sources.size()];
+    for (int i = 0; i < hasCurrent.length; i++) {
+      hasCurrent[i] = sources.get(i).next();
+    }
+    while (true) {
+      int id = Integer.MAX_VALUE;
+      boolean found = false;
+      for (int i = 0; i < hasCurrent.length; i++) {
+        if (hasCurrent[i] && sources.get(i).id <= id) {
+          id = sources.get(i).id;
+          found = true;
+        }
+      }
+      if (!found) {
+        return;
+      }
+      // the newest source holding the id decides
+      String path = null;
+      for (int i = 0; i < hasCurrent.length; i++) {
+        PathSource source = sources.get(i);
+        if (hasCurrent[i] && source.id == id) {
+          path = source.path;
+          hasCurrent[i] = source.next();
+        }
+      }
+      if (path != null) {
+        writer.addPath(id, path);
+      } else if (!oldest) {
+        writer.addRemovedPath(id);
+      }
+    }
+  }
+
+  private static int compare(String key, String value, String anotherKey, String anotherValue) {
+    int compare = key.compareTo(anotherKey);
+    return compare != 0 ? compare : value.compareTo(anotherValue);
+  }
+
+  private File runFile(long seq) {
+    return SystemFileFactory.INSTANCE.getFile(dir,
+        MetadataConstant.TAG_INDEX_PREFIX + seq + MetadataConstant.TAG_INDEX_SUFFIX);
+  }
+
+  private static File tmpFile(File runFile) {
+    return SystemFileFactory.INSTANCE.getFile(runFile.getParentFile(),
+        runFile.getName() + MetadataConstant.TAG_INDEX_TMP_SUFFIX);
+  }
+
+  private static void deleteQuietly(File file) {
+    try {
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      logger.warn("Cannot delete {}", file, e);
+    }
+  }
+
+  private void dropRuns() throws IOException {
+    for (Run run : runs) {
+      run.close();
+    }
+    runs.clear();
+    File[] files = dir.listFiles();
+    for (File runFile : files == null ? new File[0] : files) {
+      if (runFile.getName().startsWith(MetadataConstant.TAG_INDEX_PREFIX)) {
+        Files.deleteIfExists(runFile.toPath());
+      }
+    }
+  }
+
+  private void clearChanges() {
+    postingDeltas.clear();
+    addedPaths.clear();
+    removedPaths.clear();
+    changeNum = 0;
+  }
+
+  private static void writeString(String value, PublicBAOS out) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(bytes.length, out);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+
+  private static int[] readIds(ByteBuffer buffer) {
+    int[] ids = new int[ReadWriteForEncodingUtils.readUnsignedVarInt(buffer)];
+    int id = 0;
+    for (int i = 0; i < ids.length; i++) {
+      id += ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+      ids[i] = id;
+    }
+    return ids;
+  }
+
+  private static int[] toArray(TreeSet<Integer> ids) {
+    return ids.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * @return the sorted ids in either of the sorted ids
+   */
+  private static int[] union(int[] ids, int[] anotherIds) {
+    if (anotherIds.length == 0) {
+      return ids;
+    }
+    if (ids.length == 0) {
+      return anotherIds;
+    }
+    int[] result = new int[ids.length + anotherIds.length];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < ids.length || j < anotherIds.length) {
+      if (j == anotherIds.length || (i < ids.length && ids[i] < anotherIds[j])) {
+        result[size++] = ids[i++];
+      } else if (i == ids.length || anotherIds[j] < ids[i]) {
+        result[size++] = anotherIds[j++];
+      } else {
+        result[size++] = ids[i++];
+        j++;
+      }
+    }
+    return size == result.length ? result : Arrays.copyOf(result, size);
+  }
+
+  /**
+   * @return the sorted ids not in the other sorted ids
+   */
+  private static int[] difference(int[] ids, int[] removedIds) {
+    if (ids.length == 0 || removedIds.length == 0) {
+      return ids;
+    }
+    int[] result = new int[ids.length];
+    int size = 0;
+    int j = 0;
+    for (int id : ids) {
+      while (j < removedIds.length && removedIds[j] < id) {
+        j++;
+      }
+      if (j == removedIds.length || removedIds[j] != id) {
+        result[size++] = id;
+      }
+    }
+    return size == result.length ? result : Arrays.copyOf(result, size);
+  }
+
+  /**
+   * write the changes, wait for the running merge and set the clean flag.
+   */
+  @Override
+  public void close() throws IOException {
+    mergeThread.shutdown();
+    boolean interrupted = false;
+    try {
+      while (!mergeThread.awaitTermination(1, TimeUnit.MINUTES)) {
+        logger.info("Waiting for the merge of the tag index in {}", dir);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      interrupted = true;
+    }
+    synchronized (this) {
+      flush();
+      if (!interrupted && !inconsistent) {
+        runs.get(runs.size() - 1).markClean(true);
+      }
+      for (Run run : runs) {
+        run.close();
+      }
+      runs.clear();
+    }
+  }
+
+  /**
+   * the ids added to and removed from a posting since the last flush, which are disjoint.
+   */
+  private static class PostingDelta {
+
+    private final TreeSet<Integer> added = new TreeSet<>();
+    private final TreeSet<Integer> removed = new TreeSet<>();
+
+    private void add(int id) {
+      removed.remove(id);
+      added.add(id);
+    }
+
+    private void remove(int id) {
+      added.remove(id);
+      removed.add(id);
+    }
+  }
+
+  /**
+   * a run on disk, whose footer is loaded.
+   */
+  private static class Run {
+
+    private final File file;
+    private final FileChannel channel;
+    private final boolean clean;
+    private final int level;
+
+    // the first key and value and the offset of each posting block
+    private final String[] blockKeys;
+    private final String[] blockValues;
+    private final long[] blockOffsets;
+    // the first id and the offset of each path block
+    private final int[] pathBlockIds;
+    private final long[] pathBlockOffsets;
+
+    // the path block read last by findPath()
+    private int loadedPathBlock = -1;
+    private int[] loadedIds = NO_IDS;
+    private String[] loadedPaths = new String[0];
+
+    private Run(File file) throws IOException {
+      this.file = file;
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      try {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+          throw new IOException(file + " is not a tag index");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+          throw new IOException(
+              String.format("Unsupported version %d of tag index %s", version, file));
+        }
+        clean = header.get() == 1;
+        level = header.get();
+
+        ByteBuffer tail = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        long tailOffset = channel.size() - BLOCK_HEADER_SIZE;
+        if (tailOffset < HEADER_SIZE) {
+          throw new IOException(file + " is incomplete");
+        }
+        readFully(tail, tailOffset);
+        int footerLength = tail.getInt();
+        long expectedChecksum = tail.getLong();
+        if (footerLength < 0 || footerLength > tailOffset - HEADER_SIZE) {
+          throw new IOException(file + " is incomplete");
+        }
+        ByteBuffer footer = ByteBuffer.allocate(footerLength);
+        readFully(footer, tailOffset - footerLength);
+        CRC32 checksum = new CRC32();
+        checksum.update(footer.array(), 0, footerLength);
+        if (checksum.getValue() != expectedChecksum) {
+          throw new IOException("The footer of " + file + " is broken");
+        }
+
+        int blockNum = ReadWriteForEncodingUtils.readUnsignedVarInt(footer);
+        blockKeys = new String[blockNum];
+        blockValues = new String[blockNum];
+        blockOffsets = new long[blockNum];
+        for (int i = 0; i < blockNum; i++) {
+          blockKeys[i] = readString(footer);
+          blockValues[i] = readString(footer);
+          blockOffsets[i] = footer.getLong();
+        }
+        int pathBlockNum = ReadWriteForEncodingUtils.readUnsignedVarInt(footer);
+        pathBlockIds = new int[pathBlockNum];
+        pathBlockOffsets = new long[pathBlockNum];
+        for (int i = 0; i < pathBlockNum; i++) {
+          pathBlockIds[i] = ReadWriteForEncodingUtils.readUnsignedVarInt(footer);
+          pathBlockOffsets[i] = footer.getLong();
+        }
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    /**
+     * @return the path of the series, an empty string if the path is removed in this run, or
+     * null if the run does not hold the id
+     */
+    private String findPath(int id) throws IOException {
+      int index = Arrays.binarySearch(pathBlockIds, id);
+      int block = index >= 0 ? index : -index - 2;
+      if (block < 0) {
+        return null;
+      }
+      if (block != loadedPathBlock) {
+        PathCursor cursor = new PathCursor(this, block);
+        List<Integer> idList = new ArrayList<>();
+        List<String> pathList = new ArrayList<>();
+        while (cursor.nextInBlock()) {
+          idList.add(cursor.id);
+          pathList.add(cursor.path == null ? "" : cursor.path);
+        }
+        loadedIds = idList.stream().mapToInt(Integer::intValue).toArray();
+        loadedPaths = pathList.toArray(new String[0]);
+        loadedPathBlock = block;
+      }
+      index = Arrays.binarySearch(loadedIds, id);
+      return index < 0 ? null : loadedPaths[index];
+    }
+
+    private void markClean(boolean clean) throws IOException {
+      ByteBuffer flag = ByteBuffer.wrap(new byte[]{(byte) (clean ? 1 : 0)});
+      while (flag.hasRemaining()) {
+        channel.write(flag, CLEAN_FLAG_POSITION);
+      }
+      channel.force(false);
+    }
+
+    private ByteBuffer readBlock(long offset) throws IOException {
+      ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+      readFully(header, offset);
+      int length = header.getInt();
+      long expectedChecksum = header.getLong();
+      if (length < 0 || length > channel.size() - offset - BLOCK_HEADER_SIZE) {
+        throw new IOException(String.format("Block at %d of %s is incomplete", offset, file));
+      }
+      ByteBuffer body = ByteBuffer.allocate(length);
+      readFully(body, offset + BLOCK_HEADER_SIZE);
+      CRC32 checksum = new CRC32();
+      checksum.update(body.array(), 0, length);
+      if (checksum.getValue() != expectedChecksum) {
+        throw new IOException(String.format("Block at %d of %s is broken", offset, file));
+      }
+      return body;
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, offset + buffer.position()) < 0) {
+          throw new IOException(file + " is incomplete");
+        }
+      }
+      buffer.flip();
+    }
+
+    private void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  /**
+   * the postings of a run or of the changes in order, with the ids added and removed since the
+   * sources before it.
+   */
+  private abstract static class PostingSource {
+
+    String key;
+    String value;
+    int[] added;
+    int[] removed;
+
+    abstract boolean next() throws IOException;
+  }
+
+  /**
+   * iterates the postings of a run in order, from the first one not less than a key and value.
+   */
+  private static class PostingCursor extends PostingSource {
+
+    private final Run run;
+    private int blockIndex;
+    private ByteBuffer block;
+    private final String startKey;
+    private final String startValue;
+
+    private PostingCursor(Run run, String startKey, String startValue) {
+      this.run = run;
+      this.startKey = startKey;
+      this.startValue = startValue;
+      // the last block whose first posting is not greater than the start
+      int low = 0;
+      int high = run.blockKeys.length - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (compare(run.blockKeys[mid], run.blockValues[mid], startKey, startValue) <= 0) {
+          blockIndex = mid;
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+    }
+
+    @Override
+    boolean next() throws IOException {
+      do {
+        while (block == null || !block.hasRemaining()) {
+          if (blockIndex >= run.blockOffsets.length) {
+            return false;
+          }
+          block = run.readBlock(run.blockOffsets[blockIndex++]);
+        }
+        key = readString(block);
+        value = readString(block);
+        added = readIds(block);
+        removed = readIds(block);
+      } while (compare(key, value, startKey, startValue) < 0);
+      return true;
+    }
+  }
+
+  /**
+   * iterates the postings of the changes in memory in order, from the first one not less than a
+   * key and value.
+   */
+  private class DeltaPostingCursor extends PostingSource {
+
+    private final String startKey;
+    private final String startValue;
+    private final Iterator<Entry<String, TreeMap<String, PostingDelta>>> keyIterator;
+    private Iterator<Entry<String, PostingDelta>> valueIterator = Collections.emptyIterator();
+    private String currentKey;
+
+    private DeltaPostingCursor(String startKey, String startValue) {
+      this.startKey = startKey;
+      this.startValue = startValue;
+      this.keyIterator = postingDeltas.tailMap(startKey, true).entrySet().iterator();
+    }
+
+    @Override
+    boolean next() {
+      while (true) {
+        while (!valueIterator.hasNext()) {
+          if (!keyIterator.hasNext()) {
+            return false;
+          }
+          Entry<String, TreeMap<String, PostingDelta>> keyEntry = keyIterator.next();
+          currentKey = keyEntry.getKey();
+          valueIterator = (currentKey.equals(startKey)
+              ? keyEntry.getValue().tailMap(startValue, true) : keyEntry.getValue())
+              .entrySet().iterator();
+        }
+        Entry<String, PostingDelta> entry = valueIterator.next();
+        if (entry.getValue().added.isEmpty() && entry.getValue().removed.isEmpty()) {
+          continue;
+        }
+        key = currentKey;
+        value = entry.getKey();
+        added = toArray(entry.getValue().added);
+        removed = toArray(entry.getValue().removed);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * merges the postings of several sources in order, a posting holds the ids added and removed by
+   * all the sources.
+   */
+  private static class PostingMerger {
+
+    // from the oldest to the newest
+    private final List<PostingSource> sources;
+    private final boolean[] hasCurrent;
+
+    private String key;
+    private String value;
+    private int[] added;
+    private int[] removed;
+
+    private PostingMerger(List<PostingSource> sources) throws IOException {
+      this.sources = sources;
+      this.hasCurrent = new boolean[sources.size()];
+      for (int i = 0; i < hasCurrent.length; i++) {
+        hasCurrent[i] = sources.get(i).next();
+      }
+    }
+
+    private boolean next() throws IOException {
+      PostingSource first = null;
+      for (int i = 0; i < hasCurrent.length; i++) {
+        PostingSource source = sources.get(i);
+        if (hasCurrent[i] && (first == null
+            || compare(source.key, source.value, first.key, first.value) < 0)) {
+          first = source;
+        }
+      }
+      if (first == null) {
+        return false;
+      }
+      key = first.key;
+      value = first.value;
+      added = NO_IDS;
+      removed = NO_IDS;
+      for (int i = 0; i < hasCurrent.length; i++) {
+        PostingSource source = sources.get(i);
+        if (hasCurrent[i] && source.key.equals(key) && source.value.equals(value)) {
+          added = union(difference(added, source.removed), source.added);
+          removed = union(difference(removed, source.added), source.removed);
+          hasCurrent[i] = source.next();
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * the paths of a run or of the changes in the order of the ids, the path is null if it is
+   * removed.
+   */
+  private abstract static class PathSource {
+
+    int id;
+    String path;
+
+    abstract boolean next() throws IOException;
+  }
+
+  /**
+   * iterates the paths of a run in the order of the ids.
+   */
+  private static class PathCursor extends PathSource {
+
+    private final Run run;
+    private int blockIndex;
+    private ByteBuffer block;
+    private String previousPath;
+
+    private PathCursor(Run run) {
+      this(run, 0);
+    }
+
+    private PathCursor(Run run, int blockIndex) {
+      this.run = run;
+      this.blockIndex = blockIndex;
+    }
+
+    @Override
+    boolean next() throws IOException {
+      while (block == null || !block.hasRemaining()) {
+        if (blockIndex >= run.pathBlockOffsets.length) {
+          return false;
+        }
+        loadBlock();
+      }
+      readPath();
+      return true;
+    }
+
+    /**
+     * read the next path of the block of the cursor, which is loaded on the first call.
+     */
+    private boolean nextInBlock() throws IOException {
+      if (block == null) {
+        loadBlock();
+      }
+      if (!block.hasRemaining()) {
+        return false;
+      }
+      readPath();
+      return true;
+    }
+
+    private void loadBlock() throws IOException {
+      block = run.readBlock(run.pathBlockOffsets[blockIndex++]);
+      id = 0;
+      previousPath = "";
+    }
+
+    private void readPath() {
+      id += ReadWriteForEncodingUtils.readUnsignedVarInt(block);
+      if (block.get() == 1) {
+        path = null;
+        return;
+      }
+      int sharedLength = ReadWriteForEncodingUtils.readUnsignedVarInt(block);
+      previousPath = previousPath.substring(0, sharedLength) + readString(block);
+      path = previousPath;
+    }
+  }
+
+  /**
+   * iterates the paths added and removed in memory in the order of the ids.
+   */
+  private class DeltaPathCursor extends PathSource {
+
+    private final Iterator<Entry<Integer, String>> addedIterator =
+        addedPaths.entrySet().iterator();
+    private final Iterator<Integer> removedIterator = removedPaths.iterator();
+    private Entry<Integer, String> nextAdded;
+    private Integer nextRemoved;
+
+    private DeltaPathCursor() {
+      nextAdded = addedIterator.hasNext() ? addedIterator.next() : null;
+      nextRemoved = removedIterator.hasNext() ? removedIterator.next() : null;
+    }
+
+    @Override
+    boolean next() {
+      if (nextAdded == null && nextRemoved == null) {
+        return false;
+      }
+      if (nextRemoved == null || (nextAdded != null && nextAdded.getKey() < nextRemoved)) {
+        id = nextAdded.getKey();
+        path = nextAdded.getValue();
+        nextAdded = addedIterator.hasNext() ? addedIterator.next() : null;
+      } else {
+        id = nextRemoved;
+        path = null;
+        nextRemoved = removedIterator.hasNext() ? removedIterator.next() : null;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * writes a new run, the postings and then the paths must be added in order.
+   */
+  private static class RunWriter implements AutoCloseable {
+
+    private final FileOutputStream fileStream;
+    private final BufferedOutputStream out;
+    private long position;
+
+    private final PublicBAOS block = new PublicBAOS();
+    private final PublicBAOS footer = new PublicBAOS();
+    private final PublicBAOS pathFooter = new PublicBAOS();
+    private int blockNum;
+    private int pathBlockNum;
+
+    private int previousId;
+    private String previousPath;
+
+    private RunWriter(File file, int level) throws IOException {
+      fileStream = new FileOutputStream(file);
+      out = new BufferedOutputStream(fileStream);
+      out.write(MAGIC);
+      out.write(ByteBuffer.allocate(Integer.BYTES).putInt(VERSION).array());
+      // the run is not closed until the index is closed
+      out.write(0);
+      out.write(level);
+      position = HEADER_SIZE;
+    }
+
+    private void addPosting(String key, String value, int[] added, int[] removed)
+        throws IOException {
+      if (added.length == 0 && removed.length == 0) {
+        return;
+      }
+      if (block.size() == 0) {
+        writeString(key, footer);
+        writeString(value, footer);
+        writeLong(position, footer);
+        blockNum++;
+      }
+      writeString(key, block);
+      writeString(value, block);
+      writeIds(added);
+      writeIds(removed);
+      if (block.size() >= BLOCK_SIZE) {
+        writeBlock();
+      }
+    }
+
+    private void writeIds(int[] ids) {
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(ids.length, block);
+      int previous = 0;
+      for (int id : ids) {
+        ReadWriteForEncodingUtils.writeUnsignedVarInt(id - previous, block);
+        previous = id;
+      }
+    }
+
+    private void finishPostings() throws IOException {
+      if (block.size() > 0) {
+        writeBlock();
+      }
+    }
+
+    private void addPath(int id, String path) throws IOException {
+      startPath(id);
+      block.write(0);
+      int sharedLength = 0;
+      int maxLength = Math.min(path.length(), previousPath.length());
+      while (sharedLength < maxLength
+          && path.charAt(sharedLength) == previousPath.charAt(sharedLength)) {
+        sharedLength++;
+      }
+      // do not split a surrogate pair, the halves cannot be encoded separately
+      if (sharedLength > 0 && Character.isHighSurrogate(path.charAt(sharedLength - 1))) {
+        sharedLength--;
+      }
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(sharedLength, block);
+      writeString(path.substring(sharedLength), block);
+      previousPath = path;
+      finishPath();
+    }
+
+    private void addRemovedPath(int id) throws IOException {
+      startPath(id);
+      block.write(1);
+      finishPath();
+    }
+
+    private void startPath(int id) {
+      if (block.size() == 0) {
+        ReadWriteForEncodingUtils.writeUnsignedVarInt(id, pathFooter);
+        writeLong(position, pathFooter);
+        pathBlockNum++;
+        previousId = 0;
+        previousPath = "";
+      }
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(id - previousId, block);
+      previousId = id;
+    }
+
+    private void finishPath() throws IOException {
+      if (block.size() >= BLOCK_SIZE) {
+        writeBlock();
+      }
+    }
+
+    private void finish() throws IOException {
+      if (block.size() > 0) {
+        writeBlock();
+      }
+      PublicBAOS body = new PublicBAOS();
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(blockNum, body);
+      body.write(footer.getBuf(), 0, footer.size());
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(pathBlockNum, body);
+      body.write(pathFooter.getBuf(), 0, pathFooter.size());
+      CRC32 checksum = new CRC32();
+      checksum.update(body.getBuf(), 0, body.size());
+      out.write(body.getBuf(), 0, body.size());
+      out.write(ByteBuffer.allocate(BLOCK_HEADER_SIZE).putInt(body.size())
+          .putLong(checksum.getValue()).array());
+      out.flush();
+      fileStream.getFD().sync();
+    }
+
+    private void writeBlock() throws IOException {
+      CRC32 checksum = new CRC32();
+      checksum.update(block.getBuf(), 0, block.size());
+      out.write(ByteBuffer.allocate(BLOCK_HEADER_SIZE).putInt(block.size())
+          .putLong(checksum.getValue()).array());
+      out.write(block.getBuf(), 0, block.size());
+      position += BLOCK_HEADER_SIZE + block.size();
+      block.reset();
+    }
+
+    private static void writeLong(long value, PublicBAOS out) {
+      for (int i = Long.BYTES - 1; i >= 0; i--) {
+        out.write((int) (value >>> (i * Byte.SIZE)));
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+}
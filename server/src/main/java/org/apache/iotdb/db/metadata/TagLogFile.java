@@ -23,7 +23,9 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
@@ -44,6 +46,9 @@ public class TagLogFile implements AutoCloseable {
 
   private static final byte FILL_BYTE = 0;
 
+  // the max number of adjacent tags and attributes read at once
+  private static final int MAX_BATCH_READ_NUM = 64;
+
   public TagLogFile(String schemaDir, String logFileName) throws IOException {
 
     File metadataDir = SystemFileFactory.INSTANCE.getFile(schemaDir);
@@ -75,6 +80,48 @@ public class TagLogFile implements AutoCloseable {
     return new Pair<>(ReadWriteIOUtils.readMap(byteBuffer), ReadWriteIOUtils.readMap(byteBuffer));
   }
 
+  /**
+   * read the tags and attributes at the given positions, which must be in ascending order so that
+   * the file is read sequentially. The adjacent ones are read together.
+   *
+   * @return tags map, attributes map at each position
+   */
+  public List<Pair<Map<String, String>, Map<String, String>>> read(int size, long[] positions)
+      throws IOException {
+    List<Pair<Map<String, String>, Map<String, String>>> result = new ArrayList<>(
+        positions.length);
+    ByteBuffer byteBuffer = null;
+    int start = 0;
+    while (start < positions.length) {
+      if (positions[start] < 0) {
+        result.add(new Pair<>(Collections.emptyMap(), Collections.emptyMap()));
+        start++;
+        continue;
+      }
+      int end = start + 1;
+      while (end < positions.length && end - start < MAX_BATCH_READ_NUM
+          && positions[end] == positions[end - 1] + size) {
+        end++;
+      }
+      if (byteBuffer == null) {
+        byteBuffer = ByteBuffer.allocate(size * Math.min(MAX_BATCH_READ_NUM, positions.length));
+      }
+      byteBuffer.clear();
+      byteBuffer.limit(size * (end - start));
+      int readSize;
+      do {
+        readSize = fileChannel.read(byteBuffer, positions[start] + byteBuffer.position());
+      } while (readSize > 0 && byteBuffer.hasRemaining());
+      for (int i = 0; i < end - start; i++) {
+        byteBuffer.position(i * size);
+        result.add(new Pair<>(ReadWriteIOUtils.readMap(byteBuffer),
+            ReadWriteIOUtils.readMap(byteBuffer)));
+      }
+      start = end;
+    }
+    return result;
+  }
+
   public Map<String, String> readTag(int size, long position) throws IOException {
     ByteBuffer byteBuffer = ByteBuffer.allocate(size);
     fileChannel.read(byteBuffer, position);
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mnode;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.iotdb.db.metadata.MeasurementPageFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DeviceNodeCache bounds the number of devices whose measurements are in memory. The measurements
+ * of the other devices are paged out to a MeasurementPageFile, and are loaded transparently by
+ * MNode when the device is accessed.
+ *
+ * The devices in memory are evicted by the CLOCK algorithm: an access only sets the referenced
+ * flag of the device, and the evictor gives a referenced device a second chance instead of
+ * unloading it. So the insertions into the devices in memory pay nothing but a volatile read.
+ */
+public class DeviceNodeCache implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(DeviceNodeCache.class);
+
+  private final MeasurementPageFile pageFile;
+
+  private final int capacity;
+
+  private final Queue<MNode> loadedNodes = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger loadedNum = new AtomicInteger();
+
+  /**
+   * only one thread evicts at a time, and the others go on without waiting for it.
+   */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  public DeviceNodeCache(MeasurementPageFile pageFile, int capacity) {
+    this.pageFile = pageFile;
+    this.capacity = Math.max(1, capacity);
+  }
+
+  /**
+   * the state of the measurements of a device which can be paged out.
+   */
+  static class Page {
+
+    /**
+     * offset of the latest page in the file, -1 if the measurements have never been paged out.
+     */
+    long offset = -1;
+
+    /**
+     * whether the measurements are modified since they were paged out.
+     */
+    boolean dirty = true;
+
+    /**
+     * the number of the measurements, valid when they are paged out.
+     */
+    int measurementNum;
+
+    volatile boolean referenced = true;
+  }
+
+  void onLoaded(MNode node) {
+    loadedNodes.add(node);
+    loadedNum.incrementAndGet();
+  }
+
+  List<MeasurementMNode> read(long offset) throws IOException {
+    return pageFile.read(offset);
+  }
+
+  long write(Collection<MNode> measurements, long previousOffset) throws IOException {
+    return pageFile.write(measurements, previousOffset);
+  }
+
+  void free(long offset) {
+    try {
+      pageFile.free(offset);
+    } catch (IOException e) {
+      logger.error("Cannot free the measurement page at {}", offset, e);
+    }
+  }
+
+  /**
+   * page the measurements of the least recently used devices out until at most capacity devices
+   * are in memory. It must not be called with the lock of any MNode held.
+   */
+  public void evictIfFull() {
+    if (loadedNum.get() <= capacity || !evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      // each device is given at most one second chance in a round
+      int budget = loadedNum.get() * 2;
+      while (loadedNum.get() > capacity && budget-- > 0) {
+        MNode node = loadedNodes.poll();
+        if (node == null) {
+          break;
+        }
+        if (node.clearReferenced()) {
+          loadedNodes.add(node);
+        } else {
+          evict(node);
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void evict(MNode node) {
+    try {
+      if (node.unloadChildren() || !node.isPageable()) {
+        loadedNum.decrementAndGet();
+        return;
+      }
+    } catch (IOException e) {
+      logger.error("Cannot page out the measurements of {}", node.getFullPath(), e);
+    }
+    // try it later
+    loadedNodes.add(node);
+  }
+
+  /**
+   * @return the number of devices whose measurements are in memory
+   */
+  public int getLoadedNum() {
+    return loadedNum.get();
+  }
+
+  @Override
+  public void close() {
+    loadedNodes.clear();
+    loadedNum.set(0);
+    try {
+      pageFile.close();
+    } catch (IOException e) {
+      logger.error("Cannot close the measurement page file", e);
+    }
+  }
+}
@@ -18,20 +18,19 @@
  */
 package org.apache.iotdb.db.metadata.mnode;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.Collections;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import org.apache.iotdb.db.conf.IoTDBConstant;
-import org.apache.iotdb.db.metadata.MetadataConstant;
 import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.rescon.CachedStringPool;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
 
 /**
  * This class is the implementation of Metadata Node. One MNode instance represents one node in the
@@ -67,6 +66,19 @@ public class MNode implements Serializable {
   @SuppressWarnings("squid:S3077")
   private transient volatile ConcurrentMap<String, MNode> aliasChildren = null;
 
+  /**
+   * pages the measurements of the devices out of memory, null if the schema is not paged
+   */
+  private static volatile DeviceNodeCache deviceNodeCache = null;
+
+  /**
+   * not null if the children are measurements which can be paged out, and then the children and
+   * the alias children are null.
+   * suppress warnings reason: volatile for double synchronized check
+   */
+  @SuppressWarnings("squid:S3077")
+  private transient volatile DeviceNodeCache.Page page = null;
+
   /**
    * Constructor of MNode.
    */
@@ -75,12 +87,221 @@ public class MNode implements Serializable {
     this.name = name;
   }
 
+  /**
+   * set the cache which pages the measurements of the devices out, or null to keep them in memory.
+   * It affects the devices whose measurements are added afterwards.
+   */
+  public static void setDeviceNodeCache(DeviceNodeCache cache) {
+    deviceNodeCache = cache;
+  }
+
+  /**
+   * @return the children, which are loaded if they are paged out
+   */
+  private ConcurrentMap<String, MNode> loadedChildren() {
+    ConcurrentMap<String, MNode> map = children;
+    DeviceNodeCache.Page currentPage = page;
+    if (currentPage == null) {
+      return map;
+    }
+    if (map != null) {
+      if (!currentPage.referenced) {
+        currentPage.referenced = true;
+      }
+      return map;
+    }
+    synchronized (this) {
+      map = loadChildrenLocked();
+    }
+    evictIfFull();
+    return map;
+  }
+
+  /**
+   * load the children if they are paged out, the lock of this node must be held.
+   */
+  private ConcurrentMap<String, MNode> loadChildrenLocked() {
+    DeviceNodeCache.Page currentPage = page;
+    if (children != null || currentPage == null) {
+      return children;
+    }
+    DeviceNodeCache cache = deviceNodeCache;
+    if (cache == null) {
+      throw new IllegalStateException("The measurements of " + getFullPath() + " are closed");
+    }
+    List<MeasurementMNode> measurements;
+    try {
+      measurements = cache.read(currentPage.offset);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot load the measurements of " + getFullPath(), e);
+    }
+    ConcurrentMap<String, MNode> map = new ConcurrentHashMap<>(measurements.size() * 4 / 3 + 1);
+    ConcurrentMap<String, MNode> aliasMap = null;
+    for (MeasurementMNode measurement : measurements) {
+      measurement.setParent(this);
+      map.put(measurement.getName(), measurement);
+      if (measurement.getAlias() != null) {
+        if (aliasMap == null) {
+          aliasMap = new ConcurrentHashMap<>();
+        }
+        aliasMap.put(measurement.getAlias(), measurement);
+      }
+    }
+    // the aliases are visible once the children are
+    aliasChildren = aliasMap;
+    children = map;
+    currentPage.dirty = false;
+    currentPage.referenced = true;
+    cache.onLoaded(this);
+    return map;
+  }
+
+  /**
+   * page the children out if they are all measurements, called by DeviceNodeCache.
+   *
+   * @return whether the children are paged out
+   */
+  synchronized boolean unloadChildren() throws IOException {
+    DeviceNodeCache.Page currentPage = page;
+    ConcurrentMap<String, MNode> map = children;
+    DeviceNodeCache cache = deviceNodeCache;
+    if (currentPage == null || cache == null) {
+      return false;
+    }
+    if (map == null) {
+      return true;
+    }
+    for (MNode child : map.values()) {
+      if (!(child instanceof MeasurementMNode) || !child.getChildren().isEmpty()) {
+        // keep the children in memory, as the subtree is more than a device
+        page = null;
+        return false;
+      }
+    }
+    if (currentPage.dirty) {
+      currentPage.offset = cache.write(map.values(), currentPage.offset);
+      currentPage.dirty = false;
+    }
+    currentPage.measurementNum = map.size();
+    aliasChildren = null;
+    children = null;
+    return true;
+  }
+
+  /**
+   * free the page of a deleted device, whose children then stay in memory as long as the node is
+   * referenced. A page which is paged out is kept, as a concurrent reader may still load it.
+   */
+  private synchronized void releasePage(DeviceNodeCache cache) {
+    DeviceNodeCache.Page currentPage = page;
+    if (currentPage == null || children == null) {
+      return;
+    }
+    page = null;
+    if (currentPage.offset >= 0) {
+      cache.free(currentPage.offset);
+    }
+  }
+
+  /**
+   * @return whether this node was referenced, and clear the flag
+   */
+  boolean clearReferenced() {
+    DeviceNodeCache.Page currentPage = page;
+    if (currentPage != null && currentPage.referenced) {
+      currentPage.referenced = false;
+      return true;
+    }
+    return false;
+  }
+
+  boolean isPageable() {
+    return page != null;
+  }
+
+  /**
+   * mark the children modified, and make them pageable if they are measurements. The lock of this
+   * node must be held.
+   */
+  private void markModifiedLocked(MNode child, DeviceNodeCache cache) {
+    if (page == null && child instanceof MeasurementMNode) {
+      page = new DeviceNodeCache.Page();
+      cache.onLoaded(this);
+    }
+    if (page != null) {
+      page.dirty = true;
+    }
+  }
+
+  private static void evictIfFull() {
+    DeviceNodeCache cache = deviceNodeCache;
+    if (cache != null) {
+      cache.evictIfFull();
+    }
+  }
+
+  /**
+   * called when a measurement child is modified, which may be paged out and loaded again since it
+   * was got, so the modification is copied to the child in memory.
+   */
+  void measurementChanged(MeasurementMNode measurement) {
+    if (deviceNodeCache == null || page == null) {
+      return;
+    }
+    synchronized (this) {
+      if (page == null) {
+        return;
+      }
+      ConcurrentMap<String, MNode> map = loadChildrenLocked();
+      MNode current = map.get(measurement.getName());
+      if (current instanceof MeasurementMNode && current != measurement) {
+        MeasurementMNode currentMeasurement = (MeasurementMNode) current;
+        String oldAlias = currentMeasurement.getAlias();
+        currentMeasurement.copyFrom(measurement);
+        if (!Objects.equals(oldAlias, measurement.getAlias())) {
+          if (oldAlias != null && aliasChildren != null) {
+            aliasChildren.remove(oldAlias, current);
+          }
+          if (measurement.getAlias() != null) {
+            if (aliasChildren == null) {
+              aliasChildren = new ConcurrentHashMap<>();
+            }
+            aliasChildren.put(measurement.getAlias(), current);
+          }
+        }
+      }
+      page.dirty = true;
+    }
+    evictIfFull();
+  }
+
+  /**
+   * update the cached last value of a measurement child, which may be paged out and loaded again
+   * since it was got. The update goes to the child in memory. It is dropped if the children are
+   * paged out, as they are loaded again without a cached last value.
+   */
+  public void updateChildCachedLast(MeasurementMNode measurement, TimeValuePair timeValuePair,
+      boolean highPriorityUpdate, Long latestFlushedTime) {
+    if (deviceNodeCache == null || page == null) {
+      measurement.updateCachedLast(timeValuePair, highPriorityUpdate, latestFlushedTime);
+      return;
+    }
+    // the lock keeps the children from being paged out during the update
+    synchronized (this) {
+      ConcurrentMap<String, MNode> map = children;
+      MNode current = map == null ? null : map.get(measurement.getName());
+      if (current instanceof MeasurementMNode) {
+        ((MeasurementMNode) current)
+            .updateCachedLast(timeValuePair, highPriorityUpdate, latestFlushedTime);
+      }
+    }
+  }
+
   /**
    * check whether the MNode has a child with the name
    */
   public boolean hasChild(String name) {
-    return (children != null && children.containsKey(name)) ||
-        (aliasChildren != null && aliasChildren.containsKey(name));
+    return getChild(name) != null;
   }
 
   /**
@@ -89,6 +310,18 @@ public class MNode implements Serializable {
    * @param child child's node
    */
   public void addChild(String name, MNode child) {
+    DeviceNodeCache cache = deviceNodeCache;
+    if (cache != null) {
+      synchronized (this) {
+        if (loadChildrenLocked() == null) {
+          children = new ConcurrentHashMap<>();
+        }
+        children.putIfAbsent(name, child);
+        markModifiedLocked(child, cache);
+      }
+      cache.evictIfFull();
+      return;
+    }
     /* use cpu time to exchange memory
      * measurementNode's children should be null to save memory
      * add child method will only be called when writing MTree, which is not a frequent operation
@@ -109,6 +342,18 @@ public class MNode implements Serializable {
    * delete a child
    */
   public void deleteChild(String name) {
+    DeviceNodeCache cache = deviceNodeCache;
+    if (cache != null) {
+      synchronized (this) {
+        MNode child = loadChildrenLocked() == null ? null : children.remove(name);
+        if (child != null) {
+          markModifiedLocked(null, cache);
+          child.releasePage(cache);
+        }
+      }
+      cache.evictIfFull();
+      return;
+    }
     if (children != null) {
       children.remove(name);
     }
@@ -118,6 +363,16 @@ public class MNode implements Serializable {
    * delete the alias of a child
    */
   public void deleteAliasChild(String alias) {
+    if (deviceNodeCache != null) {
+      synchronized (this) {
+        loadChildrenLocked();
+        if (aliasChildren != null) {
+          aliasChildren.remove(alias);
+        }
+      }
+      evictIfFull();
+      return;
+    }
     if (aliasChildren != null) {
       aliasChildren.remove(alias);
     }
@@ -127,25 +382,41 @@ public class MNode implements Serializable {
    * get the child with the name
    */
   public MNode getChild(String name) {
+    ConcurrentMap<String, MNode> map = loadedChildren();
     MNode child = null;
-    if (children != null) {
-      child = children.get(name);
+    if (map != null) {
+      child = map.get(name);
     }
     if (child != null) {
       return child;
     }
-    return aliasChildren == null ? null : aliasChildren.get(name);
+    ConcurrentMap<String, MNode> aliasMap = aliasChildren;
+    if (aliasMap == null && page != null) {
+      // the aliases may be paged out with the children just now
+      synchronized (this) {
+        loadChildrenLocked();
+        aliasMap = aliasChildren;
+      }
+      evictIfFull();
+    }
+    return aliasMap == null ? null : aliasMap.get(name);
   }
 
   /**
    * get the count of all leaves whose ancestor is current node
    */
   public int getLeafCount() {
-    if (children == null) {
+    DeviceNodeCache.Page currentPage = page;
+    ConcurrentMap<String, MNode> map = children;
+    if (currentPage != null && map == null) {
+      // no need to load the measurements
+      return currentPage.measurementNum;
+    }
+    if (map == null) {
       return 0;
     }
     int leafCount = 0;
-    for (MNode child : children.values()) {
+    for (MNode child : map.values()) {
       leafCount += child.getLeafCount();
     }
     return leafCount;
@@ -155,6 +426,21 @@ public class MNode implements Serializable {
    * add an alias
    */
   public boolean addAlias(String alias, MNode child) {
+    if (deviceNodeCache != null) {
+      boolean added;
+      synchronized (this) {
+        ConcurrentMap<String, MNode> map = loadChildrenLocked();
+        // the child may be paged out and loaded again since it was got
+        MNode current = map == null ? null : map.get(child.getName());
+        MNode target = current == null ? child : current;
+        if (aliasChildren == null) {
+          aliasChildren = new ConcurrentHashMap<>();
+        }
+        added = aliasChildren.computeIfAbsent(alias, aliasName -> target) == target;
+      }
+      evictIfFull();
+      return added;
+    }
     if (aliasChildren == null) {
       // double check, alias children volatile
       synchronized (this) {
@@ -218,13 +504,25 @@ public class MNode implements Serializable {
   }
 
   public Map<String, MNode> getChildren() {
-    if (children == null) {
+    ConcurrentMap<String, MNode> map = loadedChildren();
+    if (map == null) {
       return Collections.emptyMap();
     }
-    return children;
+    return map;
   }
 
   public void setChildren(ConcurrentMap<String, MNode> children) {
+    DeviceNodeCache cache = deviceNodeCache;
+    if (cache != null) {
+      synchronized (this) {
+        this.children = children;
+        for (MNode child : children.values()) {
+          markModifiedLocked(child, cache);
+        }
+      }
+      cache.evictIfFull();
+      return;
+    }
     this.children = children;
   }
 
@@ -235,22 +533,4 @@ public class MNode implements Serializable {
   public void setName(String name) {
     this.name = name;
   }
-
-  public void serializeTo(BufferedWriter bw) throws IOException {
-    serializeChildren(bw);
-
-    String s = String.valueOf(MetadataConstant.MNODE_TYPE) + "," + name + ","
-        + (children == null ? "0" : children.size());
-    bw.write(s);
-    bw.newLine();
-  }
-
-  void serializeChildren(BufferedWriter bw) throws IOException {
-    if (children == null) {
-      return;
-    }
-    for (Entry<String, MNode> entry : children.entrySet()) {
-      entry.getValue().serializeTo(bw);
-    }
-  }
 }
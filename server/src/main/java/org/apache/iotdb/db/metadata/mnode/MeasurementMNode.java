@@ -18,11 +18,8 @@
  */
 package org.apache.iotdb.db.metadata.mnode;
 
-import java.io.BufferedWriter;
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import org.apache.iotdb.db.metadata.MetadataConstant;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
@@ -106,6 +103,9 @@ public class MeasurementMNode extends MNode {
 
   public void setOffset(long offset) {
     this.offset = offset;
+    if (parent != null) {
+      parent.measurementChanged(this);
+    }
   }
 
   public String getAlias() {
@@ -114,33 +114,25 @@ public class MeasurementMNode extends MNode {
 
   public void setAlias(String alias) {
     this.alias = alias;
+    if (parent != null) {
+      parent.measurementChanged(this);
+    }
   }
 
   public void setSchema(MeasurementSchema schema) {
     this.schema = schema;
+    if (parent != null) {
+      parent.measurementChanged(this);
+    }
   }
 
-  @Override
-  public void serializeTo(BufferedWriter bw) throws IOException {
-    serializeChildren(bw);
-
-    StringBuilder s = new StringBuilder(String.valueOf(MetadataConstant.MEASUREMENT_MNODE_TYPE));
-    s.append(",").append(name).append(",");
-    if (alias != null) {
-      s.append(alias);
-    }
-    s.append(",").append(schema.getType().ordinal()).append(",");
-    s.append(schema.getEncodingType().ordinal()).append(",");
-    s.append(schema.getCompressor().ordinal()).append(",");
-    if (schema.getProps() != null) {
-      for (Map.Entry<String, String> entry : schema.getProps().entrySet()) {
-        s.append(entry.getKey()).append(":").append(entry.getValue()).append(";");
-      }
-    }
-    s.append(",").append(offset).append(",");
-    s.append(children == null ? "0" : children.size());
-    bw.write(s.toString());
-    bw.newLine();
+  /**
+   * copy the fields which are paged out from another node of the same measurement.
+   */
+  void copyFrom(MeasurementMNode measurement) {
+    this.schema = measurement.schema;
+    this.alias = measurement.alias;
+    this.offset = measurement.offset;
   }
 
   /**
@@ -167,4 +159,4 @@ public class MeasurementMNode extends MNode {
 
     return node;
   }
-}
\ No newline at end of file
+}
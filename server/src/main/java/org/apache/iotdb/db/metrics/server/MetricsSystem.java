@@ -21,7 +21,10 @@ package org.apache.iotdb.db.metrics.server;
 import com.codahale.metrics.MetricRegistry;
 import java.util.ArrayList;
 import org.apache.iotdb.db.metrics.sink.MetricsServletSink;
+import org.apache.iotdb.db.metrics.sink.PrometheusServletSink;
 import org.apache.iotdb.db.metrics.sink.Sink;
+import org.apache.iotdb.db.metrics.source.EngineSource;
+import org.apache.iotdb.db.metrics.source.LatencySource;
 import org.apache.iotdb.db.metrics.source.MetricsSource;
 import org.apache.iotdb.db.metrics.source.Source;
 import org.eclipse.jetty.servlet.ServletContextHandler;
@@ -56,6 +59,10 @@ public class MetricsSystem {
     return new MetricsServletSink(metricRegistry).getHandler();
   }
 
+  public ServletContextHandler getPrometheusHandler() {
+    return new PrometheusServletSink(metricRegistry).getHandler();
+  }
+
   public void start() {
     registerSource();
     registerSinks();
@@ -74,6 +81,12 @@ public class MetricsSystem {
     MetricsSource source = new MetricsSource(serverArgument, metricRegistry);
     source.registerInfo();
     sources.add(source);
+    LatencySource latencySource = new LatencySource(metricRegistry);
+    latencySource.registerInfo();
+    sources.add(latencySource);
+    EngineSource engineSource = new EngineSource(metricRegistry);
+    engineSource.registerInfo();
+    sources.add(engineSource);
   }
 
   public void registerSinks() {}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metrics.sink;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.iotdb.db.cost.statistic.Histogram;
+import org.apache.iotdb.db.cost.statistic.Measurement;
+import org.apache.iotdb.db.cost.statistic.Operation;
+import org.apache.iotdb.db.metrics.server.JettyUtil;
+import org.apache.iotdb.db.metrics.source.LatencySource;
+import org.apache.iotdb.db.rescon.SystemInfo;
+import org.apache.iotdb.db.writelog.WALStatistics;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+
+/**
+ * PrometheusServletSink serves the metrics in the Prometheus text exposition format at /metrics,
+ * so that they can be scraped directly instead of through JMX:
+ * <ul>
+ *   <li>the numeric gauges and the counters of the registry, as gauges or as counters if their
+ *   names end with "_total";</li>
+ *   <li>the memtable memory of each storage group;</li>
+ *   <li>the latency histograms of Measurement and the WAL commit histograms, as summaries.</li>
+ * </ul>
+ * Everything is computed when a scrape comes, so an idle endpoint costs nothing.
+ */
+public class PrometheusServletSink implements Sink {
+
+  public static final String PATH = "/metrics";
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final String PREFIX = "iotdb_";
+
+  public MetricRegistry registry;
+
+  public PrometheusServletSink(MetricRegistry registry) {
+    this.registry = registry;
+  }
+
+  public ServletContextHandler getHandler() {
+    HttpServlet httpServlet = new HttpServlet() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType(CONTENT_TYPE);
+        resp.setStatus(HttpServletResponse.SC_OK);
+        PrintWriter out = resp.getWriter();
+        out.write(export(registry));
+        out.flush();
+        out.close();
+      }
+    };
+    return JettyUtil.createServletHandler(PATH, httpServlet);
+  }
+
+  /**
+   * @return the metrics in the Prometheus text exposition format
+   */
+  public static String export(MetricRegistry registry) {
+    StringBuilder out = new StringBuilder();
+    // the latencies are exported as summaries below
+    String latencyPrefix = LatencySource.SOURCE_NAME + ".";
+    for (Map.Entry<String, Gauge> entry : registry
+        .getGauges((name, metric) -> !name.startsWith(latencyPrefix)).entrySet()) {
+      Double value = toDouble(entry.getValue().getValue());
+      if (value != null) {
+        String name = sanitize(PREFIX + entry.getKey());
+        writeType(out, name, name.endsWith("_total") ? "counter" : "gauge");
+        writeSample(out, name, "", value);
+      }
+    }
+    for (Map.Entry<String, Counter> entry : registry.getCounters().entrySet()) {
+      String name = sanitize(PREFIX + entry.getKey());
+      name = name.endsWith("_total") ? name : name + "_total";
+      writeType(out, name, "counter");
+      writeSample(out, name, "", entry.getValue().getCount());
+    }
+
+    String name = PREFIX + "storage_group_memtable_memory_bytes";
+    writeType(out, name, "gauge");
+    for (Map.Entry<String, Long> entry : new TreeMap<>(
+        SystemInfo.getInstance().getStorageGroupMemCosts()).entrySet()) {
+      writeSample(out, name, label("storage_group", entry.getKey()), entry.getValue());
+    }
+
+    name = PREFIX + "operation_latency_seconds";
+    writeType(out, name, "summary");
+    for (Operation operation : Operation.values()) {
+      writeSummary(out, name, label("operation", operation.getName()),
+          Measurement.INSTANCE.getHistogram(operation), 1e-6);
+    }
+    WALStatistics walStatistics = WALStatistics.getInstance();
+    name = PREFIX + "wal_commit_latency_seconds";
+    writeType(out, name, "summary");
+    writeSummary(out, name, "", walStatistics.getCommitLatencyInUs(), 1e-6);
+    name = PREFIX + "wal_commit_batch_size";
+    writeType(out, name, "summary");
+    writeSummary(out, name, "", walStatistics.getCommitBatchSize(), 1);
+    return out.toString();
+  }
+
+  /**
+   * @param labels the labels of the summary separated by commas, or an empty string
+   * @param scale  the factor to convert the recorded values into the unit of the summary
+   */
+  private static void writeSummary(StringBuilder out, String name, String labels,
+      Histogram histogram, double scale) {
+    long[] values = histogram.getValuesAtPercentiles(Measurement.PERCENTILES);
+    String separator = labels.isEmpty() ? "" : labels + ",";
+    for (int i = 0; i < values.length; i++) {
+      writeSample(out, name, separator + label("quantile",
+          formatValue(Measurement.PERCENTILES[i] / 100)), values[i] * scale);
+    }
+    writeSample(out, name + "_sum", labels, histogram.getSum() * scale);
+    writeSample(out, name + "_count", labels, histogram.getCount());
+  }
+
+  private static void writeType(StringBuilder out, String name, String type) {
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void writeSample(StringBuilder out, String name, String labels, double value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(formatValue(value)).append('\n');
+  }
+
+  private static String label(String name, String value) {
+    return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"")
+        .replace("\n", "\\n") + "\"";
+  }
+
+  private static Double toDouble(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    } else if (value instanceof Boolean) {
+      return (Boolean) value ? 1.0 : 0.0;
+    }
+    return null;
+  }
+
+  static String formatValue(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    } else if (Double.isInfinite(value)) {
+      return value > 0 ? "+Inf" : "-Inf";
+    } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  /**
+   * the names of Prometheus metrics consist of [a-zA-Z0-9_:] only.
+   */
+  static String sanitize(String name) {
+    return name.replaceAll("[^a-zA-Z0-9_:]", "_");
+  }
+
+  @Override
+  public void start() {}
+
+  @Override
+  public void stop() {}
+
+  @Override
+  public void report() {}
+}
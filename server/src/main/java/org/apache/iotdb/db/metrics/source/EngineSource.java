@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metrics.source;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.iotdb.db.engine.cache.ChunkCache;
+import org.apache.iotdb.db.engine.cache.TimeSeriesMetadataCache;
+import org.apache.iotdb.db.engine.compaction.CompactionMergeTaskPoolManager;
+import org.apache.iotdb.db.engine.flush.FlushManager;
+import org.apache.iotdb.db.query.control.FileReaderManager;
+import org.apache.iotdb.db.query.control.QueryResourceManager;
+import org.apache.iotdb.db.rescon.SystemInfo;
+import org.apache.iotdb.db.writelog.WALStatistics;
+
+/**
+ * EngineSource exports the status of the storage engine. The names of the metrics which only
+ * increase end with "_total", and the sizes are in bytes.
+ */
+public class EngineSource implements Source {
+
+  public static final String SOURCE_NAME = "engine";
+  public MetricRegistry metricRegistry;
+
+  public EngineSource(MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
+  public void registerInfo() {
+    SystemInfo systemInfo = SystemInfo.getInstance();
+    register("memtable_memory_bytes", (Gauge<Long>) systemInfo::getTotalSgMemCost);
+    register("write_memory_usage_ratio", (Gauge<Double>) systemInfo::getWriteMemoryUsage);
+    register("write_rejected", (Gauge<Boolean>) systemInfo::isRejected);
+
+    FlushManager flushManager = FlushManager.getInstance();
+    register("flush_pending_tasks", (Gauge<Integer>) flushManager::getNumberOfPendingTasks);
+    register("flush_working_tasks", (Gauge<Integer>) flushManager::getNumberOfWorkingTasks);
+    register("flush_pending_sub_tasks", (Gauge<Integer>) flushManager::getNumberOfPendingSubTasks);
+    register("flushed_memtables_total", (Gauge<Long>) flushManager::getNumberOfFlushedMemTables);
+
+    CompactionMergeTaskPoolManager compactionManager = CompactionMergeTaskPoolManager.getInstance();
+    register("compaction_pending_tasks", (Gauge<Integer>) compactionManager::getPendingTaskNum);
+    register("compaction_running_tasks", (Gauge<Integer>) compactionManager::getRunningTaskNum);
+
+    ChunkCache chunkCache = ChunkCache.getInstance();
+    register("chunk_cache_hit_ratio", (Gauge<Double>) chunkCache::calculateChunkHitRatio);
+    register("chunk_cache_hits_total", (Gauge<Long>) chunkCache::getHitCount);
+    register("chunk_cache_misses_total", (Gauge<Long>) chunkCache::getMissCount);
+    register("chunk_cache_used_bytes", (Gauge<Long>) chunkCache::getUsedMemory);
+
+    TimeSeriesMetadataCache metadataCache = TimeSeriesMetadataCache.getInstance();
+    register("timeseries_metadata_cache_hit_ratio",
+        (Gauge<Double>) metadataCache::calculateTimeSeriesMetadataHitRatio);
+    register("timeseries_metadata_cache_hits_total", (Gauge<Long>) metadataCache::getHitCount);
+    register("timeseries_metadata_cache_misses_total", (Gauge<Long>) metadataCache::getMissCount);
+    register("timeseries_metadata_cache_used_bytes", (Gauge<Long>) metadataCache::getUsedMemory);
+
+    WALStatistics walStatistics = WALStatistics.getInstance();
+    register("wal_written_bytes_total", (Gauge<Long>) walStatistics::getWrittenBytes);
+    register("wal_forces_total", (Gauge<Long>) walStatistics::getForceNum);
+
+    register("open_file_readers",
+        (Gauge<Integer>) FileReaderManager.getInstance()::getOpenedReaderNum);
+    register("running_queries",
+        (Gauge<Integer>) QueryResourceManager.getInstance()::getRunningQueryNum);
+  }
+
+  private void register(String name, Gauge<?> gauge) {
+    metricRegistry.register(MetricRegistry.name(SOURCE_NAME, name), gauge);
+  }
+
+  @Override
+  public String sourceName() {
+    return EngineSource.SOURCE_NAME;
+  }
+}
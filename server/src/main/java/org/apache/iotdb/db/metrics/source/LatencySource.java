@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metrics.source;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.iotdb.db.cost.statistic.Histogram;
+import org.apache.iotdb.db.cost.statistic.Measurement;
+import org.apache.iotdb.db.cost.statistic.Operation;
+
+/**
+ * LatencySource exports the latencies (in microseconds) of the operations recorded by Measurement,
+ * which are recorded only when enable_performance_stat is true.
+ */
+public class LatencySource implements Source {
+
+  public static final String SOURCE_NAME = "latency";
+  public MetricRegistry metricRegistry;
+
+  public LatencySource(MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
+  public void registerInfo() {
+    for (Operation operation : Operation.values()) {
+      Histogram histogram = Measurement.INSTANCE.getHistogram(operation);
+      String prefix = MetricRegistry.name(SOURCE_NAME, operation.getName());
+      metricRegistry.register(MetricRegistry.name(prefix, "count"),
+          (Gauge<Long>) histogram::getCount);
+      metricRegistry.register(MetricRegistry.name(prefix, "mean_us"),
+          (Gauge<Double>) histogram::getMean);
+      for (double percentile : Measurement.PERCENTILES) {
+        String name = "p" + String.valueOf(percentile).replace(".0", "").replace(".", "") + "_us";
+        metricRegistry.register(MetricRegistry.name(prefix, name),
+            (Gauge<Long>) () -> histogram.getValueAtPercentile(percentile));
+      }
+      metricRegistry.register(MetricRegistry.name(prefix, "max_us"),
+          (Gauge<Long>) histogram::getMax);
+    }
+  }
+
+  @Override
+  public String sourceName() {
+    return LatencySource.SOURCE_NAME;
+  }
+}
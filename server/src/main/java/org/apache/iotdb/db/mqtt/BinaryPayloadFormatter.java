@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The binary payload formatter, which is encoded by the BinaryPayloadEncoder of the session. A
+ * payload is:
+ * <pre>
+ * payload    := version(1 byte) flags(1 byte) definitionNum definition* groupNum group*
+ * definition := id length utf8Bytes
+ * group      := deviceId measurementNum (measurementId type(1 byte))* rowNum firstTime
+ *               timeDelta*(rowNum - 1) value*(rowNum * measurementNum)
+ * value      := BOOLEAN: 1 byte, INT32: zigzag varint, INT64: zigzag varlong,
+ *               FLOAT: 4 bytes, DOUBLE: 8 bytes, TEXT: length utf8Bytes
+ * </pre>
+ * The ids, lengths and numbers are unsigned varints, the times and time deltas are zigzag varlongs,
+ * and the values are stored row by row.
+ *
+ * The device and measurement ids are interned by a dictionary of each client: a string is defined
+ * with an id once, and referred to by its id in the later payloads of the client. If the RESET
+ * flag is set, the dictionary of the client is cleared before the payload is read, which a
+ * publisher does after it (re)connects. So the payloads of a client must be handled in order,
+ * i.e., with QoS 1 or 2 and mqtt_handler_pool_size=1, otherwise a payload referring to an unknown
+ * id is dropped. The dictionaries of at most MAX_CLIENT_NUM clients are kept, and the one of the
+ * client publishing least recently is dropped first.
+ */
+public class BinaryPayloadFormatter implements PayloadFormatter {
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryPayloadFormatter.class);
+
+    public static final byte VERSION = 1;
+    public static final byte FLAG_RESET = 0x01;
+    /**
+     * the max number of strings in the dictionary of a client.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 1 << 16;
+    /**
+     * the max number of clients whose dictionaries are kept.
+     */
+    public static final int MAX_CLIENT_NUM = 1024;
+
+    private static final String ANONYMOUS_CLIENT = "";
+
+    private final Map<String, List<String>> dictionaries = Collections.synchronizedMap(
+        new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > MAX_CLIENT_NUM;
+            }
+        });
+
+    @Override
+    public List<Message> format(ByteBuf payload) {
+        return format(ANONYMOUS_CLIENT, payload);
+    }
+
+    @Override
+    public List<Message> format(String clientId, ByteBuf payload) {
+        if (payload == null) {
+            return null;
+        }
+        ByteBuffer buffer = payload.nioBuffer();
+        if (buffer.remaining() < 2) {
+            LOG.warn("Too short binary payload from client {}", clientId);
+            return null;
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            LOG.warn("Unsupported binary payload version {} from client {}", version, clientId);
+            return null;
+        }
+        byte flags = buffer.get();
+        List<String> dictionary = dictionaries
+            .computeIfAbsent(clientId == null ? ANONYMOUS_CLIENT : clientId,
+                c -> new ArrayList<>());
+        // the payloads of a client are read one by one
+        synchronized (dictionary) {
+            if ((flags & FLAG_RESET) != 0) {
+                dictionary.clear();
+            }
+            try {
+                readDefinitions(buffer, dictionary);
+                return readGroups(buffer, dictionary);
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                LOG.warn("Cannot format the binary payload from client {}", clientId, e);
+                return null;
+            }
+        }
+    }
+
+    private static void readDefinitions(ByteBuffer buffer, List<String> dictionary) {
+        int definitionNum = readLength(buffer);
+        for (int i = 0; i < definitionNum; i++) {
+            int id = readUnsignedVarInt(buffer);
+            String value = readString(buffer);
+            if (id == dictionary.size() && id < MAX_DICTIONARY_SIZE) {
+                dictionary.add(value);
+            } else if (id < dictionary.size()) {
+                dictionary.set(id, value);
+            } else {
+                throw new IllegalArgumentException(
+                    String.format("Id %d is not the next one %d", id, dictionary.size()));
+            }
+        }
+    }
+
+    private static List<Message> readGroups(ByteBuffer buffer, List<String> dictionary) {
+        List<Message> messages = new ArrayList<>();
+        int groupNum = readLength(buffer);
+        for (int g = 0; g < groupNum; g++) {
+            String device = lookup(dictionary, readUnsignedVarInt(buffer));
+            int measurementNum = readLength(buffer);
+            String[] measurements = new String[measurementNum];
+            TSDataType[] dataTypes = new TSDataType[measurementNum];
+            for (int i = 0; i < measurementNum; i++) {
+                measurements[i] = lookup(dictionary,
+                    readUnsignedVarInt(buffer));
+                dataTypes[i] = TSDataType.deserialize(buffer.get());
+            }
+            // the messages of a group share the lists
+            List<String> measurementList = Arrays.asList(measurements);
+            List<TSDataType> dataTypeList = Arrays.asList(dataTypes);
+
+            int rowNum = readLength(buffer);
+            long[] times = new long[rowNum];
+            long time = 0;
+            for (int r = 0; r < rowNum; r++) {
+                time += readZigzagVarLong(buffer);
+                times[r] = time;
+            }
+            for (int r = 0; r < rowNum; r++) {
+                Object[] values = new Object[measurementNum];
+                for (int i = 0; i < measurementNum; i++) {
+                    values[i] = readValue(buffer, dataTypes[i]);
+                }
+                Message message = new Message();
+                message.setDevice(device);
+                message.setTimestamp(times[r]);
+                message.setMeasurements(measurementList);
+                message.setDataTypes(dataTypeList);
+                message.setTypedValues(Arrays.asList(values));
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    private static String lookup(List<String> dictionary, int id) {
+        if (id >= dictionary.size()) {
+            throw new IllegalArgumentException("Unknown id " + id);
+        }
+        return dictionary.get(id);
+    }
+
+    private static Object readValue(ByteBuffer buffer, TSDataType dataType) {
+        switch (dataType) {
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case INT32:
+                long value = readZigzagVarLong(buffer);
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("INT32 value out of range " + value);
+                }
+                return (int) value;
+            case INT64:
+                return readZigzagVarLong(buffer);
+            case FLOAT:
+                return buffer.getFloat();
+            case DOUBLE:
+                return buffer.getDouble();
+            case TEXT:
+                int length = readLength(buffer);
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                return new Binary(bytes);
+            default:
+                throw new IllegalArgumentException("Unsupported data type " + dataType);
+        }
+    }
+
+    /**
+     * read a length or a number of entries, each of which takes at least one byte, so it cannot be
+     * larger than the remaining bytes unless the payload is broken.
+     */
+    private static int readLength(ByteBuffer buffer) {
+        int length = readUnsignedVarInt(buffer);
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException(String.format(
+                "Length %d exceeds the remaining %d bytes", length, buffer.remaining()));
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readLength(buffer);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * unlike ReadWriteForEncodingUtils.readUnsignedVarInt(), this fails if the payload ends in the
+     * middle of the value or the value does not fit in an int.
+     */
+    private static int readUnsignedVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IllegalArgumentException("Too long varint");
+            }
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative varint " + value);
+        }
+        return value;
+    }
+
+    /**
+     * this fails if the payload ends in the middle of the value or the value does not fit in a
+     * long.
+     */
+    private static long readZigzagVarLong(ByteBuffer buffer) {
+        long raw = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 63) {
+                throw new IllegalArgumentException("Too long varlong");
+            }
+            b = buffer.get();
+            raw |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.iotdb.db.mqtt;
 
 import java.util.List;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 
 /**
  * Message describes the information sometime sent from the devices.
@@ -28,6 +29,12 @@ public class Message {
     private Long timestamp;
     private List<String> measurements;
     private List<String> values;
+    /**
+     * the types and the typed values (Binary for TEXT), which are given instead of the values in
+     * strings by a formatter that knows the types, so the types do not need to be inferred.
+     */
+    private List<TSDataType> dataTypes;
+    private List<Object> typedValues;
 
     public String getDevice() {
         return device;
@@ -61,13 +68,36 @@ public class Message {
         this.values = values;
     }
 
+    public List<TSDataType> getDataTypes() {
+        return dataTypes;
+    }
+
+    public void setDataTypes(List<TSDataType> dataTypes) {
+        this.dataTypes = dataTypes;
+    }
+
+    public List<Object> getTypedValues() {
+        return typedValues;
+    }
+
+    public void setTypedValues(List<Object> typedValues) {
+        this.typedValues = typedValues;
+    }
+
+    /**
+     * @return whether the values are given by getTypedValues() in getDataTypes()
+     */
+    public boolean isTyped() {
+        return dataTypes != null;
+    }
+
     @Override
     public String toString() {
         return "Message{" +
                 "device='" + device + '\'' +
                 ", timestamp=" + timestamp +
                 ", measurements=" + measurements +
-                ", values=" + values +
+                ", values=" + (isTyped() ? typedValues : values) +
                 '}';
     }
 }
@@ -31,6 +31,16 @@ public interface PayloadFormatter {
      */
     List<Message> format(ByteBuf payload);
 
+    /**
+     * format a payload published by a client, for a formatter keeping the state of each client.
+     * @param clientId the id of the client publishing the payload
+     * @param payload
+     * @return
+     */
+    default List<Message> format(String clientId, ByteBuf payload) {
+        return format(payload);
+    }
+
     /**
      * get the formatter name
      * @return
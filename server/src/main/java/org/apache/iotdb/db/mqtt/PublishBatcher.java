@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.concurrent.IoTThreadFactory;
+import org.apache.iotdb.db.concurrent.ThreadName;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.CommonUtils;
+import org.apache.iotdb.db.utils.TypeInferenceUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * PublishBatcher buffers the messages of each device for at most mqtt_batch_interval_ms or
+ * mqtt_batch_size rows, and inserts the rows of a device with the same measurements as an
+ * InsertTabletPlan on its own threads, so the type inference and the schema lookup are done once
+ * for a batch instead of once for a message. The batches of a device are always inserted by the
+ * same single-threaded lane, and the rows of a batch in the order they arrived, so a later write
+ * of a timestamp still overwrites an earlier one.
+ *
+ * A lane queues at most mqtt_insert_queue_size batches. When its queue is full, the thread adding
+ * a message (the broker thread, or the timer of an expired batch) waits until the lane takes a
+ * batch, so the publishers are throttled when the insertion falls behind instead of the batches
+ * piling up on the heap.
+ */
+public class PublishBatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(PublishBatcher.class);
+
+    private final PublishHandler handler;
+    private final int batchSize;
+    private final long batchIntervalMs;
+    private final Map<String, List<Message>> batches = new ConcurrentHashMap<>();
+    /**
+     * device -> measurement -> data type, the types known of the series written by mqtt.
+     */
+    private final Map<String, Map<String, TSDataType>> schemaCache = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    /**
+     * single-threaded executors with bounded queues, a device is always inserted by the lane its
+     * hash selects.
+     */
+    private final ThreadPoolExecutor[] insertLanes;
+
+    private final AtomicLong committedRowNum = new AtomicLong();
+    private final AtomicLong failedRowNum = new AtomicLong();
+    /**
+     * the rows whose batches waited for a full lane.
+     */
+    private final AtomicLong throttledRowNum = new AtomicLong();
+
+    PublishBatcher(PublishHandler handler, int batchSize, long batchIntervalMs,
+        int insertThreadNum, int insertQueueSize) {
+        this.handler = handler;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchIntervalMs = batchIntervalMs;
+        this.timer = IoTDBThreadPoolFactory
+            .newSingleThreadScheduledExecutor(ThreadName.MQTT_BATCH_TIMER.getName());
+        this.insertLanes = new ThreadPoolExecutor[Math.max(1, insertThreadNum)];
+        for (int i = 0; i < insertLanes.length; i++) {
+            insertLanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, insertQueueSize)),
+                new IoTThreadFactory(ThreadName.MQTT_INSERT.getName() + "-" + i));
+        }
+    }
+
+    /**
+     * buffer a message, the batch of its device is submitted once it is full or expires.
+     */
+    public void add(Message message) {
+        batches.compute(message.getDevice(), (device, batch) -> {
+            if (batch == null) {
+                batch = new ArrayList<>();
+                List<Message> newBatch = batch;
+                timer.schedule(() -> expire(device, newBatch), batchIntervalMs,
+                    TimeUnit.MILLISECONDS);
+            }
+            batch.add(message);
+            if (batch.size() >= batchSize) {
+                submit(device, batch);
+                return null;
+            }
+            return batch;
+        });
+    }
+
+    private void expire(String device, List<Message> batch) {
+        // the batch may have been submitted as it is full, and a new one has been started. The
+        // lists are compared by identity, as a new batch may have the same messages. The batch is
+        // submitted while the device is locked, so a newer batch cannot be submitted before it
+        batches.computeIfPresent(device, (k, v) -> {
+            if (v != batch) {
+                return v;
+            }
+            submit(device, batch);
+            return null;
+        });
+    }
+
+    /**
+     * hand a batch over to the lane of its device, waiting if the queue of the lane is full. It
+     * does not run the batch on the calling thread, as that could insert it before the earlier
+     * batches of the device in the queue.
+     */
+    private void submit(String device, List<Message> batch) {
+        ThreadPoolExecutor lane =
+            insertLanes[Math.floorMod(device.hashCode(), insertLanes.length)];
+        Runnable task = () -> insert(device, batch);
+        try {
+            lane.execute(task);
+            return;
+        } catch (RejectedExecutionException e) {
+            if (lane.isShutdown()) {
+                rejectStopped(device, batch);
+                return;
+            }
+        }
+
+        // the queue is full, the lane has started its thread, which keeps taking the batches
+        throttledRowNum.addAndGet(batch.size());
+        LOG.debug("The insert lane of device {} is full, wait to queue {} rows", device,
+            batch.size());
+        try {
+            lane.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted when waiting to insert {} rows of device {}", batch.size(),
+                device);
+            failedRowNum.addAndGet(batch.size());
+            return;
+        }
+        // a batch queued after the lane is stopped may never be taken
+        if (lane.isShutdown() && lane.getQueue().remove(task)) {
+            rejectStopped(device, batch);
+        }
+    }
+
+    private void rejectStopped(String device, List<Message> batch) {
+        LOG.warn("Cannot insert {} rows of device {} as the mqtt service is stopped",
+            batch.size(), device);
+        failedRowNum.addAndGet(batch.size());
+    }
+
+    /**
+     * insert the rows of a device in the order they arrived. Consecutive rows with the same
+     * measurements and different timestamps are inserted as a tablet, so the rows of a tablet
+     * never overwrite each other and no row is inserted before an earlier one of the same point.
+     */
+    private void insert(String device, List<Message> batch) {
+        try {
+            insertRuns(device, batch);
+        } catch (RuntimeException e) {
+            // executed tasks are not wrapped in futures, so the lane thread must not die
+            LOG.error("Cannot insert {} rows of device {}", batch.size(), device, e);
+            failedRowNum.addAndGet(batch.size());
+        }
+    }
+
+    private void insertRuns(String device, List<Message> batch) {
+        List<Message> run = new ArrayList<>();
+        Set<Long> runTimes = new HashSet<>();
+        for (Message message : batch) {
+            if (!run.isEmpty() && (!message.getMeasurements().equals(run.get(0).getMeasurements())
+                || runTimes.contains(message.getTimestamp()))) {
+                insertRun(device, run);
+                run = new ArrayList<>();
+                runTimes.clear();
+            }
+            run.add(message);
+            runTimes.add(message.getTimestamp());
+        }
+        if (!run.isEmpty()) {
+            insertRun(device, run);
+        }
+    }
+
+    private void insertRun(String device, List<Message> rows) {
+        // the rows whose values do not fit the types of the tablet are inserted one by one. They
+        // have other timestamps than the rows of the tablet, so they may be inserted after it
+        List<Message> rejectedRows = new ArrayList<>();
+        try {
+            InsertTabletPlan plan = toTabletPlan(device, rows.get(0).getMeasurements(), rows,
+                rejectedRows);
+            if (plan.getRowCount() == 0 || handler.executeNonQuery(plan)) {
+                committedRowNum.addAndGet(plan.getRowCount());
+            } else {
+                rejectedRows = rows;
+            }
+        } catch (Exception e) {
+            // the cached types may be stale
+            LOG.debug("Cannot insert {} rows of device {} as a tablet, insert them one by one",
+                rows.size(), device, e);
+            schemaCache.remove(device);
+            rejectedRows = rows;
+        }
+        for (Message row : rejectedRows) {
+            if (handler.insertRow(row)) {
+                committedRowNum.incrementAndGet();
+            } else {
+                failedRowNum.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @param rejectedRows the rows with a value that cannot be converted into the type of its
+     * series are added into it instead of the tablet
+     * @return the tablet of the rows
+     */
+    private InsertTabletPlan toTabletPlan(String device, List<String> measurements,
+        List<Message> rows, List<Message> rejectedRows) throws MetadataException {
+        // the timestamps are distinct, so sorting does not change which row wins
+        rows = new ArrayList<>(rows);
+        rows.sort(Comparator.comparingLong(Message::getTimestamp));
+        PartialPath devicePath = new PartialPath(device);
+        TSDataType[] dataTypes = getDataTypes(devicePath, measurements, rows.get(0));
+
+        long[] times = new long[rows.size()];
+        Object[] columns = new Object[measurements.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = createColumn(dataTypes[i], rows.size());
+        }
+        Object[] rowValues = new Object[columns.length];
+        int rowCount = 0;
+        for (Message row : rows) {
+            if (!parseValues(row, dataTypes, rowValues)) {
+                rejectedRows.add(row);
+                continue;
+            }
+            times[rowCount] = row.getTimestamp();
+            for (int i = 0; i < columns.length; i++) {
+                setValue(columns[i], dataTypes[i], rowCount, rowValues[i]);
+            }
+            rowCount++;
+        }
+
+        InsertTabletPlan plan = new InsertTabletPlan(devicePath,
+            measurements.toArray(new String[0]));
+        plan.setDataTypes(dataTypes);
+        plan.setTimes(rowCount == rows.size() ? times : Arrays.copyOf(times, rowCount));
+        plan.setColumns(columns);
+        plan.setRowCount(rowCount);
+        return plan;
+    }
+
+    private static boolean parseValues(Message row, TSDataType[] dataTypes, Object[] values) {
+        if (row.isTyped()) {
+            if (!row.getDataTypes().equals(Arrays.asList(dataTypes))) {
+                return false;
+            }
+            row.getTypedValues().toArray(values);
+            return true;
+        }
+        if (row.getValues() == null || row.getValues().size() != dataTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < dataTypes.length; i++) {
+            String value = row.getValues().get(i);
+            if (value == null) {
+                return false;
+            }
+            try {
+                values[i] = CommonUtils.parseValue(dataTypes[i], value);
+            } catch (QueryProcessException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * the types of the existing series are used, and the types of the new series are inferred from
+     * the first row, as an InsertRowPlan does.
+     */
+    private TSDataType[] getDataTypes(PartialPath device, List<String> measurements,
+        Message firstRow) {
+        Map<String, TSDataType> deviceSchema = schemaCache
+            .computeIfAbsent(device.getFullPath(), d -> new ConcurrentHashMap<>());
+        TSDataType[] dataTypes = new TSDataType[measurements.size()];
+        for (int i = 0; i < dataTypes.length; i++) {
+            String measurement = measurements.get(i);
+            TSDataType dataType = deviceSchema.get(measurement);
+            if (dataType == null) {
+                try {
+                    dataType = IoTDB.metaManager.getSeriesType(device.concatNode(measurement));
+                    deviceSchema.put(measurement, dataType);
+                } catch (MetadataException e) {
+                    // the series will be created by the insertion, whose type is not cached in
+                    // case the insertion fails
+                    dataType = firstRow.isTyped() ? firstRow.getDataTypes().get(i)
+                        : TypeInferenceUtils.getPredictedDataType(firstRow.getValues().get(i), true);
+                }
+            }
+            dataTypes[i] = dataType;
+        }
+        return dataTypes;
+    }
+
+    private static Object createColumn(TSDataType dataType, int size) {
+        switch (dataType) {
+            case BOOLEAN:
+                return new boolean[size];
+            case INT32:
+                return new int[size];
+            case INT64:
+                return new long[size];
+            case FLOAT:
+                return new float[size];
+            case DOUBLE:
+                return new double[size];
+            case TEXT:
+                return new Binary[size];
+            default:
+                throw new IllegalArgumentException("Unsupported data type: " + dataType);
+        }
+    }
+
+    private static void setValue(Object column, TSDataType dataType, int index, Object value) {
+        switch (dataType) {
+            case BOOLEAN:
+                ((boolean[]) column)[index] = (boolean) value;
+                break;
+            case INT32:
+                ((int[]) column)[index] = (int) value;
+                break;
+            case INT64:
+                ((long[]) column)[index] = (long) value;
+                break;
+            case FLOAT:
+                ((float[]) column)[index] = (float) value;
+                break;
+            case DOUBLE:
+                ((double[]) column)[index] = (double) value;
+                break;
+            case TEXT:
+                ((Binary[]) column)[index] = (Binary) value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported data type: " + dataType);
+        }
+    }
+
+    /**
+     * insert the buffered messages and stop the threads.
+     */
+    public void close() {
+        for (String device : new ArrayList<>(batches.keySet())) {
+            batches.computeIfPresent(device, (k, batch) -> {
+                submit(device, batch);
+                return null;
+            });
+        }
+        timer.shutdownNow();
+        for (ThreadPoolExecutor lane : insertLanes) {
+            lane.shutdown();
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        try {
+            for (ThreadPoolExecutor lane : insertLanes) {
+                if (!lane.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS)) {
+                    LOG.warn("The buffered mqtt messages are not all inserted in 1 minute");
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ThreadPoolExecutor lane : insertLanes) {
+            lane.shutdownNow();
+        }
+    }
+
+    public long getCommittedRowNum() {
+        return committedRowNum.get();
+    }
+
+    public long getFailedRowNum() {
+        return failedRowNum.get();
+    }
+
+    public long getThrottledRowNum() {
+        return throttledRowNum.get();
+    }
+}
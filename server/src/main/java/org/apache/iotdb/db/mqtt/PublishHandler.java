@@ -25,7 +25,6 @@ import java.util.List;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.StorageEngineException;
-import org.apache.iotdb.db.exception.metadata.IllegalPathException;
 import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
@@ -38,13 +37,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * PublishHandler handle the messages from MQTT clients.
+ * PublishHandler handle the messages from MQTT clients. The messages are inserted one by one, or
+ * buffered by a PublishBatcher and inserted as tablets if mqtt_batch_interval_ms is positive.
+ *
+ * Note that the broker acknowledges a message of QoS 1 or 2 before the handler is notified, so an
+ * acknowledged message is lost if its insertion fails or the server stops before it is inserted.
  */
 public class PublishHandler extends AbstractInterceptHandler {
     private static final Logger LOG = LoggerFactory.getLogger(PublishHandler.class);
 
     private IPlanExecutor executor;
     private PayloadFormatter payloadFormat;
+    private PublishBatcher batcher;
 
     public PublishHandler(IoTDBConfig config) {
         this.payloadFormat = PayloadFormatManager.getPayloadFormat(config.getMqttPayloadFormatter());
@@ -53,6 +57,11 @@ public class PublishHandler extends AbstractInterceptHandler {
         } catch (QueryProcessException e) {
             throw new RuntimeException(e);
         }
+        if (config.getMqttBatchIntervalMs() > 0) {
+            this.batcher = new PublishBatcher(this, config.getMqttBatchSize(),
+                config.getMqttBatchIntervalMs(), config.getMqttInsertThreadNum(),
+                config.getMqttInsertQueueSize());
+        }
     }
 
     protected PublishHandler(IPlanExecutor executor, PayloadFormatter payloadFormat) {
@@ -60,6 +69,13 @@ public class PublishHandler extends AbstractInterceptHandler {
         this.payloadFormat = payloadFormat;
     }
 
+    protected PublishHandler(IPlanExecutor executor, PayloadFormatter payloadFormat,
+        int batchSize, long batchIntervalMs, int insertThreadNum, int insertQueueSize) {
+        this(executor, payloadFormat);
+        this.batcher = new PublishBatcher(this, batchSize, batchIntervalMs, insertThreadNum,
+            insertQueueSize);
+    }
+
     @Override
     public String getID() {
         return "iotdb-mqtt-broker-listener";
@@ -76,39 +92,58 @@ public class PublishHandler extends AbstractInterceptHandler {
         LOG.debug("Receive publish message. clientId: {}, username: {}, qos: {}, topic: {}, payload: {}",
                 clientId, username, qos, topic, payload);
 
-        List<Message> events = payloadFormat.format(payload);
+        // the payload is released after this method returns, so it is formatted now
+        List<Message> events = payloadFormat.format(clientId, payload);
         if (events == null) {
             return;
         }
 
-        // since device ids from messages maybe different, so we use the InsertPlan not InsertTabletPlan.
         for (Message event : events) {
             if (event == null) {
                 continue;
             }
+            if (batcher != null) {
+                batcher.add(event);
+            } else {
+                insertRow(event);
+            }
+        }
+    }
 
-            InsertRowPlan plan = new InsertRowPlan();
-            plan.setTime(event.getTimestamp());
-            plan.setMeasurements(event.getMeasurements().toArray(new String[event.getMeasurements().size()]));
+    /**
+     * insert a message as an InsertRowPlan, whose types are inferred from the values if they are
+     * not given.
+     *
+     * @return whether the message is inserted
+     */
+    boolean insertRow(Message event) {
+        InsertRowPlan plan = new InsertRowPlan();
+        plan.setTime(event.getTimestamp());
+        plan.setMeasurements(event.getMeasurements().toArray(new String[event.getMeasurements().size()]));
+        if (event.isTyped()) {
+            plan.setValues(event.getTypedValues().toArray(new Object[0]));
+            plan.setDataTypes(event.getDataTypes().toArray(new TSDataType[0]));
+        } else {
             plan.setValues(event.getValues().toArray(new Object[event.getValues().size()]));
             plan.setDataTypes(new TSDataType[event.getValues().size()]);
             plan.setNeedInferType(true);
+        }
 
-            boolean status = false;
-            try {
-                plan.setDeviceId(new PartialPath(event.getDevice()));
-                status = executeNonQuery(plan);
-            } catch (Exception e) {
-                LOG.warn(
-                    "meet error when inserting device {}, measurements {}, at time {}, because ",
-                    event.getDevice(), event.getMeasurements(), event.getTimestamp(), e);
-            }
-
-            LOG.debug("event process result: {}", status);
+        boolean status = false;
+        try {
+            plan.setDeviceId(new PartialPath(event.getDevice()));
+            status = executeNonQuery(plan);
+        } catch (Exception e) {
+            LOG.warn(
+                "meet error when inserting device {}, measurements {}, at time {}, because ",
+                event.getDevice(), event.getMeasurements(), event.getTimestamp(), e);
         }
+
+        LOG.debug("event process result: {}", status);
+        return status;
     }
 
-    private boolean executeNonQuery(PhysicalPlan plan)
+    boolean executeNonQuery(PhysicalPlan plan)
         throws QueryProcessException, StorageGroupNotSetException, StorageEngineException {
         if (IoTDBDescriptor.getInstance().getConfig().isReadOnly()) {
             throw new QueryProcessException(
@@ -116,4 +151,17 @@ public class PublishHandler extends AbstractInterceptHandler {
         }
         return executor.processNonQuery(plan);
     }
+
+    /**
+     * insert the buffered messages, after the broker stops receiving messages.
+     */
+    public void close() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    PublishBatcher getBatcher() {
+        return batcher;
+    }
 }
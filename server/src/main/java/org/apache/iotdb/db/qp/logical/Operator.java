@@ -77,6 +77,6 @@ public abstract class Operator {
     TTL, DELETE_STORAGE_GROUP, LOAD_CONFIGURATION, SHOW, LOAD_FILES, REMOVE_FILE, MOVE_FILE, LAST, GROUP_BY_FILL,
     ALTER_TIMESERIES, FLUSH, MERGE, FULL_MERGE, CLEAR_CACHE,
     SHOW_MERGE_STATUS, CREATE_SCHEMA_SNAPSHOT, TRACING, DELETE_PARTITION,
-    CREATE_MULTI_TIMESERIES
+    CREATE_MULTI_TIMESERIES, CHANGE_TAG_OFFSET, CHANGE_ALIAS
   }
 }
@@ -19,14 +19,15 @@
  */
 package org.apache.iotdb.db.qp.logical.sys;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.metadata.TagCondition;
 
 public class ShowTimeSeriesOperator extends ShowOperator {
 
   private PartialPath path;
-  private boolean isContains;
-  private String key;
-  private String value;
+  private List<TagCondition> tagConditions = new ArrayList<>();
   private int limit = 0;
   private int offset = 0;
   // if is true, the result will be sorted according to the inserting frequency of the timeseries
@@ -42,28 +43,12 @@ public class ShowTimeSeriesOperator extends ShowOperator {
     return path;
   }
 
-  public boolean isContains() {
-    return isContains;
+  public List<TagCondition> getTagConditions() {
+    return tagConditions;
   }
 
-  public void setContains(boolean contains) {
-    isContains = contains;
-  }
-
-  public String getKey() {
-    return key;
-  }
-
-  public void setKey(String key) {
-    this.key = key;
-  }
-
-  public String getValue() {
-    return value;
-  }
-
-  public void setValue(String value) {
-    this.value = value;
+  public void addTagCondition(TagCondition tagCondition) {
+    tagConditions.add(tagCondition);
   }
 
   public int getLimit() {
@@ -48,10 +48,12 @@ public class InsertTabletPlan extends InsertPlan {
   private static final String DATATYPE_UNSUPPORTED = "Data type %s is not supported.";
 
   private long[] times; // times should be sorted. It is done in the session API.
+  // the serialized times, which are written into the WAL without being serialized again
   private ByteBuffer timeBuffer;
 
+  // each column is a primitive array, or a ByteBuffer holding the serialized values if it is
+  // sliced from a request, see QueryDataSetUtils.sliceValuesFromBuffer()
   private Object[] columns;
-  private ByteBuffer valueBuffer;
   private int rowCount = 0;
   // indicate whether this plan has been set 'start' or 'end' in order to support plan transmission without data loss in cluster version
   boolean isExecuting = false;
@@ -187,19 +189,13 @@ public class InsertTabletPlan extends InsertPlan {
         }
       }
     } else {
-      stream.write(timeBuffer.array());
-      timeBuffer = null;
+      writeSerialized(stream, timeBuffer, (isExecuting ? start : 0) * Long.BYTES,
+          (isExecuting ? end : rowCount) * Long.BYTES);
     }
   }
 
   private void writeValues(DataOutputStream stream) throws IOException {
-    if (valueBuffer == null) {
-      serializeValues(stream);
-    } else {
-      stream.write(valueBuffer.array());
-      valueBuffer = null;
-    }
-
+    serializeValues(stream);
     stream.writeLong(index);
   }
 
@@ -251,20 +247,37 @@ public class InsertTabletPlan extends InsertPlan {
         }
       }
     } else {
-      buffer.put(timeBuffer.array());
-      timeBuffer = null;
+      putSerialized(buffer, timeBuffer, (isExecuting ? start : 0) * Long.BYTES,
+          (isExecuting ? end : rowCount) * Long.BYTES);
     }
   }
 
   private void writeValues(ByteBuffer buffer) {
-    if (valueBuffer == null) {
-      serializeValues(buffer);
+    serializeValues(buffer);
+    buffer.putLong(index);
+  }
+
+  /**
+   * write the bytes [from, to) of a serialized column as they are.
+   */
+  private static void putSerialized(ByteBuffer buffer, ByteBuffer serialized, int from, int to) {
+    ByteBuffer range = serialized.duplicate();
+    range.limit(to);
+    range.position(from);
+    buffer.put(range);
+  }
+
+  private static void writeSerialized(DataOutputStream stream, ByteBuffer serialized, int from,
+      int to) throws IOException {
+    if (serialized.hasArray()) {
+      stream.write(serialized.array(), serialized.arrayOffset() + from, to - from);
     } else {
-      buffer.put(valueBuffer.array());
-      valueBuffer = null;
+      byte[] bytes = new byte[to - from];
+      ByteBuffer range = serialized.duplicate();
+      range.position(from);
+      range.get(bytes);
+      stream.write(bytes);
     }
-
-    buffer.putLong(index);
   }
 
   private void serializeValues(DataOutputStream outputStream) throws IOException {
@@ -289,6 +302,11 @@ public class InsertTabletPlan extends InsertPlan {
       int start, int end) {
     int curStart = isExecuting ? start : 0;
     int curEnd = isExecuting ? end : rowCount;
+    if (column instanceof ByteBuffer) {
+      int valueSize = dataType.getDataTypeSize();
+      putSerialized(buffer, (ByteBuffer) column, curStart * valueSize, curEnd * valueSize);
+      return;
+    }
     switch (dataType) {
       case INT32:
         int[] intValues = (int[]) column;
@@ -337,6 +355,12 @@ public class InsertTabletPlan extends InsertPlan {
       int start, int end) throws IOException {
     int curStart = isExecuting ? start : 0;
     int curEnd = isExecuting ? end : rowCount;
+    if (column instanceof ByteBuffer) {
+      int valueSize = dataType.getDataTypeSize();
+      writeSerialized(outputStream, (ByteBuffer) column, curStart * valueSize,
+          curEnd * valueSize);
+      return;
+    }
     switch (dataType) {
       case INT32:
         int[] intValues = (int[]) column;
@@ -381,14 +405,12 @@ public class InsertTabletPlan extends InsertPlan {
     }
   }
 
+  /**
+   * @param timeBuffer the serialized times from its current position, which must be the same as
+   * the times of this plan
+   */
   public void setTimeBuffer(ByteBuffer timeBuffer) {
-    this.timeBuffer = timeBuffer;
-    this.timeBuffer.position(0);
-  }
-
-  public void setValueBuffer(ByteBuffer valueBuffer) {
-    this.valueBuffer = valueBuffer;
-    this.timeBuffer.position(0);
+    this.timeBuffer = timeBuffer.slice();
   }
 
   @Override
@@ -422,6 +444,10 @@ public class InsertTabletPlan extends InsertPlan {
     }
   }
 
+  /**
+   * @return the columns, a non-TEXT column may be a ByteBuffer holding its serialized values
+   * instead of a primitive array
+   */
   public Object[] getColumns() {
     return columns;
   }
@@ -465,6 +491,31 @@ public class InsertTabletPlan extends InsertPlan {
       return null;
     }
     TsPrimitiveType value;
+    if (columns[measurementIndex] instanceof ByteBuffer) {
+      ByteBuffer column = (ByteBuffer) columns[measurementIndex];
+      int position = (rowCount - 1) * dataTypes[measurementIndex].getDataTypeSize();
+      switch (dataTypes[measurementIndex]) {
+        case INT32:
+          value = new TsInt(column.getInt(position));
+          break;
+        case INT64:
+          value = new TsLong(column.getLong(position));
+          break;
+        case FLOAT:
+          value = new TsFloat(column.getFloat(position));
+          break;
+        case DOUBLE:
+          value = new TsDouble(column.getDouble(position));
+          break;
+        case BOOLEAN:
+          value = new TsBoolean(BytesUtils.byteToBool(column.get(position)));
+          break;
+        default:
+          throw new UnSupportedDataTypeException(
+              String.format(DATATYPE_UNSUPPORTED, dataTypes[measurementIndex]));
+      }
+      return new TimeValuePair(times[rowCount - 1], value);
+    }
     switch (dataTypes[measurementIndex]) {
       case INT32:
         int[] intValues = (int[]) columns[measurementIndex];
@@ -559,7 +610,6 @@ public class InsertTabletPlan extends InsertPlan {
     return rowCount == that.rowCount &&
         Arrays.equals(times, that.times) &&
         Objects.equals(timeBuffer, that.timeBuffer) &&
-        Objects.equals(valueBuffer, that.valueBuffer) &&
         Objects.equals(maxTime, that.maxTime) &&
         Objects.equals(minTime, that.minTime) &&
         Objects.equals(paths, that.paths) &&
@@ -569,8 +619,7 @@ public class InsertTabletPlan extends InsertPlan {
   @Override
   public int hashCode() {
     int result = Objects
-        .hash(timeBuffer, valueBuffer, rowCount, maxTime, minTime, paths,
-            range);
+        .hash(timeBuffer, rowCount, maxTime, minTime, paths, range);
     result = 31 * result + Arrays.hashCode(times);
     return result;
   }
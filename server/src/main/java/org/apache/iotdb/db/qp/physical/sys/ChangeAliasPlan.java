@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.qp.physical.sys;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.logical.Operator.OperatorType;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+
+/**
+ * ChangeAliasPlan records in the schema log that the alias of a timeseries is changed.
+ */
+public class ChangeAliasPlan extends PhysicalPlan {
+
+  private PartialPath path;
+  private String alias;
+
+  public ChangeAliasPlan() {
+    super(false, OperatorType.CHANGE_ALIAS);
+  }
+
+  public ChangeAliasPlan(PartialPath path, String alias) {
+    super(false, OperatorType.CHANGE_ALIAS);
+    this.path = path;
+    this.alias = alias;
+  }
+
+  @Override
+  public List<PartialPath> getPaths() {
+    return Collections.singletonList(path);
+  }
+
+  @Override
+  public void serialize(DataOutputStream stream) throws IOException {
+    int type = PhysicalPlanType.CHANGE_ALIAS.ordinal();
+    stream.writeByte((byte) type);
+    putString(stream, path.getFullPath());
+    putString(stream, alias);
+
+    stream.writeLong(index);
+  }
+
+  @Override
+  public void serialize(ByteBuffer buffer) {
+    int type = PhysicalPlanType.CHANGE_ALIAS.ordinal();
+    buffer.put((byte) type);
+    putString(buffer, path.getFullPath());
+    putString(buffer, alias);
+
+    buffer.putLong(index);
+  }
+
+  @Override
+  public void deserialize(ByteBuffer buffer) throws IllegalPathException {
+    path = new PartialPath(readString(buffer));
+    alias = readString(buffer);
+
+    this.index = buffer.getLong();
+  }
+
+  public PartialPath getPath() {
+    return path;
+  }
+
+  public String getAlias() {
+    return alias;
+  }
+
+  @Override
+  public String toString() {
+    return "ChangeAlias{" + path + ", " + alias + '}';
+  }
+}
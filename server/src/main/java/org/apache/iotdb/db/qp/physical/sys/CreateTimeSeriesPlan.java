@@ -44,6 +44,8 @@ public class CreateTimeSeriesPlan extends PhysicalPlan {
   private Map<String, String> props = null;
   private Map<String, String> tags = null;
   private Map<String, String> attributes = null;
+  // the offset of the tags and attributes in the tag file, only used by the schema log
+  private long tagOffset = -1;
 
   public CreateTimeSeriesPlan() {
     super(false, Operator.OperatorType.CREATE_TIMESERIES);
@@ -129,6 +131,14 @@ public class CreateTimeSeriesPlan extends PhysicalPlan {
     this.props = props;
   }
 
+  public long getTagOffset() {
+    return tagOffset;
+  }
+
+  public void setTagOffset(long tagOffset) {
+    this.tagOffset = tagOffset;
+  }
+
   @Override
   public String toString() {
     return String.format("seriesPath: %s, resultDataType: %s, encoding: %s, compression: %s", path,
@@ -182,6 +192,7 @@ public class CreateTimeSeriesPlan extends PhysicalPlan {
       stream.write(0);
     }
 
+    stream.writeLong(tagOffset);
     stream.writeLong(index);
   }
 
@@ -215,6 +226,7 @@ public class CreateTimeSeriesPlan extends PhysicalPlan {
       attributes = ReadWriteIOUtils.readMap(buffer);
     }
 
+    tagOffset = buffer.getLong();
     this.index = buffer.getLong();
   }
 
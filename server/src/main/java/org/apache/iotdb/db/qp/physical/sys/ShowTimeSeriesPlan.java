@@ -21,17 +21,20 @@ package org.apache.iotdb.db.qp.physical.sys;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.metadata.TagCondition;
 
 public class ShowTimeSeriesPlan extends ShowPlan {
 
   // path can be root, root.*  root.*.*.a etc.. if the wildcard is not at the tail, then each
   // * wildcard can only match one level, otherwise it can match to the tail.
   private PartialPath path;
-  private boolean isContains;
-  private String key;
-  private String value;
+  // the conditions on the tags which are all satisfied by the timeseries
+  private List<TagCondition> tagConditions = Collections.emptyList();
   private int limit = 0;
   private int offset = 0;
   // if is true, the result will be sorted according to the inserting frequency of the timeseries
@@ -44,13 +47,11 @@ public class ShowTimeSeriesPlan extends ShowPlan {
     this.path = path;
   }
 
-  public ShowTimeSeriesPlan(PartialPath path, boolean isContains, String key, String value, int limit,
+  public ShowTimeSeriesPlan(PartialPath path, List<TagCondition> tagConditions, int limit,
       int offset, boolean orderByHeat) {
     super(ShowContentType.TIMESERIES);
     this.path = path;
-    this.isContains = isContains;
-    this.key = key;
-    this.value = value;
+    this.tagConditions = tagConditions;
     this.limit = limit;
     this.offset = offset;
     this.orderByHeat = orderByHeat;
@@ -64,16 +65,8 @@ public class ShowTimeSeriesPlan extends ShowPlan {
     return this.path;
   }
 
-  public boolean isContains() {
-    return isContains;
-  }
-
-  public String getKey() {
-    return key;
-  }
-
-  public String getValue() {
-    return value;
+  public List<TagCondition> getTagConditions() {
+    return tagConditions;
   }
 
   public int getLimit() {
@@ -113,9 +106,10 @@ public class ShowTimeSeriesPlan extends ShowPlan {
     outputStream.write(PhysicalPlanType.SHOW_TIMESERIES.ordinal());
 
     putString(outputStream, path.getFullPath());
-    outputStream.writeBoolean(isContains);
-    putString(outputStream, key);
-    putString(outputStream, value);
+    outputStream.writeInt(tagConditions.size());
+    for (TagCondition condition : tagConditions) {
+      condition.serialize(outputStream);
+    }
 
     outputStream.writeInt(limit);
     outputStream.writeInt(offset);
@@ -127,12 +121,14 @@ public class ShowTimeSeriesPlan extends ShowPlan {
   @Override
   public void deserialize(ByteBuffer buffer) throws IllegalPathException {
     path = new PartialPath(readString(buffer));
-    isContains = buffer.get() == 1;
-    key = readString(buffer);
-    value = readString(buffer);
+    int conditionNum = buffer.getInt();
+    tagConditions = new ArrayList<>(conditionNum);
+    for (int i = 0; i < conditionNum; i++) {
+      tagConditions.add(TagCondition.deserialize(buffer));
+    }
 
     limit = buffer.getInt();
-    limit = buffer.getInt();
+    offset = buffer.getInt();
     orderByHeat = buffer.get() == 1;
 
     this.index = buffer.getLong();
@@ -34,6 +34,7 @@ import org.antlr.v4.runtime.tree.TerminalNode;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.runtime.SQLParserException;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.metadata.TagCondition;
 import org.apache.iotdb.db.qp.constant.DatetimeUtils;
 import org.apache.iotdb.db.qp.constant.SQLConstant;
 import org.apache.iotdb.db.qp.logical.RootOperator;
@@ -168,6 +169,8 @@ import org.apache.iotdb.db.qp.strategy.SqlBaseParser.SoffsetClauseContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.StringLiteralContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.SuffixPathContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TagClauseContext;
+import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TagComparisonContext;
+import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TagExpressionContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TimeIntervalContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TracingOffContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TracingOnContext;
@@ -1450,23 +1453,49 @@ public class LogicalGenerator extends SqlBaseBaseListener {
     super.enterShowWhereClause(ctx);
 
     ShowTimeSeriesOperator operator = (ShowTimeSeriesOperator) initializedOperator;
-    PropertyValueContext propertyValueContext;
-    if (ctx.containsExpression() != null) {
-      operator.setContains(true);
-      propertyValueContext = ctx.containsExpression().propertyValue();
-      operator.setKey(ctx.containsExpression().ID().getText());
-    } else {
-      operator.setContains(false);
-      propertyValueContext = ctx.property().propertyValue();
-      operator.setKey(ctx.property().ID().getText());
-    }
-    String value;
-    if (propertyValueContext.stringLiteral() != null) {
-      value = removeStringQuote(propertyValueContext.getText());
-    } else {
-      value = propertyValueContext.getText();
+    for (TagExpressionContext tagExpression : ctx.tagExpression()) {
+      TagCondition.Type type;
+      String key;
+      PropertyValueContext propertyValueContext;
+      if (tagExpression.containsExpression() != null) {
+        type = TagCondition.Type.CONTAINS;
+        key = tagExpression.containsExpression().ID().getText();
+        propertyValueContext = tagExpression.containsExpression().propertyValue();
+      } else if (tagExpression.startsWithExpression() != null) {
+        type = TagCondition.Type.STARTS_WITH;
+        key = tagExpression.startsWithExpression().ID().getText();
+        propertyValueContext = tagExpression.startsWithExpression().propertyValue();
+      } else if (tagExpression.tagComparison() != null) {
+        TagComparisonContext comparison = tagExpression.tagComparison();
+        switch (comparison.type.getType()) {
+          case SQLConstant.GREATERTHAN:
+            type = TagCondition.Type.GREATER_THAN;
+            break;
+          case SQLConstant.GREATERTHANOREQUALTO:
+            type = TagCondition.Type.GREATER_THAN_OR_EQUAL;
+            break;
+          case SQLConstant.LESSTHAN:
+            type = TagCondition.Type.LESS_THAN;
+            break;
+          default:
+            type = TagCondition.Type.LESS_THAN_OR_EQUAL;
+            break;
+        }
+        key = comparison.ID().getText();
+        propertyValueContext = comparison.propertyValue();
+      } else {
+        type = TagCondition.Type.EQUAL;
+        key = tagExpression.property().ID().getText();
+        propertyValueContext = tagExpression.property().propertyValue();
+      }
+      String value;
+      if (propertyValueContext.stringLiteral() != null) {
+        value = removeStringQuote(propertyValueContext.getText());
+      } else {
+        value = propertyValueContext.getText();
+      }
+      operator.addTagCondition(new TagCondition(type, key, value));
     }
-    operator.setValue(value);
   }
 
   private FilterOperator parseOrExpression(OrExpressionContext ctx) {
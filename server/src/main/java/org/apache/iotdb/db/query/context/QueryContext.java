@@ -20,12 +20,12 @@
 package org.apache.iotdb.db.query.context;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.iotdb.db.engine.modification.Modification;
 import org.apache.iotdb.db.engine.modification.ModificationFile;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 
@@ -44,12 +44,24 @@ public class QueryContext {
    * use this field because each call of Modification.getModifications() return a copy of the
    * Modifications, and we do not want it to create multiple copies within a query.
    */
-  private Map<String, List<Modification>> fileModCache = new HashMap<>();
+  private Map<String, List<Modification>> fileModCache = new ConcurrentHashMap<>();
 
   private long queryId;
 
   private long queryTimeLowerBound = Long.MIN_VALUE;
 
+  private final long startTime = System.currentTimeMillis();
+
+  /**
+   * the query is cancelled when it runs longer than this in milliseconds, never when it is <= 0.
+   */
+  private long timeout = 0;
+
+  /**
+   * set when the query is ended before it finishes, e.g., its session is closed.
+   */
+  private volatile boolean interrupted = false;
+
   public QueryContext() {
   }
 
@@ -65,11 +77,8 @@ public class QueryContext {
     Map<String, List<Modification>> fileModifications =
         filePathModCache.computeIfAbsent(modFile.getFilePath(), k -> new ConcurrentHashMap<>());
     return fileModifications.computeIfAbsent(path.getFullPath(), k -> {
-      List<Modification> allModifications = fileModCache.get(modFile.getFilePath());
-      if (allModifications == null) {
-        allModifications = (List<Modification>) modFile.getModifications();
-        fileModCache.put(modFile.getFilePath(), allModifications);
-      }
+      List<Modification> allModifications = fileModCache.computeIfAbsent(modFile.getFilePath(),
+          f -> (List<Modification>) modFile.getModifications());
       List<Modification> finalPathModifications = new ArrayList<>();
       if (!allModifications.isEmpty()) {
         allModifications.forEach(modification -> {
@@ -94,6 +103,33 @@ public class QueryContext {
     this.queryTimeLowerBound = queryTimeLowerBound;
   }
 
+  public long getTimeout() {
+    return timeout;
+  }
+
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  public void interrupt() {
+    interrupted = true;
+  }
+
+  /**
+   * long running query tasks should call this regularly to stop early once the query is ended.
+   *
+   * @throws QueryProcessException if the query is interrupted or times out
+   */
+  public void checkInterrupted() throws QueryProcessException {
+    if (interrupted) {
+      throw new QueryProcessException(String.format("Query %d is interrupted", queryId));
+    }
+    if (timeout > 0 && System.currentTimeMillis() - startTime > timeout) {
+      throw new QueryProcessException(
+          String.format("Query %d is cancelled as it runs longer than %d ms", queryId, timeout));
+    }
+  }
+
   public boolean chunkNotSatisfy(ChunkMetadata chunkMetaData) {
     return chunkMetaData.getEndTime() < queryTimeLowerBound;
   }
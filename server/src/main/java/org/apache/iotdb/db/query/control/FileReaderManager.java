@@ -243,6 +243,13 @@ public class FileReaderManager implements IService {
     }
   }
 
+  /**
+   * @return the number of opened file readers, i.e., opened file handles
+   */
+  public int getOpenedReaderNum() {
+    return closedFileReaderMap.size() + unclosedFileReaderMap.size();
+  }
+
   /**
    * This method is only for unit tests.
    */
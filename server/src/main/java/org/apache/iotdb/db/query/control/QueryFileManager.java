@@ -18,7 +18,6 @@
  */
 package org.apache.iotdb.db.query.control;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -50,8 +49,8 @@ public class QueryFileManager {
    * this method must be invoked.
    */
   void addQueryId(long queryId) {
-    sealedFilePathsMap.computeIfAbsent(queryId, x -> new HashSet<>());
-    unsealedFilePathsMap.computeIfAbsent(queryId, x -> new HashSet<>());
+    sealedFilePathsMap.computeIfAbsent(queryId, x -> ConcurrentHashMap.newKeySet());
+    unsealedFilePathsMap.computeIfAbsent(queryId, x -> ConcurrentHashMap.newKeySet());
   }
 
 
@@ -115,9 +114,8 @@ public class QueryFileManager {
    */
   void addFilePathToMap(long queryId, TsFileResource tsFile, boolean isClosed) {
     Map<Long, Set<TsFileResource>> pathMap = isClosed ? sealedFilePathsMap : unsealedFilePathsMap;
-    //TODO this is not an atomic operation, is there concurrent problem?
-    if (!pathMap.get(queryId).contains(tsFile)) {
-      pathMap.get(queryId).add(tsFile);
+    // the series of a query may be read by several threads, so the check and add must be atomic
+    if (pathMap.get(queryId).add(tsFile)) {
       FileReaderManager.getInstance().increaseFileReaderReference(tsFile, isClosed);
     }
   }
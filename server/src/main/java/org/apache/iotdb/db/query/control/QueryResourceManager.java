@@ -22,7 +22,6 @@ package org.apache.iotdb.db.query.control;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -76,6 +75,11 @@ public class QueryResourceManager {
 
   private final Map<Long, Long> queryIdEstimatedMemoryMap;
 
+  /**
+   * the contexts of the queries which are not ended yet, key: query job id.
+   */
+  private final Map<Long, QueryContext> runningQueryContexts = new ConcurrentHashMap<>();
+
   // current total free memory for reading process(not including the cache memory)
   private final AtomicLong totalFreeMemoryForRead;
 
@@ -141,6 +145,21 @@ public class QueryResourceManager {
     externalSortFileMap.computeIfAbsent(queryId, x -> new ArrayList<>()).add(deserializer);
   }
 
+  /**
+   * register the context of a running query, so the query can be interrupted when it is ended
+   * before it finishes.
+   */
+  public void registerQueryContext(QueryContext context) {
+    runningQueryContexts.put(context.getQueryId(), context);
+  }
+
+  /**
+   * @return the number of queries which are registered but not ended
+   */
+  public int getRunningQueryNum() {
+    return runningQueryContexts.size();
+  }
+
   public QueryDataSource getQueryDataSource(PartialPath selectedPath,
       QueryContext context, Filter filter) throws StorageEngineException, QueryProcessException {
 
@@ -151,9 +170,10 @@ public class QueryResourceManager {
         .query(singleSeriesExpression, context, filePathsManager);
     // calculate the distinct number of seq and unseq tsfiles
     if (config.isEnablePerformanceTracing()) {
-      seqFileNumMap.computeIfAbsent(context.getQueryId(), k -> new HashSet<>())
+      // the data sources of a query may be fetched concurrently by the parallel aggregation
+      seqFileNumMap.computeIfAbsent(context.getQueryId(), k -> ConcurrentHashMap.newKeySet())
           .addAll((queryDataSource.getSeqResources()));
-      unseqFileNumMap.computeIfAbsent(context.getQueryId(), k -> new HashSet<>())
+      unseqFileNumMap.computeIfAbsent(context.getQueryId(), k -> ConcurrentHashMap.newKeySet())
           .addAll((queryDataSource.getUnseqResources()));
     }
     return queryDataSource;
@@ -165,6 +185,12 @@ public class QueryResourceManager {
    */
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   public void endQuery(long queryId) throws StorageEngineException {
+    // stop the tasks of the query which are still running
+    QueryContext context = runningQueryContexts.remove(queryId);
+    if (context != null) {
+      context.interrupt();
+    }
+
     try {
       if (config.isEnablePerformanceTracing()) {
         boolean isprinted = false;
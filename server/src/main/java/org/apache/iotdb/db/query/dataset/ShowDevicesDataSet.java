@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.dataset;
+
+import static org.apache.iotdb.db.conf.IoTDBConstant.COLUMN_DEVICES;
+
+import java.util.Collections;
+import java.util.Iterator;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+/**
+ * The result of "show devices", which pulls the devices from a lazy traversal of the MTree as the
+ * records are fetched.
+ */
+public class ShowDevicesDataSet extends QueryDataSet {
+
+  private final Iterator<PartialPath> devices;
+
+  public ShowDevicesDataSet(Iterator<PartialPath> devices) {
+    super(Collections.singletonList(new PartialPath(COLUMN_DEVICES, false)),
+        Collections.singletonList(TSDataType.TEXT));
+    this.devices = devices;
+  }
+
+  @Override
+  protected boolean hasNextWithoutConstraint() {
+    return devices.hasNext();
+  }
+
+  @Override
+  protected RowRecord nextWithoutConstraint() {
+    RowRecord record = new RowRecord(0);
+    Field field = new Field(TSDataType.TEXT);
+    field.setBinaryV(new Binary(devices.next().getFullPath()));
+    record.addField(field);
+    return record;
+  }
+}
@@ -31,13 +31,14 @@ import static org.apache.iotdb.db.conf.IoTDBConstant.COLUMN_TIMESERIES_ENCODING;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import org.apache.iotdb.db.exception.metadata.MetadataException;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
 import org.apache.iotdb.db.qp.physical.sys.ShowTimeSeriesPlan;
-import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -49,14 +50,22 @@ import org.apache.iotdb.tsfile.utils.Binary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The result of "show timeseries", which pulls the matched series from MManager in batches of the
+ * fetch size, so that the series and their tags are not collected all at once.
+ */
 public class ShowTimeseriesDataSet extends QueryDataSet {
 
   private static final Logger logger = LoggerFactory.getLogger(ShowTimeseriesDataSet.class);
 
-  private final ShowTimeSeriesPlan plan;
-  private List<RowRecord> result = new ArrayList<>();
+  // the matched series which are not fetched yet
+  private final Iterator<MeasurementMNode> iterator;
+  // the limit of the plan is the fetch size if the user doesn't give a limit
+  private final int batchSize;
+  // the number of series still to fetch
+  private int remaining;
+  private List<RowRecord> result;
   private int index = 0;
-  private QueryContext context;
 
   public boolean hasLimit;
 
@@ -71,27 +80,38 @@ public class ShowTimeseriesDataSet extends QueryDataSet {
   public ShowTimeseriesDataSet(ShowTimeSeriesPlan showTimeSeriesPlan, QueryContext context)
       throws MetadataException {
     super(Arrays.asList(resourcePaths), Arrays.asList(resourceTypes));
-    this.plan = showTimeSeriesPlan;
-    this.context = context;
-    hasLimit = plan.hasLimit();
-    getQueryDataSet();
+    hasLimit = showTimeSeriesPlan.hasLimit();
+    iterator = IoTDB.metaManager.getMatchedTimeseries(showTimeSeriesPlan, context);
+    for (int i = 0; i < showTimeSeriesPlan.getOffset() && iterator.hasNext(); i++) {
+      iterator.next();
+    }
+    int limit = showTimeSeriesPlan.getLimit();
+    batchSize = limit == 0 ? Integer.MAX_VALUE : limit;
+    remaining = hasLimit && limit != 0 ? limit : Integer.MAX_VALUE;
+    result = getQueryDataSet();
   }
 
-  public List<RowRecord> getQueryDataSet() throws MetadataException {
-    List<ShowTimeSeriesResult> timeseriesList = IoTDB.metaManager.showTimeseries(plan, context);
-    List<RowRecord> records = new ArrayList<>();
-    for (ShowTimeSeriesResult result : timeseriesList) {
+  /**
+   * fetch the next batch of the series and read their tags and attributes
+   */
+  private List<RowRecord> getQueryDataSet() throws MetadataException {
+    List<MeasurementMNode> nodes = new ArrayList<>();
+    while (nodes.size() < batchSize && remaining > 0 && iterator.hasNext()) {
+      nodes.add(iterator.next());
+      remaining--;
+    }
+    List<RowRecord> records = new ArrayList<>(nodes.size());
+    for (ShowTimeSeriesResult timeseries : IoTDB.metaManager.getShowTimeseriesResults(nodes)) {
       RowRecord record = new RowRecord(0);
-      updateRecord(record, result.getName());
-      updateRecord(record, result.getAlias());
-      updateRecord(record, result.getSgName());
-      updateRecord(record, result.getDataType().toString());
-      updateRecord(record, result.getEncoding().toString());
-      updateRecord(record, result.getCompressor().toString());
-      updateRecord(record, result.getTag());
-      updateRecord(record, result.getAttribute());
+      updateRecord(record, timeseries.getName());
+      updateRecord(record, timeseries.getAlias());
+      updateRecord(record, timeseries.getSgName());
+      updateRecord(record, timeseries.getDataType().toString());
+      updateRecord(record, timeseries.getEncoding().toString());
+      updateRecord(record, timeseries.getCompressor().toString());
+      updateRecord(record, timeseries.getTag());
+      updateRecord(record, timeseries.getAttribute());
       records.add(record);
-      putRecord(record);
     }
     return records;
   }
@@ -116,8 +136,7 @@ public class ShowTimeseriesDataSet extends QueryDataSet {
 
   @Override
   protected boolean hasNextWithoutConstraint() throws IOException {
-    if (index == result.size() && !hasLimit && result.size() == plan.getLimit()) {
-      plan.setOffset(plan.getOffset() + plan.getLimit());
+    if (index == result.size() && remaining > 0 && iterator.hasNext()) {
       try {
         result = getQueryDataSet();
         index = 0;
@@ -132,8 +151,4 @@ public class ShowTimeseriesDataSet extends QueryDataSet {
   protected RowRecord nextWithoutConstraint() {
     return result.get(index++);
   }
-
-  private void putRecord(RowRecord newRecord) {
-    result.add(newRecord);
-  }
 }
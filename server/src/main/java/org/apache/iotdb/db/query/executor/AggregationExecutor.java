@@ -26,6 +26,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.iotdb.db.conf.IoTDBConstant;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
@@ -40,6 +45,7 @@ import org.apache.iotdb.db.query.control.QueryResourceManager;
 import org.apache.iotdb.db.query.dataset.SingleDataSet;
 import org.apache.iotdb.db.query.factory.AggregateResultFactory;
 import org.apache.iotdb.db.query.filter.TsFileFilter;
+import org.apache.iotdb.db.query.pool.QueryTaskPoolManager;
 import org.apache.iotdb.db.query.reader.series.IAggregateReader;
 import org.apache.iotdb.db.query.reader.series.IReaderByTimestamp;
 import org.apache.iotdb.db.query.reader.series.SeriesAggregateReader;
@@ -93,20 +99,111 @@ public class AggregationExecutor {
       timeFilter = ((GlobalTimeExpression) expression).getFilter();
     }
 
-    // TODO use multi-thread
     Map<PartialPath, List<Integer>> pathToAggrIndexesMap = groupAggregationsBySeries(
         selectedSeries);
     AggregateResult[] aggregateResultList = new AggregateResult[selectedSeries.size()];
     // TODO-Cluster: group the paths by storage group to reduce communications
-    for (Map.Entry<PartialPath, List<Integer>> entry : pathToAggrIndexesMap.entrySet()) {
-      aggregateOneSeries(entry, aggregateResultList,
-          aggregationPlan.getAllMeasurementsInDevice(entry.getKey().getDevice()), timeFilter,
+    List<Map.Entry<PartialPath, List<Integer>>> entries = new ArrayList<>(
+        pathToAggrIndexesMap.entrySet());
+    int parallelism = Math.min(entries.size(),
+        IoTDBDescriptor.getInstance().getConfig().getMaxAggregationParallelism());
+    if (parallelism <= 1) {
+      for (Map.Entry<PartialPath, List<Integer>> entry : entries) {
+        context.checkInterrupted();
+        aggregateOneSeries(entry, aggregateResultList,
+            aggregationPlan.getAllMeasurementsInDevice(entry.getKey().getDevice()), timeFilter,
+            context);
+      }
+    } else {
+      aggregateInParallel(entries, parallelism, aggregateResultList, aggregationPlan, timeFilter,
           context);
     }
 
     return constructDataSet(Arrays.asList(aggregateResultList), aggregationPlan);
   }
 
+  /**
+   * aggregate the series by at most "parallelism" threads, including the current thread, which
+   * take the series one by one from the shared list. As the current thread also aggregates, the
+   * query always makes progress even if the query thread pool is occupied by other queries.
+   * <p>
+   * Once any series fails or the query is interrupted, the other threads stop taking new series.
+   * The threads are never interrupted, because interrupting a thread which is reading a file
+   * closes the file channel shared by other queries.
+   */
+  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  private void aggregateInParallel(List<Map.Entry<PartialPath, List<Integer>>> entries,
+      int parallelism, AggregateResult[] aggregateResultList, AggregationPlan aggregationPlan,
+      Filter timeFilter, QueryContext context)
+      throws StorageEngineException, IOException, QueryProcessException {
+    AtomicInteger nextEntryIndex = new AtomicInteger();
+    AtomicBoolean failed = new AtomicBoolean(false);
+    Callable<Void> aggregationTask = () -> {
+      int index;
+      while (!failed.get() && (index = nextEntryIndex.getAndIncrement()) < entries.size()) {
+        Map.Entry<PartialPath, List<Integer>> entry = entries.get(index);
+        try {
+          context.checkInterrupted();
+          aggregateOneSeries(entry, aggregateResultList,
+              aggregationPlan.getAllMeasurementsInDevice(entry.getKey().getDevice()), timeFilter,
+              context);
+        } catch (Exception e) {
+          failed.set(true);
+          throw e;
+        }
+      }
+      return null;
+    };
+
+    // a task which is claimed by the current thread before it starts in the pool will do nothing
+    List<AtomicBoolean> claimedFlags = new ArrayList<>(parallelism - 1);
+    List<Future<Void>> futures = new ArrayList<>(parallelism - 1);
+    for (int i = 0; i < parallelism - 1; i++) {
+      AtomicBoolean claimed = new AtomicBoolean(false);
+      claimedFlags.add(claimed);
+      futures.add(QueryTaskPoolManager.getInstance().submit(
+          () -> claimed.compareAndSet(false, true) ? aggregationTask.call() : null));
+    }
+
+    Exception exception = null;
+    try {
+      aggregationTask.call();
+    } catch (Exception e) {
+      exception = e;
+    }
+    // wait for the tasks which are running, the ones not started have nothing to do now
+    for (int i = 0; i < futures.size(); i++) {
+      if (claimedFlags.get(i).compareAndSet(false, true)) {
+        futures.get(i).cancel(false);
+        continue;
+      }
+      try {
+        futures.get(i).get();
+      } catch (ExecutionException e) {
+        if (exception == null) {
+          exception = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failed.set(true);
+        if (exception == null) {
+          exception = new QueryProcessException(
+              String.format("Query %d is interrupted", context.getQueryId()));
+        }
+      }
+    }
+
+    if (exception instanceof StorageEngineException) {
+      throw (StorageEngineException) exception;
+    } else if (exception instanceof IOException) {
+      throw (IOException) exception;
+    } else if (exception instanceof QueryProcessException) {
+      throw (QueryProcessException) exception;
+    } else if (exception != null) {
+      throw new QueryProcessException(exception);
+    }
+  }
+
   /**
    * get aggregation result for one series
    *
@@ -312,7 +409,8 @@ public class AggregationExecutor {
           .getAggrResultByName(aggregations.get(i), type, ascending);
       aggregateResults.add(result);
     }
-    aggregateWithValueFilter(aggregateResults, timestampGenerator, readersOfSelectedSeries);
+    aggregateWithValueFilter(aggregateResults, timestampGenerator, readersOfSelectedSeries,
+        context);
     return constructDataSet(aggregateResults, queryPlan);
   }
 
@@ -334,10 +432,11 @@ public class AggregationExecutor {
    * calculate aggregation result with value filter.
    */
   private void aggregateWithValueFilter(List<AggregateResult> aggregateResults,
-      TimeGenerator timestampGenerator, List<IReaderByTimestamp> readersOfSelectedSeries)
-      throws IOException {
+      TimeGenerator timestampGenerator, List<IReaderByTimestamp> readersOfSelectedSeries,
+      QueryContext context) throws IOException, QueryProcessException {
 
     while (timestampGenerator.hasNext()) {
+      context.checkInterrupted();
 
       // generate timestamps for aggregate
       long[] timeArray = new long[aggregateFetchSize];
@@ -29,6 +29,8 @@ import java.util.Set;
 import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.cost.statistic.Measurement;
+import org.apache.iotdb.db.cost.statistic.Operation;
 import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.metadata.PartialPath;
@@ -883,7 +885,10 @@ public class SeriesReader {
     }
 
     BatchData getAllSatisfiedPageData(boolean ascending) throws IOException {
-      return data.getAllSatisfiedPageData(ascending);
+      long startTime = System.nanoTime();
+      BatchData batchData = data.getAllSatisfiedPageData(ascending);
+      Measurement.INSTANCE.addOperationLatency(Operation.READ_PAGE, startTime);
+      return batchData;
     }
 
     void setFilter(Filter filter) {
@@ -203,6 +203,20 @@ public class PrimitiveArrayManager {
    * @param dataArray data array
    */
   public static void release(Object dataArray) {
+    release(dataArray, true);
+  }
+
+  /**
+   * This method is called when bringing back a data array that may still be read by queries. The
+   * array is counted as brought back but is never handed out again.
+   *
+   * @param dataArray data array
+   */
+  public static void releaseWithoutReuse(Object dataArray) {
+    release(dataArray, false);
+  }
+
+  private static void release(Object dataArray, boolean reusable) {
     TSDataType dataType;
     if (dataArray instanceof boolean[]) {
       dataType = TSDataType.BOOLEAN;
@@ -215,7 +229,9 @@ public class PrimitiveArrayManager {
     } else if (dataArray instanceof double[]) {
       dataType = TSDataType.DOUBLE;
     } else if (dataArray instanceof Binary[]) {
-      Arrays.fill((Binary[]) dataArray, null);
+      if (reusable) {
+        Arrays.fill((Binary[]) dataArray, null);
+      }
       dataType = TSDataType.TEXT;
     } else {
       throw new UnSupportedDataTypeException("Unknown data array type");
@@ -244,14 +260,14 @@ public class PrimitiveArrayManager {
               "The ratio of {} in buffered array has not reached the schema ratio. Replaced by {}",
               dataType, replacedDataType);
         }
-        bringBackBufferedArray(dataType, dataArray);
+        bringBackBufferedArray(dataType, dataArray, reusable);
       } else {
         // or else bring back the original array as OOB array
         bringBackOOBArray(dataType, ARRAY_SIZE);
       }
     } else {
       // if there is no out of buffer array, bring back as buffered array directly
-      bringBackBufferedArray(dataType, dataArray);
+      bringBackBufferedArray(dataType, dataArray, reusable);
     }
   }
 
@@ -260,10 +276,14 @@ public class PrimitiveArrayManager {
    *
    * @param dataType  data type
    * @param dataArray data array
+   * @param reusable  whether the array can be handed out again
    */
-  private static void bringBackBufferedArray(TSDataType dataType, Object dataArray) {
+  private static void bringBackBufferedArray(TSDataType dataType, Object dataArray,
+      boolean reusable) {
     synchronized (bufferedArraysMap.get(dataType)) {
-      bufferedArraysMap.get(dataType).add(dataArray);
+      if (reusable) {
+        bufferedArraysMap.get(dataType).add(dataArray);
+      }
       bufferedArraysNumMap.put(dataType, bufferedArraysNumMap.getOrDefault(dataType, 0) + 1);
     }
     bufferedArraysRamSize.addAndGet((long) -ARRAY_SIZE * dataType.getDataTypeSize());
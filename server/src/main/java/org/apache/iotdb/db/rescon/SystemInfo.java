@@ -20,6 +20,7 @@
 package org.apache.iotdb.db.rescon;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
@@ -30,6 +31,7 @@ import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.flush.FlushManager;
 import org.apache.iotdb.db.engine.storagegroup.StorageGroupInfo;
+import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor;
 import org.apache.iotdb.db.engine.storagegroup.TsFileProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,15 +56,17 @@ public class SystemInfo {
    * @param storageGroupInfo storage group
    */
   public void reportStorageGroupStatus(StorageGroupInfo storageGroupInfo) {
-    long delta = storageGroupInfo.getMemCost() -
-        reportedSgMemCostMap.getOrDefault(storageGroupInfo, 0L);
+    // insertions into different processors of a storage group may report concurrently, swapping the
+    // reported cost atomically keeps the deltas consistent without holding a lock
+    long memCost = storageGroupInfo.getMemCost();
+    Long lastReportedCost = reportedSgMemCostMap.put(storageGroupInfo, memCost);
+    long delta = memCost - (lastReportedCost == null ? 0L : lastReportedCost);
     totalSgMemCost.addAndGet(delta);
     if (logger.isDebugEnabled()) {
       logger.debug("Report Storage Group Status to the system. "
           + "After adding {}, current sg mem cost is {}.", delta, totalSgMemCost);
     }
-    reportedSgMemCostMap.put(storageGroupInfo, storageGroupInfo.getMemCost());
-    storageGroupInfo.setLastReportedSize(storageGroupInfo.getMemCost());
+    storageGroupInfo.setLastReportedSize(memCost);
     if (totalSgMemCost.get() >= config.getAllocateMemoryForWrite() * FLUSH_PROPORTION) {
       logger.debug("The total storage group mem costs are too large, call for flushing. "
           + "Current sg cost is {}", totalSgMemCost);
@@ -82,11 +86,11 @@ public class SystemInfo {
    */
   public void resetStorageGroupStatus(StorageGroupInfo storageGroupInfo,
       boolean shouldInvokeFlush) {
-    if (reportedSgMemCostMap.containsKey(storageGroupInfo)) {
-      this.totalSgMemCost.addAndGet(storageGroupInfo.getMemCost() -
-          reportedSgMemCostMap.get(storageGroupInfo));
-      storageGroupInfo.setLastReportedSize(storageGroupInfo.getMemCost());
-      reportedSgMemCostMap.put(storageGroupInfo, storageGroupInfo.getMemCost());
+    long memCost = storageGroupInfo.getMemCost();
+    Long lastReportedCost = reportedSgMemCostMap.replace(storageGroupInfo, memCost);
+    if (lastReportedCost != null) {
+      this.totalSgMemCost.addAndGet(memCost - lastReportedCost);
+      storageGroupInfo.setLastReportedSize(memCost);
       if (shouldInvokeFlush) {
         checkSystemToInvokeFlush();
       }
@@ -185,6 +189,34 @@ public class SystemInfo {
     return rejected;
   }
 
+  /**
+   * @return the proportion of the memory for writing which is used by the storage groups
+   */
+  public double getWriteMemoryUsage() {
+    return totalSgMemCost.get() * 1.0 / config.getAllocateMemoryForWrite();
+  }
+
+  /**
+   * @return the memory cost of the storage groups reported, in bytes
+   */
+  public long getTotalSgMemCost() {
+    return totalSgMemCost.get();
+  }
+
+  /**
+   * @return the reported memory cost of each storage group, key: storage group name
+   */
+  public Map<String, Long> getStorageGroupMemCosts() {
+    Map<String, Long> memCosts = new HashMap<>();
+    for (Map.Entry<StorageGroupInfo, Long> entry : reportedSgMemCostMap.entrySet()) {
+      StorageGroupProcessor processor = entry.getKey().getStorageGroupProcessor();
+      if (processor != null) {
+        memCosts.merge(processor.getStorageGroupName(), entry.getValue(), Long::sum);
+      }
+    }
+    return memCosts;
+  }
+
   public void close() {
     reportedSgMemCostMap.clear();
     totalSgMemCost.set(0);
@@ -41,7 +41,8 @@ import org.slf4j.LoggerFactory;
 public class MQTTService implements IService {
     private static final Logger LOG = LoggerFactory.getLogger(MQTTService.class);
     private Server server = new Server();
-    
+    private PublishHandler publishHandler;
+
     @Override
     public void start() throws StartupException {
         startup();
@@ -55,7 +56,8 @@ public class MQTTService implements IService {
     public void startup() {
         IoTDBConfig iotDBConfig = IoTDBDescriptor.getInstance().getConfig();
         IConfig config = createBrokerConfig(iotDBConfig);
-        List<InterceptHandler> handlers = Lists.newArrayList(new PublishHandler(iotDBConfig));
+        publishHandler = new PublishHandler(iotDBConfig);
+        List<InterceptHandler> handlers = Lists.newArrayList(publishHandler);
         IAuthenticator authenticator = new BrokerAuthenticator();
 
         server.startServer(config, handlers, null, authenticator, null);
@@ -84,6 +86,10 @@ public class MQTTService implements IService {
 
     public void shutdown() {
         server.stopServer();
+        if (publishHandler != null) {
+            publishHandler.close();
+            publishHandler = null;
+        }
     }
 
     @Override
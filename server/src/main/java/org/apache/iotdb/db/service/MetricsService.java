@@ -90,6 +90,7 @@ public class MetricsService implements MetricsServiceMBean, IService {
     MetricsSystem metricsSystem = new MetricsSystem(new ServerArgument(port));
     MetricsWebUI metricsWebUI = new MetricsWebUI(metricsSystem.getMetricRegistry());
     metricsWebUI.getHandlers().add(metricsSystem.getServletHandlers());
+    metricsWebUI.getHandlers().add(metricsSystem.getPrometheusHandler());
     metricsWebUI.initialize();
     server = metricsWebUI.getServer(port);
     server.setStopTimeout(10000);
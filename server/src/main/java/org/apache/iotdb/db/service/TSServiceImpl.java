@@ -414,7 +414,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
 
   @Override
   public TSStatus executeBatchStatement(TSExecuteBatchStatementReq req) {
-    long t1 = System.currentTimeMillis();
+    long t1 = System.nanoTime();
     List<TSStatus> result = new ArrayList<>();
     try {
       if (!checkLogin(req.getSessionId())) {
@@ -426,7 +426,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       boolean isAllSuccessful = true;
 
       for (String statement : statements) {
-        long t2 = System.currentTimeMillis();
+        long t2 = System.nanoTime();
         isAllSuccessful =
             executeStatementInBatch(statement, result, req.getSessionId())
                 && isAllSuccessful;
@@ -624,6 +624,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
     queryCount.incrementAndGet();
     auditLogger.debug("Session {} execute Query: {}", currSessionId.get(), statement);
     long startTime = System.currentTimeMillis();
+    long startTimeInNano = System.nanoTime();
     long queryId = -1;
     try {
       TSExecuteStatementResp resp = getQueryResp(plan, username); // column headers
@@ -749,7 +750,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       }
       return RpcUtils.getTSExecuteStatementResp(TSStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
     } finally {
-      Measurement.INSTANCE.addOperationLatency(Operation.EXECUTE_QUERY, startTime);
+      Measurement.INSTANCE.addOperationLatency(Operation.EXECUTE_QUERY, startTimeInNano);
       long costTime = System.currentTimeMillis() - startTime;
       if (costTime >= config.getSlowQueryThreshold()) {
         SLOW_SQL_LOGGER.info("Cost: " + costTime + " ms, sql is " + statement);
@@ -975,6 +976,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   @Override
   public TSFetchResultsResp fetchResults(TSFetchResultsReq req) {
+    long startTime = System.nanoTime();
     try {
       if (!checkLogin(req.getSessionId())) {
         return RpcUtils.getTSFetchResultsResp(TSStatusCode.NOT_LOGIN_ERROR);
@@ -1026,6 +1028,8 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
         logger.error("Error happened while releasing query resource: ", ex);
       }
       return RpcUtils.getTSFetchResultsResp(TSStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+    } finally {
+      Measurement.INSTANCE.addOperationLatency(Operation.FETCH_RESULTS, startTime);
     }
   }
 
@@ -1101,6 +1105,8 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       IOException, MetadataException, SQLException, TException, InterruptedException {
 
     QueryContext context = genQueryContext(queryId);
+    context.setTimeout(config.getQueryTimeoutThreshold());
+    QueryResourceManager.getInstance().registerQueryContext(context);
     QueryDataSet queryDataSet = executor.processQuery(physicalPlan, context);
     queryId2DataSet.put(queryId, queryDataSet);
     return queryDataSet;
@@ -1127,16 +1133,21 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
   }
 
   private TSExecuteStatementResp executeUpdateStatement(PhysicalPlan plan, long sessionId) {
-    TSStatus status = checkAuthority(plan, sessionId);
-    if (status != null) {
-      return new TSExecuteStatementResp(status);
-    }
+    long startTime = System.nanoTime();
+    try {
+      TSStatus status = checkAuthority(plan, sessionId);
+      if (status != null) {
+        return new TSExecuteStatementResp(status);
+      }
 
-    status = executeNonQueryPlan(plan);
-    TSExecuteStatementResp resp = RpcUtils.getTSExecuteStatementResp(status);
-    long queryId = generateQueryId(false, DEFAULT_FETCH_SIZE, -1);
-    resp.setQueryId(queryId);
-    return resp;
+      status = executeNonQueryPlan(plan);
+      TSExecuteStatementResp resp = RpcUtils.getTSExecuteStatementResp(status);
+      long queryId = generateQueryId(false, DEFAULT_FETCH_SIZE, -1);
+      resp.setQueryId(queryId);
+      return resp;
+    } finally {
+      Measurement.INSTANCE.addOperationLatency(Operation.EXECUTE_UPDATE, startTime);
+    }
   }
 
   private boolean executeNonQuery(PhysicalPlan plan)
@@ -1240,78 +1251,88 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
 
   @Override
   public TSStatus insertRecords(TSInsertRecordsReq req) {
-    if (auditLogger.isDebugEnabled()) {
-      auditLogger
-          .debug("Session {} insertRecords, first device {}, first time {}", currSessionId.get(),
-              req.deviceIds.get(0), req.getTimestamps().get(0));
-    }
-    if (!checkLogin(req.getSessionId())) {
-      logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
-      return RpcUtils.getStatus(TSStatusCode.NOT_LOGIN_ERROR);
-    }
+    long startTime = System.nanoTime();
+    try {
+      if (auditLogger.isDebugEnabled()) {
+        auditLogger
+            .debug("Session {} insertRecords, first device {}, first time {}", currSessionId.get(),
+                req.deviceIds.get(0), req.getTimestamps().get(0));
+      }
+      if (!checkLogin(req.getSessionId())) {
+        logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
+        return RpcUtils.getStatus(TSStatusCode.NOT_LOGIN_ERROR);
+      }
 
-    List<TSStatus> statusList = new ArrayList<>();
-    InsertRowPlan plan = new InsertRowPlan();
-    for (int i = 0; i < req.deviceIds.size(); i++) {
-      try {
-        plan.setDeviceId(new PartialPath(req.getDeviceIds().get(i)));
-        plan.setTime(req.getTimestamps().get(i));
-        plan.setMeasurements(req.getMeasurementsList().get(i).toArray(new String[0]));
-        plan.setDataTypes(new TSDataType[plan.getMeasurements().length]);
-        plan.setValues(new Object[plan.getMeasurements().length]);
-        plan.fillValues(req.valuesList.get(i));
-        plan.setNeedInferType(false);
-        TSStatus status = checkAuthority(plan, req.getSessionId());
-        if (status != null) {
-          statusList.add(status);
-        } else {
-          statusList.add(executeNonQueryPlan(plan));
+      List<TSStatus> statusList = new ArrayList<>();
+      InsertRowPlan plan = new InsertRowPlan();
+      for (int i = 0; i < req.deviceIds.size(); i++) {
+        try {
+          plan.setDeviceId(new PartialPath(req.getDeviceIds().get(i)));
+          plan.setTime(req.getTimestamps().get(i));
+          plan.setMeasurements(req.getMeasurementsList().get(i).toArray(new String[0]));
+          plan.setDataTypes(new TSDataType[plan.getMeasurements().length]);
+          plan.setValues(new Object[plan.getMeasurements().length]);
+          plan.fillValues(req.valuesList.get(i));
+          plan.setNeedInferType(false);
+          TSStatus status = checkAuthority(plan, req.getSessionId());
+          if (status != null) {
+            statusList.add(status);
+          } else {
+            statusList.add(executeNonQueryPlan(plan));
+          }
+        } catch (Exception e) {
+          logger.error("meet error when insert in batch", e);
+          statusList.add(RpcUtils.getStatus(TSStatusCode.INTERNAL_SERVER_ERROR));
         }
-      } catch (Exception e) {
-        logger.error("meet error when insert in batch", e);
-        statusList.add(RpcUtils.getStatus(TSStatusCode.INTERNAL_SERVER_ERROR));
       }
-    }
 
-    return RpcUtils.getStatus(statusList);
+      return RpcUtils.getStatus(statusList);
+    } finally {
+      Measurement.INSTANCE.addOperationLatency(Operation.EXECUTE_RPC_RECORDS_INSERT, startTime);
+    }
   }
 
   @Override
   public TSStatus insertStringRecords(TSInsertStringRecordsReq req) throws TException {
-    if (auditLogger.isDebugEnabled()) {
-      auditLogger
-          .debug("Session {} insertRecords, first device {}, first time {}", currSessionId.get(),
-              req.deviceIds.get(0), req.getTimestamps().get(0));
-    }
-    if (!checkLogin(req.getSessionId())) {
-      logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
-      return RpcUtils.getStatus(TSStatusCode.NOT_LOGIN_ERROR);
-    }
+    long startTime = System.nanoTime();
+    try {
+      if (auditLogger.isDebugEnabled()) {
+        auditLogger
+            .debug("Session {} insertRecords, first device {}, first time {}", currSessionId.get(),
+                req.deviceIds.get(0), req.getTimestamps().get(0));
+      }
+      if (!checkLogin(req.getSessionId())) {
+        logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
+        return RpcUtils.getStatus(TSStatusCode.NOT_LOGIN_ERROR);
+      }
 
-    List<TSStatus> statusList = new ArrayList<>();
-    InsertRowPlan plan = new InsertRowPlan();
-    for (int i = 0; i < req.deviceIds.size(); i++) {
-      try {
-        plan.setDeviceId(new PartialPath(req.getDeviceIds().get(i)));
-        plan.setTime(req.getTimestamps().get(i));
-        plan.setMeasurements(req.getMeasurementsList().get(i).toArray(new String[0]));
-        plan.setDataTypes(new TSDataType[plan.getMeasurements().length]);
-        plan.setValues(
-            req.getValuesList().get(i).toArray(new Object[req.getValuesList().get(i).size()]));
-        plan.setNeedInferType(true);
-        TSStatus status = checkAuthority(plan, req.getSessionId());
-        if (status != null) {
-          statusList.add(status);
-        } else {
-          statusList.add(executeNonQueryPlan(plan));
+      List<TSStatus> statusList = new ArrayList<>();
+      InsertRowPlan plan = new InsertRowPlan();
+      for (int i = 0; i < req.deviceIds.size(); i++) {
+        try {
+          plan.setDeviceId(new PartialPath(req.getDeviceIds().get(i)));
+          plan.setTime(req.getTimestamps().get(i));
+          plan.setMeasurements(req.getMeasurementsList().get(i).toArray(new String[0]));
+          plan.setDataTypes(new TSDataType[plan.getMeasurements().length]);
+          plan.setValues(
+              req.getValuesList().get(i).toArray(new Object[req.getValuesList().get(i).size()]));
+          plan.setNeedInferType(true);
+          TSStatus status = checkAuthority(plan, req.getSessionId());
+          if (status != null) {
+            statusList.add(status);
+          } else {
+            statusList.add(executeNonQueryPlan(plan));
+          }
+        } catch (Exception e) {
+          logger.error("meet error when insert in batch", e);
+          statusList.add(RpcUtils.getStatus(TSStatusCode.INTERNAL_SERVER_ERROR));
         }
-      } catch (Exception e) {
-        logger.error("meet error when insert in batch", e);
-        statusList.add(RpcUtils.getStatus(TSStatusCode.INTERNAL_SERVER_ERROR));
       }
-    }
 
-    return RpcUtils.getStatus(statusList);
+      return RpcUtils.getStatus(statusList);
+    } finally {
+      Measurement.INSTANCE.addOperationLatency(Operation.EXECUTE_RPC_RECORDS_INSERT, startTime);
+    }
   }
 
   @Override
@@ -1352,6 +1373,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
 
   @Override
   public TSStatus insertRecord(TSInsertRecordReq req) {
+    long startTime = System.nanoTime();
     try {
       auditLogger
           .debug("Session {} insertRecord, device {}, time {}", currSessionId.get(),
@@ -1377,12 +1399,15 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       return executeNonQueryPlan(plan);
     } catch (Exception e) {
       logger.error("meet error when insert", e);
+      return RpcUtils.getStatus(TSStatusCode.EXECUTE_STATEMENT_ERROR);
+    } finally {
+      Measurement.INSTANCE.addOperationLatency(Operation.EXECUTE_RPC_INSERT, startTime);
     }
-    return RpcUtils.getStatus(TSStatusCode.EXECUTE_STATEMENT_ERROR);
   }
 
   @Override
   public TSStatus insertStringRecord(TSInsertStringRecordReq req) throws TException {
+    long startTime = System.nanoTime();
     try {
       auditLogger
           .debug("Session {} insertRecord, device {}, time {}", currSessionId.get(),
@@ -1407,8 +1432,10 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       return executeNonQueryPlan(plan);
     } catch (Exception e) {
       logger.error("meet error when insert", e);
+      return RpcUtils.getStatus(TSStatusCode.EXECUTE_STATEMENT_ERROR);
+    } finally {
+      Measurement.INSTANCE.addOperationLatency(Operation.EXECUTE_RPC_INSERT, startTime);
     }
-    return RpcUtils.getStatus(TSStatusCode.EXECUTE_STATEMENT_ERROR);
   }
 
   @Override
@@ -1441,7 +1468,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
 
   @Override
   public TSStatus insertTablet(TSInsertTabletReq req) {
-    long t1 = System.currentTimeMillis();
+    long t1 = System.nanoTime();
     try {
       if (!checkLogin(req.getSessionId())) {
         logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
@@ -1450,9 +1477,10 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
 
       InsertTabletPlan insertTabletPlan = new InsertTabletPlan(new PartialPath(req.deviceId),
           req.measurements);
+      insertTabletPlan.setTimeBuffer(req.timestamps);
       insertTabletPlan.setTimes(QueryDataSetUtils.readTimesFromBuffer(req.timestamps, req.size));
       insertTabletPlan.setColumns(
-          QueryDataSetUtils.readValuesFromBuffer(
+          QueryDataSetUtils.sliceValuesFromBuffer(
               req.values, req.types, req.measurements.size(), req.size));
       insertTabletPlan.setRowCount(req.size);
       insertTabletPlan.setDataTypes(req.types);
@@ -1474,7 +1502,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
 
   @Override
   public TSStatus insertTablets(TSInsertTabletsReq req) {
-    long t1 = System.currentTimeMillis();
+    long t1 = System.nanoTime();
     try {
       if (!checkLogin(req.getSessionId())) {
         logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
@@ -1486,10 +1514,11 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
         InsertTabletPlan insertTabletPlan = new InsertTabletPlan(
             new PartialPath(req.deviceIds.get(i)),
             req.measurementsList.get(i));
+        insertTabletPlan.setTimeBuffer(req.timestampsList.get(i));
         insertTabletPlan.setTimes(
             QueryDataSetUtils.readTimesFromBuffer(req.timestampsList.get(i), req.sizeList.get(i)));
         insertTabletPlan.setColumns(
-            QueryDataSetUtils.readValuesFromBuffer(
+            QueryDataSetUtils.sliceValuesFromBuffer(
                 req.valuesList.get(i), req.typesList.get(i), req.measurementsList.get(i).size(),
                 req.sizeList.get(i)));
         insertTabletPlan.setRowCount(req.sizeList.get(i));
@@ -40,6 +40,13 @@ public class SyncConstant {
    **/
   public static final int DATA_CHUNK_SIZE = 64 * 1024 * 1024;
 
+  /**
+   * The codec of a chunk sent by syncData, which is the first byte of the chunk.
+   */
+  public static final byte CHUNK_RAW = 0;
+
+  public static final byte CHUNK_LZ4 = 1;
+
   // sender section
 
   public static final String LOCK_FILE_NAME = "sync_lock";
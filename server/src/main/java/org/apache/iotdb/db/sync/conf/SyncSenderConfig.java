@@ -41,6 +41,27 @@ public class SyncSenderConfig {
    */
   private int maxNumOfSyncFileRetry = 5;
 
+  /**
+   * The size of a chunk of a file sent in a request.
+   */
+  private int syncChunkSizeInByte = 1024 * 1024;
+
+  /**
+   * The maximum number of chunks sent on a connection whose responses are not received.
+   */
+  private int maxNumOfInflightChunks = 8;
+
+  /**
+   * Whether the chunks are compressed by LZ4.
+   */
+  private boolean syncCompressionEnable = false;
+
+  /**
+   * The number of tsfiles of a storage group transferred in parallel, each of which uses a
+   * connection.
+   */
+  private int syncParallelFileNum = 4;
+
   /**
    * Storage groups which participate in sync process
    */
@@ -127,4 +148,36 @@ public class SyncSenderConfig {
   public void setMaxNumOfSyncFileRetry(int maxNumOfSyncFileRetry) {
     this.maxNumOfSyncFileRetry = maxNumOfSyncFileRetry;
   }
+
+  public int getSyncChunkSizeInByte() {
+    return syncChunkSizeInByte;
+  }
+
+  public void setSyncChunkSizeInByte(int syncChunkSizeInByte) {
+    this.syncChunkSizeInByte = syncChunkSizeInByte;
+  }
+
+  public int getMaxNumOfInflightChunks() {
+    return maxNumOfInflightChunks;
+  }
+
+  public void setMaxNumOfInflightChunks(int maxNumOfInflightChunks) {
+    this.maxNumOfInflightChunks = maxNumOfInflightChunks;
+  }
+
+  public boolean isSyncCompressionEnable() {
+    return syncCompressionEnable;
+  }
+
+  public void setSyncCompressionEnable(boolean syncCompressionEnable) {
+    this.syncCompressionEnable = syncCompressionEnable;
+  }
+
+  public int getSyncParallelFileNum() {
+    return syncParallelFileNum;
+  }
+
+  public void setSyncParallelFileNum(int syncParallelFileNum) {
+    this.syncParallelFileNum = syncParallelFileNum;
+  }
 }
@@ -101,6 +101,18 @@ public class SyncSenderDescriptor {
       conf.setMaxNumOfSyncFileRetry(Integer
           .parseInt(properties.getProperty("max_number_of_sync_file_retry",
               Integer.toString(conf.getMaxNumOfSyncFileRetry()))));
+      conf.setSyncChunkSizeInByte(Integer
+          .parseInt(properties.getProperty("sync_chunk_size_in_kb",
+              Integer.toString(conf.getSyncChunkSizeInByte() / 1024))) * 1024);
+      conf.setMaxNumOfInflightChunks(Integer
+          .parseInt(properties.getProperty("max_number_of_inflight_chunks",
+              Integer.toString(conf.getMaxNumOfInflightChunks()))));
+      conf.setSyncCompressionEnable(Boolean
+          .parseBoolean(properties.getProperty("sync_compression_enable",
+              Boolean.toString(conf.isSyncCompressionEnable()))));
+      conf.setSyncParallelFileNum(Integer
+          .parseInt(properties.getProperty("sync_parallel_file_num",
+              Integer.toString(conf.getSyncParallelFileNum()))));
     } catch (IOException e) {
       logger.warn("Cannot load sync config file, use default sync configuration.", e);
     } catch (Exception e) {
@@ -110,6 +110,36 @@ public class SyncServerManager  extends ThriftService implements SyncServerManag
     super.startService();
   }
 
+  @Override
+  public long getLoadedTsFileNum() {
+    return FileLoaderManager.getInstance().getLoadedTsFileNum();
+  }
+
+  @Override
+  public long getLoadedTsFileSize() {
+    return FileLoaderManager.getInstance().getLoadedTsFileSize();
+  }
+
+  @Override
+  public double getAvgLoadLockWaitTimeInMs() {
+    return FileLoaderManager.getInstance().getAvgLockWaitTimeInMs();
+  }
+
+  @Override
+  public double getMaxLoadLockWaitTimeInMs() {
+    return FileLoaderManager.getInstance().getMaxLockWaitTimeInMs();
+  }
+
+  @Override
+  public double getAvgLoadLockHoldTimeInMs() {
+    return FileLoaderManager.getInstance().getAvgLockHoldTimeInMs();
+  }
+
+  @Override
+  public double getMaxLoadLockHoldTimeInMs() {
+    return FileLoaderManager.getInstance().getMaxLockHoldTimeInMs();
+  }
+
   @Override
   public void stopService() {
     if (IoTDBDescriptor.getInstance().getConfig().isSyncEnable()) {
@@ -31,4 +31,22 @@ public interface SyncServerManagerMBean {
   void restartService() throws StartupException;
 
   void stopService();
+
+  long getLoadedTsFileNum();
+
+  long getLoadedTsFileSize();
+
+  /**
+   * the average time of waiting for the storage group locks to load a tsfile.
+   */
+  double getAvgLoadLockWaitTimeInMs();
+
+  double getMaxLoadLockWaitTimeInMs();
+
+  /**
+   * the average time of holding the storage group locks to load a tsfile.
+   */
+  double getAvgLoadLockHoldTimeInMs();
+
+  double getMaxLoadLockHoldTimeInMs();
 }
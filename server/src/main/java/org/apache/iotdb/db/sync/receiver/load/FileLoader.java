@@ -21,6 +21,8 @@ package org.apache.iotdb.db.sync.receiver.load;
 import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
@@ -35,6 +37,13 @@ import org.apache.iotdb.db.utils.FileLoaderUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The new tsfiles are prepared in parallel as soon as they are added: their resources are checked
+ * and they are moved into the data folders by the prepare task pool of FileLoaderManager. The load
+ * task runner then loads the tasks one by one in the order they are added, so the load log stays
+ * in the order of the sync log, and the locks of a storage group are only held to register a
+ * prepared file.
+ */
 public class FileLoader implements IFileLoader {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FileLoader.class);
@@ -53,6 +62,15 @@ public class FileLoader implements IFileLoader {
 
   private volatile boolean endSync = false;
 
+  /**
+   * The number and size of the tsfiles loaded, and when the first task is handled.
+   */
+  private int loadedTsFileNum = 0;
+
+  private long loadedTsFileSize = 0;
+
+  private long loadStartTime = -1;
+
   private FileLoader(String senderName, String syncFolderPath) throws IOException {
     this.senderName = senderName;
     this.syncFolderPath = syncFolderPath;
@@ -101,7 +119,12 @@ public class FileLoader implements IFileLoader {
 
   @Override
   public void addTsfile(File tsfile) {
-    queue.add(new LoadTask(tsfile, LoadType.ADD));
+    LoadTask task = new LoadTask(tsfile, LoadType.ADD);
+    task.preparation = FileLoaderManager.getInstance().submitPrepareTask(() -> {
+      prepareNewTsfile(task);
+      return null;
+    });
+    queue.add(task);
   }
 
   @Override
@@ -113,9 +136,12 @@ public class FileLoader implements IFileLoader {
 
   @Override
   public void handleLoadTask(LoadTask task) throws IOException {
+    if (loadStartTime < 0) {
+      loadStartTime = System.currentTimeMillis();
+    }
     switch (task.type) {
       case ADD:
-        loadNewTsfile(task.file);
+        loadNewTsfile(task);
         break;
       case DELETE:
         loadDeletedFile(task.file);
@@ -125,26 +151,81 @@ public class FileLoader implements IFileLoader {
     }
   }
 
-  private void loadNewTsfile(File newTsFile) throws IOException {
-    if (curType != LoadType.ADD) {
-      loadLog.startLoadTsFiles();
-      curType = LoadType.ADD;
-    }
+  /**
+   * Check the resource and the device owners of a new tsfile, and move it into a data folder.
+   */
+  private void prepareNewTsfile(LoadTask task) throws IOException {
+    File newTsFile = task.file;
     if (!newTsFile.exists()) {
       LOGGER.info("Tsfile {} doesn't exist.", newTsFile.getAbsolutePath());
+      task.skipped = true;
       return;
     }
     TsFileResource tsFileResource = new TsFileResource(newTsFile);
     FileLoaderUtils.checkTsFileResource(tsFileResource);
+    long fileSize = newTsFile.length();
     try {
       FileLoaderManager.getInstance().checkAndUpdateDeviceOwner(tsFileResource);
-      StorageEngine.getInstance().loadNewTsFileForSync(tsFileResource);
+      if (StorageEngine.getInstance().prepareNewTsFileForSync(tsFileResource)) {
+        task.fileSize = fileSize;
+        task.preparedResource = tsFileResource;
+      }
     } catch (SyncDeviceOwnerConflictException e) {
       LOGGER.error("Device owner has conflicts, so skip the loading file", e);
+      task.skipped = true;
     } catch (LoadFileException | StorageEngineException | IllegalPathException e) {
       throw new IOException(String.format("Can not load new tsfile %s", newTsFile.getAbsolutePath()), e);
     }
-    loadLog.finishLoadTsfile(newTsFile);
+  }
+
+  private void loadNewTsfile(LoadTask task) throws IOException {
+    if (curType != LoadType.ADD) {
+      loadLog.startLoadTsFiles();
+      curType = LoadType.ADD;
+    }
+    waitForPreparation(task);
+    if (task.preparedResource == null && !task.skipped) {
+      // a file of the same name may have been deleted by the previous tasks
+      prepareNewTsfile(task);
+    }
+    if (task.preparedResource != null) {
+      long startTime = System.nanoTime();
+      try {
+        long lockHoldTime = StorageEngine.getInstance()
+            .loadPreparedTsFileForSync(task.preparedResource);
+        if (lockHoldTime >= 0) {
+          // the rest of the time is mostly spent waiting for the locks
+          FileLoaderManager.getInstance().recordLoadedTsFile(task.fileSize,
+              System.nanoTime() - startTime - lockHoldTime, lockHoldTime);
+          loadedTsFileNum++;
+          loadedTsFileSize += task.fileSize;
+        }
+      } catch (StorageEngineException | IllegalPathException e) {
+        throw new IOException(
+            String.format("Can not load new tsfile %s", task.file.getAbsolutePath()), e);
+      }
+    }
+    loadLog.finishLoadTsfile(task.file);
+  }
+
+  private void waitForPreparation(LoadTask task) throws IOException {
+    if (task.preparation == null) {
+      prepareNewTsfile(task);
+      return;
+    }
+    try {
+      task.preparation.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(
+          String.format("Interrupted while preparing tsfile %s", task.file.getAbsolutePath()), e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(
+          String.format("Can not prepare tsfile %s", task.file.getAbsolutePath()), e.getCause());
+    }
   }
 
   private void loadDeletedFile(File deletedTsFile) throws IOException {
@@ -171,7 +252,10 @@ public class FileLoader implements IFileLoader {
       new File(syncFolderPath, SyncConstant.LOAD_LOG_NAME).delete();
       FileUtils.deleteDirectory(new File(syncFolderPath, SyncConstant.RECEIVER_DATA_FOLDER_NAME));
       FileLoaderManager.getInstance().removeFileLoader(senderName);
-      LOGGER.info("Sync loading process for {} has finished.", senderName);
+      long timeCost = loadStartTime < 0 ? 0 : System.currentTimeMillis() - loadStartTime;
+      LOGGER.info("Sync loading process for {} has finished, {} tsfiles of {} bytes are loaded in "
+              + "{}ms, {} MB/s.", senderName, loadedTsFileNum, loadedTsFileSize, timeCost,
+          timeCost == 0 ? 0 : String.format("%.2f", loadedTsFileSize / 1024.0 / 1024 / timeCost * 1000));
     } catch (IOException e) {
       LOGGER.error("Can not clean up sync resource.", e);
     }
@@ -187,6 +271,15 @@ public class FileLoader implements IFileLoader {
     private File file;
     private LoadType type;
 
+    /**
+     * Set by the preparation of a new tsfile: the resource moved into a data folder, or whether
+     * the file is skipped.
+     */
+    private Future<Void> preparation;
+    private volatile TsFileResource preparedResource;
+    private volatile long fileSize;
+    private volatile boolean skipped;
+
     LoadTask(File file, LoadType type) {
       this.file = file;
       this.type = type;
@@ -28,8 +28,11 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.io.FileUtils;
 import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
 import org.apache.iotdb.db.concurrent.ThreadName;
@@ -53,6 +56,27 @@ public class FileLoaderManager {
 
   private ExecutorService loadTaskRunnerPool;
 
+  /**
+   * Move the received tsfiles into the data folders in parallel before they are loaded.
+   */
+  private ExecutorService prepareTaskPool;
+
+  /**
+   * Statistics of the loaded tsfiles. The lock wait time of a file is the time of waiting for the
+   * locks of its storage group, and the lock hold time is the time the file is added with them.
+   */
+  private final AtomicLong loadedTsFileNum = new AtomicLong();
+
+  private final AtomicLong loadedTsFileSize = new AtomicLong();
+
+  private final AtomicLong totalLockWaitTimeInNs = new AtomicLong();
+
+  private final AtomicLong maxLockWaitTimeInNs = new AtomicLong();
+
+  private final AtomicLong totalLockHoldTimeInNs = new AtomicLong();
+
+  private final AtomicLong maxLockHoldTimeInNs = new AtomicLong();
+
   private Map<String, String> deviceOwnerMap = new HashMap<>();
 
   private File deviceOwnerFile;
@@ -177,6 +201,48 @@ public class FileLoaderManager {
     loadTaskRunnerPool.submit(taskRunner);
   }
 
+  public <T> Future<T> submitPrepareTask(Callable<T> prepareTask) {
+    return prepareTaskPool.submit(prepareTask);
+  }
+
+  void recordLoadedTsFile(long fileSize, long lockWaitTimeInNs, long lockHoldTimeInNs) {
+    loadedTsFileNum.incrementAndGet();
+    loadedTsFileSize.addAndGet(fileSize);
+    totalLockWaitTimeInNs.addAndGet(lockWaitTimeInNs);
+    maxLockWaitTimeInNs.accumulateAndGet(lockWaitTimeInNs, Math::max);
+    totalLockHoldTimeInNs.addAndGet(lockHoldTimeInNs);
+    maxLockHoldTimeInNs.accumulateAndGet(lockHoldTimeInNs, Math::max);
+  }
+
+  public long getLoadedTsFileNum() {
+    return loadedTsFileNum.get();
+  }
+
+  public long getLoadedTsFileSize() {
+    return loadedTsFileSize.get();
+  }
+
+  public double getAvgLockWaitTimeInMs() {
+    return getAvgTimeInMs(totalLockWaitTimeInNs);
+  }
+
+  public double getMaxLockWaitTimeInMs() {
+    return maxLockWaitTimeInNs.get() / 1_000_000.0;
+  }
+
+  public double getAvgLockHoldTimeInMs() {
+    return getAvgTimeInMs(totalLockHoldTimeInNs);
+  }
+
+  public double getMaxLockHoldTimeInMs() {
+    return maxLockHoldTimeInNs.get() / 1_000_000.0;
+  }
+
+  private double getAvgTimeInMs(AtomicLong totalTimeInNs) {
+    long fileNum = loadedTsFileNum.get();
+    return fileNum == 0 ? 0 : totalTimeInNs.get() / 1_000_000.0 / fileNum;
+  }
+
   public void start() {
     if (fileLoaderMap == null) {
       fileLoaderMap = new ConcurrentHashMap<>();
@@ -185,10 +251,17 @@ public class FileLoaderManager {
       loadTaskRunnerPool = IoTDBThreadPoolFactory
           .newCachedThreadPool(ThreadName.LOAD_TSFILE.getName());
     }
+    if (prepareTaskPool == null) {
+      prepareTaskPool = IoTDBThreadPoolFactory.newFixedThreadPool(
+          IoTDBDescriptor.getInstance().getConfig().getConcurrentSyncLoadThread(),
+          ThreadName.PREPARE_TSFILE.getName());
+    }
   }
 
   public void stop() {
     fileLoaderMap = null;
+    // the files being moved are not interrupted
+    prepareTaskPool.shutdown();
     loadTaskRunnerPool.shutdownNow();
     int totalWaitTime = WAIT_TIMEOUT;
     while (!loadTaskRunnerPool.isTerminated()) {
@@ -204,6 +277,20 @@ public class FileLoaderManager {
       }
     }
     loadTaskRunnerPool = null;
+    // a restart must not prepare the files of a task while the old pool is still moving them
+    totalWaitTime = WAIT_TIMEOUT;
+    while (!prepareTaskPool.isTerminated()) {
+      try {
+        if (!prepareTaskPool.awaitTermination(WAIT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+          LOGGER.info("File prepare thread pool doesn't exit after {}ms.", totalWaitTime);
+        }
+        totalWaitTime += WAIT_TIMEOUT;
+      } catch (InterruptedException e) {
+        LOGGER.error("Interrupted while waiting file prepare thread pool to exit. ", e);
+        Thread.currentThread().interrupt();
+      }
+    }
+    prepareTaskPool = null;
   }
 
   private static class FileLoaderManagerHolder {
@@ -20,6 +20,7 @@ package org.apache.iotdb.db.sync.receiver.transfer;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -27,6 +28,8 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.iotdb.db.concurrent.ThreadName;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBConstant;
@@ -42,6 +45,7 @@ import org.apache.iotdb.db.sync.conf.SyncConstant;
 import org.apache.iotdb.db.sync.receiver.load.FileLoader;
 import org.apache.iotdb.db.sync.receiver.load.FileLoaderManager;
 import org.apache.iotdb.db.sync.receiver.load.IFileLoader;
+import org.apache.iotdb.db.sync.receiver.load.LoadType;
 import org.apache.iotdb.db.sync.receiver.recover.SyncReceiverLogAnalyzer;
 import org.apache.iotdb.db.sync.receiver.recover.SyncReceiverLogger;
 import org.apache.iotdb.db.utils.FilePathUtils;
@@ -57,13 +61,20 @@ public class SyncServiceImpl implements SyncService.Iface {
 
   private static final Logger logger = LoggerFactory.getLogger(SyncServiceImpl.class);
 
+  private static final String SYNC_TASK_NOT_STARTED = "Sync task is not started";
+
   private IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
 
-  private ThreadLocal<String> syncFolderPath = new ThreadLocal<>();
+  /**
+   * sender name -> the sync task of the sender, which is shared by the connections of the sender
+   * transferring files in parallel, and is kept for the sender to reconnect until it ends the
+   * task or starts a new one.
+   */
+  private Map<String, SyncTask> syncTasks = new ConcurrentHashMap<>();
 
-  private ThreadLocal<String> currentSG = new ThreadLocal<>();
+  private ThreadLocal<SyncTask> syncTask = new ThreadLocal<>();
 
-  private ThreadLocal<SyncReceiverLogger> syncLog = new ThreadLocal<>();
+  private ThreadLocal<String> currentSG = new ThreadLocal<>();
 
   private ThreadLocal<String> senderName = new ThreadLocal<>();
 
@@ -93,6 +104,15 @@ public class SyncServiceImpl implements SyncService.Iface {
     }
     if (SyncUtils.verifyIPSegment(config.getIpWhiteList(), ipAddress)) {
       senderName.set(ipAddress + SyncConstant.SYNC_DIR_NAME_SEPARATOR + uuid);
+      closeCurrentFile();
+      SyncTask task = syncTasks.get(senderName.get());
+      if (task != null) {
+        // another connection of the sender, or the sender reconnects
+        syncTask.set(task);
+        logger.info("Sender {} joins its sync task", senderName.get());
+        return getSuccessResult();
+      }
+      syncTask.remove();
       if (checkRecovery()) {
         logger.info("Start to sync with sender {}", senderName.get());
         return getSuccessResult();
@@ -107,12 +127,6 @@ public class SyncServiceImpl implements SyncService.Iface {
 
   private boolean checkRecovery() {
     try {
-      if (currentFileWriter.get() != null && currentFileWriter.get().isOpen()) {
-        currentFileWriter.get().close();
-      }
-      if (syncLog.get() != null) {
-        syncLog.get().close();
-      }
       return SyncReceiverLogAnalyzer.getInstance().recover(senderName.get());
     } catch (IOException e) {
       logger.error("Check recovery state fail", e);
@@ -123,11 +137,21 @@ public class SyncServiceImpl implements SyncService.Iface {
   @Override
   public SyncStatus startSync() {
     try {
-      initPath();
+      SyncTask previousTask = syncTasks.remove(senderName.get());
+      if (previousTask != null) {
+        // the previous sync task is not ended, e.g., the sender is restarted
+        previousTask.syncLog.close();
+        if (!checkRecovery()) {
+          return getErrorResult("Receiver is processing data from previous sync tasks");
+        }
+      }
+      String syncFolderPath = initPath();
       currentSG.remove();
-      FileLoader.createFileLoader(senderName.get(), syncFolderPath.get());
-      syncLog
-          .set(new SyncReceiverLogger(new File(syncFolderPath.get(), SyncConstant.SYNC_LOG_NAME)));
+      FileLoader.createFileLoader(senderName.get(), syncFolderPath);
+      SyncTask task = new SyncTask(syncFolderPath,
+          new SyncReceiverLogger(new File(syncFolderPath, SyncConstant.SYNC_LOG_NAME)));
+      syncTasks.put(senderName.get(), task);
+      syncTask.set(task);
       return getSuccessResult();
     } catch (DiskSpaceInsufficientException | IOException e) {
       logger.error("Can not receiver data from sender", e);
@@ -138,12 +162,11 @@ public class SyncServiceImpl implements SyncService.Iface {
   /**
    * Init file path.
    */
-  private void initPath() throws DiskSpaceInsufficientException {
+  private String initPath() throws DiskSpaceInsufficientException {
     String dataDir = new File(DirectoryManager.getInstance().getNextFolderForSequenceFile())
         .getParentFile().getAbsolutePath();
-    syncFolderPath
-        .set(FilePathUtils.regularizePath(dataDir) + SyncConstant.SYNC_RECEIVER + File.separatorChar
-            + senderName.get());
+    return FilePathUtils.regularizePath(dataDir) + SyncConstant.SYNC_RECEIVER + File.separatorChar
+        + senderName.get();
   }
 
   /**
@@ -152,23 +175,22 @@ public class SyncServiceImpl implements SyncService.Iface {
   @Override
   public SyncStatus init(String storageGroup) {
     logger.info("Sync process started to receive data of storage group {}", storageGroup);
-    currentSG.set(storageGroup);
-    try {
-      syncLog.get().startSyncDeletedFilesName();
-    } catch (IOException e) {
-      logger.error("Can not init sync process", e);
-      return getErrorResult(e.getMessage());
+    if (syncTask.get() == null) {
+      return getErrorResult(SYNC_TASK_NOT_STARTED);
     }
+    currentSG.set(storageGroup);
     return getSuccessResult();
   }
 
   @Override
   public SyncStatus syncDeletedFileName(String fileName) throws TException {
+    if (syncTask.get() == null) {
+      return getErrorResult(SYNC_TASK_NOT_STARTED);
+    }
     try {
-      syncLog.get().finishSyncDeletedFileName(
-          new File(getSyncDataPath(), currentSG.get() + File.separatorChar + fileName));
-      FileLoaderManager.getInstance().getFileLoader(senderName.get()).addDeletedFileName(
-          new File(getSyncDataPath(), currentSG.get() + File.separatorChar + fileName));
+      finishSyncFile(
+          new File(getSyncDataPath(), currentSG.get() + File.separatorChar + fileName),
+          LoadType.DELETE);
     } catch (IOException e) {
       logger.error("Can not sync deleted file", e);
       return getErrorResult(
@@ -177,9 +199,17 @@ public class SyncServiceImpl implements SyncService.Iface {
     return getSuccessResult();
   }
 
+  /**
+   * The msg of the result is the length of the file received, from which the sender resumes the
+   * transfer. The received part of a tsfile or a .resource file is kept until its MD5 check fails,
+   * while the schema file is always received from the beginning.
+   */
   @SuppressWarnings("squid:S2095") // Suppress unclosed resource warning
   @Override
   public SyncStatus initSyncData(String filename) throws TException {
+    if (syncTask.get() == null) {
+      return getErrorResult(SYNC_TASK_NOT_STARTED);
+    }
     try {
       File file;
       if (currentSG.get() == null) { // schema mlog.txt file
@@ -187,33 +217,48 @@ public class SyncServiceImpl implements SyncService.Iface {
       } else {
         file = new File(getSyncDataPath(), currentSG.get() + File.separatorChar + filename);
       }
-      file.delete();
+      closeCurrentFile();
+      MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+      boolean resume = currentSG.get() != null && file.exists();
+      if (resume) {
+        digestFile(file, md);
+        logger.info("Resume receiving {} from {} bytes", file, file.length());
+      } else {
+        file.delete();
+      }
       currentFile.set(file);
       if (!file.getParentFile().exists()) {
         file.getParentFile().mkdirs();
       }
-      if (currentFileWriter.get() != null && currentFileWriter.get().isOpen()) {
-        currentFileWriter.get().close();
-      }
-      currentFileWriter.set(new FileOutputStream(file).getChannel());
-      syncLog.get().startSyncTsFiles();
-      messageDigest.set(MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME));
+      currentFileWriter.set(new FileOutputStream(file, resume).getChannel());
+      messageDigest.set(md);
+      return new SyncStatus(SyncConstant.SUCCESS_CODE, Long.toString(file.length()));
     } catch (IOException | NoSuchAlgorithmException e) {
       logger.error("Can not init sync resource for file {}", filename, e);
       return getErrorResult(
           String.format("Can not init sync resource for file %s because %s", filename,
               e.getMessage()));
     }
-    return getSuccessResult();
+  }
+
+  private void digestFile(File file, MessageDigest md) throws IOException {
+    try (FileInputStream in = new FileInputStream(file)) {
+      byte[] buffer = new byte[64 * 1024];
+      int length;
+      while ((length = in.read(buffer)) != -1) {
+        md.update(buffer, 0, length);
+      }
+    }
   }
 
   @Override
   public SyncStatus syncData(ByteBuffer buff) {
     try {
-      int pos = buff.position();
-      currentFileWriter.get().write(buff);
-      buff.position(pos);
-      messageDigest.get().update(buff);
+      ByteBuffer data = SyncUtils.decodeChunk(buff);
+      int pos = data.position();
+      currentFileWriter.get().write(data);
+      data.position(pos);
+      messageDigest.get().update(data);
     } catch (IOException e) {
       logger.error("Can not sync data for file {}", currentFile.get().getAbsoluteFile(), e);
       return getErrorResult(String
@@ -238,16 +283,14 @@ public class SyncServiceImpl implements SyncService.Iface {
                 .format("MD5 of the sender is differ from MD5 of the receiver of the file %s.",
                         currentFile.get().getAbsolutePath()));
       } else {
-        if (currentFile.get().getName().endsWith(MetadataConstant.METADATA_LOG)) {
+        if (currentFile.get().getName().endsWith(MetadataConstant.METADATA_TXT_LOG)) {
           loadMetadata();
         } else {
           if (!currentFile.get().getName().endsWith(TsFileResource.RESOURCE_SUFFIX)) {
             logger.info("Receiver has received {} successfully.", currentFile.get());
             FileLoaderManager.getInstance().checkAndUpdateDeviceOwner(
                 new TsFileResource(new File(currentFile.get() + TsFileResource.RESOURCE_SUFFIX)));
-            syncLog.get().finishSyncTsfile(currentFile.get());
-            FileLoaderManager.getInstance().getFileLoader(senderName.get())
-                .addTsfile(currentFile.get());
+            finishSyncFile(currentFile.get(), LoadType.ADD);
           }
         }
       }
@@ -266,6 +309,32 @@ public class SyncServiceImpl implements SyncService.Iface {
     return new SyncStatus(SyncConstant.SUCCESS_CODE, md5OfReceiver);
   }
 
+  /**
+   * Log a received file and pass it to the file loader. The connections of a sender share the log
+   * and the loader, so the order in the log is the order of loading, which the recovery relies on.
+   */
+  private void finishSyncFile(File file, LoadType type) throws IOException {
+    SyncTask task = syncTask.get();
+    synchronized (task) {
+      IFileLoader loader = FileLoaderManager.getInstance().getFileLoader(senderName.get());
+      if (type == LoadType.ADD) {
+        if (task.curType != LoadType.ADD) {
+          task.syncLog.startSyncTsFiles();
+          task.curType = LoadType.ADD;
+        }
+        task.syncLog.finishSyncTsfile(file);
+        loader.addTsfile(file);
+      } else {
+        if (task.curType != LoadType.DELETE) {
+          task.syncLog.startSyncDeletedFilesName();
+          task.curType = LoadType.DELETE;
+        }
+        task.syncLog.finishSyncDeletedFileName(file);
+        loader.addDeletedFileName(file);
+      }
+    }
+  }
+
   private void loadMetadata() {
     logger.info("Start to load metadata in sync process.");
     if (currentFile.get().exists()) {
@@ -288,8 +357,9 @@ public class SyncServiceImpl implements SyncService.Iface {
   @Override
   public SyncStatus endSync() throws TException {
     try {
-      if (syncLog.get() != null) {
-        syncLog.get().close();
+      if (syncTask.get() != null) {
+        syncTasks.remove(senderName.get(), syncTask.get());
+        syncTask.get().syncLog.close();
       }
       IFileLoader loader = FileLoaderManager.getInstance().getFileLoader(senderName.get());
       if (loader != null) {
@@ -303,19 +373,34 @@ public class SyncServiceImpl implements SyncService.Iface {
       logger.error("Can not end sync", e);
       return getErrorResult(String.format("Can not end sync because %s", e.getMessage()));
     } finally {
-      syncFolderPath.remove();
-      currentSG.remove();
-      syncLog.remove();
-      senderName.remove();
-      currentFile.remove();
-      currentFileWriter.remove();
-      messageDigest.remove();
+      clearConnection();
     }
     return getSuccessResult();
   }
 
+  private void closeCurrentFile() {
+    try {
+      if (currentFileWriter.get() != null && currentFileWriter.get().isOpen()) {
+        currentFileWriter.get().close();
+      }
+    } catch (IOException e) {
+      logger.error("Can not close file {}", currentFile.get(), e);
+    }
+  }
+
+  private void clearConnection() {
+    closeCurrentFile();
+    syncTask.remove();
+    currentSG.remove();
+    senderName.remove();
+    currentFile.remove();
+    currentFileWriter.remove();
+    messageDigest.remove();
+  }
+
   private String getSyncDataPath() {
-    return syncFolderPath.get() + File.separatorChar + SyncConstant.RECEIVER_DATA_FOLDER_NAME;
+    return syncTask.get().syncFolderPath + File.separatorChar
+        + SyncConstant.RECEIVER_DATA_FOLDER_NAME;
   }
 
   private SyncStatus getSuccessResult() {
@@ -330,6 +415,24 @@ public class SyncServiceImpl implements SyncService.Iface {
    * release resources or cleanup when a client (a sender) is disconnected (normally or abnormally).
    */
   public void handleClientExit() {
-    //do nothing now
+    // the sync task is kept for the other connections of the sender and its reconnection
+    clearConnection();
+  }
+
+  private static class SyncTask {
+
+    private final String syncFolderPath;
+
+    private final SyncReceiverLogger syncLog;
+
+    /**
+     * the type of the files logged last, guarded by the task.
+     */
+    private LoadType curType = LoadType.NONE;
+
+    private SyncTask(String syncFolderPath, SyncReceiverLogger syncLog) {
+      this.syncFolderPath = syncFolderPath;
+      this.syncLog = syncLog;
+    }
   }
 }
\ No newline at end of file
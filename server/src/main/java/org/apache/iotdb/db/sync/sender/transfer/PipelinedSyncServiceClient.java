@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.sender.transfer;
+
+import java.nio.ByteBuffer;
+import org.apache.iotdb.service.sync.thrift.SyncService;
+import org.apache.iotdb.service.sync.thrift.SyncStatus;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFastFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * A client of a connection to the receiver, which can send the chunks of a file without waiting
+ * for the responses of the previous chunks. The receiver handles the requests of a connection one
+ * by one, so the responses come in the order of the chunks. The client can reconnect to the
+ * receiver after the connection is broken.
+ */
+public class PipelinedSyncServiceClient extends SyncService.Client {
+
+  private final String serverIp;
+
+  private final int serverPort;
+
+  private final int timeoutMs;
+
+  private TTransport transport;
+
+  /**
+   * The sequence ids of the last chunk sent and the last response received.
+   */
+  private int lastSentSeqId;
+
+  private int lastReceivedSeqId;
+
+  public PipelinedSyncServiceClient(String serverIp, int serverPort, int timeoutMs) {
+    super(null);
+    this.serverIp = serverIp;
+    this.serverPort = serverPort;
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Open a new connection, the previous one is closed.
+   */
+  public void connect() throws TTransportException {
+    close();
+    transport = new TFastFramedTransport(new TSocket(serverIp, serverPort, timeoutMs));
+    transport.open();
+    iprot_ = new TBinaryProtocol(transport);
+    oprot_ = iprot_;
+    seqid_ = 0;
+    lastSentSeqId = 0;
+    lastReceivedSeqId = 0;
+  }
+
+  /**
+   * Send a chunk of data, whose response is received by receiveData().
+   */
+  public void sendData(ByteBuffer chunk) throws TException {
+    if (getPendingNum() == 0) {
+      lastSentSeqId = seqid_;
+      lastReceivedSeqId = seqid_;
+    }
+    seqid_ = lastSentSeqId;
+    send_syncData(chunk);
+    lastSentSeqId = seqid_;
+  }
+
+  /**
+   * Receive the response of the earliest chunk whose response is not received.
+   */
+  public SyncStatus receiveData() throws TException {
+    seqid_ = ++lastReceivedSeqId;
+    try {
+      return recv_syncData();
+    } finally {
+      seqid_ = lastSentSeqId;
+    }
+  }
+
+  /**
+   * @return the number of chunks sent whose responses are not received
+   */
+  public int getPendingNum() {
+    return lastSentSeqId - lastReceivedSeqId;
+  }
+
+  public void close() {
+    if (transport != null) {
+      transport.close();
+      transport = null;
+    }
+  }
+}
@@ -40,6 +40,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -48,8 +49,15 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.io.FileUtils;
 import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
 import org.apache.iotdb.db.concurrent.ThreadName;
@@ -58,7 +66,11 @@ import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.exception.SyncConnectionException;
 import org.apache.iotdb.db.exception.SyncDeviceOwnerConflictException;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.MLogReader;
 import org.apache.iotdb.db.metadata.MetadataConstant;
+import org.apache.iotdb.db.metadata.SchemaFileConverter;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
 import org.apache.iotdb.db.sync.conf.SyncConstant;
 import org.apache.iotdb.db.sync.conf.SyncSenderConfig;
 import org.apache.iotdb.db.sync.conf.SyncSenderDescriptor;
@@ -73,11 +85,6 @@ import org.apache.iotdb.service.sync.thrift.SyncService;
 import org.apache.iotdb.service.sync.thrift.SyncStatus;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.protocol.TProtocol;
-import org.apache.thrift.transport.TFastFramedTransport;
-import org.apache.thrift.transport.TSocket;
-import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -100,9 +107,7 @@ public class SyncClient implements ISyncClient {
    */
   private int schemaFileLinePos;
 
-  private TTransport transport;
-
-  private SyncService.Client serviceClient;
+  private PipelinedSyncServiceClient serviceClient;
 
   private Map<String, Set<Long>> allSG;
 
@@ -260,7 +265,7 @@ public class SyncClient implements ISyncClient {
     // At this point the synchronization has finished even if connection fails
     try {
       serviceClient.endSync();
-      transport.close();
+      serviceClient.close();
       logger.info("Sync process has finished.");
     } catch (TException e) {
       logger.error("Unable to connect to receiver.", e);
@@ -273,13 +278,9 @@ public class SyncClient implements ISyncClient {
 
   @Override
   public void establishConnection(String serverIp, int serverPort) throws SyncConnectionException {
-    transport = new TFastFramedTransport(new TSocket(serverIp, serverPort, TIMEOUT_MS));
-    TProtocol protocol = new TBinaryProtocol(transport);
-    serviceClient = new SyncService.Client(protocol);
+    serviceClient = new PipelinedSyncServiceClient(serverIp, serverPort, TIMEOUT_MS);
     try {
-      if (!transport.isOpen()) {
-        transport.open();
-      }
+      serviceClient.connect();
     } catch (TTransportException e) {
       logger.error("Cannot connect to the receiver.");
       throw new SyncConnectionException(e);
@@ -288,12 +289,15 @@ public class SyncClient implements ISyncClient {
 
   @Override
   public void confirmIdentity() throws SyncConnectionException {
+    confirmIdentity(serviceClient);
+  }
+
+  private void confirmIdentity(SyncService.Client client) throws SyncConnectionException {
     try (Socket socket = new Socket(config.getServerIp(), config.getServerPort())) {
       ConfirmInfo info = new ConfirmInfo(socket.getLocalAddress().getHostAddress(),
           getOrCreateUUID(getUuidFile()),
           IoTDBDescriptor.getInstance().getConfig().getPartitionInterval(), IoTDBConstant.VERSION);
-      SyncStatus status = serviceClient
-          .check(info);
+      SyncStatus status = client.check(info);
       if (status.code != SUCCESS_CODE) {
         throw new SyncConnectionException(
             "The receiver rejected the synchronization task because " + status.msg);
@@ -342,7 +346,7 @@ public class SyncClient implements ISyncClient {
       return;
     }
     int retryCount = 0;
-    serviceClient.initSyncData(MetadataConstant.METADATA_LOG);
+    serviceClient.initSyncData(MetadataConstant.METADATA_TXT_LOG);
     while (true) {
       if (retryCount > config.getMaxNumOfSyncFileRetry()) {
         throw new SyncConnectionException(String
@@ -360,24 +364,26 @@ public class SyncClient implements ISyncClient {
     int schemaPos = readSyncSchemaPos(getSchemaPosFile());
 
     // start to sync file data and get md5 of this file.
-    try (BufferedReader br = new BufferedReader(new FileReader(getSchemaLogFile()));
-        ByteArrayOutputStream bos = new ByteArrayOutputStream(SyncConstant.DATA_CHUNK_SIZE)) {
+    // the logs of mlog.bin are sent in the text format, which is the format of the receiver
+    try (MLogReader reader = new MLogReader(getSchemaLogFile());
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(config.getSyncChunkSizeInByte())) {
       schemaFileLinePos = 0;
-      String line;
-      while (schemaFileLinePos < schemaPos) {
-        line = br.readLine();
+      while (schemaFileLinePos < schemaPos && reader.next() != null) {
         schemaFileLinePos++;
       }
       MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
       int cntLine = 0;
-      while ((line = br.readLine()) != null) {
+      PhysicalPlan plan;
+      while ((plan = reader.next()) != null) {
         schemaFileLinePos++;
-        byte[] singleLineData = BytesUtils.stringToBytes(line);
+        byte[] singleLineData = BytesUtils.stringToBytes(SchemaFileConverter.toTxtLog(plan));
         bos.write(singleLineData);
         bos.write("\r\n".getBytes());
         if (cntLine++ == BATCH_LINE) {
-          md.update(bos.toByteArray());
-          ByteBuffer buffToSend = ByteBuffer.wrap(bos.toByteArray());
+          byte[] data = bos.toByteArray();
+          md.update(data);
+          ByteBuffer buffToSend = SyncUtils
+              .encodeChunk(data, data.length, config.isSyncCompressionEnable());
           bos.reset();
           SyncStatus status = serviceClient.syncData(buffToSend);
           if (status.code != SUCCESS_CODE) {
@@ -388,8 +394,10 @@ public class SyncClient implements ISyncClient {
         }
       }
       if (bos.size() != 0) {
-        md.update(bos.toByteArray());
-        ByteBuffer buffToSend = ByteBuffer.wrap(bos.toByteArray());
+        byte[] data = bos.toByteArray();
+        md.update(data);
+        ByteBuffer buffToSend = SyncUtils
+            .encodeChunk(data, data.length, config.isSyncCompressionEnable());
         bos.reset();
         SyncStatus status = serviceClient.syncData(buffToSend);
         if (status.code != SUCCESS_CODE) {
@@ -400,7 +408,7 @@ public class SyncClient implements ISyncClient {
 
       // check md5
       return checkMD5ForSchema(new BigInteger(1, md.digest()).toString(16));
-    } catch (NoSuchAlgorithmException | IOException | TException e) {
+    } catch (NoSuchAlgorithmException | IOException | TException | MetadataException e) {
       logger.error("Can not finish transfer schema to receiver", e);
       return false;
     }
@@ -530,6 +538,10 @@ public class SyncClient implements ISyncClient {
     logger.info("Finish to sync names of deleted files in storage group {}", sgName);
   }
 
+  /**
+   * Transfer the tsfiles of a group, at most sync_parallel_file_num of which are transferred in
+   * parallel, each on its own connection.
+   */
   @Override
   public void syncDataFilesInOneGroup(String sgName, Long timeRangeId, Set<File> toBeSyncFiles)
       throws SyncConnectionException, IOException, SyncDeviceOwnerConflictException {
@@ -539,26 +551,122 @@ public class SyncClient implements ISyncClient {
     }
     syncLog.startSyncTsFiles();
     logger.info("Sync process starts to transfer data of storage group {}", sgName);
-    int cnt = 0;
-    for (File tsfile : toBeSyncFiles) {
-      cnt++;
-      try {
-        File snapshotFile = makeFileSnapshot(tsfile);
-        // firstly sync .resource file, then sync tsfile
-        syncSingleFile(new File(snapshotFile.getAbsolutePath() + TsFileResource.RESOURCE_SUFFIX));
-        syncSingleFile(snapshotFile);
-        lastLocalFilesMap.get(sgName).get(timeRangeId).add(tsfile);
-        syncLog.finishSyncTsfile(tsfile);
-        logger.info("Task of synchronization has completed {}/{}.", cnt, toBeSyncFiles.size());
-      } catch (IOException e) {
-        logger.info(
-            "Tsfile {} can not make snapshot, so skip the tsfile and continue to sync other tsfiles",
-            tsfile, e);
+    int parallelism = Math.max(1, Math.min(config.getSyncParallelFileNum(), toBeSyncFiles.size()));
+    BlockingQueue<PipelinedSyncServiceClient> clients = new LinkedBlockingQueue<>();
+    clients.add(serviceClient);
+    ExecutorService pool = IoTDBThreadPoolFactory
+        .newFixedThreadPool(parallelism, ThreadName.SYNC_CLIENT.getName());
+    AtomicInteger cnt = new AtomicInteger();
+    AtomicBoolean aborted = new AtomicBoolean();
+    try {
+      for (int i = 1; i < parallelism; i++) {
+        PipelinedSyncServiceClient client = new PipelinedSyncServiceClient(config.getServerIp(),
+            config.getServerPort(), TIMEOUT_MS);
+        try {
+          connect(client, sgName);
+          clients.add(client);
+        } catch (SyncConnectionException e) {
+          // the files are transferred by fewer connections
+          logger.warn("Can not open more connections to the receiver, use {} of them",
+              clients.size(), e);
+          client.close();
+          break;
+        }
+      }
+      List<Future<Void>> futures = new ArrayList<>();
+      for (File tsfile : toBeSyncFiles) {
+        futures.add(pool.submit(() -> {
+          if (aborted.get()) {
+            return null;
+          }
+          PipelinedSyncServiceClient client = clients.take();
+          try {
+            syncTsFile(client, sgName, timeRangeId, tsfile);
+          } catch (SyncConnectionException | SyncDeviceOwnerConflictException e) {
+            aborted.set(true);
+            throw e;
+          } finally {
+            clients.add(client);
+          }
+          logger.info("Task of synchronization has completed {}/{}.", cnt.incrementAndGet(),
+              toBeSyncFiles.size());
+          return null;
+        }));
+      }
+      waitForFiles(futures);
+    } finally {
+      pool.shutdownNow();
+      for (PipelinedSyncServiceClient client : clients) {
+        if (client != serviceClient) {
+          client.close();
+        }
       }
     }
     logger.info("Sync process has finished storage group {}.", sgName);
   }
 
+  private void waitForFiles(List<Future<Void>> futures)
+      throws SyncConnectionException, SyncDeviceOwnerConflictException {
+    Exception failure = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SyncConnectionException("Interrupted when syncing tsfiles", e);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = (Exception) e.getCause();
+        }
+      }
+    }
+    if (failure instanceof SyncDeviceOwnerConflictException) {
+      throw (SyncDeviceOwnerConflictException) failure;
+    } else if (failure instanceof SyncConnectionException) {
+      throw (SyncConnectionException) failure;
+    } else if (failure != null) {
+      throw new SyncConnectionException("Can not sync tsfiles", failure);
+    }
+  }
+
+  private void syncTsFile(PipelinedSyncServiceClient client, String sgName, Long timeRangeId,
+      File tsfile) throws SyncConnectionException, SyncDeviceOwnerConflictException, IOException {
+    File snapshotFile;
+    try {
+      snapshotFile = makeFileSnapshot(tsfile);
+    } catch (IOException e) {
+      logger.info(
+          "Tsfile {} can not make snapshot, so skip the tsfile and continue to sync other tsfiles",
+          tsfile, e);
+      return;
+    }
+    // firstly sync .resource file, then sync tsfile
+    syncSingleFile(client, sgName,
+        new File(snapshotFile.getAbsolutePath() + TsFileResource.RESOURCE_SUFFIX));
+    syncSingleFile(client, sgName, snapshotFile);
+    synchronized (this) {
+      lastLocalFilesMap.get(sgName).get(timeRangeId).add(tsfile);
+      syncLog.finishSyncTsfile(tsfile);
+    }
+  }
+
+  /**
+   * Open a connection to the receiver, which joins the sync task of the main connection.
+   */
+  private void connect(PipelinedSyncServiceClient client, String sgName)
+      throws SyncConnectionException {
+    try {
+      client.connect();
+      confirmIdentity(client);
+      SyncStatus status = client.init(sgName);
+      if (status.code != SUCCESS_CODE) {
+        throw new SyncConnectionException("Unable init receiver because " + status.msg);
+      }
+    } catch (TException e) {
+      throw new SyncConnectionException("Unable to connect to receiver", e);
+    }
+  }
+
   /**
    * Make snapshot<hard link> for new tsfile and its .restore file.
    *
@@ -581,57 +689,113 @@ public class SyncClient implements ISyncClient {
   }
 
   /**
-   * Transfer data of a tsfile to the receiver.
+   * Transfer data of a tsfile to the receiver. The chunks are sent without waiting for the
+   * responses of the previous chunks, unless max_number_of_inflight_chunks responses are pending.
+   * The transfer resumes from the length received by the receiver after a failure, and the
+   * connection is reopened if it is broken.
    */
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
-  private void syncSingleFile(File snapshotFile)
+  private void syncSingleFile(PipelinedSyncServiceClient client, String sgName, File snapshotFile)
       throws SyncConnectionException, SyncDeviceOwnerConflictException {
-    try {
-      int retryCount = 0;
-      MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
-      serviceClient.initSyncData(snapshotFile.getName());
-      outer:
-      while (true) {
-        retryCount++;
-        if (retryCount > config.getMaxNumOfSyncFileRetry()) {
-          throw new SyncConnectionException(String
-              .format("Can not sync file %s after %s tries.", snapshotFile.getAbsoluteFile(),
-                  config.getMaxNumOfSyncFileRetry()));
-        }
-        md.reset();
-        byte[] buffer = new byte[SyncConstant.DATA_CHUNK_SIZE];
-        int dataLength;
-        try (FileInputStream fis = new FileInputStream(snapshotFile);
-            ByteArrayOutputStream bos = new ByteArrayOutputStream(SyncConstant.DATA_CHUNK_SIZE)) {
-          while ((dataLength = fis.read(buffer)) != -1) { // cut the file into pieces to send
-            bos.write(buffer, 0, dataLength);
-            md.update(buffer, 0, dataLength);
-            ByteBuffer buffToSend = ByteBuffer.wrap(bos.toByteArray());
-            bos.reset();
-            SyncStatus status = serviceClient.syncData(buffToSend);
-            if(status.code == CONFLICT_CODE){
-              throw new SyncDeviceOwnerConflictException(status.msg);
-            }
-            if (status.code != SUCCESS_CODE) {
-              logger.info("Receiver failed to receive data from {} because {}, retry.",
-                  status.msg, snapshotFile.getAbsoluteFile());
-              continue outer;
-            }
-          }
+    int retryCount = 0;
+    while (true) {
+      retryCount++;
+      if (retryCount > config.getMaxNumOfSyncFileRetry()) {
+        throw new SyncConnectionException(String
+            .format("Can not sync file %s after %s tries.", snapshotFile.getAbsoluteFile(),
+                config.getMaxNumOfSyncFileRetry()));
+      }
+      try {
+        if (tryToSyncSingleFile(client, snapshotFile)) {
+          return;
         }
+      } catch (TException e) {
+        logger.warn("Connection broken when syncing {}, reconnect and retry.",
+            snapshotFile.getAbsoluteFile(), e);
+        connect(client, sgName);
+      } catch (IOException | NoSuchAlgorithmException e) {
+        throw new SyncConnectionException("Cannot sync data with receiver.", e);
+      }
+    }
+  }
 
-        // the file is sent successfully
-        String md5OfSender = (new BigInteger(1, md.digest())).toString(16);
-        SyncStatus status = serviceClient.checkDataMD5(md5OfSender);
-        if (status.code == SUCCESS_CODE && md5OfSender.equals(status.msg)) {
-          logger.info("Receiver has received {} successfully.", snapshotFile.getAbsoluteFile());
-          break;
-        } else {
-          logger.error("MD5 check of tsfile {} failed, retry", snapshotFile.getAbsoluteFile());
+  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  private boolean tryToSyncSingleFile(PipelinedSyncServiceClient client, File snapshotFile)
+      throws TException, IOException, NoSuchAlgorithmException, SyncDeviceOwnerConflictException {
+    SyncStatus status = client.initSyncData(snapshotFile.getName());
+    if (status.code != SUCCESS_CODE) {
+      logger.info("Receiver failed to init {} because {}, retry.",
+          snapshotFile.getAbsoluteFile(), status.msg);
+      return false;
+    }
+    long offset = parseOffset(status.msg);
+    MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+    SyncStatus failure = null;
+    byte[] buffer = new byte[config.getSyncChunkSizeInByte()];
+    int dataLength;
+    try (FileInputStream fis = new FileInputStream(snapshotFile)) {
+      // the received part is not sent again, but is needed by the MD5
+      long skipped = 0;
+      while (skipped < offset && (dataLength = fis
+          .read(buffer, 0, (int) Math.min(buffer.length, offset - skipped))) != -1) {
+        md.update(buffer, 0, dataLength);
+        skipped += dataLength;
+      }
+      if (offset > 0) {
+        logger.info("Resume syncing {} from {} bytes", snapshotFile.getAbsoluteFile(), offset);
+      }
+      while (failure == null
+          && (dataLength = fis.read(buffer)) != -1) { // cut the file into pieces to send
+        md.update(buffer, 0, dataLength);
+        client.sendData(
+            SyncUtils.encodeChunk(buffer, dataLength, config.isSyncCompressionEnable()));
+        if (client.getPendingNum() >= config.getMaxNumOfInflightChunks()) {
+          failure = checkDataStatus(client.receiveData());
         }
       }
-    } catch (IOException | TException | NoSuchAlgorithmException e) {
-      throw new SyncConnectionException("Cannot sync data with receiver.", e);
+      // the responses of all chunks are received to keep the connection in order
+      while (client.getPendingNum() > 0) {
+        SyncStatus pendingStatus = checkDataStatus(client.receiveData());
+        failure = failure == null ? pendingStatus : failure;
+      }
+    }
+    if (failure != null) {
+      if (failure.code == CONFLICT_CODE) {
+        throw new SyncDeviceOwnerConflictException(failure.msg);
+      }
+      logger.info("Receiver failed to receive data from {} because {}, retry.",
+          snapshotFile.getAbsoluteFile(), failure.msg);
+      return false;
+    }
+
+    // the file is sent successfully
+    String md5OfSender = (new BigInteger(1, md.digest())).toString(16);
+    status = client.checkDataMD5(md5OfSender);
+    if (status.code == SUCCESS_CODE && md5OfSender.equals(status.msg)) {
+      logger.info("Receiver has received {} successfully.", snapshotFile.getAbsoluteFile());
+      return true;
+    } else if (status.code == CONFLICT_CODE) {
+      throw new SyncDeviceOwnerConflictException(status.msg);
+    } else {
+      logger.error("MD5 check of tsfile {} failed, retry", snapshotFile.getAbsoluteFile());
+      return false;
+    }
+  }
+
+  /**
+   * @return null if the chunk is received, otherwise the status
+   */
+  private SyncStatus checkDataStatus(SyncStatus status) {
+    return status.code == SUCCESS_CODE ? null : status;
+  }
+
+  /**
+   * @return the length of the file received by the receiver
+   */
+  private long parseOffset(String msg) {
+    try {
+      return msg == null || msg.isEmpty() ? 0 : Long.parseLong(msg);
+    } catch (NumberFormatException e) {
+      return 0;
     }
   }
 
@@ -177,9 +177,8 @@ public class QueryDataSetUtils {
 
   public static long[] readTimesFromBuffer(ByteBuffer buffer, int size) {
     long[] times = new long[size];
-    for (int i = 0; i < size; i++) {
-      times[i] = buffer.getLong();
-    }
+    buffer.asLongBuffer().get(times);
+    buffer.position(buffer.position() + size * Long.BYTES);
     return times;
   }
 
@@ -240,14 +239,7 @@ public class QueryDataSetUtils {
           values[i] = doubleValues;
           break;
         case TEXT:
-          Binary[] binaryValues = new Binary[size];
-          for (int index = 0; index < size; index++) {
-            int binarySize = buffer.getInt();
-            byte[] binaryValue = new byte[binarySize];
-            buffer.get(binaryValue);
-            binaryValues[index] = new Binary(binaryValue);
-          }
-          values[i] = binaryValues;
+          values[i] = readBinariesFromBuffer(buffer, size);
           break;
         default:
           throw new UnSupportedDataTypeException(
@@ -257,4 +249,43 @@ public class QueryDataSetUtils {
     }
     return values;
   }
+
+  /**
+   * Different from readValuesFromBuffer(), a non-TEXT column is not decoded but sliced from the
+   * buffer, so its values are copied only once when they are written into the memtable. The
+   * buffer must not be modified while the columns are in use.
+   *
+   * @param buffer  data values
+   * @param columns column number
+   * @param size    value count in each column
+   * @return the columns, each one is a ByteBuffer holding the serialized values or a Binary[]
+   */
+  public static Object[] sliceValuesFromBuffer(ByteBuffer buffer, List<Integer> types,
+      int columns, int size) {
+    Object[] values = new Object[columns];
+    for (int i = 0; i < columns; i++) {
+      TSDataType dataType = TSDataType.values()[types.get(i)];
+      if (dataType == TSDataType.TEXT) {
+        values[i] = readBinariesFromBuffer(buffer, size);
+        continue;
+      }
+      int columnSize = size * dataType.getDataTypeSize();
+      ByteBuffer column = buffer.slice();
+      column.limit(columnSize);
+      buffer.position(buffer.position() + columnSize);
+      values[i] = column;
+    }
+    return values;
+  }
+
+  private static Binary[] readBinariesFromBuffer(ByteBuffer buffer, int size) {
+    Binary[] binaryValues = new Binary[size];
+    for (int index = 0; index < size; index++) {
+      int binarySize = buffer.getInt();
+      byte[] binaryValue = new byte[binarySize];
+      buffer.get(binaryValue);
+      binaryValues[index] = new Binary(binaryValue);
+    }
+    return binaryValues;
+  }
 }
@@ -19,11 +19,17 @@
 package org.apache.iotdb.db.utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
 import org.apache.iotdb.db.sync.conf.SyncSenderDescriptor;
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 
 public class SyncUtils {
 
@@ -101,4 +107,48 @@ public class SyncUtils {
     ipAddressBinary = ipAddressBinary.substring(0, subnetMark);
     return ipAddressBinary.equals(ipSegmentBinary);
   }
+
+  /**
+   * Encode the data to be sent by syncData, which is codec(1 byte), [uncompressed length(4 bytes),
+   * if compressed], data. The data is compressed only if it gets smaller. It's used by sync sender.
+   */
+  public static ByteBuffer encodeChunk(byte[] data, int length, boolean compress)
+      throws IOException {
+    if (compress) {
+      ICompressor compressor = ICompressor.getCompressor(CompressionType.LZ4);
+      byte[] compressed = new byte[compressor.getMaxBytesForCompression(length)];
+      int compressedLength = compressor.compress(data, 0, length, compressed);
+      if (compressedLength < length) {
+        ByteBuffer chunk = ByteBuffer.allocate(1 + Integer.BYTES + compressedLength);
+        chunk.put(SyncConstant.CHUNK_LZ4);
+        chunk.putInt(length);
+        chunk.put(compressed, 0, compressedLength);
+        chunk.flip();
+        return chunk;
+      }
+    }
+    ByteBuffer chunk = ByteBuffer.allocate(1 + length);
+    chunk.put(SyncConstant.CHUNK_RAW);
+    chunk.put(data, 0, length);
+    chunk.flip();
+    return chunk;
+  }
+
+  /**
+   * Decode the data received by syncData, see encodeChunk(). It's used by sync receiver.
+   */
+  public static ByteBuffer decodeChunk(ByteBuffer chunk) throws IOException {
+    byte codec = chunk.get();
+    switch (codec) {
+      case SyncConstant.CHUNK_RAW:
+        return chunk.slice();
+      case SyncConstant.CHUNK_LZ4:
+        ByteBuffer data = ByteBuffer.allocate(chunk.getInt());
+        IUnCompressor.getUnCompressor(CompressionType.LZ4).uncompress(chunk, data);
+        data.flip();
+        return data;
+      default:
+        throw new IOException("Unknown codec of chunk " + codec);
+    }
+  }
 }
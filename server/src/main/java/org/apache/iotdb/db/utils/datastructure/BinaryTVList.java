@@ -92,7 +92,27 @@ public class BinaryTVList extends TVList {
     return cloneArray;
   }
 
+  @Override
+  protected BinaryTVList shareValues() {
+    BinaryTVList snapshot = new BinaryTVList();
+    snapshot.values = new ArrayList<>(values);
+    return snapshot;
+  }
+
+  @Override
+  protected void copySharedValues() {
+    for (int i = 0; i < values.size(); i++) {
+      Binary[] copy = (Binary[]) getPrimitiveArraysByType(TSDataType.TEXT);
+      System.arraycopy(values.get(i), 0, copy, 0, copy.length);
+      releaseArray(values.set(i, copy));
+    }
+  }
+
   public void sort() {
+    if (sorted) {
+      return;
+    }
+    copySharedArrays();
     if (sortedTimestamps == null || sortedTimestamps.length < size) {
       sortedTimestamps = (long[][]) PrimitiveArrayManager
           .createDataListsByType(TSDataType.INT64, size);
@@ -110,7 +130,7 @@ public class BinaryTVList extends TVList {
   void clearValue() {
     if (values != null) {
       for (Binary[] dataArray : values) {
-        PrimitiveArrayManager.release(dataArray);
+        releaseArray(dataArray);
       }
       values.clear();
     }
@@ -182,7 +202,7 @@ public class BinaryTVList extends TVList {
 
   @Override
   protected void releaseLastValueArray() {
-    PrimitiveArrayManager.release(values.remove(values.size() - 1));
+    releaseArray(values.remove(values.size() - 1));
   }
 
   @Override
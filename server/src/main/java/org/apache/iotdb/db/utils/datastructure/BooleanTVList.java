@@ -20,12 +20,14 @@ package org.apache.iotdb.db.utils.datastructure;
 
 import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.iotdb.db.rescon.PrimitiveArrayManager;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.BytesUtils;
 import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
 
 public class BooleanTVList extends TVList {
@@ -91,7 +93,27 @@ public class BooleanTVList extends TVList {
     return cloneArray;
   }
 
+  @Override
+  protected BooleanTVList shareValues() {
+    BooleanTVList snapshot = new BooleanTVList();
+    snapshot.values = new ArrayList<>(values);
+    return snapshot;
+  }
+
+  @Override
+  protected void copySharedValues() {
+    for (int i = 0; i < values.size(); i++) {
+      boolean[] copy = (boolean[]) getPrimitiveArraysByType(TSDataType.BOOLEAN);
+      System.arraycopy(values.get(i), 0, copy, 0, copy.length);
+      releaseArray(values.set(i, copy));
+    }
+  }
+
   public void sort() {
+    if (sorted) {
+      return;
+    }
+    copySharedArrays();
     if (sortedTimestamps == null || sortedTimestamps.length < size) {
       sortedTimestamps = (long[][]) PrimitiveArrayManager
           .createDataListsByType(TSDataType.INT64, size);
@@ -110,7 +132,7 @@ public class BooleanTVList extends TVList {
   void clearValue() {
     if (values != null) {
       for (boolean[] dataArray : values) {
-        PrimitiveArrayManager.release(dataArray);
+        releaseArray(dataArray);
       }
       values.clear();
     }
@@ -183,7 +205,7 @@ public class BooleanTVList extends TVList {
 
   @Override
   protected void releaseLastValueArray() {
-    PrimitiveArrayManager.release(values.remove(values.size() - 1));
+    releaseArray(values.remove(values.size() - 1));
   }
 
   @Override
@@ -215,4 +237,25 @@ public class BooleanTVList extends TVList {
       }
     }
   }
+
+  @Override
+  public void putBooleans(long[] time, ByteBuffer value, int start, int end) {
+    int idx = start;
+
+    updateMinTimeAndSorted(time, start, end);
+
+    while (idx < end) {
+      checkExpansion();
+      int arrayIdx = size / ARRAY_SIZE;
+      int elementIdx = size % ARRAY_SIZE;
+      int copied = Math.min(end - idx, ARRAY_SIZE - elementIdx);
+      System.arraycopy(time, idx, timestamps.get(arrayIdx), elementIdx, copied);
+      boolean[] valueArray = values.get(arrayIdx);
+      for (int i = 0; i < copied; i++) {
+        valueArray[elementIdx + i] = BytesUtils.byteToBool(value.get(idx + i));
+      }
+      idx += copied;
+      size += copied;
+    }
+  }
 }
@@ -20,6 +20,7 @@ package org.apache.iotdb.db.utils.datastructure;
 
 import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
 
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.iotdb.db.rescon.PrimitiveArrayManager;
@@ -92,7 +93,27 @@ public class DoubleTVList extends TVList {
     return cloneArray;
   }
 
+  @Override
+  protected DoubleTVList shareValues() {
+    DoubleTVList snapshot = new DoubleTVList();
+    snapshot.values = new ArrayList<>(values);
+    return snapshot;
+  }
+
+  @Override
+  protected void copySharedValues() {
+    for (int i = 0; i < values.size(); i++) {
+      double[] copy = (double[]) getPrimitiveArraysByType(TSDataType.DOUBLE);
+      System.arraycopy(values.get(i), 0, copy, 0, copy.length);
+      releaseArray(values.set(i, copy));
+    }
+  }
+
   public void sort() {
+    if (sorted) {
+      return;
+    }
+    copySharedArrays();
     if (sortedTimestamps == null || sortedTimestamps.length < size) {
       sortedTimestamps = (long[][]) PrimitiveArrayManager
           .createDataListsByType(TSDataType.INT64, size);
@@ -111,7 +132,7 @@ public class DoubleTVList extends TVList {
   void clearValue() {
     if (values != null) {
       for (double[] dataArray : values) {
-        PrimitiveArrayManager.release(dataArray);
+        releaseArray(dataArray);
       }
       values.clear();
     }
@@ -187,7 +208,7 @@ public class DoubleTVList extends TVList {
 
   @Override
   protected void releaseLastValueArray() {
-    PrimitiveArrayManager.release(values.remove(values.size() - 1));
+    releaseArray(values.remove(values.size() - 1));
   }
 
   @Override
@@ -219,4 +240,23 @@ public class DoubleTVList extends TVList {
       }
     }
   }
+
+  @Override
+  public void putDoubles(long[] time, DoubleBuffer value, int start, int end) {
+    int idx = start;
+
+    updateMinTimeAndSorted(time, start, end);
+
+    while (idx < end) {
+      checkExpansion();
+      int arrayIdx = size / ARRAY_SIZE;
+      int elementIdx = size % ARRAY_SIZE;
+      int copied = Math.min(end - idx, ARRAY_SIZE - elementIdx);
+      System.arraycopy(time, idx, timestamps.get(arrayIdx), elementIdx, copied);
+      value.position(idx);
+      value.get(values.get(arrayIdx), elementIdx, copied);
+      idx += copied;
+      size += copied;
+    }
+  }
 }
@@ -20,6 +20,7 @@ package org.apache.iotdb.db.utils.datastructure;
 
 import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
 
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -93,7 +94,27 @@ public class FloatTVList extends TVList {
     return cloneArray;
   }
 
+  @Override
+  protected FloatTVList shareValues() {
+    FloatTVList snapshot = new FloatTVList();
+    snapshot.values = new ArrayList<>(values);
+    return snapshot;
+  }
+
+  @Override
+  protected void copySharedValues() {
+    for (int i = 0; i < values.size(); i++) {
+      float[] copy = (float[]) getPrimitiveArraysByType(TSDataType.FLOAT);
+      System.arraycopy(values.get(i), 0, copy, 0, copy.length);
+      releaseArray(values.set(i, copy));
+    }
+  }
+
   public void sort() {
+    if (sorted) {
+      return;
+    }
+    copySharedArrays();
     if (sortedTimestamps == null || sortedTimestamps.length < size) {
       sortedTimestamps = (long[][]) PrimitiveArrayManager.createDataListsByType(TSDataType.INT64, size);
     }
@@ -110,7 +131,7 @@ public class FloatTVList extends TVList {
   void clearValue() {
     if (values != null) {
       for (float[] dataArray : values) {
-        PrimitiveArrayManager.release(dataArray);
+        releaseArray(dataArray);
       }
       values.clear();
     }
@@ -186,7 +207,7 @@ public class FloatTVList extends TVList {
 
   @Override
   protected void releaseLastValueArray() {
-    PrimitiveArrayManager.release(values.remove(values.size() - 1));
+    releaseArray(values.remove(values.size() - 1));
   }
 
   @Override
@@ -218,4 +239,23 @@ public class FloatTVList extends TVList {
       }
     }
   }
+
+  @Override
+  public void putFloats(long[] time, FloatBuffer value, int start, int end) {
+    int idx = start;
+
+    updateMinTimeAndSorted(time, start, end);
+
+    while (idx < end) {
+      checkExpansion();
+      int arrayIdx = size / ARRAY_SIZE;
+      int elementIdx = size % ARRAY_SIZE;
+      int copied = Math.min(end - idx, ARRAY_SIZE - elementIdx);
+      System.arraycopy(time, idx, timestamps.get(arrayIdx), elementIdx, copied);
+      value.position(idx);
+      value.get(values.get(arrayIdx), elementIdx, copied);
+      idx += copied;
+      size += copied;
+    }
+  }
 }
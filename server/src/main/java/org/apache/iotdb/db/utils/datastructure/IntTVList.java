@@ -20,6 +20,7 @@ package org.apache.iotdb.db.utils.datastructure;
 
 import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.iotdb.db.rescon.PrimitiveArrayManager;
@@ -91,7 +92,27 @@ public class IntTVList extends TVList {
     return cloneArray;
   }
 
+  @Override
+  protected IntTVList shareValues() {
+    IntTVList snapshot = new IntTVList();
+    snapshot.values = new ArrayList<>(values);
+    return snapshot;
+  }
+
+  @Override
+  protected void copySharedValues() {
+    for (int i = 0; i < values.size(); i++) {
+      int[] copy = (int[]) getPrimitiveArraysByType(TSDataType.INT32);
+      System.arraycopy(values.get(i), 0, copy, 0, copy.length);
+      releaseArray(values.set(i, copy));
+    }
+  }
+
   public void sort() {
+    if (sorted) {
+      return;
+    }
+    copySharedArrays();
     if (sortedTimestamps == null || sortedTimestamps.length < size) {
       sortedTimestamps = (long[][]) PrimitiveArrayManager
           .createDataListsByType(TSDataType.INT64, size);
@@ -109,7 +130,7 @@ public class IntTVList extends TVList {
   void clearValue() {
     if (values != null) {
       for (int[] dataArray : values) {
-        PrimitiveArrayManager.release(dataArray);
+        releaseArray(dataArray);
       }
       values.clear();
     }
@@ -182,7 +203,7 @@ public class IntTVList extends TVList {
 
   @Override
   protected void releaseLastValueArray() {
-    PrimitiveArrayManager.release(values.remove(values.size() - 1));
+    releaseArray(values.remove(values.size() - 1));
   }
 
   @Override
@@ -214,4 +235,23 @@ public class IntTVList extends TVList {
       }
     }
   }
+
+  @Override
+  public void putInts(long[] time, IntBuffer value, int start, int end) {
+    int idx = start;
+
+    updateMinTimeAndSorted(time, start, end);
+
+    while (idx < end) {
+      checkExpansion();
+      int arrayIdx = size / ARRAY_SIZE;
+      int elementIdx = size % ARRAY_SIZE;
+      int copied = Math.min(end - idx, ARRAY_SIZE - elementIdx);
+      System.arraycopy(time, idx, timestamps.get(arrayIdx), elementIdx, copied);
+      value.position(idx);
+      value.get(values.get(arrayIdx), elementIdx, copied);
+      idx += copied;
+      size += copied;
+    }
+  }
 }
@@ -22,6 +22,11 @@ package org.apache.iotdb.db.utils.datastructure;
 import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -55,6 +60,10 @@ public abstract class TVList {
 
   protected long minTime;
 
+  /**
+   * whether the primitive arrays of this list are shared with a snapshot, see getSnapshot()
+   */
+  private volatile boolean shared;
 
   public TVList() {
     timestamps = new ArrayList<>();
@@ -123,6 +132,33 @@ public abstract class TVList {
     throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
   }
 
+  /**
+   * put the values of [start, end) from a view of the serialized column, so the values are copied
+   * into the primitive arrays only once. The position of the view is changed.
+   */
+  public void putLongs(long[] time, LongBuffer value, int start, int end) {
+    throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
+  }
+
+  public void putInts(long[] time, IntBuffer value, int start, int end) {
+    throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
+  }
+
+  public void putFloats(long[] time, FloatBuffer value, int start, int end) {
+    throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
+  }
+
+  public void putDoubles(long[] time, DoubleBuffer value, int start, int end) {
+    throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
+  }
+
+  /**
+   * @param value the serialized boolean column, one byte for each value
+   */
+  public void putBooleans(long[] time, ByteBuffer value, int start, int end) {
+    throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
+  }
+
   public long getLong(int index) {
     throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
   }
@@ -174,13 +210,72 @@ public abstract class TVList {
     return clone();
   }
 
+  /**
+   * Get a read-only view of the current points for queries. If this list is sorted, the view
+   * shares the primitive arrays with this list instead of copying them: insertions only append
+   * points after the view, and sort() and delete() copy the shared arrays before changing them in
+   * place, so the points in the view never change. Otherwise, a copy is returned.
+   */
+  public TVList getSnapshot() {
+    if (!sorted) {
+      return clone();
+    }
+    TVList snapshot = shareValues();
+    snapshot.timestamps = new ArrayList<>(timestamps);
+    snapshot.size = size;
+    snapshot.minTime = minTime;
+    snapshot.shared = true;
+    shared = true;
+    return snapshot;
+  }
+
+  /**
+   * @return a new list of the same type whose value arrays are the ones of this list
+   */
+  protected abstract TVList shareValues();
+
+  /**
+   * Replace the value arrays with copies, the replaced arrays are released by releaseArray().
+   */
+  protected abstract void copySharedValues();
+
+  /**
+   * Give up the arrays shared with snapshots by replacing them with copies. Must be called before
+   * changing the existing points in place.
+   */
+  protected void copySharedArrays() {
+    if (!shared) {
+      return;
+    }
+    for (int i = 0; i < timestamps.size(); i++) {
+      long[] copy = (long[]) getPrimitiveArraysByType(TSDataType.INT64);
+      System.arraycopy(timestamps.get(i), 0, copy, 0, copy.length);
+      releaseArray(timestamps.set(i, copy));
+    }
+    copySharedValues();
+    shared = false;
+  }
+
+  /**
+   * Bring back a primitive array of this list. An array that may be read by a snapshot is never
+   * reused.
+   */
+  protected void releaseArray(Object dataArray) {
+    if (shared) {
+      PrimitiveArrayManager.releaseWithoutReuse(dataArray);
+    } else {
+      PrimitiveArrayManager.release(dataArray);
+    }
+  }
+
   protected abstract void releaseLastValueArray();
 
   protected void releaseLastTimeArray() {
-    PrimitiveArrayManager.release(timestamps.remove(timestamps.size() - 1));
+    releaseArray(timestamps.remove(timestamps.size() - 1));
   }
 
   public int delete(long lowerBound, long upperBound) {
+    copySharedArrays();
     int newSize = 0;
     minTime = Long.MAX_VALUE;
     for (int i = 0; i < size; i++) {
@@ -225,12 +320,13 @@ public abstract class TVList {
     if (deletionList != null) {
       deletionList.clear();
     }
+    shared = false;
   }
 
   protected void clearTime() {
     if (timestamps != null) {
       for (long[] dataArray : timestamps) {
-        PrimitiveArrayManager.release(dataArray);
+        releaseArray(dataArray);
       }
       timestamps.clear();
     }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.writelog;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.iotdb.db.cost.statistic.Histogram;
+
+/**
+ * WALStatistics collects the statistics of all log nodes.
+ */
+public class WALStatistics {
+
+  /**
+   * time (in microseconds) from a log being appended to a buffer to it being written (and forced)
+   * to the log file in group commit mode.
+   */
+  private final Histogram commitLatencyInUs = new Histogram("WAL_COMMIT_LATENCY_IN_US");
+
+  /**
+   * number of logs written by one group commit.
+   */
+  private final Histogram commitBatchSize = new Histogram("WAL_COMMIT_BATCH_SIZE");
+
+  /**
+   * bytes written to the log files, including the sizes and check sums of the logs.
+   */
+  private final LongAdder writtenBytes = new LongAdder();
+
+  /**
+   * number of times the log files are forced to the disk.
+   */
+  private final LongAdder forceNum = new LongAdder();
+
+  private WALStatistics() {
+  }
+
+  public static WALStatistics getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  public Histogram getCommitLatencyInUs() {
+    return commitLatencyInUs;
+  }
+
+  public Histogram getCommitBatchSize() {
+    return commitBatchSize;
+  }
+
+  public void addWrittenBytes(long bytes) {
+    writtenBytes.add(bytes);
+  }
+
+  public long getWrittenBytes() {
+    return writtenBytes.sum();
+  }
+
+  public void increaseForceNum() {
+    forceNum.increment();
+  }
+
+  public long getForceNum() {
+    return forceNum.sum();
+  }
+
+  private static class InstanceHolder {
+
+    private static final WALStatistics INSTANCE = new WALStatistics();
+
+    private InstanceHolder() {
+    }
+  }
+}
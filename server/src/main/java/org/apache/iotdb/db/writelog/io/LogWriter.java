@@ -26,7 +26,10 @@ import java.nio.channels.FileChannel;
 import java.util.zip.CRC32;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.cost.statistic.Measurement;
+import org.apache.iotdb.db.cost.statistic.Operation;
 import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+import org.apache.iotdb.db.writelog.WALStatistics;
 
 /**
  * LogWriter writes the binarized logs into a file using FileChannel together with check sums of
@@ -52,6 +55,7 @@ public class LogWriter implements ILogWriter {
 
   @Override
   public void write(ByteBuffer logBuffer) throws IOException {
+    long startTime = System.nanoTime();
     if (channel == null) {
       fileOutputStream = new FileOutputStream(logFile, true);
       channel = fileOutputStream.getChannel();
@@ -76,16 +80,22 @@ public class LogWriter implements ILogWriter {
     channel.write(lengthBuffer);
     channel.write(logBuffer);
     channel.write(checkSumBuffer);
+    WALStatistics.getInstance().addWrittenBytes(4L + logSize + 8L);
 
     if (config.getForceWalPeriodInMs() == 0) {
       channel.force(true);
+      WALStatistics.getInstance().increaseForceNum();
     }
+    Measurement.INSTANCE.addOperationLatency(Operation.WAL_SYNC, startTime);
   }
 
   @Override
   public void force() throws IOException {
     if (channel != null) {
+      long startTime = System.nanoTime();
       channel.force(true);
+      WALStatistics.getInstance().increaseForceNum();
+      Measurement.INSTANCE.addOperationLatency(Operation.WAL_SYNC, startTime);
     }
   }
 
@@ -19,11 +19,17 @@
 package org.apache.iotdb.db.writelog.manager;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.concurrent.ThreadName;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.StartupException;
@@ -44,6 +50,19 @@ public class MultiFileLogNodeManager implements WriteLogNodeManager, IService {
   private Map<String, WriteLogNode> nodeMap;
 
   private ScheduledExecutorService executorService;
+
+  /**
+   * writes the full log buffers of the nodes in the background.
+   */
+  private volatile ExecutorService syncThreadPool;
+
+  /**
+   * the off-heap log buffers returned by the closed nodes in group commit mode, which are reused by
+   * the other nodes instead of allocating direct memory for each node. At most
+   * wal_group_commit_buffer_num buffers are kept, the others are left to the GC, so the pool does
+   * not keep the direct memory of all the nodes that were ever open at the same time.
+   */
+  private final Deque<ByteBuffer> freeGroupCommitBuffers = new ArrayDeque<>();
   private IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
 
   private final void forceTask() {
@@ -67,6 +86,7 @@ public class MultiFileLogNodeManager implements WriteLogNodeManager, IService {
 
   private MultiFileLogNodeManager() {
     nodeMap = new ConcurrentHashMap<>();
+    syncThreadPool = IoTDBThreadPoolFactory.newCachedThreadPool(ThreadName.WAL_DAEMON.getName());
   }
 
   public static MultiFileLogNodeManager getInstance() {
@@ -87,6 +107,38 @@ public class MultiFileLogNodeManager implements WriteLogNodeManager, IService {
     return node;
   }
 
+  public ExecutorService getSyncThreadPool() {
+    return syncThreadPool;
+  }
+
+  /**
+   * @return a free off-heap log buffer of wal_buffer_size bytes for group commit
+   */
+  public ByteBuffer allocateGroupCommitBuffer() {
+    synchronized (freeGroupCommitBuffers) {
+      ByteBuffer buffer;
+      while ((buffer = freeGroupCommitBuffers.poll()) != null) {
+        // the buffer size may be changed by hot loading
+        if (buffer.capacity() == config.getWalBufferSize()) {
+          return buffer;
+        }
+      }
+    }
+    return ByteBuffer.allocateDirect(config.getWalBufferSize());
+  }
+
+  /**
+   * return a log buffer that is no longer used by its node, it is dropped if the pool is full
+   */
+  public void releaseGroupCommitBuffer(ByteBuffer buffer) {
+    buffer.clear();
+    synchronized (freeGroupCommitBuffers) {
+      if (freeGroupCommitBuffers.size() < config.getWalGroupCommitBufferNum()) {
+        freeGroupCommitBuffers.push(buffer);
+      }
+    }
+  }
+
   @Override
   public void deleteNode(String identifier) throws IOException {
     WriteLogNode node = nodeMap.remove(identifier);
@@ -115,6 +167,10 @@ public class MultiFileLogNodeManager implements WriteLogNodeManager, IService {
       if (!config.isEnableWal()) {
         return;
       }
+      if (syncThreadPool.isShutdown()) {
+        syncThreadPool = IoTDBThreadPoolFactory
+            .newCachedThreadPool(ThreadName.WAL_DAEMON.getName());
+      }
       if (config.getForceWalPeriodInMs() > 0) {
         executorService = Executors.newSingleThreadScheduledExecutor();
         executorService.scheduleWithFixedDelay(this::forceTask, config.getForceWalPeriodInMs(),
@@ -140,6 +196,10 @@ public class MultiFileLogNodeManager implements WriteLogNodeManager, IService {
       }
     }
     close();
+    syncThreadPool.shutdown();
+    synchronized (freeGroupCommitBuffers) {
+      freeGroupCommitBuffers.clear();
+    }
   }
 
   @Override
@@ -22,25 +22,51 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.concurrent.ThreadName;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.conf.directories.DirectoryManager;
 import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.writelog.WALStatistics;
 import org.apache.iotdb.db.writelog.io.ILogReader;
 import org.apache.iotdb.db.writelog.io.ILogWriter;
 import org.apache.iotdb.db.writelog.io.LogWriter;
 import org.apache.iotdb.db.writelog.io.MultiFileLogReader;
+import org.apache.iotdb.db.writelog.manager.MultiFileLogNodeManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This WriteLogNode is used to manage insert ahead logs of a TsFile.
+ *
+ * By default, the node has two log buffers. Plans are serialized into the working buffer, and when
+ * it is full (or flush_wal_threshold is reached), the two buffers are swapped and the full one is
+ * written and checksummed by a background task, so serialization only waits for the disk when both
+ * buffers are full. The second buffer is allocated by the first sync.
+ *
+ * If WAL group commit is enabled, the node owns a ring of off-heap log buffers and a flusher
+ * thread. The buffers are taken from a pool shared by all nodes as they are needed, up to
+ * wal_group_commit_buffer_num, and returned when the node is closed. Writers serialize their plans
+ * into the current buffer and wait for the batch of that buffer to be written, while the flusher
+ * takes whatever has accumulated as one batch and writes it with one write and (if
+ * force_wal_period_in_ms = 0) one force, so concurrent writers share the fsync instead of queuing
+ * for it.
  */
 public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<ExclusiveWriteLogNode> {
 
@@ -55,8 +81,17 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
 
   private IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
 
-  private ByteBuffer logBuffer = ByteBuffer
-      .allocate(IoTDBDescriptor.getInstance().getConfig().getWalBufferSize());
+  private ByteBuffer logBuffer;
+
+  /**
+   * the buffer to swap in when logBuffer is full, null while it is being synced in the background.
+   */
+  private ByteBuffer idleBuffer;
+
+  /**
+   * the background sync of the last full buffer, which returns the buffer after it is written.
+   */
+  private Future<ByteBuffer> syncFuture;
 
   private ReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -65,6 +100,58 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
 
   private int bufferedLogNum = 0;
 
+  private final boolean groupCommit = config.isEnableWalGroupCommit();
+
+  /**
+   * group commit only: buffers that can be used as the next logBuffer, guarded by lock.
+   */
+  private Deque<ByteBuffer> freeBuffers;
+
+  /**
+   * group commit only: the number of buffers taken from the shared pool, guarded by lock.
+   */
+  private int groupCommitBufferNum = 0;
+
+  /**
+   * group commit only: the batch that logBuffer belongs to.
+   */
+  private LogBatch currentBatch;
+
+  /**
+   * group commit only: full batches waiting for the flusher, guarded by lock.
+   */
+  private Deque<LogBatch> sealedBatches;
+
+  /**
+   * group commit only: the batch being written by the flusher, guarded by lock.
+   */
+  private LogBatch flushingBatch;
+
+  /**
+   * group commit only: signalled when there are logs for the flusher.
+   */
+  private Condition batchReady;
+
+  /**
+   * group commit only: signalled when the flusher finishes a batch and returns its buffer.
+   */
+  private Condition batchFlushed;
+
+  private ExecutorService flushThread;
+
+  /**
+   * group commit only: increased each time the flusher is started or stopped, so that a flusher
+   * which has been stopped exits even if a new one is started before it notices.
+   */
+  private int flusherGeneration = 0;
+
+  private boolean flusherRunning = false;
+
+  /**
+   * the log sequence number of the last appended log.
+   */
+  private long lastLsn = 0;
+
   /**
    * constructor of ExclusiveWriteLogNode.
    *
@@ -77,10 +164,37 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
     if (SystemFileFactory.INSTANCE.getFile(logDirectory).mkdirs()) {
       logger.info("create the WAL folder {}." + logDirectory);
     }
+    if (groupCommit) {
+      freeBuffers = new ArrayDeque<>();
+      sealedBatches = new ArrayDeque<>();
+      batchReady = lock.writeLock().newCondition();
+      batchFlushed = lock.writeLock().newCondition();
+    } else {
+      // the idle buffer is allocated by the first sync, so a node that is never synced holds
+      // only one buffer
+      logBuffer = ByteBuffer.allocate(config.getWalBufferSize());
+    }
+  }
+
+  /**
+   * @return the memory reserved for the log buffers of a log node. By default, the node holds two
+   * heap buffers from its first sync until it is closed, as the synced buffer is taken back as the
+   * idle buffer. In group commit mode, the node may hold wal_group_commit_buffer_num off-heap
+   * buffers, which are counted as well so that they are bounded by the memory for writing.
+   */
+  public static long getBufferMemoryCost() {
+    IoTDBConfig conf = IoTDBDescriptor.getInstance().getConfig();
+    return conf.isEnableWalGroupCommit()
+        ? (long) conf.getWalBufferSize() * conf.getWalGroupCommitBufferNum()
+        : 2L * conf.getWalBufferSize();
   }
 
   @Override
   public void write(PhysicalPlan plan) throws IOException {
+    if (groupCommit) {
+      groupCommitWrite(plan);
+      return;
+    }
     lock.writeLock().lock();
     try {
       putLog(plan);
@@ -95,6 +209,42 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
     }
   }
 
+  /**
+   * Append the plan to the current batch and wait until the batch is written by the flusher.
+   */
+  private void groupCommitWrite(PhysicalPlan plan) throws IOException {
+    long startTime = System.nanoTime();
+    LogBatch batch;
+    lock.writeLock().lock();
+    try {
+      startFlusher();
+      if (logBuffer == null) {
+        logBuffer = takeFreeBuffer();
+        currentBatch = new LogBatch(logBuffer);
+      }
+      putLog(plan);
+      batch = currentBatch;
+      batch.lastLsn = ++lastLsn;
+      batchReady.signalAll();
+    } catch (BufferOverflowException e) {
+      throw new IOException(
+          "Log cannot fit into the buffer, please increase wal_buffer_size", e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    try {
+      batch.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted when waiting for the WAL of " + identifier, e);
+    } catch (ExecutionException e) {
+      throw new IOException("Cannot write the WAL of " + identifier, e.getCause());
+    }
+    WALStatistics.getInstance().getCommitLatencyInUs()
+        .update((System.nanoTime() - startTime) / 1000);
+  }
+
   private void putLog(PhysicalPlan plan) {
     logBuffer.mark();
     try {
@@ -102,7 +252,14 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
     } catch (BufferOverflowException e) {
       logger.info("WAL BufferOverflow !");
       logBuffer.reset();
-      sync();
+      if (bufferedLogNum == 0) {
+        throw e;
+      }
+      if (groupCommit) {
+        sealCurrentBatch();
+      } else {
+        sync();
+      }
       plan.serialize(logBuffer);
     }
     bufferedLogNum ++;
@@ -110,7 +267,15 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
 
   @Override
   public void close() {
-    sync();
+    closeCurrentFileWriter();
+    stopFlusher();
+    if (groupCommit) {
+      releaseBuffers();
+    }
+  }
+
+  private void closeCurrentFileWriter() {
+    syncAndWait();
     forceWal();
     lock.writeLock().lock();
     try {
@@ -128,7 +293,7 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
 
   @Override
   public void forceSync() {
-    sync();
+    syncAndWait();
     forceWal();
   }
 
@@ -137,7 +302,7 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
   public void notifyStartFlush() {
     lock.writeLock().lock();
     try {
-      close();
+      closeCurrentFileWriter();
       nextFileWriter();
     } finally {
       lock.writeLock().unlock();
@@ -169,7 +334,11 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
   public void delete() throws IOException {
     lock.writeLock().lock();
     try {
-      logBuffer.clear();
+      if (!groupCommit) {
+        // in group commit mode, there may be writers waiting for the logs in the buffer
+        logBuffer.clear();
+        bufferedLogNum = 0;
+      }
       close();
       FileUtils.deleteDirectory(SystemFileFactory.INSTANCE.getFile(logDirectory));
     } finally {
@@ -213,27 +382,262 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
     }
   }
 
+  /**
+   * Swap the working buffer with the idle one and write the full buffer in the background. This
+   * waits only if the previous full buffer is still being written. In group commit mode, this
+   * waits until all logs are written.
+   */
   private void sync() {
+    if (groupCommit) {
+      waitForBatches();
+      return;
+    }
     lock.writeLock().lock();
     try {
       if (bufferedLogNum == 0) {
         return;
       }
-      try {
-        getCurrentFileWriter().write(logBuffer);
-      } catch (IOException e) {
-        logger.error("Log node {} sync failed, change system mode to read-only", identifier, e);
-        IoTDBDescriptor.getInstance().getConfig().setReadOnly(true);
-        return;
+      waitForBackgroundSync();
+      if (idleBuffer == null) {
+        idleBuffer = ByteBuffer.allocate(config.getWalBufferSize());
       }
-      logBuffer.clear();
+      ByteBuffer fullBuffer = logBuffer;
+      ILogWriter writer = getCurrentFileWriter();
+      logBuffer = idleBuffer;
+      idleBuffer = null;
       bufferedLogNum = 0;
+      try {
+        syncFuture = MultiFileLogNodeManager.getInstance().getSyncThreadPool()
+            .submit(() -> syncBuffer(writer, fullBuffer));
+      } catch (RejectedExecutionException e) {
+        // the WAL service is stopped
+        idleBuffer = syncBuffer(writer, fullBuffer);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Write all buffered logs to the log file and wait until they are written.
+   */
+  private void syncAndWait() {
+    sync();
+    if (groupCommit) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      waitForBackgroundSync();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private ByteBuffer syncBuffer(ILogWriter writer, ByteBuffer buffer) {
+    try {
+      writer.write(buffer);
       logger.debug("Log node {} ends sync.", identifier);
+    } catch (IOException e) {
+      logger.error("Log node {} sync failed, change system mode to read-only", identifier, e);
+      IoTDBDescriptor.getInstance().getConfig().setReadOnly(true);
+    } finally {
+      buffer.clear();
+    }
+    return buffer;
+  }
+
+  /**
+   * Wait until the background sync finishes and take its buffer back as the idle buffer. Must be
+   * called with the write lock held.
+   */
+  private void waitForBackgroundSync() {
+    if (syncFuture == null) {
+      return;
+    }
+    try {
+      idleBuffer = Uninterruptibles.getUninterruptibly(syncFuture);
+    } catch (ExecutionException e) {
+      // syncBuffer() does not throw, so this should never happen
+      logger.error("Log node {} cannot get the synced buffer back", identifier, e);
+      idleBuffer = ByteBuffer.allocate(config.getWalBufferSize());
+    }
+    syncFuture = null;
+  }
+
+  /**
+   * Hand the logs in the current buffer over to the flusher and switch to a free buffer, waiting
+   * for one if all buffers are in use. Must be called with the write lock held.
+   */
+  private void sealCurrentBatch() {
+    if (bufferedLogNum == 0) {
+      return;
+    }
+    currentBatch.logNum = bufferedLogNum;
+    currentBatch.writer = getCurrentFileWriter();
+    sealedBatches.add(currentBatch);
+    batchReady.signalAll();
+    logBuffer = takeFreeBuffer();
+    currentBatch = new LogBatch(logBuffer);
+    bufferedLogNum = 0;
+  }
+
+  /**
+   * Take a free buffer, or a new one from the shared pool if the node has fewer than
+   * wal_group_commit_buffer_num buffers, otherwise wait for the flusher to return one. Must be
+   * called with the write lock held.
+   */
+  private ByteBuffer takeFreeBuffer() {
+    while (freeBuffers.isEmpty()) {
+      if (groupCommitBufferNum < config.getWalGroupCommitBufferNum()) {
+        groupCommitBufferNum++;
+        return MultiFileLogNodeManager.getInstance().allocateGroupCommitBuffer();
+      }
+      batchFlushed.awaitUninterruptibly();
+    }
+    return freeBuffers.poll();
+  }
+
+  /**
+   * Return the buffers to the shared pool if no log is waiting in them. They are taken again if
+   * the node is written after it is closed.
+   */
+  private void releaseBuffers() {
+    lock.writeLock().lock();
+    try {
+      if (bufferedLogNum > 0 || !sealedBatches.isEmpty() || flushingBatch != null) {
+        return;
+      }
+      if (logBuffer != null) {
+        freeBuffers.add(logBuffer);
+        logBuffer = null;
+        currentBatch = null;
+      }
+      for (ByteBuffer buffer : freeBuffers) {
+        MultiFileLogNodeManager.getInstance().releaseGroupCommitBuffer(buffer);
+      }
+      groupCommitBufferNum -= freeBuffers.size();
+      freeBuffers.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Wait until all appended logs are written to the log file.
+   */
+  private void waitForBatches() {
+    lock.writeLock().lock();
+    try {
+      sealCurrentBatch();
+      if (!sealedBatches.isEmpty()) {
+        startFlusher();
+      }
+      while (!sealedBatches.isEmpty() || flushingBatch != null) {
+        batchFlushed.awaitUninterruptibly();
+      }
     } finally {
       lock.writeLock().unlock();
     }
   }
 
+  private void startFlusher() {
+    if (flusherRunning) {
+      return;
+    }
+    flusherRunning = true;
+    int generation = ++flusherGeneration;
+    flushThread = IoTDBThreadPoolFactory
+        .newSingleThreadExecutor(ThreadName.WAL_GROUP_COMMIT.getName() + "-" + identifier);
+    flushThread.submit(() -> flushLoop(generation));
+  }
+
+  /**
+   * Stop the flusher after it writes all the sealed batches. This does not wait for the flusher
+   * to exit, as the caller may hold the lock.
+   */
+  private void stopFlusher() {
+    lock.writeLock().lock();
+    try {
+      if (!flusherRunning) {
+        return;
+      }
+      flusherRunning = false;
+      flusherGeneration++;
+      batchReady.signalAll();
+      flushThread.shutdown();
+      flushThread = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void flushLoop(int generation) {
+    LogBatch batch = null;
+    while (true) {
+      lock.writeLock().lock();
+      try {
+        if (batch != null) {
+          freeBuffers.add(batch.buffer);
+          flushingBatch = null;
+          batchFlushed.signalAll();
+        }
+        batch = nextBatch(generation);
+        if (batch == null) {
+          return;
+        }
+        flushingBatch = batch;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      flushBatch(batch);
+    }
+  }
+
+  /**
+   * @return the oldest sealed batch, or the current batch if no batch is sealed, or null if the
+   * flusher is stopped and there is nothing to write
+   */
+  private LogBatch nextBatch(int generation) {
+    while (true) {
+      if (generation != flusherGeneration && flusherRunning) {
+        // a new flusher has taken over
+        return null;
+      }
+      if (flushingBatch != null) {
+        // a stopped flusher is still writing, batches must be written in order
+        batchFlushed.awaitUninterruptibly();
+      } else if (!sealedBatches.isEmpty() || bufferedLogNum > 0) {
+        break;
+      } else if (!flusherRunning) {
+        return null;
+      } else {
+        batchReady.awaitUninterruptibly();
+      }
+    }
+    if (sealedBatches.isEmpty()) {
+      // only the current buffer is in use, so the seal will not wait for a free buffer
+      sealCurrentBatch();
+    }
+    return sealedBatches.poll();
+  }
+
+  private void flushBatch(LogBatch batch) {
+    try {
+      batch.writer.write(batch.buffer);
+      batch.future.complete(null);
+    } catch (IOException | RuntimeException e) {
+      logger.error("Log node {} sync failed, change system mode to read-only", identifier, e);
+      IoTDBDescriptor.getInstance().getConfig().setReadOnly(true);
+      batch.future.completeExceptionally(e);
+    } finally {
+      batch.buffer.clear();
+    }
+    WALStatistics.getInstance().getCommitBatchSize().update(batch.logNum);
+    logger.debug("Log node {} committed {} logs up to lsn {}.", identifier, batch.logNum,
+        batch.lastLsn);
+  }
+
   private ILogWriter getCurrentFileWriter() {
     if (currentFileWriter == null) {
       nextFileWriter();
@@ -279,4 +683,20 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
   public int compareTo(ExclusiveWriteLogNode o) {
     return this.identifier.compareTo(o.identifier);
   }
+
+  /**
+   * A group of logs that are written to the log file with one write and one force.
+   */
+  private static class LogBatch {
+
+    private final ByteBuffer buffer;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private ILogWriter writer;
+    private int logNum;
+    private long lastLsn;
+
+    private LogBatch(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+  }
 }
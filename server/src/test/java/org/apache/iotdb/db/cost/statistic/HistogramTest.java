@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.cost.statistic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+  @Test
+  public void testPercentile() {
+    Histogram histogram = new Histogram("test");
+    assertEquals(0, histogram.getValueAtPercentile(99));
+    for (int i = 1; i <= 1000; i++) {
+      histogram.update(i);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000, histogram.getMax());
+    assertEquals(500.5, histogram.getMean(), 0.001);
+
+    long p50 = histogram.getValueAtPercentile(50);
+    assertTrue(p50 >= 500 && p50 < 1000);
+    long p99 = histogram.getValueAtPercentile(99);
+    assertTrue(p99 >= 990 && p99 <= 1000);
+    assertEquals(1000, histogram.getValueAtPercentile(100));
+
+    histogram.clear();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+  }
+
+  @Test
+  public void testPrecision() {
+    Histogram histogram = new Histogram("test");
+    long[] values = {0, 1, 63, 64, 65, 1000, 123456789L, 1L << 40, Long.MAX_VALUE};
+    for (long value : values) {
+      Histogram single = new Histogram("single");
+      single.update(value);
+      long reported = single.getValueAtPercentile(50);
+      // never less than the value, and at most 1/32 larger
+      assertTrue(reported >= value);
+      assertTrue(reported - value <= value / 32);
+      histogram.update(value);
+    }
+    assertEquals(values.length, histogram.getCount());
+    assertEquals(Long.MAX_VALUE, histogram.getMax());
+
+    long[] percentiles = histogram.getValuesAtPercentiles(10, 50, 100);
+    assertEquals(histogram.getValueAtPercentile(10), percentiles[0]);
+    assertEquals(histogram.getValueAtPercentile(50), percentiles[1]);
+    assertEquals(Long.MAX_VALUE, percentiles[2]);
+  }
+}
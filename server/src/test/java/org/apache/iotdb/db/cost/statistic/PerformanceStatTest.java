@@ -45,21 +45,26 @@ public class PerformanceStatTest {
   public void test() {
     Measurement measurement = Measurement.INSTANCE;
     Operation operation = Operation.EXECUTE_JDBC_BATCH;
-    measurement.addOperationLatency(operation, System.currentTimeMillis());
+    measurement.addOperationLatency(operation, System.nanoTime());
     measurement.addOperationLatency(operation,
-        System.currentTimeMillis() - 8000000);
+        System.nanoTime() - 8000000L * 1000000);
 
-    long batchOpCnt = measurement.getOperationCnt()[operation.ordinal()];
-    Assert.assertEquals(0L, batchOpCnt);
+    long batchOpCnt;
     try {
+      // the latencies recorded before are cleared
       measurement.start();
+      batchOpCnt = measurement.getOperationCnt()[operation.ordinal()];
+      Assert.assertEquals(0L, batchOpCnt);
       measurement.startContinuousPrintStatistics();
-      measurement.addOperationLatency(operation, System.currentTimeMillis());
+      measurement.addOperationLatency(operation, System.nanoTime());
       measurement
-          .addOperationLatency(operation, System.currentTimeMillis() - 8000000);
+          .addOperationLatency(operation, System.nanoTime() - 8000000L * 1000000);
       Thread.currentThread().sleep(1000);
       batchOpCnt = measurement.getOperationCnt()[operation.ordinal()];
       Assert.assertEquals(2L, batchOpCnt);
+      long maxInUs = measurement.getHistogram(operation).getMax();
+      Assert.assertTrue(maxInUs >= 8000000L * 1000 && maxInUs < 8001000L * 1000);
+      Assert.assertEquals(maxInUs, measurement.getHistogram(operation).getValueAtPercentile(100));
       measurement.stopPrintStatistic();
       measurement.stopPrintStatistic();
       measurement.stopPrintStatistic();
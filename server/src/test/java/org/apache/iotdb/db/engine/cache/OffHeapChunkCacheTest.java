@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.Chunk;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.LongDataPoint;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OffHeapChunkCacheTest {
+
+  private static final String DEVICE = "root.sg.d1";
+  private static final String MEASUREMENT = "s1";
+  private static final int CHUNK_NUM = 20;
+
+  private final String filePath = TestConstant.OUTPUT_DATA_DIR.concat("offHeapChunkCache.tsfile");
+  private TsFileSequenceReader reader;
+  private List<ChunkMetadata> chunkMetadataList;
+
+  @Before
+  public void setUp() throws IOException, WriteProcessException {
+    File file = new File(filePath);
+    if (!file.getParentFile().exists()) {
+      assertTrue(file.getParentFile().mkdirs());
+    }
+    TsFileWriter writer = new TsFileWriter(file);
+    writer.registerTimeseries(new Path(DEVICE, MEASUREMENT),
+        new MeasurementSchema(MEASUREMENT, TSDataType.INT64, TSEncoding.PLAIN));
+    for (int i = 0; i < CHUNK_NUM; i++) {
+      for (long time = i * 1000L; time < (i + 1) * 1000L; time++) {
+        TSRecord record = new TSRecord(time, DEVICE);
+        record.addTuple(new LongDataPoint(MEASUREMENT, time));
+        writer.write(record);
+      }
+      writer.flushAllChunkGroups();
+    }
+    writer.close();
+    reader = new TsFileSequenceReader(filePath);
+    chunkMetadataList = reader.getChunkMetadataList(new Path(DEVICE, MEASUREMENT));
+    assertEquals(CHUNK_NUM, chunkMetadataList.size());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    reader.close();
+    EnvironmentUtils.cleanDir(TestConstant.OUTPUT_DATA_DIR);
+  }
+
+  @Test
+  public void testGet() throws IOException {
+    OffHeapChunkCache cache = new OffHeapChunkCache(1024 * 1024L);
+    assertTrue(cache.isEnabled());
+    for (int round = 0; round < 2; round++) {
+      for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+        Chunk expected = reader.readMemChunk(chunkMetadata);
+        Chunk chunk = cache.get(chunkMetadata, reader);
+        assertEquals(expected.getHeader().getMeasurementID(),
+            chunk.getHeader().getMeasurementID());
+        assertEquals(expected.getData(), chunk.getData());
+      }
+    }
+    assertEquals(CHUNK_NUM, cache.getHitCount());
+    assertEquals(CHUNK_NUM, cache.getMissCount());
+    assertTrue(cache.getUsedMemory() > 0);
+
+    cache.clear();
+    assertTrue(cache.isEmpty());
+    assertEquals(0, cache.getUsedMemory());
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    long chunkSize = reader.readMemChunk(chunkMetadataList.get(0)).getData().remaining();
+    // 4 arenas, each holds 2 chunks
+    OffHeapChunkCache cache = new OffHeapChunkCache(chunkSize * 8 + 4);
+    for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+      cache.get(chunkMetadata, reader);
+      assertTrue(cache.getUsedMemory() <= cache.getMaxMemory());
+    }
+    assertTrue(cache.getEvictionCount() > 0);
+    // the latest chunks are still cached
+    long hitCount = cache.getHitCount();
+    cache.get(chunkMetadataList.get(CHUNK_NUM - 1), reader);
+    assertEquals(hitCount + 1, cache.getHitCount());
+    // the earliest ones are evicted
+    cache.get(chunkMetadataList.get(0), reader);
+    assertEquals(hitCount + 1, cache.getHitCount());
+  }
+
+  @Test
+  public void testRewrittenChunk() throws IOException {
+    OffHeapChunkCache cache = new OffHeapChunkCache(1024 * 1024L);
+    ChunkMetadata chunkMetadata = chunkMetadataList.get(0);
+    cache.get(chunkMetadata, reader);
+    // a merge rewrites the file, a new chunk of another version is at the same offset
+    long version = chunkMetadata.getVersion();
+    chunkMetadata.setVersion(version + 1);
+    cache.get(chunkMetadata, reader);
+    assertEquals(0, cache.getHitCount());
+    chunkMetadata.setVersion(version);
+    cache.get(chunkMetadata, reader);
+    assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    OffHeapChunkCache cache = new OffHeapChunkCache(0);
+    assertFalse(cache.isEnabled());
+    Chunk chunk = cache.get(chunkMetadataList.get(0), reader);
+    assertEquals(reader.readMemChunk(chunkMetadataList.get(0)).getData(), chunk.getData());
+    assertTrue(cache.isEmpty());
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class WTinyLFUCacheTest {
+
+  private static final long ENTRY_SIZE = 1000;
+
+  private WTinyLFUCache<Integer, String> createCache(long maxMemory) {
+    return new WTinyLFUCache<Integer, String>(maxMemory) {
+      @Override
+      protected long calEntrySize(Integer key, String value) {
+        return ENTRY_SIZE;
+      }
+    };
+  }
+
+  /**
+   * the same as the callers of the cache, put the value after a missed get.
+   */
+  private String getOrLoad(WTinyLFUCache<Integer, String> cache, int key) {
+    String value = cache.get(key);
+    if (value == null) {
+      value = Integer.toString(key);
+      cache.put(key, value);
+    }
+    return value;
+  }
+
+  @Test
+  public void testGetAndPut() {
+    WTinyLFUCache<Integer, String> cache = createCache(100 * ENTRY_SIZE);
+    for (int i = 0; i < 50; i++) {
+      getOrLoad(cache, i);
+    }
+    assertEquals(50, cache.size());
+    for (int i = 0; i < 50; i++) {
+      assertEquals(Integer.toString(i), cache.get(i));
+    }
+    assertEquals(Integer.toString(3), cache.remove(3));
+    assertNull(cache.get(3));
+    cache.removeIf(key -> key % 2 == 0);
+    assertEquals(24, cache.size());
+    assertFalse(cache.containsKey(10));
+    assertTrue(cache.containsKey(11));
+    cache.clear();
+    assertTrue(cache.isEmpty());
+    assertEquals(0, cache.getUsedMemory());
+  }
+
+  @Test
+  public void testMemoryBound() {
+    long maxMemory = 100 * ENTRY_SIZE;
+    WTinyLFUCache<Integer, String> cache = createCache(maxMemory);
+    for (int i = 0; i < 10000; i++) {
+      getOrLoad(cache, i);
+      assertTrue(cache.getUsedMemory() <= maxMemory);
+    }
+    assertTrue(cache.getEvictionNum() > 0);
+    assertEquals(cache.getUsedMemory(), cache.size() * cache.getAverageSize());
+  }
+
+  @Test
+  public void testScanResistance() {
+    WTinyLFUCache<Integer, String> cache = createCache(100 * ENTRY_SIZE);
+    // a hot set which is requested repeatedly
+    int hotNum = 50;
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < hotNum; i++) {
+        getOrLoad(cache, i);
+      }
+    }
+    // a large scan, each entry is requested only once, while the hot set is still requested
+    for (int i = hotNum; i < 100000; i++) {
+      getOrLoad(cache, i);
+      if (i % 10 == 0) {
+        getOrLoad(cache, i / 10 % hotNum);
+      }
+    }
+    int hit = 0;
+    for (int i = 0; i < hotNum; i++) {
+      if (cache.containsKey(i)) {
+        hit++;
+      }
+    }
+    assertTrue("only " + hit + " hot entries are left", hit >= hotNum * 0.9);
+  }
+
+  @Test
+  public void testConcurrentAccess() throws InterruptedException {
+    long maxMemory = 1000 * ENTRY_SIZE;
+    WTinyLFUCache<Integer, String> cache = createCache(maxMemory);
+    AtomicInteger wrongValueNum = new AtomicInteger();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      int seed = t;
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 100000; i++) {
+          int key = (i * 31 + seed) % 5000;
+          if (!Integer.toString(key).equals(getOrLoad(cache, key))) {
+            wrongValueNum.incrementAndGet();
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, wrongValueNum.get());
+    assertTrue(cache.getUsedMemory() <= maxMemory);
+    assertEquals(cache.size() * (ENTRY_SIZE + 80), cache.getUsedMemory());
+  }
+}
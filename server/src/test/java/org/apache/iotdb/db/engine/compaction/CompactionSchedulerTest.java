@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.compaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.compaction.TsFileManagement.CompactionMergeTask;
+import org.apache.iotdb.db.engine.compaction.no.NoCompactionTsFileManagement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompactionSchedulerTest {
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private final CompactionScheduler scheduler = CompactionScheduler.getInstance();
+  private boolean prevEnableAdaptiveCompaction;
+  private long prevAdaptiveCompactionIntervalMs;
+
+  @Before
+  public void setUp() {
+    prevEnableAdaptiveCompaction = config.isEnableAdaptiveCompaction();
+    prevAdaptiveCompactionIntervalMs = config.getAdaptiveCompactionIntervalMs();
+    config.setEnableAdaptiveCompaction(true);
+    // the load is only given by the tests
+    config.setAdaptiveCompactionIntervalMs(TimeUnit.HOURS.toMillis(1));
+    CompactionMergeTaskPoolManager.getInstance().start();
+  }
+
+  @After
+  public void tearDown() {
+    CompactionMergeTaskPoolManager.getInstance().stop();
+    config.setEnableAdaptiveCompaction(prevEnableAdaptiveCompaction);
+    config.setAdaptiveCompactionIntervalMs(prevAdaptiveCompactionIntervalMs);
+    scheduler.resetForTest();
+  }
+
+  @Test
+  public void testAdjust() {
+    int maxConcurrency = config.getCompactionThreadNum();
+    double maxThroughput = config.getAdaptiveCompactionMaxWriteThroughputMbPerSec();
+    double minThroughput = config.getAdaptiveCompactionMinWriteThroughputMbPerSec();
+    assertEquals(maxConcurrency, scheduler.getConcurrency());
+    assertEquals(maxThroughput, scheduler.getWriteThroughputMbPerSec(), 0.001);
+
+    // no load
+    scheduler.adjust(0, 0, 0);
+    assertEquals(maxConcurrency, scheduler.getConcurrency());
+    assertEquals(0, scheduler.getPressure(), 0.001);
+
+    // a single spike of query latency only throttles a half
+    scheduler.adjust(0, config.getAdaptiveCompactionQueryLatencyThresholdMs() * 2.0, 0);
+    assertEquals(1, scheduler.getQueryPressure(), 0.001);
+    assertEquals(0.5, scheduler.getPressure(), 0.001);
+    assertEquals(Math.max(1, Math.round(maxConcurrency * 0.5)), scheduler.getConcurrency());
+    assertEquals((maxThroughput + minThroughput) / 2, scheduler.getWriteThroughputMbPerSec(),
+        0.001);
+
+    // a lasting flush backlog throttles compaction to the least
+    for (int i = 0; i < 20; i++) {
+      scheduler.adjust(config.getConcurrentFlushThread() * 2, 0, 0);
+    }
+    assertEquals(1, scheduler.getFlushPressure(), 0.001);
+    assertEquals(1, scheduler.getConcurrency());
+    assertEquals(minThroughput, scheduler.getWriteThroughputMbPerSec(), 0.01);
+    assertTrue(scheduler.getLastDecision().contains("concurrency 1"));
+
+    // the memory pressure is released
+    for (int i = 0; i < 20; i++) {
+      scheduler.adjust(0, 0, 0.1);
+    }
+    assertEquals(0.1, scheduler.getMemoryPressure(), 0.001);
+    assertEquals(Math.max(1, Math.round(maxConcurrency * 0.9)), scheduler.getConcurrency());
+  }
+
+  @Test
+  public void testPriority() throws InterruptedException {
+    // only one task runs at a time
+    while (scheduler.getConcurrency() > 1) {
+      scheduler.adjust(0, 0, 1);
+    }
+    List<Integer> executedSmallFileNums = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch blockingLatch = new CountDownLatch(1);
+    CountDownLatch finishedLatch = new CountDownLatch(4);
+    CompactionMergeTaskPoolManager manager = CompactionMergeTaskPoolManager.getInstance();
+    manager.submitTask(createTask(0, executedSmallFileNums, blockingLatch, finishedLatch));
+    for (int smallFileNum : new int[]{1, 3, 2}) {
+      manager.submitTask(createTask(smallFileNum, executedSmallFileNums, null, finishedLatch));
+    }
+    assertEquals(1, scheduler.getNumberOfRunningTasks());
+    assertEquals(3, scheduler.getNumberOfPendingTasks());
+
+    blockingLatch.countDown();
+    assertTrue(finishedLatch.await(10, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList(0, 3, 2, 1), executedSmallFileNums);
+  }
+
+  @Test
+  public void testStopCancelsPendingTasks() throws InterruptedException {
+    while (scheduler.getConcurrency() > 1) {
+      scheduler.adjust(0, 0, 1);
+    }
+    List<Integer> executedSmallFileNums = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch blockingLatch = new CountDownLatch(1);
+    CountDownLatch finishedLatch = new CountDownLatch(4);
+    CompactionMergeTaskPoolManager manager = CompactionMergeTaskPoolManager.getInstance();
+    for (int smallFileNum : new int[]{0, 1, 2, 3}) {
+      manager.submitTask(
+          createTask(smallFileNum, executedSmallFileNums, blockingLatch, finishedLatch));
+    }
+    assertEquals(3, scheduler.getNumberOfPendingTasks());
+    while (executedSmallFileNums.isEmpty()) {
+      // wait until the first task runs
+      Thread.sleep(10);
+    }
+
+    // the running task is interrupted, and the callbacks of the queued ones are called
+    manager.stop();
+    assertTrue(finishedLatch.await(10, TimeUnit.SECONDS));
+    assertEquals(Collections.singletonList(0), executedSmallFileNums);
+    assertEquals(0, scheduler.getNumberOfPendingTasks());
+  }
+
+  private CompactionMergeTask createTask(int smallFileNum, List<Integer> executedSmallFileNums,
+      CountDownLatch blockingLatch, CountDownLatch finishedLatch) {
+    TsFileManagement tsFileManagement = new NoCompactionTsFileManagement("root.sg", "") {
+      @Override
+      public int getSmallFileNum(long timePartition) {
+        return smallFileNum;
+      }
+
+      @Override
+      protected void merge(long timePartition) {
+        executedSmallFileNums.add(smallFileNum);
+        try {
+          if (blockingLatch != null) {
+            blockingLatch.await();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    return tsFileManagement.new CompactionMergeTask(finishedLatch::countDown, 0);
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.compaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.engine.compaction.utils.CompactionUtils;
+import org.apache.iotdb.db.engine.merge.manage.MergeManager;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.LongDataPoint;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompactionUtilsTest {
+
+  private static final String STORAGE_GROUP = "root.compactionTest";
+  private static final int FILE_NUM = 4;
+  private static final int DEVICE_NUM = 3;
+  private static final int MEASUREMENT_NUM = 10;
+  private static final long PT_NUM = 200;
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private int prevSeriesParallelism;
+  private int prevSeriesBatchSize;
+  private final List<TsFileResource> seqResources = new ArrayList<>();
+  private final List<TsFileResource> unseqResources = new ArrayList<>();
+  private final List<TsFileResource> targetResources = new ArrayList<>();
+
+  @Before
+  public void setUp() throws IOException, WriteProcessException {
+    prevSeriesParallelism = config.getCompactionSeriesParallelism();
+    prevSeriesBatchSize = config.getCompactionSeriesBatchSize();
+    File dir = new File(TestConstant.BASE_OUTPUT_PATH);
+    if (!dir.exists()) {
+      assertTrue(dir.mkdirs());
+    }
+    for (int i = 0; i < FILE_NUM; i++) {
+      // the sequence files do not overlap, while each unsequence file overwrites a half of them
+      seqResources.add(prepareFile("seq", i, i * PT_NUM, PT_NUM, 0, 50));
+      unseqResources.add(prepareFile("unseq", i, i * PT_NUM + PT_NUM / 2, PT_NUM, 10000, 50));
+    }
+    MergeManager.getINSTANCE().start();
+    CompactionMergeTaskPoolManager.getInstance().start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    config.setCompactionSeriesParallelism(prevSeriesParallelism);
+    config.setCompactionSeriesBatchSize(prevSeriesBatchSize);
+    CompactionMergeTaskPoolManager.getInstance().stop();
+    MergeManager.getINSTANCE().stop();
+    for (TsFileResource resource : seqResources) {
+      resource.remove();
+    }
+    for (TsFileResource resource : unseqResources) {
+      resource.remove();
+    }
+    for (TsFileResource resource : targetResources) {
+      resource.remove();
+    }
+    EnvironmentUtils.cleanAllDir();
+  }
+
+  @Test
+  public void testParallelSeqMerge() throws IOException {
+    testParallelMerge(seqResources, true);
+  }
+
+  @Test
+  public void testParallelUnseqMerge() throws IOException {
+    List<TsFileResource> resources = new ArrayList<>(seqResources);
+    resources.addAll(unseqResources);
+    testParallelMerge(resources, false);
+  }
+
+  @Test
+  public void testCopyMerge() throws IOException, WriteProcessException {
+    int pagePointNum = config.getMergePagePointNumberThreshold();
+    // the chunks of the sequence files are small, every two of them are coalesced
+    TsFileResource smallChunkTarget = merge("smallChunk", seqResources, true);
+    checkCopyMergedFile(smallChunkTarget, FILE_NUM * PT_NUM / Math.max(pagePointNum, 50));
+
+    // the large chunks are copied as they are
+    List<TsFileResource> largeChunkResources = new ArrayList<>();
+    for (int i = 0; i < FILE_NUM; i++) {
+      TsFileResource resource = prepareFile("largeChunk", i, i * PT_NUM, PT_NUM, 0,
+          pagePointNum);
+      largeChunkResources.add(resource);
+      targetResources.add(resource);
+    }
+    TsFileResource largeChunkTarget = merge("largeChunk", largeChunkResources, true);
+    checkCopyMergedFile(largeChunkTarget, FILE_NUM * PT_NUM / pagePointNum);
+  }
+
+  private void checkCopyMergedFile(TsFileResource target, long expectedChunkNum)
+      throws IOException {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(target.getTsFilePath())) {
+      for (int d = 0; d < DEVICE_NUM; d++) {
+        assertEquals(0, target.getStartTime(getDevice(d)));
+        assertEquals(FILE_NUM * PT_NUM - 1, target.getEndTime(getDevice(d)));
+        for (int m = 0; m < MEASUREMENT_NUM; m++) {
+          Path path = new Path(getDevice(d), "s" + m);
+          assertEquals(expectedChunkNum, reader.getChunkMetadataList(path).size());
+          List<Long> timeValues = readSeries(reader, path);
+          assertEquals(FILE_NUM * PT_NUM * 2, timeValues.size());
+          for (int i = 0; i < timeValues.size(); i += 2) {
+            assertEquals(i / 2, (long) timeValues.get(i));
+            assertEquals(i / 2 + m, (long) timeValues.get(i + 1));
+          }
+        }
+      }
+    }
+  }
+
+  private void testParallelMerge(List<TsFileResource> resources, boolean sequence)
+      throws IOException {
+    config.setCompactionSeriesParallelism(1);
+    config.setCompactionSeriesBatchSize(1000);
+    TsFileResource sequentialTarget = merge("sequential", resources, sequence);
+    // several batches in a device, each one is merged by several threads
+    config.setCompactionSeriesParallelism(4);
+    config.setCompactionSeriesBatchSize(3);
+    TsFileResource parallelTarget = merge("parallel", resources, sequence);
+
+    for (int d = 0; d < DEVICE_NUM; d++) {
+      String device = getDevice(d);
+      assertEquals(sequentialTarget.getStartTime(device), parallelTarget.getStartTime(device));
+      assertEquals(sequentialTarget.getEndTime(device), parallelTarget.getEndTime(device));
+      assertEquals(0, parallelTarget.getStartTime(device));
+    }
+    try (TsFileSequenceReader sequentialReader = new TsFileSequenceReader(
+        sequentialTarget.getTsFilePath());
+        TsFileSequenceReader parallelReader = new TsFileSequenceReader(
+            parallelTarget.getTsFilePath())) {
+      for (int d = 0; d < DEVICE_NUM; d++) {
+        for (int m = 0; m < MEASUREMENT_NUM; m++) {
+          Path path = new Path(getDevice(d), "s" + m);
+          List<Long> expected = readSeries(sequentialReader, path);
+          assertEquals(sequence ? FILE_NUM * PT_NUM : FILE_NUM * PT_NUM + PT_NUM / 2,
+              expected.size() / 2);
+          assertEquals(expected, readSeries(parallelReader, path));
+        }
+      }
+    }
+  }
+
+  private TsFileResource merge(String name, List<TsFileResource> resources, boolean sequence)
+      throws IOException {
+    TsFileResource target = new TsFileResource(new File(TestConstant.BASE_OUTPUT_PATH.concat(
+        name + IoTDBConstant.FILE_NAME_SEPARATOR + 0 + IoTDBConstant.FILE_NAME_SEPARATOR + 0
+            + IoTDBConstant.FILE_NAME_SEPARATOR + 1 + ".tsfile")));
+    targetResources.add(target);
+    CompactionUtils.merge(target, resources, STORAGE_GROUP, null, Collections.emptySet(),
+        sequence);
+    return target;
+  }
+
+  /**
+   * @return the timestamps and values of the series one after another
+   */
+  private List<Long> readSeries(TsFileSequenceReader reader, Path path) throws IOException {
+    List<Long> timeValues = new ArrayList<>();
+    for (ChunkMetadata chunkMetadata : reader.getChunkMetadataList(path)) {
+      ChunkReader chunkReader = new ChunkReader(reader.readMemChunk(chunkMetadata), null);
+      while (chunkReader.hasNextSatisfiedPage()) {
+        BatchData batchData = chunkReader.nextPageData();
+        while (batchData.hasCurrent()) {
+          timeValues.add(batchData.currentTime());
+          timeValues.add(batchData.getLong());
+          batchData.next();
+        }
+      }
+    }
+    return timeValues;
+  }
+
+  private String getDevice(int index) {
+    return STORAGE_GROUP + IoTDBConstant.PATH_SEPARATOR + "d" + index;
+  }
+
+  private TsFileResource prepareFile(String name, int index, long timeOffset, long ptNum,
+      long valueOffset, long flushInterval) throws IOException, WriteProcessException {
+    File file = new File(TestConstant.BASE_OUTPUT_PATH.concat(
+        index + name + IoTDBConstant.FILE_NAME_SEPARATOR + index
+            + IoTDBConstant.FILE_NAME_SEPARATOR + 0 + IoTDBConstant.FILE_NAME_SEPARATOR + 0
+            + ".tsfile"));
+    TsFileResource resource = new TsFileResource(file);
+    resource.setClosed(true);
+    resource.setHistoricalVersions(Collections.singleton((long) index));
+    TsFileWriter writer = new TsFileWriter(file);
+    for (int d = 0; d < DEVICE_NUM; d++) {
+      for (int m = 0; m < MEASUREMENT_NUM; m++) {
+        writer.registerTimeseries(new Path(getDevice(d), "s" + m),
+            new MeasurementSchema("s" + m, TSDataType.INT64, TSEncoding.PLAIN));
+      }
+    }
+    for (long time = timeOffset; time < timeOffset + ptNum; time++) {
+      for (int d = 0; d < DEVICE_NUM; d++) {
+        TSRecord record = new TSRecord(time, getDevice(d));
+        for (int m = 0; m < MEASUREMENT_NUM; m++) {
+          record.addTuple(new LongDataPoint("s" + m, time + valueOffset + m));
+        }
+        writer.write(record);
+        resource.updateStartTime(getDevice(d), time);
+        resource.updateEndTime(getDevice(d), time);
+      }
+      if ((time + 1) % flushInterval == 0) {
+        writer.flushAllChunkGroups();
+      }
+    }
+    writer.close();
+    return resource;
+  }
+}
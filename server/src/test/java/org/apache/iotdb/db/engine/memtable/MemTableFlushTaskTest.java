@@ -22,9 +22,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.constant.TestConstant;
 import org.apache.iotdb.db.engine.MetadataManagerHelper;
+import org.apache.iotdb.db.engine.flush.FlushStatistics;
 import org.apache.iotdb.db.engine.flush.MemTableFlushTask;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
@@ -82,4 +87,68 @@ public class MemTableFlushTaskTest {
     assertEquals(MemTableTestUtils.dataType0, chunkMetaData.getDataType());
     assertEquals(endTime - startTime + 1, chunkMetaData.getNumOfPoints());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testParallelEncoding() throws ExecutionException, InterruptedException, IOException {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    int encodingThreadNum = config.getFlushEncodingThreadNum();
+    config.setFlushEncodingThreadNum(4);
+    try {
+      flushAndCheckChunkOrder();
+    } finally {
+      config.setFlushEncodingThreadNum(encodingThreadNum);
+    }
+  }
+
+  @Test
+  public void testParallelEncodingWithSmallBuffer()
+      throws ExecutionException, InterruptedException, IOException {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    int encodingThreadNum = config.getFlushEncodingThreadNum();
+    long pipelineBufferSize = config.getFlushPipelineBufferSize();
+    config.setFlushEncodingThreadNum(4);
+    // only one series can be in the pipeline at a time
+    config.setFlushPipelineBufferSize(1);
+    long flushedMemTableNum = FlushStatistics.getInstance().getFlushTimeInUs().getCount();
+    try {
+      flushAndCheckChunkOrder();
+      assertEquals(flushedMemTableNum + 1,
+          FlushStatistics.getInstance().getFlushTimeInUs().getCount());
+    } finally {
+      config.setFlushEncodingThreadNum(encodingThreadNum);
+      config.setFlushPipelineBufferSize(pipelineBufferSize);
+    }
+  }
+
+  private void flushAndCheckChunkOrder()
+      throws ExecutionException, InterruptedException, IOException {
+    int deviceNum = 5;
+    int measurementNum = 10;
+    for (int i = 0; i < deviceNum; i++) {
+      for (int j = 0; j < measurementNum; j++) {
+        MemTableTestUtils.produceData(memTable, startTime, endTime + i * j, "d" + i, "s" + j,
+            MemTableTestUtils.dataType0);
+      }
+    }
+    new MemTableFlushTask(memTable, writer, storageGroup).syncFlushMemTable();
+    writer.makeMetadataVisible();
+
+    // the chunks are written in the order of the devices and measurements in the memtable
+    long lastOffset = -1;
+    for (Map.Entry<String, Map<String, IWritableMemChunk>> deviceEntry : memTable
+        .getMemTableMap().entrySet()) {
+      for (String measurementId : deviceEntry.getValue().keySet()) {
+        List<ChunkMetadata> chunkMetadataList = writer
+            .getVisibleMetadataList(deviceEntry.getKey(), measurementId,
+                MemTableTestUtils.dataType0);
+        assertEquals(1, chunkMetadataList.size());
+        ChunkMetadata chunkMetadata = chunkMetadataList.get(0);
+        assertTrue(chunkMetadata.getOffsetOfChunkHeader() > lastOffset);
+        lastOffset = chunkMetadata.getOffsetOfChunkHeader();
+        assertEquals(startTime, chunkMetadata.getStartTime());
+        assertEquals(deviceEntry.getValue().get(measurementId).count(),
+            chunkMetadata.getNumOfPoints());
+      }
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.storagegroup;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.metadata.MManager;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.LongDataPoint;
+
+/**
+ * Bench the insertion throughput of one storage group with an increasing number of writer
+ * threads. Each writer writes its own device into its own time partition, so the writers only
+ * contend on the storage group lock, which shows how the insertion scales with writer threads.
+ */
+public class StorageGroupInsertBenchmark {
+
+  private static int[] numOfWorkers = {1, 2, 4, 8};
+  private static int numOfMeasurement = 10;
+  private static long numOfLinePerWorker = 200000;
+  private static long partitionInterval = 1_000_000_000L;
+
+  private static String prefix = "root.bench";
+  private static String[] measurements = new String[numOfMeasurement];
+
+  static {
+    for (int i = 0; i < numOfMeasurement; i++) {
+      measurements[i] = "measurement_" + i;
+    }
+  }
+
+  private static String getDevice(int worker) {
+    return prefix + TsFileConstant.PATH_SEPARATOR + "device_" + worker;
+  }
+
+  private static void prepare(int workerNum) throws Exception {
+    EnvironmentUtils.envSetUp();
+    MManager manager = IoTDB.metaManager;
+    manager.setStorageGroup(new PartialPath(prefix));
+    for (int i = 0; i < workerNum; i++) {
+      for (String measurement : measurements) {
+        manager.createTimeseries(new PartialPath(getDevice(i) + "." + measurement),
+            TSDataType.INT64, TSEncoding.PLAIN,
+            TSFileDescriptor.getInstance().getConfig().getCompressor(), Collections.emptyMap());
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    boolean enablePartition = config.isEnablePartition();
+    int concurrentPartition = config.getConcurrentWritingTimePartition();
+    long defaultPartitionInterval = StorageEngine.getTimePartitionInterval();
+    config.setEnablePartition(true);
+    StorageEngine.setEnablePartition(true);
+    StorageEngine.setTimePartitionInterval(partitionInterval);
+    try {
+      for (int workerNum : numOfWorkers) {
+        // keep the processors of all the writers open
+        config.setConcurrentWritingTimePartition(workerNum);
+        prepare(workerNum);
+        long elapsed = bench(workerNum);
+        long points = workerNum * numOfLinePerWorker * numOfMeasurement;
+        System.out.println(String.format("%d writer(s): %d points in %dms, %.0f points/s",
+            workerNum, points, elapsed, points * 1000.0 / Math.max(elapsed, 1)));
+        EnvironmentUtils.cleanEnv();
+      }
+    } finally {
+      config.setEnablePartition(enablePartition);
+      config.setConcurrentWritingTimePartition(concurrentPartition);
+      StorageEngine.setEnablePartition(enablePartition);
+      StorageEngine.setTimePartitionInterval(defaultPartitionInterval);
+    }
+  }
+
+  private static long bench(int workerNum) throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(workerNum);
+    AtomicLong failures = new AtomicLong();
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < workerNum; i++) {
+      new Worker(i, latch, failures).start();
+    }
+    latch.await();
+    long elapsed = System.currentTimeMillis() - startTime;
+    if (failures.get() > 0) {
+      System.out.println(failures.get() + " insertion(s) failed");
+    }
+    return elapsed;
+  }
+
+  private static class Worker extends Thread {
+
+    private final int index;
+    private final CountDownLatch latch;
+    private final AtomicLong failures;
+
+    private Worker(int index, CountDownLatch latch, AtomicLong failures) {
+      this.index = index;
+      this.latch = latch;
+      this.failures = failures;
+    }
+
+    @Override
+    public void run() {
+      String device = getDevice(index);
+      long baseTime = index * partitionInterval;
+      try {
+        for (long i = 1; i <= numOfLinePerWorker; i++) {
+          TSRecord tsRecord = new TSRecord(baseTime + i, device);
+          for (String measurement : measurements) {
+            tsRecord.addTuple(new LongDataPoint(measurement, i));
+          }
+          try {
+            StorageEngine.getInstance().insert(new InsertRowPlan(tsRecord));
+          } catch (Exception e) {
+            failures.incrementAndGet();
+          }
+        }
+      } finally {
+        latch.countDown();
+      }
+    }
+  }
+}
@@ -22,8 +22,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.StorageEngine;
 import org.apache.iotdb.db.constant.TestConstant;
 import org.apache.iotdb.db.engine.MetadataManagerHelper;
 import org.apache.iotdb.db.engine.flush.TsFileFlushPolicy;
@@ -42,6 +44,7 @@ import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
@@ -161,6 +164,72 @@ public class StorageGroupProcessorTest {
     }
   }
 
+  @Test
+  public void testConcurrentInsertIntoPartitions() throws Exception {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    long defaultTimePartition = config.getPartitionInterval();
+    boolean defaultEnablePartition = config.isEnablePartition();
+    int defaultConcurrentPartition = config.getConcurrentWritingTimePartition();
+    long defaultPartitionInterval = StorageEngine.getTimePartitionInterval();
+    int threadNum = 4;
+    int pointNum = 50;
+    config.setEnablePartition(true);
+    config.setPartitionInterval(100);
+    config.setConcurrentWritingTimePartition(threadNum);
+    StorageEngine.setEnablePartition(true);
+    StorageEngine.setTimePartitionInterval(100);
+    try {
+      Thread[] threads = new Thread[threadNum];
+      AtomicReference<Exception> error = new AtomicReference<>();
+      for (int i = 0; i < threadNum; i++) {
+        long baseTime = i * 100L;
+        threads[i] = new Thread(() -> {
+          try {
+            for (int j = 1; j <= pointNum; j++) {
+              TSRecord record = new TSRecord(baseTime + j, deviceId);
+              record.addTuple(
+                  DataPoint.getDataPoint(TSDataType.INT32, measurementId, String.valueOf(j)));
+              processor.insert(new InsertRowPlan(record));
+            }
+          } catch (Exception e) {
+            error.set(e);
+          }
+        });
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      Assert.assertNull(error.get());
+
+      QueryDataSource queryDataSource = processor
+          .query(new PartialPath(deviceId), measurementId, context, null, null);
+      Assert.assertEquals(threadNum, queryDataSource.getSeqResources().size());
+      Assert.assertEquals(0, queryDataSource.getUnseqResources().size());
+      int count = 0;
+      for (TsFileResource resource : queryDataSource.getSeqResources()) {
+        // the memtables may be flushed by the memory control
+        for (ChunkMetadata chunkMetadata : resource.getChunkMetadataList()) {
+          count += chunkMetadata.getStatistics().getCount();
+        }
+        for (ReadOnlyMemChunk memChunk : resource.getReadOnlyMemChunk()) {
+          IPointReader iterator = memChunk.getPointReader();
+          while (iterator.hasNextTimeValuePair()) {
+            iterator.nextTimeValuePair();
+            count++;
+          }
+        }
+      }
+      Assert.assertEquals(threadNum * pointNum, count);
+    } finally {
+      config.setEnablePartition(defaultEnablePartition);
+      config.setPartitionInterval(defaultTimePartition);
+      config.setConcurrentWritingTimePartition(defaultConcurrentPartition);
+      StorageEngine.setEnablePartition(defaultEnablePartition);
+      StorageEngine.setTimePartitionInterval(defaultPartitionInterval);
+    }
+  }
+
   @Test
   public void testIoTDBTabletWriteAndSyncClose()
       throws QueryProcessException, IllegalPathException {
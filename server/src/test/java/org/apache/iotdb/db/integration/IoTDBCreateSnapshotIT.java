@@ -22,19 +22,17 @@ package org.apache.iotdb.db.integration;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-import java.io.BufferedReader;
+import com.google.gson.JsonObject;
 import java.io.File;
-import java.io.FileReader;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.metadata.MTree;
+import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
 import org.apache.iotdb.jdbc.Config;
 import org.junit.AfterClass;
@@ -71,36 +69,20 @@ public class IoTDBCreateSnapshotIT {
 
       // create snapshot
       statement.execute("CREATE SNAPSHOT FOR SCHEMA");
-      File snapshotFile = new File(config.getSchemaDir() + File.separator + "mtree-1.snapshot");
+      File snapshotFile = new File(config.getSchemaDir() + File.separator + "mtree-2.snapshot");
 
       // test snapshot file exists
       Assert.assertTrue(snapshotFile.exists());
 
       // test snapshot content correct
-      Set<String> e1 = new HashSet<>(Arrays.asList("2,s0,,1,2,1,,-1,0", "2,s1,,2,2,1,,-1,0",
-          "2,s2,,3,2,1,,-1,0", "2,s3,,5,0,1,,-1,0", "2,s4,,0,0,1,,-1,0"));
-      Set<String> e2 = new HashSet<>(Arrays.asList("2,s0,,1,2,1,,-1,0", "2,s1,,5,0,1,,-1,0",
-          "2,s2,,0,0,1,,-1,0"));
-
-      try (BufferedReader br = new BufferedReader(new FileReader(snapshotFile))) {
-        for (int i = 0; i < 5; ++i) {
-          String actual = br.readLine();
-          Assert.assertTrue(e1.removeIf(candidate -> candidate.equals(actual)));
-        }
-        Assert.assertTrue(e1.isEmpty());
-
-        Assert.assertEquals("1,d0,9223372036854775807,5", br.readLine());
-
-        for (int i = 0; i < 3; ++i) {
-          String actual = br.readLine();
-          Assert.assertTrue(e2.removeIf(candidate -> candidate.equals(actual)));
-        }
-        Assert.assertTrue(e2.isEmpty());
-
-        Assert.assertEquals("1,d1,9223372036854775807,3", br.readLine());
-        Assert.assertEquals("0,vehicle,2", br.readLine());
-        Assert.assertEquals("0,root,1", br.readLine());
-      }
+      String metadata = IoTDB.metaManager.getMetadataInString();
+      JsonObject expected = MTree.GSON
+          .fromJson(metadata.substring(metadata.indexOf('{')), JsonObject.class);
+      JsonObject actual = MTree.GSON
+          .fromJson(MTree.deserializeFrom(snapshotFile).toString(), JsonObject.class);
+      Assert.assertEquals(expected, actual);
+      Assert.assertEquals(8, actual.getAsJsonObject("root").getAsJsonObject("vehicle")
+          .entrySet().stream().mapToInt(e -> e.getValue().getAsJsonObject().size()).sum());
     } catch (Exception e) {
       e.printStackTrace();
       fail(e.getMessage());
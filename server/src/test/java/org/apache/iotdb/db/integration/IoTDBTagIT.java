@@ -25,7 +25,9 @@ import static org.junit.Assert.fail;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -848,6 +850,50 @@ public class IoTDBTagIT {
     }
   }
 
+  @Test
+  public void queryWithMultipleConditionsTest() throws ClassNotFoundException {
+    String[] sqls = {
+        "create timeseries root.turbine.d0.s0 with datatype=FLOAT, encoding=RLE "
+            + "tags(unit=kw, model='v2-turbine', rated=9)",
+        "create timeseries root.turbine.d0.s1 with datatype=FLOAT, encoding=RLE "
+            + "tags(unit=kw, model='v2-turbine', rated=10)",
+        "create timeseries root.turbine.d1.s0 with datatype=FLOAT, encoding=RLE "
+            + "tags(unit=w, model='v2-turbine', rated=12)",
+        "create timeseries root.turbine.d1.s1 with datatype=FLOAT, encoding=RLE "
+            + "tags(unit=kw, model='v1-turbine', rated=20)",
+    };
+    Class.forName(Config.JDBC_DRIVER_NAME);
+    try (Connection connection = DriverManager
+        .getConnection(Config.IOTDB_URL_PREFIX + "127.0.0.1:6667/", "root", "root");
+        Statement statement = connection.createStatement()) {
+      for (String sql : sqls) {
+        statement.execute(sql);
+      }
+
+      // the rated power is compared as a number
+      assertEquals(Arrays.asList("root.turbine.d0.s1", "root.turbine.d1.s1"), showTimeseries(
+          statement, "show timeseries where unit=kw and rated >= 10"));
+      assertEquals(Arrays.asList("root.turbine.d0.s0", "root.turbine.d0.s1"), showTimeseries(
+          statement, "show timeseries where model startswith 'v2' and unit=kw and rated < 20"));
+      assertEquals(Collections.singletonList("root.turbine.d1.s0"), showTimeseries(
+          statement, "show timeseries root.turbine.d1 where model startswith 'v2'"));
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail();
+    }
+  }
+
+  private List<String> showTimeseries(Statement statement, String sql) throws SQLException {
+    List<String> timeseries = new ArrayList<>();
+    assertTrue(statement.execute(sql));
+    try (ResultSet resultSet = statement.getResultSet()) {
+      while (resultSet.next()) {
+        timeseries.add(resultSet.getString("timeseries"));
+      }
+    }
+    return timeseries;
+  }
+
   @Test
   public void queryWithWhereOnNoneTagTest() throws ClassNotFoundException {
     String[] sqls = {
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+
+/**
+ * Bench the onboarding of brand-new devices with automatically created schema: creating the
+ * series of each device one by one, as the insertion did before, against creating the missing
+ * series of the first insertion of each device at once.
+ */
+public class DeviceOnboardingBenchmark {
+
+  private static int numOfDevice = 200;
+  private static int numOfMeasurementPerDevice = 500;
+
+  private static String[] measurements = new String[numOfMeasurementPerDevice];
+  private static TSDataType[] dataTypes = new TSDataType[numOfMeasurementPerDevice];
+  private static String[] values = new String[numOfMeasurementPerDevice];
+
+  static {
+    for (int i = 0; i < numOfMeasurementPerDevice; i++) {
+      measurements[i] = "s_" + i;
+    }
+    Arrays.fill(dataTypes, TSDataType.DOUBLE);
+    Arrays.fill(values, "1.0");
+  }
+
+  public static void main(String[] args) throws Exception {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    boolean autoCreateSchema = config.isAutoCreateSchemaEnabled();
+    config.setAutoCreateSchemaEnabled(true);
+    try {
+      EnvironmentUtils.envSetUp();
+      // the first round warms up
+      for (int round = 0; round < 2; round++) {
+        long elapsed = benchOneByOne(IoTDB.metaManager, "root.bench.one_" + round);
+        print("one by one", elapsed);
+        elapsed = benchInBatch(IoTDB.metaManager, "root.bench.batch_" + round);
+        print("in batch", elapsed);
+      }
+      EnvironmentUtils.cleanEnv();
+    } finally {
+      config.setAutoCreateSchemaEnabled(autoCreateSchema);
+    }
+  }
+
+  private static long benchOneByOne(MManager manager, String storageGroup) throws Exception {
+    TSEncoding encoding = IoTDBDescriptor.getInstance().getConfig().getDefaultDoubleEncoding();
+    CompressionType compressor = TSFileDescriptor.getInstance().getConfig().getCompressor();
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < numOfDevice; i++) {
+      PartialPath deviceId = new PartialPath(storageGroup + ".d_" + i);
+      manager.getDeviceNodeWithAutoCreate(deviceId);
+      for (int j = 0; j < numOfMeasurementPerDevice; j++) {
+        manager.createTimeseries(deviceId.concatNode(measurements[j]), dataTypes[j], encoding,
+            compressor, Collections.emptyMap());
+      }
+    }
+    return System.currentTimeMillis() - startTime;
+  }
+
+  private static long benchInBatch(MManager manager, String storageGroup) throws Exception {
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < numOfDevice; i++) {
+      InsertRowPlan plan = new InsertRowPlan(new PartialPath(storageGroup + ".d_" + i), 1,
+          measurements.clone(), dataTypes.clone(), values.clone());
+      plan.setMeasurementMNodes(new MeasurementMNode[numOfMeasurementPerDevice]);
+      manager.getSeriesSchemasAndReadLockDevice(plan);
+    }
+    return System.currentTimeMillis() - startTime;
+  }
+
+  private static void print(String mode, long elapsed) {
+    long series = (long) numOfDevice * numOfMeasurementPerDevice;
+    System.out.println(String.format("%s: %d devices, %d series in %dms, %.0f series/s", mode,
+        numOfDevice, series, elapsed, series * 1000.0 / Math.max(elapsed, 1)));
+  }
+}
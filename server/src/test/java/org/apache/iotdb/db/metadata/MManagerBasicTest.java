@@ -34,6 +34,13 @@ import java.util.stream.Collectors;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
 import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.ShowTimeSeriesPlan;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.dataset.ShowTimeSeriesResult;
+import org.apache.iotdb.db.query.dataset.ShowTimeseriesDataSet;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
@@ -446,4 +453,80 @@ public class MManagerBasicTest {
       fail(e.getMessage());
     }
   }
+
+  @Test
+  public void testAutoCreateSchemaInBatch() throws MetadataException {
+    MManager manager = IoTDB.metaManager;
+    manager.setStorageGroup(new PartialPath("root.laptop"));
+    manager.createTimeseries(new PartialPath("root.laptop.d1.s0"), TSDataType.TEXT,
+        TSEncoding.PLAIN, compressionType, null);
+
+    // s0 exists, s1 and s2 are created at once, and the storage group of root.desktop is created
+    InsertRowPlan plan = new InsertRowPlan(new PartialPath("root.laptop.d1"), 1,
+        new String[]{"s0", "s1", "s2"}, new String[]{"abc", "true", "2"});
+    plan.setMeasurementMNodes(new MeasurementMNode[3]);
+    manager.getSeriesSchemasAndReadLockDevice(plan);
+    InsertRowPlan newDevicePlan = new InsertRowPlan(new PartialPath("root.desktop.d1"), 1,
+        new String[]{"s1", "s2"}, new String[]{"false", "abc"});
+    newDevicePlan.setMeasurementMNodes(new MeasurementMNode[2]);
+    manager.getSeriesSchemasAndReadLockDevice(newDevicePlan);
+
+    for (int i = 0; i < 2; i++) {
+      assertEquals(3, manager.getAllTimeseriesCount(new PartialPath("root.laptop")));
+      assertEquals(TSDataType.TEXT, manager.getSeriesType(new PartialPath("root.laptop.d1.s0")));
+      assertEquals(TSDataType.BOOLEAN, manager.getSeriesType(new PartialPath("root.laptop.d1.s1")));
+      assertTrue(manager.isPathExist(new PartialPath("root.laptop.d1.s2")));
+      assertTrue(manager.isStorageGroup(new PartialPath("root.desktop")));
+      assertEquals(TSDataType.BOOLEAN, manager.getSeriesType(new PartialPath("root.desktop.d1.s1")));
+      assertEquals(TSDataType.TEXT, manager.getSeriesType(new PartialPath("root.desktop.d1.s2")));
+      // recover the series from mlog
+      manager.clear();
+      manager.init();
+    }
+    for (int i = 0; i < 3; i++) {
+      assertEquals(plan.getMeasurements()[i], plan.getMeasurementMNodes()[i].getName());
+    }
+  }
+
+  @Test
+  public void testShowTimeseriesInBatches() throws Exception {
+    MManager manager = IoTDB.metaManager;
+    manager.setStorageGroup(new PartialPath("root.laptop"));
+    // create the series in the reverse order, so that their tags are not read in the result order
+    for (int i = 9; i >= 0; i--) {
+      manager.createTimeseries(new CreateTimeSeriesPlan(new PartialPath("root.laptop.d" + i + ".s"),
+          TSDataType.INT32, TSEncoding.RLE, compressionType, null,
+          i % 3 == 0 ? null : Collections.singletonMap("id", String.valueOf(i)), null, null));
+    }
+
+    ShowTimeSeriesPlan allPlan = new ShowTimeSeriesPlan(new PartialPath("root.laptop"));
+    allPlan.setOffset(1);
+    List<ShowTimeSeriesResult> expected = manager.showTimeseries(allPlan, new QueryContext());
+    assertEquals(9, expected.size());
+    for (ShowTimeSeriesResult result : expected) {
+      String id = result.getName().substring("root.laptop.d".length(), "root.laptop.d".length() + 1);
+      assertEquals(Integer.parseInt(id) % 3 == 0 ? Collections.emptyMap()
+          : Collections.singletonMap("id", id), result.getTag());
+    }
+
+    // without a limit given by the user, the limit of the plan is the fetch size
+    ShowTimeSeriesPlan plan = new ShowTimeSeriesPlan(new PartialPath("root.laptop"));
+    plan.setOffset(1);
+    plan.setLimit(4);
+    plan.setHasLimit(false);
+    assertEquals(expected.stream().map(ShowTimeSeriesResult::getName).collect(Collectors.toList()),
+        showTimeseries(plan));
+    plan.setHasLimit(true);
+    assertEquals(expected.stream().limit(4).map(ShowTimeSeriesResult::getName)
+        .collect(Collectors.toList()), showTimeseries(plan));
+  }
+
+  private static List<String> showTimeseries(ShowTimeSeriesPlan plan) throws Exception {
+    ShowTimeseriesDataSet dataSet = new ShowTimeseriesDataSet(plan, new QueryContext());
+    List<String> names = new ArrayList<>();
+    while (dataSet.hasNext()) {
+      names.add(dataSet.next().getFields().get(0).getStringValue());
+    }
+    return names;
+  }
 }
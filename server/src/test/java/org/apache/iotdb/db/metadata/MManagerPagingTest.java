@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.metadata.mnode.MNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType.TsLong;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MManagerPagingTest {
+
+  private static final int DEVICE_NUM = 10;
+  private static final int MEASUREMENT_NUM = 5;
+  private static final int CACHE_SIZE = 2;
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private boolean prevEnableSchemaPaging;
+  private int prevSchemaPagingCacheSize;
+  private MManager mManager;
+
+  @Before
+  public void setUp() throws Exception {
+    prevEnableSchemaPaging = config.isEnableSchemaPaging();
+    prevSchemaPagingCacheSize = config.getSchemaPagingCacheSize();
+    config.setEnableSchemaPaging(true);
+    config.setSchemaPagingCacheSize(CACHE_SIZE);
+    EnvironmentUtils.envSetUp();
+    mManager = IoTDB.metaManager;
+
+    mManager.setStorageGroup(new PartialPath("root.sg"));
+    for (int d = 0; d < DEVICE_NUM; d++) {
+      for (int m = 0; m < MEASUREMENT_NUM; m++) {
+        mManager.createTimeseries(new CreateTimeSeriesPlan(
+            new PartialPath("root.sg.d" + d + ".s" + m), TSDataType.INT64, TSEncoding.RLE,
+            CompressionType.SNAPPY, null,
+            m == 0 ? Collections.singletonMap("unit", "c") : null, null,
+            m == 1 ? "alias" : null));
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnvironmentUtils.cleanEnv();
+    config.setEnableSchemaPaging(prevEnableSchemaPaging);
+    config.setSchemaPagingCacheSize(prevSchemaPagingCacheSize);
+  }
+
+  @Test
+  public void testPaging() throws Exception {
+    assertTrue(mManager.getDeviceNodeCache().getLoadedNum() <= CACHE_SIZE);
+    assertEquals(DEVICE_NUM * MEASUREMENT_NUM,
+        mManager.getAllTimeseriesCount(new PartialPath("root")));
+    // read the devices paged out
+    for (int d = 0; d < DEVICE_NUM; d++) {
+      assertEquals(TSDataType.INT64,
+          mManager.getSeriesType(new PartialPath("root.sg.d" + d + ".s4")));
+      assertTrue(mManager.isPathExist(new PartialPath("root.sg.d" + d + ".alias")));
+      MeasurementMNode measurement = (MeasurementMNode) mManager
+          .getNodeByPath(new PartialPath("root.sg.d" + d + ".s0"));
+      assertTrue(measurement.getOffset() >= 0);
+      assertTrue(mManager.getDeviceNodeCache().getLoadedNum() <= CACHE_SIZE + 1);
+    }
+
+    // modify the devices paged out
+    mManager.upsertTagsAndAttributes("alias2", null, null, new PartialPath("root.sg.d0.s1"));
+    mManager.deleteTimeseries(new PartialPath("root.sg.d1.s2"));
+    for (int d = 2; d < DEVICE_NUM; d++) {
+      mManager.getSeriesType(new PartialPath("root.sg.d" + d + ".s0"));
+    }
+    assertTrue(mManager.isPathExist(new PartialPath("root.sg.d0.alias2")));
+    assertFalse(mManager.isPathExist(new PartialPath("root.sg.d0.alias")));
+    assertFalse(mManager.isPathExist(new PartialPath("root.sg.d1.s2")));
+    assertEquals(DEVICE_NUM * MEASUREMENT_NUM - 1,
+        mManager.getAllTimeseriesCount(new PartialPath("root")));
+
+    // the schema is rebuilt from the log
+    mManager.clear();
+    mManager.init();
+    assertTrue(mManager.getDeviceNodeCache().getLoadedNum() <= CACHE_SIZE);
+    assertEquals(DEVICE_NUM * MEASUREMENT_NUM - 1,
+        mManager.getAllTimeseriesCount(new PartialPath("root")));
+    assertTrue(mManager.isPathExist(new PartialPath("root.sg.d0.alias2")));
+    assertTrue(mManager.isPathExist(new PartialPath("root.sg.d9.alias")));
+    assertFalse(mManager.isPathExist(new PartialPath("root.sg.d1.s2")));
+  }
+
+  @Test
+  public void testLastCacheOfPagedOutNode() throws Exception {
+    PartialPath path = new PartialPath("root.sg.d0.s0");
+    MeasurementMNode staleNode = (MeasurementMNode) mManager.getNodeByPath(path);
+    // page d0 out, it is loaded again as new nodes
+    for (int d = 1; d < DEVICE_NUM; d++) {
+      mManager.getSeriesType(new PartialPath("root.sg.d" + d + ".s0"));
+    }
+    // a last query caches the last value on the node in memory
+    mManager.updateLastCache(path, new TimeValuePair(10, new TsLong(10)), false, Long.MIN_VALUE,
+        null);
+    // an insertion holding the node got before updates the node in memory
+    mManager.updateLastCache(null, new TimeValuePair(20, new TsLong(20)), true, Long.MIN_VALUE,
+        staleNode);
+    assertEquals(20, mManager.getLastCache(path).getTimestamp());
+  }
+
+  @Test
+  public void testPageSlotReuse() throws Exception {
+    try (MeasurementPageFile pageFile = new MeasurementPageFile(config.getSchemaDir(),
+        "test_pages.bin")) {
+      List<MNode> measurements = new ArrayList<>();
+      measurements.add(createMeasurement(0));
+      long offset = pageFile.write(measurements, -1);
+      long size = pageFile.size();
+      // a page rewritten with the same size overwrites its previous page
+      for (int i = 0; i < 100; i++) {
+        ((MeasurementMNode) measurements.get(0)).setAlias("a" + (i % 10));
+        assertEquals(offset, pageFile.write(measurements, offset));
+      }
+      assertEquals(size, pageFile.size());
+
+      // a page which grows moves to a larger slot, and its slot is reused
+      for (int m = 1; m <= 20; m++) {
+        measurements.add(createMeasurement(m));
+      }
+      long grownOffset = pageFile.write(measurements, offset);
+      assertNotEquals(offset, grownOffset);
+      assertEquals(offset,
+          pageFile.write(Collections.singletonList(createMeasurement(0)), -1));
+      assertEquals(21, pageFile.read(grownOffset).size());
+
+      // the slot of a freed page is reused
+      pageFile.free(grownOffset);
+      assertEquals(grownOffset, pageFile.write(measurements, -1));
+    }
+  }
+
+  private static MNode createMeasurement(int index) {
+    return new MeasurementMNode(null, "s" + index,
+        new MeasurementSchema("s" + index, TSDataType.INT64, TSEncoding.RLE), null);
+  }
+}
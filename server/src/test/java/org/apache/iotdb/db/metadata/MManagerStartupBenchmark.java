@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.metadata.mnode.MNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.metadata.mnode.StorageGroupMNode;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+/**
+ * Bench the recovery of the schema from the text formats before version 2 and from the binary
+ * formats: parsing the schema log, loading the MTree snapshot and restarting the MManager.
+ */
+public class MManagerStartupBenchmark {
+
+  private static int numOfStorageGroup = 10;
+  private static int numOfDevicePerStorageGroup = 100;
+  private static int numOfMeasurementPerDevice = 100;
+
+  public static void main(String[] args) throws Exception {
+    EnvironmentUtils.envSetUp();
+    try {
+      MManager manager = IoTDB.metaManager;
+      prepare(manager);
+      String schemaDir = IoTDBDescriptor.getInstance().getConfig().getSchemaDir();
+      File logFile = new File(schemaDir, MetadataConstant.METADATA_LOG);
+      File txtLogFile = new File(schemaDir, "bench-" + MetadataConstant.METADATA_TXT_LOG);
+      File snapshot = new File(schemaDir, MetadataConstant.MTREE_SNAPSHOT);
+      File txtSnapshot = new File(schemaDir, "bench-" + MetadataConstant.MTREE_TXT_SNAPSHOT);
+      writeTxtLog(logFile, txtLogFile);
+
+      long startTime = System.currentTimeMillis();
+      int logNum = readTxtLog(txtLogFile);
+      print("parse " + logNum + " text logs", startTime);
+      startTime = System.currentTimeMillis();
+      logNum = readLog(logFile);
+      print("read " + logNum + " binary logs", startTime);
+
+      // restart from the log only
+      manager.clear();
+      startTime = System.currentTimeMillis();
+      manager.init();
+      print("restart from " + logFile.getName(), startTime);
+
+      manager.createMTreeSnapshot();
+      writeTxtSnapshot(manager.getNodeByPath(new PartialPath("root")), txtSnapshot);
+      startTime = System.currentTimeMillis();
+      MTree.deserializeFromTxt(txtSnapshot);
+      print("load " + txtSnapshot.getName(), startTime);
+      startTime = System.currentTimeMillis();
+      MTree.deserializeFrom(snapshot);
+      print("load " + snapshot.getName(), startTime);
+
+      // restart from the snapshot
+      manager.clear();
+      startTime = System.currentTimeMillis();
+      manager.init();
+      print("restart from " + snapshot.getName(), startTime);
+    } finally {
+      EnvironmentUtils.cleanEnv();
+    }
+  }
+
+  private static void prepare(MManager manager) throws Exception {
+    Map<String, String> props = Collections.singletonMap("max_point_number", "3");
+    for (int i = 0; i < numOfStorageGroup; i++) {
+      String storageGroup = "root.bench.sg_" + i;
+      manager.setStorageGroup(new PartialPath(storageGroup));
+      for (int j = 0; j < numOfDevicePerStorageGroup; j++) {
+        for (int k = 0; k < numOfMeasurementPerDevice; k++) {
+          manager.createTimeseries(new PartialPath(storageGroup + ".d_" + j + ".s_" + k),
+              TSDataType.FLOAT, TSEncoding.RLE, CompressionType.SNAPPY, props);
+        }
+      }
+    }
+  }
+
+  private static void writeTxtLog(File logFile, File txtLogFile) throws Exception {
+    try (MLogReader reader = new MLogReader(logFile);
+        BufferedWriter writer = new BufferedWriter(new FileWriter(txtLogFile))) {
+      PhysicalPlan plan;
+      while ((plan = reader.next()) != null) {
+        writer.write(SchemaFileConverter.toTxtLog(plan));
+        writer.newLine();
+      }
+    }
+  }
+
+  private static int readTxtLog(File txtLogFile) throws Exception {
+    int logNum = 0;
+    try (BufferedReader reader = new BufferedReader(new FileReader(txtLogFile))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        SchemaFileConverter.parseTxtLog(line);
+        logNum++;
+      }
+    }
+    return logNum;
+  }
+
+  private static int readLog(File logFile) throws IOException {
+    int logNum = 0;
+    try (MLogReader reader = new MLogReader(logFile)) {
+      while (reader.next() != null) {
+        logNum++;
+      }
+    }
+    return logNum;
+  }
+
+  /**
+   * write the MTree in the text format before version 2, the children are written before their
+   * parent
+   */
+  private static void writeTxtSnapshot(MNode root, File txtSnapshot) throws IOException {
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(txtSnapshot))) {
+      writeTxtNode(root, writer);
+    }
+  }
+
+  private static void writeTxtNode(MNode node, BufferedWriter writer) throws IOException {
+    Map<String, MNode> children = node.getChildren();
+    for (MNode child : children.values()) {
+      writeTxtNode(child, writer);
+    }
+    StringBuilder s = new StringBuilder();
+    if (node instanceof StorageGroupMNode) {
+      s.append(MetadataConstant.STORAGE_GROUP_MNODE_TYPE).append(",").append(node.getName())
+          .append(",").append(((StorageGroupMNode) node).getDataTTL());
+    } else if (node instanceof MeasurementMNode) {
+      MeasurementMNode measurementNode = (MeasurementMNode) node;
+      MeasurementSchema schema = measurementNode.getSchema();
+      s.append(MetadataConstant.MEASUREMENT_MNODE_TYPE).append(",").append(node.getName())
+          .append(",");
+      if (measurementNode.getAlias() != null) {
+        s.append(measurementNode.getAlias());
+      }
+      s.append(",").append(schema.getType().ordinal()).append(",")
+          .append(schema.getEncodingType().ordinal()).append(",")
+          .append(schema.getCompressor().ordinal()).append(",");
+      if (schema.getProps() != null) {
+        for (Map.Entry<String, String> entry : schema.getProps().entrySet()) {
+          s.append(entry.getKey()).append(":").append(entry.getValue()).append(";");
+        }
+      }
+      s.append(",").append(measurementNode.getOffset());
+    } else {
+      s.append(MetadataConstant.MNODE_TYPE).append(",").append(node.getName());
+    }
+    s.append(",").append(children.size());
+    writer.write(s.toString());
+    writer.newLine();
+  }
+
+  private static void print(String step, long startTime) {
+    System.out.println(String.format("%s: %d ms", step, System.currentTimeMillis() - startTime));
+  }
+}
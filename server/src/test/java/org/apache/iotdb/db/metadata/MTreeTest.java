@@ -469,6 +469,36 @@ public class MTreeTest {
     assertEquals(2, root.getAllTimeseriesPathWithAlias(new PartialPath("root"), 0, 0).left.size());
   }
 
+  @Test
+  public void testLazyTraversal() throws MetadataException {
+    MTree root = new MTree();
+    root.setStorageGroup(new PartialPath("root.laptop"));
+    for (String path : new String[]{"root.laptop.d1.s1", "root.laptop.d1.s2", "root.laptop.d10.s1",
+        "root.laptop.d1.sub.s1", "root.laptop.d2.s1"}) {
+      root.createTimeseries(new PartialPath(path), TSDataType.INT32, TSEncoding.RLE,
+          TSFileDescriptor.getInstance().getConfig().getCompressor(), Collections.emptyMap(),
+          path.equals("root.laptop.d2.s1") ? "temperature" : null);
+    }
+
+    for (String prefixPath : new String[]{"root", "root.laptop.*.s1", "root.laptop.d1*",
+        "root.laptop.d1.s2", "root.laptop.d2.temperature", "root.laptop.d3"}) {
+      List<PartialPath> series = new ArrayList<>();
+      root.getMeasurementMNodeIterator(new PartialPath(prefixPath))
+          .forEachRemaining(node -> series.add(node.getPartialPath()));
+      assertEquals(prefixPath, root.getAllTimeseriesPath(new PartialPath(prefixPath)), series);
+    }
+
+    List<String> devices = new ArrayList<>();
+    root.getDeviceIterator(new PartialPath("root"))
+        .forEachRemaining(device -> devices.add(device.getFullPath()));
+    assertEquals(Arrays.asList("root.laptop.d1", "root.laptop.d1.sub", "root.laptop.d10",
+        "root.laptop.d2"), devices);
+    devices.clear();
+    root.getDeviceIterator(new PartialPath("root.laptop.d1.*"))
+        .forEachRemaining(device -> devices.add(device.getFullPath()));
+    assertEquals(Collections.singletonList("root.laptop.d1.sub"), devices);
+  }
+
   @Test
   public void testIllegalStorageGroup() {
     MTree root = new MTree();
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.metadata.mnode.MNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SchemaFileTest {
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private MManager mManager;
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    mManager = IoTDB.metaManager;
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnvironmentUtils.cleanEnv();
+  }
+
+  private File getSchemaFile(String name) {
+    return new File(config.getSchemaDir() + File.separator + name);
+  }
+
+  private String getMetadataInJson() {
+    String metadata = mManager.getMetadataInString();
+    return metadata.substring(metadata.indexOf('{'));
+  }
+
+  private void restart() {
+    mManager.clear();
+    mManager.init();
+  }
+
+  @Test
+  public void testConvertTxtFiles() throws Exception {
+    mManager.clear();
+    assertTrue(getSchemaFile(MetadataConstant.METADATA_LOG).delete());
+    try (Writer writer = new FileWriter(getSchemaFile(MetadataConstant.MTREE_TXT_SNAPSHOT))) {
+      writer.write("2,s0,temperature,1,2,1,unit:c;,-1,0\n");
+      writer.write("2,s1,,2,2,1,,-1,0\n");
+      writer.write("0,d1,2\n");
+      writer.write("1,sg1,100,1\n");
+      writer.write("0,root,1\n");
+    }
+    try (Writer writer = new FileWriter(getSchemaFile(MetadataConstant.METADATA_TXT_LOG))) {
+      writer.write("2,root.sg2\n");
+      writer.write("0,root.sg2.d1.s0,1,2,1,,,\n");
+      writer.write("0,root.sg2.d1.s1,2,2,1,max_point_number=3,speed,\n");
+      writer.write("13,root.sg2.d1.s1,velocity\n");
+      writer.write("10,root.sg2,1000\n");
+      writer.write("0,root.sg2.d1.s2,3,0,0,,,\n");
+      writer.write("unrecognizable\n");
+      writer.write("1,root.sg2.d1.s2\n");
+    }
+    mManager.init();
+
+    assertFalse(getSchemaFile(MetadataConstant.METADATA_TXT_LOG).exists());
+    assertFalse(getSchemaFile(MetadataConstant.MTREE_TXT_SNAPSHOT).exists());
+    assertTrue(getSchemaFile(MetadataConstant.METADATA_LOG).exists());
+    assertTrue(getSchemaFile(MetadataConstant.MTREE_SNAPSHOT).exists());
+
+    // restart from the converted files
+    for (int i = 0; i < 2; i++) {
+      assertEquals(4, mManager.getAllTimeseriesCount(new PartialPath("root")));
+      assertEquals(TSDataType.INT32, mManager.getSeriesType(new PartialPath("root.sg1.d1.s0")));
+      assertEquals("c", mManager.getSeriesSchema(new PartialPath("root.sg1.d1"), "s0").getProps()
+          .get("unit"));
+      assertEquals("s0", mManager.getNodeByPath(new PartialPath("root.sg1.d1.temperature"))
+          .getName());
+      assertEquals(100L, mManager.getStorageGroupNodeByStorageGroupPath(
+          new PartialPath("root.sg1")).getDataTTL());
+      assertEquals(TSDataType.INT64, mManager.getSeriesType(new PartialPath("root.sg2.d1.s1")));
+      assertEquals("velocity", ((MeasurementMNode) mManager
+          .getNodeByPath(new PartialPath("root.sg2.d1.s1"))).getAlias());
+      assertEquals(1000L, mManager.getStorageGroupNodeByStorageGroupPath(
+          new PartialPath("root.sg2")).getDataTTL());
+      assertFalse(mManager.isPathExist(new PartialPath("root.sg2.d1.s2")));
+      restart();
+    }
+  }
+
+  @Test
+  public void testSnapshot() throws Exception {
+    for (int sg = 0; sg < 4; sg++) {
+      mManager.setStorageGroup(new PartialPath("root.sg" + sg));
+      for (int d = 0; d < 3; d++) {
+        for (int m = 0; m < 12; m++) {
+          mManager.createTimeseries(new CreateTimeSeriesPlan(
+              new PartialPath("root.sg" + sg + ".d" + d + ".s" + m), TSDataType.DOUBLE,
+              TSEncoding.GORILLA, CompressionType.SNAPPY,
+              m == 0 ? Collections.singletonMap("max_point_number", "2") : null,
+              m == 1 ? Collections.singletonMap("unit", "c") : null, null,
+              m == 2 ? "alias" : null));
+        }
+      }
+    }
+    mManager.setTTL(new PartialPath("root.sg1"), 3600);
+    String expected = getMetadataInJson();
+    mManager.createMTreeSnapshot();
+    // the storage groups are loaded in parallel
+    MNode root = MTreeSnapshotFile.read(getSchemaFile(MetadataConstant.MTREE_SNAPSHOT), 4);
+    for (int sg = 0; sg < 4; sg++) {
+      MNode device = root.getChild("sg" + sg).getChild("d2");
+      assertEquals(12, device.getChildren().size());
+      assertEquals("s2", device.getChild("alias").getName());
+    }
+    // logged after the snapshot
+    mManager.createTimeseries(new PartialPath("root.sg3.d3.s0"), TSDataType.INT32,
+        TSEncoding.RLE, CompressionType.SNAPPY, null);
+    mManager.deleteTimeseries(new PartialPath("root.sg3.d3.s0"));
+
+    restart();
+    assertEquals(MTree.GSON.fromJson(expected, JsonObject.class),
+        MTree.GSON.fromJson(getMetadataInJson(), JsonObject.class));
+    assertEquals(4 * 3 * 12, mManager.getAllTimeseriesCount(new PartialPath("root")));
+    assertEquals(3600L, mManager.getStorageGroupNodeByStorageGroupPath(
+        new PartialPath("root.sg1")).getDataTTL());
+    assertEquals("2", mManager.getSeriesSchema(new PartialPath("root.sg2.d1"), "s0").getProps()
+        .get("max_point_number"));
+    assertNull(mManager.getSeriesSchema(new PartialPath("root.sg2.d1"), "s3").getProps());
+    assertEquals("s2", mManager.getNodeByPath(new PartialPath("root.sg3.d2.alias")).getName());
+    MeasurementMNode tagged = (MeasurementMNode) mManager
+        .getNodeByPath(new PartialPath("root.sg0.d0.s1"));
+    assertTrue(tagged.getOffset() >= 0);
+    assertEquals(1, mManager.getAllTimeseriesPath(new PartialPath("root.sg0.d0.s1")).size());
+  }
+
+  @Test
+  public void testSnapshotOfSurrogatePairs() throws Exception {
+    // the names share the high surrogate of their last character
+    MNode root = new MNode(null, MetadataConstant.ROOT);
+    root.addChild("d\uD83D\uDE00", new MNode(root, "d\uD83D\uDE00"));
+    root.addChild("d\uD83D\uDE01", new MNode(root, "d\uD83D\uDE01"));
+    File snapshot = getSchemaFile(MetadataConstant.MTREE_SNAPSHOT_TMP);
+    MTreeSnapshotFile.write(root, snapshot);
+
+    MNode readRoot = MTreeSnapshotFile.read(snapshot, 1);
+    assertTrue(readRoot.hasChild("d\uD83D\uDE00"));
+    assertTrue(readRoot.hasChild("d\uD83D\uDE01"));
+    assertTrue(snapshot.delete());
+  }
+
+  @Test
+  public void testTruncateBrokenLog() throws Exception {
+    mManager.setStorageGroup(new PartialPath("root.sg"));
+    mManager.createTimeseries(new PartialPath("root.sg.d.s0"), TSDataType.INT32,
+        TSEncoding.RLE, CompressionType.SNAPPY, null);
+    mManager.clear();
+
+    File logFile = getSchemaFile(MetadataConstant.METADATA_LOG);
+    long validLength = logFile.length();
+    appendBytes(logFile, new byte[]{0, 0, 0, 100, 1, 2, 3});
+    mManager.init();
+    assertEquals(validLength, logFile.length());
+    assertTrue(mManager.isPathExist(new PartialPath("root.sg.d.s0")));
+
+    // the logs after the truncated ones are replayed
+    mManager.createTimeseries(new PartialPath("root.sg.d.s1"), TSDataType.INT32,
+        TSEncoding.RLE, CompressionType.SNAPPY, null);
+    restart();
+    assertEquals(2, mManager.getAllTimeseriesCount(new PartialPath("root.sg")));
+  }
+
+  private void appendBytes(File file, byte[] bytes) throws IOException {
+    try (FileOutputStream outputStream = new FileOutputStream(file, true)) {
+      outputStream.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.metadata.TagCondition.Type;
+import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.ShowTimeSeriesPlan;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.dataset.ShowTimeSeriesResult;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TagIndexTest {
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private String indexDir;
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    indexDir = config.getSchemaDir() + File.separator + "tag_index_test";
+    assertTrue(new File(indexDir).mkdirs());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnvironmentUtils.cleanEnv();
+  }
+
+  private static Map<String, String> tags(String... keyValues) {
+    Map<String, String> tags = new HashMap<>();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      tags.put(keyValues[i], keyValues[i + 1]);
+    }
+    return tags;
+  }
+
+  private static List<Integer> query(TagIndex tagIndex, TagCondition... conditions)
+      throws Exception {
+    BitSet ids = tagIndex.query(Arrays.asList(conditions));
+    return ids.stream().boxed().collect(Collectors.toList());
+  }
+
+  /**
+   * add series 0..99 with tags unit=u(i % 3), temperature=i and name=device_i
+   */
+  private static void addSeries(TagIndex tagIndex) throws Exception {
+    for (int i = 0; i < 100; i++) {
+      tagIndex.add(i, "root.sg.d" + i + ".s", tags("unit", "u" + i % 3,
+          "temperature", String.valueOf(i), "name", "device_" + i));
+    }
+  }
+
+  @Test
+  public void testQuery() throws Exception {
+    // merge the changes into the run every 50 changes, so some tags are queried from the run
+    try (TagIndex tagIndex = new TagIndex(indexDir, 50)) {
+      assertTrue(tagIndex.isRebuildNeeded());
+      addSeries(tagIndex);
+
+      assertEquals(Arrays.asList(1, 4), query(tagIndex, new TagCondition(Type.EQUAL, "unit", "u1"),
+          new TagCondition(Type.LESS_THAN, "temperature", "7")));
+      assertEquals(Arrays.asList(98, 99),
+          query(tagIndex, new TagCondition(Type.GREATER_THAN_OR_EQUAL, "temperature", "98")));
+      // lexicographic comparison if the value is not a number
+      assertEquals(Arrays.asList(9, 90, 91, 92, 93, 94, 95, 96, 97, 98, 99),
+          query(tagIndex, new TagCondition(Type.GREATER_THAN, "name", "device_89")));
+      assertEquals(Arrays.asList(1, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19),
+          query(tagIndex, new TagCondition(Type.STARTS_WITH, "name", "device_1")));
+      assertEquals(Arrays.asList(5, 50, 51, 52, 53, 54, 55, 56, 57, 58, 59),
+          query(tagIndex, new TagCondition(Type.CONTAINS, "temperature", "5"),
+              new TagCondition(Type.STARTS_WITH, "name", "device_5")));
+      assertEquals(Collections.emptyList(),
+          query(tagIndex, new TagCondition(Type.EQUAL, "unit", "u3")));
+
+      assertTrue(tagIndex.containsKey("unit"));
+      assertFalse(tagIndex.containsKey("color"));
+
+      Map<Integer, String> paths = tagIndex
+          .getPaths(tagIndex.query(Collections.singletonList(
+              new TagCondition(Type.LESS_THAN_OR_EQUAL, "temperature", "2"))));
+      assertEquals(3, paths.size());
+      assertEquals("root.sg.d2.s", paths.get(2));
+    }
+  }
+
+  @Test
+  public void testChangeAndReopen() throws Exception {
+    try (TagIndex tagIndex = new TagIndex(indexDir, 50)) {
+      addSeries(tagIndex);
+      tagIndex.remove(1, tags("unit", "u1"));
+      tagIndex.add(1, "root.sg.d1.s", tags("unit", "u2"));
+      for (int i = 0; i < 100; i += 2) {
+        tagIndex.delete(i, tags("unit", "u" + i % 3, "temperature", String.valueOf(i),
+            "name", "device_" + i));
+      }
+    }
+
+    try (TagIndex tagIndex = new TagIndex(indexDir, 50)) {
+      assertFalse(tagIndex.isRebuildNeeded());
+      assertEquals(Arrays.asList(1, 5, 11, 17),
+          query(tagIndex, new TagCondition(Type.EQUAL, "unit", "u2"),
+              new TagCondition(Type.LESS_THAN, "temperature", "20")));
+      BitSet all = new BitSet();
+      all.set(0, 100);
+      Map<Integer, String> paths = tagIndex.getPaths(all);
+      assertEquals(50, paths.size());
+      assertFalse(paths.containsKey(2));
+      assertEquals("root.sg.d99.s", paths.get(99));
+
+      // the series are deleted until there is no tag with the key
+      for (int i = 1; i < 100; i += 2) {
+        tagIndex.delete(i, tags("unit", i == 1 ? "u2" : "u" + i % 3));
+      }
+      assertFalse(tagIndex.containsKey("unit"));
+      assertTrue(tagIndex.containsKey("name"));
+    }
+  }
+
+  @Test
+  public void testPathsWithSurrogatePairs() throws Exception {
+    // the paths share the high surrogate of their last character
+    try (TagIndex tagIndex = new TagIndex(indexDir, 50)) {
+      tagIndex.add(0, "root.sg.d\uD83D\uDE00", tags("unit", "u0"));
+      tagIndex.add(1, "root.sg.d\uD83D\uDE01", tags("unit", "u0"));
+    }
+
+    try (TagIndex tagIndex = new TagIndex(indexDir, 50)) {
+      Map<Integer, String> paths = tagIndex.getPaths(
+          tagIndex.query(Collections.singletonList(new TagCondition(Type.EQUAL, "unit", "u0"))));
+      assertEquals("root.sg.d\uD83D\uDE00", paths.get(0));
+      assertEquals("root.sg.d\uD83D\uDE01", paths.get(1));
+    }
+  }
+
+  @Test
+  public void testMergeRuns() throws Exception {
+    // about every series is written as a run
+    try (TagIndex tagIndex = new TagIndex(indexDir, 4)) {
+      addSeries(tagIndex);
+      for (int i = 0; i < 100; i += 2) {
+        tagIndex.remove(i, tags("unit", "u" + i % 3));
+        tagIndex.add(i, "root.sg.d" + i + ".s", tags("unit", "u3"));
+      }
+      // the runs are merged in the background, which leaves at most 3 runs of each level
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (getRunNum() > 12 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertTrue(getRunNum() <= 12);
+      assertEquals(Arrays.asList(1, 7, 13),
+          query(tagIndex, new TagCondition(Type.EQUAL, "unit", "u1"),
+              new TagCondition(Type.LESS_THAN, "temperature", "19")));
+      assertEquals(50, query(tagIndex, new TagCondition(Type.EQUAL, "unit", "u3")).size());
+    }
+
+    try (TagIndex tagIndex = new TagIndex(indexDir, 4)) {
+      assertFalse(tagIndex.isRebuildNeeded());
+      assertEquals(Arrays.asList(0, 2, 4),
+          query(tagIndex, new TagCondition(Type.EQUAL, "unit", "u3"),
+              new TagCondition(Type.LESS_THAN, "temperature", "6")));
+      BitSet all = new BitSet();
+      all.set(0, 100);
+      assertEquals(100, tagIndex.getPaths(all).size());
+    }
+  }
+
+  private long getRunNum() {
+    File[] files = new File(indexDir).listFiles();
+    return files == null ? 0 : Arrays.stream(files).map(File::getName)
+        .filter(name -> name.endsWith(MetadataConstant.TAG_INDEX_SUFFIX)).count();
+  }
+
+  @Test
+  public void testRebuildAfterCrash() throws Exception {
+    // no run is merged in the background
+    TagIndex tagIndex = new TagIndex(indexDir, 1000);
+    addSeries(tagIndex);
+    tagIndex.flush();
+
+    // the index is not closed
+    TagIndex reopened = new TagIndex(indexDir, 50);
+    assertTrue(reopened.isRebuildNeeded());
+    reopened.reset();
+    reopened.add(0, "root.sg.d0.s", tags("unit", "u0"));
+    reopened.flush();
+    assertEquals(Collections.singletonList(0),
+        query(reopened, new TagCondition(Type.EQUAL, "unit", "u0")));
+    assertFalse(reopened.containsKey("name"));
+    reopened.close();
+  }
+
+  @Test
+  public void testShowTimeseriesAfterRestart() throws Exception {
+    MManager manager = IoTDB.metaManager;
+    manager.setStorageGroup(new PartialPath("root.sg"));
+    for (int i = 0; i < 10; i++) {
+      manager.createTimeseries(new CreateTimeSeriesPlan(new PartialPath("root.sg.d.s" + i),
+          TSDataType.INT32, TSEncoding.RLE, CompressionType.SNAPPY, null,
+          tags("unit", i % 2 == 0 ? "kw" : "w", "level", String.valueOf(i)), null, null));
+    }
+    manager.deleteTimeseries(new PartialPath("root.sg.d.s0"));
+    manager.createMTreeSnapshot();
+    manager.setTagsOrAttributesValue(tags("unit", "w"), new PartialPath("root.sg.d.s2"));
+
+    ShowTimeSeriesPlan plan = new ShowTimeSeriesPlan(new PartialPath("root"),
+        Arrays.asList(new TagCondition(Type.EQUAL, "unit", "kw"),
+            new TagCondition(Type.GREATER_THAN, "level", "3")), 0, 0, false);
+    List<String> expected = Arrays.asList("root.sg.d.s4", "root.sg.d.s6", "root.sg.d.s8");
+    assertEquals(expected, showTimeseries(manager, plan));
+
+    // load the index from its runs
+    manager.clear();
+    manager.init();
+    assertEquals(expected, showTimeseries(manager, plan));
+
+    // rebuild the index from the MTree snapshot, mlog.bin and tlog.txt
+    manager.clear();
+    for (File file : new File(config.getSchemaDir()).listFiles()) {
+      if (file.getName().startsWith(MetadataConstant.TAG_INDEX_PREFIX)) {
+        assertTrue(file.delete());
+      }
+    }
+    manager.init();
+    assertEquals(expected, showTimeseries(manager, plan));
+    assertEquals(Arrays.asList("root.sg.d.s1", "root.sg.d.s2"), showTimeseries(manager,
+        new ShowTimeSeriesPlan(new PartialPath("root"), Arrays.asList(
+            new TagCondition(Type.EQUAL, "unit", "w"),
+            new TagCondition(Type.LESS_THAN_OR_EQUAL, "level", "2")), 0, 0, false)));
+  }
+
+  private static List<String> showTimeseries(MManager manager, ShowTimeSeriesPlan plan)
+      throws Exception {
+    return manager.showTimeseries(plan, new QueryContext()).stream()
+        .map(ShowTimeSeriesResult::getName).collect(Collectors.toList());
+  }
+}
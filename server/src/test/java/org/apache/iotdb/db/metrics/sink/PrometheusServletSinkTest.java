@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metrics.sink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.iotdb.db.cost.statistic.Measurement;
+import org.apache.iotdb.db.cost.statistic.Operation;
+import org.apache.iotdb.db.metrics.source.EngineSource;
+import org.apache.iotdb.db.metrics.source.LatencySource;
+import org.apache.iotdb.db.writelog.WALStatistics;
+import org.junit.Test;
+
+public class PrometheusServletSinkTest {
+
+  @Test
+  public void testExport() {
+    MetricRegistry registry = new MetricRegistry();
+    registry.register("test.host", (Gauge<String>) () -> "127.0.0.1");
+    registry.register("test.ratio", (Gauge<Double>) () -> 0.25);
+    registry.counter("test.requests").inc(3);
+    new EngineSource(registry).registerInfo();
+    new LatencySource(registry).registerInfo();
+    WALStatistics.getInstance().addWrittenBytes(100);
+    Measurement.INSTANCE.getHistogram(Operation.EXECUTE_QUERY).update(2000);
+
+    List<String> lines = Arrays.asList(PrometheusServletSink.export(registry).split("\n"));
+    assertTrue(lines.contains("# TYPE iotdb_test_ratio gauge"));
+    assertTrue(lines.contains("iotdb_test_ratio 0.25"));
+    assertTrue(lines.contains("# TYPE iotdb_test_requests_total counter"));
+    assertTrue(lines.contains("iotdb_test_requests_total 3"));
+    assertTrue(lines.contains("# TYPE iotdb_engine_wal_written_bytes_total counter"));
+    assertTrue(lines.contains("# TYPE iotdb_engine_flush_pending_tasks gauge"));
+    assertTrue(lines.contains("iotdb_engine_write_rejected 0"));
+    assertTrue(lines.contains("# TYPE iotdb_operation_latency_seconds summary"));
+    assertTrue(lines.contains(
+        "iotdb_operation_latency_seconds{operation=\"EXECUTE_QUERY\",quantile=\"0.5\"} 0.002"));
+    assertTrue(
+        lines.stream().anyMatch(line -> line.startsWith("iotdb_wal_commit_batch_size_count ")));
+    for (String line : lines) {
+      // the non-numeric gauges and the latency gauges are not exported
+      assertFalse(line.contains("host"));
+      assertFalse(line.startsWith("iotdb_latency"));
+      if (!line.startsWith("#")) {
+        assertEquals(line, 2, line.split(" ").length);
+      }
+    }
+    Measurement.INSTANCE.getHistogram(Operation.EXECUTE_QUERY).clear();
+  }
+
+  @Test
+  public void testFormat() {
+    assertEquals("3", PrometheusServletSink.formatValue(3.0));
+    assertEquals("NaN", PrometheusServletSink.formatValue(Double.NaN));
+    assertEquals("+Inf", PrometheusServletSink.formatValue(Double.POSITIVE_INFINITY));
+    assertEquals("iotdb_a_b_c", PrometheusServletSink.sanitize("iotdb_a.b-c"));
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BinaryPayloadFormatTest {
+
+    /**
+     * root.sg.d1 (id 0), s1 (id 1, INT64), s2 (id 2, TEXT), rows at 1000 and 997.
+     */
+    private static byte[] firstPayload() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(BinaryPayloadFormatter.VERSION);
+        out.write(BinaryPayloadFormatter.FLAG_RESET);
+        out.write(3);
+        writeDefinition(out, 0, "root.sg.d1");
+        writeDefinition(out, 1, "s1");
+        writeDefinition(out, 2, "s2");
+        // one group of 2 rows
+        out.write(1);
+        out.write(0);
+        out.write(2);
+        out.write(1);
+        out.write(TSDataType.INT64.enumToByte());
+        out.write(2);
+        out.write(TSDataType.TEXT.enumToByte());
+        out.write(2);
+        // zigzag(1000) = 2000 = 0xD0 0x0F, zigzag(-3) = 5
+        out.write(0xD0);
+        out.write(0x0F);
+        out.write(5);
+        // -1, "a", 64, "bc"
+        out.write(1);
+        writeString(out, "a");
+        out.write(0x80);
+        out.write(0x01);
+        writeString(out, "bc");
+        return out.toByteArray();
+    }
+
+    /**
+     * a row of s1 of root.sg.d1 at 5 referring to the ids only.
+     */
+    private static byte[] secondPayload() {
+        return new byte[]{BinaryPayloadFormatter.VERSION, 0, 0, 1, 0, 1, 1,
+            TSDataType.INT64.enumToByte(), 1, 10, 14};
+    }
+
+    /**
+     * root.sg.d1 (id 0), s1 (id 1, INT32), a row of the time and the value in zigzag varints.
+     */
+    private static byte[] int32Payload(byte[] time, byte[] value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(BinaryPayloadFormatter.VERSION);
+        out.write(BinaryPayloadFormatter.FLAG_RESET);
+        out.write(2);
+        writeDefinition(out, 0, "root.sg.d1");
+        writeDefinition(out, 1, "s1");
+        out.write(1);
+        out.write(0);
+        out.write(1);
+        out.write(1);
+        out.write(TSDataType.INT32.enumToByte());
+        out.write(1);
+        out.write(time, 0, time.length);
+        out.write(value, 0, value.length);
+        return out.toByteArray();
+    }
+
+    private static void writeDefinition(ByteArrayOutputStream out, int id, String value) {
+        out.write(id);
+        writeString(out, value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void formatBinary() {
+        BinaryPayloadFormatter formatter = new BinaryPayloadFormatter();
+        List<Message> messages = formatter.format("c1", Unpooled.wrappedBuffer(firstPayload()));
+
+        assertEquals(2, messages.size());
+        Message message = messages.get(1);
+        assertEquals("root.sg.d1", message.getDevice());
+        assertEquals(Long.valueOf(997L), message.getTimestamp());
+        assertEquals(Arrays.asList("s1", "s2"), message.getMeasurements());
+        assertEquals(Arrays.asList(TSDataType.INT64, TSDataType.TEXT), message.getDataTypes());
+        assertEquals(64L, message.getTypedValues().get(0));
+        assertEquals(new Binary("bc"), message.getTypedValues().get(1));
+        assertEquals(-1L, messages.get(0).getTypedValues().get(0));
+    }
+
+    @Test
+    public void formatWithDictionary() {
+        BinaryPayloadFormatter formatter = new BinaryPayloadFormatter();
+        // the ids of c1 are unknown to c2
+        formatter.format("c1", Unpooled.wrappedBuffer(firstPayload()));
+        assertNull(formatter.format("c2", Unpooled.wrappedBuffer(secondPayload())));
+
+        Message message = formatter.format("c1", Unpooled.wrappedBuffer(secondPayload())).get(0);
+        assertEquals("root.sg.d1", message.getDevice());
+        assertEquals(Long.valueOf(5L), message.getTimestamp());
+        assertEquals(7L, message.getTypedValues().get(0));
+
+        // the dictionary of c1 is cleared by a RESET
+        ByteBuf reset = Unpooled.wrappedBuffer(
+            new byte[]{BinaryPayloadFormatter.VERSION, BinaryPayloadFormatter.FLAG_RESET, 0, 0});
+        assertEquals(0, formatter.format("c1", reset).size());
+        assertNull(formatter.format("c1", Unpooled.wrappedBuffer(secondPayload())));
+    }
+
+    @Test
+    public void formatMalformed() {
+        BinaryPayloadFormatter formatter = new BinaryPayloadFormatter();
+        byte[] payload = firstPayload();
+        // every truncation of a valid payload is dropped instead of failing the handler
+        for (int length = 0; length < payload.length; length++) {
+            assertNull(formatter.format("c1",
+                Unpooled.wrappedBuffer(Arrays.copyOf(payload, length))));
+        }
+        // a huge length prefix
+        assertNull(formatter.format("c1", Unpooled.wrappedBuffer(
+            new byte[]{BinaryPayloadFormatter.VERSION, 0, 1, 0, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, 0x0F})));
+
+        BinaryPayloadFormatter formatter2 = new BinaryPayloadFormatter();
+        // zigzag(-2^31) = 2^32 - 1
+        List<Message> messages = formatter2.format("c1", Unpooled.wrappedBuffer(int32Payload(
+            new byte[]{0}, new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F})));
+        assertEquals(Integer.MIN_VALUE, messages.get(0).getTypedValues().get(0));
+        // zigzag(2^31) = 2^32 does not fit in an INT32
+        assertNull(formatter2.format("c1", Unpooled.wrappedBuffer(int32Payload(
+            new byte[]{0}, new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10}))));
+        // a varlong longer than 10 bytes
+        byte[] longTime = new byte[12];
+        Arrays.fill(longTime, (byte) 0x80);
+        longTime[11] = 1;
+        assertNull(formatter2.format("c1", Unpooled.wrappedBuffer(int32Payload(
+            longTime, new byte[]{0}))));
+    }
+}
@@ -32,4 +32,9 @@ public class PayloadFormatManagerTest {
     public void getDefaultPayloadFormat() {
         assertNotNull(PayloadFormatManager.getPayloadFormat("json"));
     }
+
+    @Test
+    public void getBinaryPayloadFormat() {
+        assertNotNull(PayloadFormatManager.getPayloadFormat("binary"));
+    }
 }
\ No newline at end of file
@@ -21,15 +21,30 @@ import io.moquette.interception.messages.InterceptPublishMessage;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.mqtt.*;
+import org.apache.iotdb.db.qp.Planner;
 import org.apache.iotdb.db.qp.executor.IPlanExecutor;
+import org.apache.iotdb.db.qp.executor.PlanExecutor;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
 import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class PublishHandlerTest {
 
@@ -56,4 +71,140 @@ public class PublishHandlerTest {
         handler.onPublish(message);
         verify(executor).processNonQuery(any(InsertRowPlan.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void onPublishInBatch() throws Exception {
+        EnvironmentUtils.envSetUp();
+        try {
+            IPlanExecutor executor = spy(new PlanExecutor());
+            PayloadFormatter payloadFormat = PayloadFormatManager.getPayloadFormat("json");
+            // the batches are inserted when the handler is closed
+            PublishHandler handler = new PublishHandler(executor, payloadFormat, 100, 60_000, 2, 16);
+            for (int d = 0; d < 2; d++) {
+                for (int t = 0; t < 10; t++) {
+                    String payload = "{\n" +
+                        "\"device\":\"root.sg.d" + d + "\",\n" +
+                        // the timestamps are not in order
+                        "\"timestamp\":" + ((t * 7) % 10) + ",\n" +
+                        "\"measurements\":[\"s1\",\"s2\"],\n" +
+                        "\"values\":[" + t + ",\"text" + t + "\"]\n" +
+                        "}";
+                    handler.onPublish(createMessage(payload));
+                }
+            }
+            // a message whose value does not fit the type inferred from the batch
+            handler.onPublish(createMessage("{\"device\":\"root.sg.d0\",\"timestamp\":10,"
+                + "\"measurements\":[\"s1\",\"s2\"],\"values\":[true,\"text10\"]}"));
+            handler.close();
+
+            verify(executor, atLeast(2)).processNonQuery(any(InsertTabletPlan.class));
+            assertEquals(20, handler.getBatcher().getCommittedRowNum());
+            assertEquals(1, handler.getBatcher().getFailedRowNum());
+
+            Planner planner = new Planner();
+            QueryPlan queryPlan = (QueryPlan) planner
+                .parseSQLToPhysicalPlan("select count(s1), count(s2) from root.sg.*");
+            QueryDataSet dataSet = executor
+                .processQuery(queryPlan, EnvironmentUtils.TEST_QUERY_CONTEXT);
+            assertTrue(dataSet.hasNext());
+            RowRecord record = dataSet.next();
+            // the text of the rejected message is inserted as a partial insertion
+            long pointNum = 0;
+            for (int i = 0; i < 4; i++) {
+                pointNum += record.getFields().get(i).getLongV();
+            }
+            assertEquals(41, pointNum);
+        } finally {
+            EnvironmentUtils.cleanEnv();
+        }
+    }
+
+    @Test
+    public void onPublishOverwriteInOrder() throws Exception {
+        EnvironmentUtils.envSetUp();
+        try {
+            IPlanExecutor executor = spy(new PlanExecutor());
+            PayloadFormatter payloadFormat = PayloadFormatManager.getPayloadFormat("json");
+            // a batch holds 2 rows, so the writes of the timestamp span several batches
+            PublishHandler handler = new PublishHandler(executor, payloadFormat, 2, 60_000, 4, 16);
+            String[][] rows = {{"s1"}, {"s1", "s2"}, {"s1"}, {"s1"}, {"s1", "s2"}};
+            for (int i = 0; i < rows.length; i++) {
+                StringBuilder payload = new StringBuilder(
+                    "{\"device\":\"root.sg.d0\",\"timestamp\":1,\"measurements\":[");
+                StringBuilder values = new StringBuilder();
+                for (int j = 0; j < rows[i].length; j++) {
+                    payload.append(j == 0 ? "" : ",").append('"').append(rows[i][j]).append('"');
+                    values.append(j == 0 ? "" : ",").append(i).append(".5");
+                }
+                payload.append("],\"values\":[").append(values).append("]}");
+                handler.onPublish(createMessage(payload.toString()));
+            }
+            handler.close();
+            assertEquals(rows.length, handler.getBatcher().getCommittedRowNum());
+
+            Planner planner = new Planner();
+            QueryPlan queryPlan = (QueryPlan) planner
+                .parseSQLToPhysicalPlan("select s1, s2 from root.sg.d0");
+            QueryDataSet dataSet = executor
+                .processQuery(queryPlan, EnvironmentUtils.TEST_QUERY_CONTEXT);
+            assertTrue(dataSet.hasNext());
+            RowRecord record = dataSet.next();
+            // the last write of each series wins
+            assertEquals(4.5, Double.parseDouble(record.getFields().get(0).getStringValue()), 0);
+            assertEquals(4.5, Double.parseDouble(record.getFields().get(1).getStringValue()), 0);
+        } finally {
+            EnvironmentUtils.cleanEnv();
+        }
+    }
+
+    @Test
+    public void onPublishThrottled() throws Exception {
+        EnvironmentUtils.envSetUp();
+        try {
+            IPlanExecutor executor = mock(IPlanExecutor.class);
+            CountDownLatch inserting = new CountDownLatch(1);
+            CountDownLatch storageEngineBusy = new CountDownLatch(1);
+            when(executor.processNonQuery(any())).thenAnswer(invocation -> {
+                inserting.countDown();
+                storageEngineBusy.await();
+                return true;
+            });
+            PayloadFormatter payloadFormat = PayloadFormatManager.getPayloadFormat("json");
+            // every message is a batch, and one batch can wait for the only lane
+            PublishHandler handler = new PublishHandler(executor, payloadFormat, 1, 60_000, 1, 1);
+
+            handler.onPublish(createMessage(createPayload(1)));
+            assertTrue(inserting.await(10, TimeUnit.SECONDS));
+            handler.onPublish(createMessage(createPayload(2)));
+            // the lane is full, so the broker thread waits instead of queuing the batch
+            Thread publisher = new Thread(() -> handler.onPublish(createMessage(createPayload(3))));
+            publisher.start();
+            publisher.join(500);
+            assertTrue(publisher.isAlive());
+            assertEquals(1, handler.getBatcher().getThrottledRowNum());
+
+            storageEngineBusy.countDown();
+            publisher.join(10_000);
+            assertFalse(publisher.isAlive());
+            handler.close();
+            assertEquals(3, handler.getBatcher().getCommittedRowNum());
+            assertEquals(0, handler.getBatcher().getFailedRowNum());
+        } finally {
+            EnvironmentUtils.cleanEnv();
+        }
+    }
+
+    private static String createPayload(long timestamp) {
+        return "{\"device\":\"root.sg.d0\",\"timestamp\":" + timestamp
+            + ",\"measurements\":[\"s1\"],\"values\":[" + timestamp + "]}";
+    }
+
+    private InterceptPublishMessage createMessage(String payload) {
+        ByteBuf buf = Unpooled.copiedBuffer(payload, StandardCharsets.UTF_8);
+        MqttPublishVariableHeader variableHeader = new MqttPublishVariableHeader("root.sg", 1);
+        MqttFixedHeader fixedHeader = new MqttFixedHeader(MqttMessageType.PUBLISH, false,
+            MqttQoS.AT_LEAST_ONCE, false, 1);
+        return new InterceptPublishMessage(
+            new MqttPublishMessage(fixedHeader, variableHeader, buf), null, null);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.qp.Planner;
+import org.apache.iotdb.db.qp.executor.IPlanExecutor;
+import org.apache.iotdb.db.qp.executor.PlanExecutor;
+import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.QueryResourceManager;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AggregationExecutorTest {
+
+  private static final int DEVICE_NUM = 4;
+  private static final int MEASUREMENT_NUM = 5;
+  private static final int POINT_NUM = 100;
+  private static final String AGGREGATION_SQL =
+      "select count(*), sum(*), max_time(*) from root.sg.*";
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private final IPlanExecutor queryExecutor = new PlanExecutor();
+  private final Planner processor = new Planner();
+  private int prevMaxAggregationParallelism;
+
+  public AggregationExecutorTest() throws QueryProcessException {
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    prevMaxAggregationParallelism = config.getMaxAggregationParallelism();
+    EnvironmentUtils.envSetUp();
+    queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan("SET STORAGE GROUP TO root.sg"));
+    for (int d = 0; d < DEVICE_NUM; d++) {
+      for (int m = 0; m < MEASUREMENT_NUM; m++) {
+        queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan(String.format(
+            "CREATE TIMESERIES root.sg.d%d.s%d WITH DATATYPE=INT64, ENCODING=RLE", d, m)));
+      }
+      for (int t = 1; t <= POINT_NUM; t++) {
+        queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan(String.format(
+            "insert into root.sg.d%d(timestamp,s0,s1,s2,s3,s4) values(%d,%d,%d,%d,%d,%d)", d, t,
+            t, t + 1, t + 2, t + 3, t + 4)));
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    config.setMaxAggregationParallelism(prevMaxAggregationParallelism);
+    EnvironmentUtils.cleanEnv();
+  }
+
+  @Test
+  public void testParallelAggregation() throws Exception {
+    config.setMaxAggregationParallelism(1);
+    String sequentialResult = aggregate(EnvironmentUtils.TEST_QUERY_CONTEXT);
+    config.setMaxAggregationParallelism(4);
+    String parallelResult = aggregate(EnvironmentUtils.TEST_QUERY_CONTEXT);
+    assertEquals(sequentialResult, parallelResult);
+
+    // both count(*) and max_time(*) of every series are POINT_NUM
+    String[] fields = parallelResult.split("\t");
+    assertEquals(1 + 3 * DEVICE_NUM * MEASUREMENT_NUM, fields.length);
+    int pointNumFieldCnt = 0;
+    for (int i = 1; i < fields.length; i++) {
+      if (fields[i].equals(Integer.toString(POINT_NUM))) {
+        pointNumFieldCnt++;
+      }
+    }
+    assertEquals(2 * DEVICE_NUM * MEASUREMENT_NUM, pointNumFieldCnt);
+  }
+
+  @Test
+  public void testInterruptedAggregation() throws Exception {
+    config.setMaxAggregationParallelism(4);
+    long queryId = QueryResourceManager.getInstance().assignQueryId(true, 1024, -1);
+    QueryContext context = new QueryContext(queryId);
+    QueryResourceManager.getInstance().registerQueryContext(context);
+    // the session of the query is closed
+    QueryResourceManager.getInstance().endQuery(queryId);
+    try {
+      aggregate(context);
+      fail("The aggregation should be interrupted");
+    } catch (QueryProcessException e) {
+      assertTrue(e.getMessage().contains("interrupted"));
+    }
+  }
+
+  @Test
+  public void testAggregationTimeout() throws Exception {
+    config.setMaxAggregationParallelism(4);
+    QueryContext context = new QueryContext(EnvironmentUtils.TEST_QUERY_JOB_ID);
+    context.setTimeout(1);
+    Thread.sleep(10);
+    try {
+      aggregate(context);
+      fail("The aggregation should time out");
+    } catch (QueryProcessException e) {
+      assertTrue(e.getMessage().contains("runs longer than"));
+    }
+  }
+
+  private String aggregate(QueryContext context) throws Exception {
+    QueryPlan queryPlan = (QueryPlan) processor.parseSQLToPhysicalPlan(AGGREGATION_SQL);
+    QueryDataSet dataSet = queryExecutor.processQuery(queryPlan, context);
+    assertTrue(dataSet.hasNext());
+    RowRecord record = dataSet.next();
+    return record.toString();
+  }
+}
@@ -40,6 +40,7 @@ import org.apache.iotdb.db.engine.StorageEngine;
 import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.exception.DiskSpaceInsufficientException;
+import org.apache.iotdb.db.exception.LoadFileException;
 import org.apache.iotdb.db.exception.StartupException;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
@@ -49,6 +50,7 @@ import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.sync.conf.SyncConstant;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.db.utils.FileLoaderUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -141,6 +143,7 @@ public class FileLoaderTest {
     }
 
     assertTrue(getReceiverFolderFile().exists());
+    long loadedTsFileNum = FileLoaderManager.getInstance().getLoadedTsFileNum();
     for (List<File> set : allFileList.values()) {
       for (File newTsFile : set) {
         if (!newTsFile.getName().endsWith(TsFileResource.RESOURCE_SUFFIX)) {
@@ -165,6 +168,7 @@ public class FileLoaderTest {
     }
 
     assertFalse(new File(getReceiverFolderFile(), SyncConstant.RECEIVER_DATA_FOLDER_NAME).exists());
+    assertEquals(loadedTsFileNum + 30, FileLoaderManager.getInstance().getLoadedTsFileNum());
     Map<String, Set<String>> sequenceLoadedFileMap = new HashMap<>();
     for (int i = 0; i < 3; i++) {
       StorageGroupProcessor processor = StorageEngine.getInstance().getProcessor(new PartialPath(SG_NAME + i));
@@ -335,6 +339,46 @@ public class FileLoaderTest {
     }
   }
 
+  @Test
+  public void prepareAndLoadTsfile()
+      throws IOException, StorageEngineException, IllegalPathException, LoadFileException {
+    File syncFile = createSyncedTsFile();
+    TsFileResource tsFileResource = new TsFileResource(syncFile);
+    FileLoaderUtils.checkTsFileResource(tsFileResource);
+    StorageGroupProcessor processor = StorageEngine.getInstance()
+        .getProcessor(new PartialPath(SG_NAME + 0));
+
+    // the prepared file is in the data folder, but not loaded yet
+    assertTrue(StorageEngine.getInstance().prepareNewTsFileForSync(tsFileResource));
+    assertFalse(syncFile.exists());
+    assertTrue(tsFileResource.getTsFile().exists());
+    assertTrue(new File(tsFileResource.getTsFile() + TsFileResource.RESOURCE_SUFFIX).exists());
+    assertTrue(processor.getSequenceFileTreeSet().isEmpty());
+
+    // a file of the same name is not prepared again
+    TsFileResource duplicatedResource = new TsFileResource(createSyncedTsFile());
+    FileLoaderUtils.checkTsFileResource(duplicatedResource);
+    assertFalse(StorageEngine.getInstance().prepareNewTsFileForSync(duplicatedResource));
+
+    assertTrue(StorageEngine.getInstance().loadPreparedTsFileForSync(tsFileResource) >= 0);
+    assertEquals(1, processor.getSequenceFileTreeSet().size());
+    assertEquals(-1, StorageEngine.getInstance().loadPreparedTsFileForSync(tsFileResource));
+    assertEquals(1, processor.getSequenceFileTreeSet().size());
+  }
+
+  private File createSyncedTsFile() throws IOException {
+    File syncFile = new File(getSnapshotFolder(), SG_NAME + 0 + File.separator + "1"
+        + IoTDBConstant.FILE_NAME_SEPARATOR + "1" + IoTDBConstant.FILE_NAME_SEPARATOR + "0.tsfile");
+    syncFile.getParentFile().mkdirs();
+    assertTrue(syncFile.createNewFile());
+    TsFileResource tsFileResource = new TsFileResource(syncFile);
+    tsFileResource.putStartTime("root.sg0.d0", 10);
+    tsFileResource.putEndTime("root.sg0.d0", 15);
+    tsFileResource.setHistoricalVersions(Collections.singleton(1L));
+    tsFileResource.serialize();
+    return syncFile;
+  }
+
   private File getReceiverFolderFile() {
     return new File(dataDir + File.separatorChar + SyncConstant.SYNC_RECEIVER + File.separatorChar
         + "127.0.0.1_5555");
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.receiver.transfer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.db.sync.receiver.load.FileLoaderManager;
+import org.apache.iotdb.db.sync.sender.transfer.PipelinedSyncServiceClient;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.db.utils.SyncUtils;
+import org.apache.iotdb.service.sync.thrift.ConfirmInfo;
+import org.apache.iotdb.service.sync.thrift.SyncService;
+import org.apache.iotdb.service.sync.thrift.SyncStatus;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.server.ServerContext;
+import org.apache.thrift.server.TServerEventHandler;
+import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.transport.TFastFramedTransport;
+import org.apache.thrift.transport.TServerSocket;
+import org.apache.thrift.transport.TTransport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SyncServiceImplTest {
+
+  private static final String SG = "root.sg";
+
+  private static final int CHUNK_SIZE = 1000;
+
+  private TThreadPoolServer server;
+
+  private int port;
+
+  private byte[] content;
+
+  private String md5;
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    FileLoaderManager.getInstance().start();
+    SyncServiceImpl serviceImpl = new SyncServiceImpl();
+    ServerSocket serverSocket = new ServerSocket(0);
+    port = serverSocket.getLocalPort();
+    TThreadPoolServer.Args args = new TThreadPoolServer.Args(new TServerSocket(serverSocket))
+        .processor(new SyncService.Processor<>(serviceImpl))
+        .transportFactory(new TFastFramedTransport.Factory())
+        .protocolFactory(new TBinaryProtocol.Factory());
+    server = new TThreadPoolServer(args);
+    server.setServerEventHandler(new TServerEventHandler() {
+      @Override
+      public void preServe() {
+        // nothing
+      }
+
+      @Override
+      public ServerContext createContext(TProtocol input, TProtocol output) {
+        return null;
+      }
+
+      @Override
+      public void deleteContext(ServerContext serverContext, TProtocol input, TProtocol output) {
+        serviceImpl.handleClientExit();
+      }
+
+      @Override
+      public void processContext(ServerContext serverContext, TTransport inputTransport,
+          TTransport outputTransport) {
+        // nothing
+      }
+    });
+    new Thread(server::serve).start();
+    while (!server.isServing()) {
+      Thread.sleep(10);
+    }
+
+    content = new byte[CHUNK_SIZE * 10];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) (i % 7);
+    }
+    MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+    md5 = new BigInteger(1, md.digest(content)).toString(16);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.stop();
+    FileLoaderManager.getInstance().stop();
+    EnvironmentUtils.cleanEnv();
+  }
+
+  private PipelinedSyncServiceClient connect() throws Exception {
+    PipelinedSyncServiceClient client = new PipelinedSyncServiceClient("127.0.0.1", port, 5000);
+    client.connect();
+    ConfirmInfo info = new ConfirmInfo("127.0.0.1", "uuid",
+        IoTDBDescriptor.getInstance().getConfig().getPartitionInterval(), IoTDBConstant.VERSION);
+    assertEquals(SyncConstant.SUCCESS_CODE, client.check(info).code);
+    return client;
+  }
+
+  /**
+   * send the chunks of the content in [from, to) without waiting for the responses.
+   */
+  private void sendChunks(PipelinedSyncServiceClient client, int from, int to, boolean compress)
+      throws Exception {
+    for (int offset = from; offset < to; offset += CHUNK_SIZE) {
+      byte[] chunk = Arrays.copyOfRange(content, offset, offset + CHUNK_SIZE);
+      client.sendData(SyncUtils.encodeChunk(chunk, chunk.length, compress));
+    }
+    assertEquals((to - from) / CHUNK_SIZE, client.getPendingNum());
+    while (client.getPendingNum() > 0) {
+      assertEquals(SyncConstant.SUCCESS_CODE, client.receiveData().code);
+    }
+  }
+
+  @Test
+  public void testPipelinedTransfer() throws Exception {
+    PipelinedSyncServiceClient client = connect();
+    assertEquals(SyncConstant.SUCCESS_CODE, client.startSync().code);
+    assertEquals(SyncConstant.SUCCESS_CODE, client.init(SG).code);
+
+    SyncStatus status = client.initSyncData("1-1-0.tsfile.resource");
+    assertEquals("0", status.msg);
+    sendChunks(client, 0, content.length, true);
+    status = client.checkDataMD5(md5);
+    assertEquals(SyncConstant.SUCCESS_CODE, status.code);
+    assertEquals(md5, status.msg);
+
+    // the requests after the pipelined ones are in order
+    assertEquals("0", client.initSyncData("2-2-0.tsfile.resource").msg);
+    sendChunks(client, 0, content.length, false);
+    assertEquals(md5, client.checkDataMD5(md5).msg);
+    assertEquals(SyncConstant.SUCCESS_CODE, client.endSync().code);
+    client.close();
+  }
+
+  @Test
+  public void testResume() throws Exception {
+    PipelinedSyncServiceClient client = connect();
+    assertEquals(SyncConstant.SUCCESS_CODE, client.startSync().code);
+    assertEquals(SyncConstant.SUCCESS_CODE, client.init(SG).code);
+    assertEquals("0", client.initSyncData("1-1-0.tsfile.resource").msg);
+    sendChunks(client, 0, CHUNK_SIZE * 4, false);
+
+    // the connection is broken, and the sender joins its sync task by a new connection
+    client.close();
+    PipelinedSyncServiceClient newClient = connect();
+    assertEquals(SyncConstant.SUCCESS_CODE, newClient.init(SG).code);
+    SyncStatus status = newClient.initSyncData("1-1-0.tsfile.resource");
+    assertEquals(Integer.toString(CHUNK_SIZE * 4), status.msg);
+    sendChunks(newClient, CHUNK_SIZE * 4, content.length, true);
+    assertEquals(md5, newClient.checkDataMD5(md5).msg);
+    assertEquals(SyncConstant.SUCCESS_CODE, newClient.endSync().code);
+    newClient.close();
+  }
+
+  @Test
+  public void testWithoutSyncTask() throws Exception {
+    // the files cannot be received before startSync() creates or joins a sync task
+    PipelinedSyncServiceClient client = connect();
+    assertEquals(SyncConstant.ERROR_CODE, client.initSyncData("mlog.txt").code);
+    assertEquals(SyncConstant.ERROR_CODE, client.syncDeletedFileName("1-1-0.tsfile").code);
+    client.close();
+  }
+
+  @Test
+  public void testChunkCodec() throws Exception {
+    ByteBuffer raw = SyncUtils.encodeChunk(content, CHUNK_SIZE, false);
+    assertEquals(SyncConstant.CHUNK_RAW, raw.get(0));
+    ByteBuffer compressed = SyncUtils.encodeChunk(content, content.length, true);
+    assertEquals(SyncConstant.CHUNK_LZ4, compressed.get(0));
+
+    ByteBuffer data = SyncUtils.decodeChunk(compressed);
+    assertEquals(content.length, data.remaining());
+    byte[] bytes = new byte[data.remaining()];
+    data.get(bytes);
+    assertEquals(Arrays.toString(content), Arrays.toString(bytes));
+    assertEquals(CHUNK_SIZE, SyncUtils.decodeChunk(raw).remaining());
+  }
+}
@@ -18,10 +18,13 @@
  */
 package org.apache.iotdb.db.utils.datastructure;
 
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import org.apache.iotdb.db.rescon.PrimitiveArrayManager;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.utils.TsPrimitiveType.TsLong;
 import org.junit.Assert;
@@ -74,4 +77,79 @@ public class LongTVListTest {
       Assert.assertEquals(inputs.get((int)i).getValue().getLong(), tvList.getLong((int)i));
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testSnapshot() {
+    LongTVList tvList = new LongTVList();
+    for (long i = 0; i < 1000; i++) {
+      tvList.putLong(i, i);
+    }
+    TVList snapshot = tvList.getSnapshot();
+
+    // appending, sorting and deleting do not change the points in the snapshot
+    for (long i = 2000; i > 1000; i--) {
+      tvList.putLong(i, i);
+    }
+    tvList.putLong(500, -1);
+    tvList.sort();
+    tvList.delete(100, 200);
+    Assert.assertEquals(1000, snapshot.size());
+    for (int i = 0; i < snapshot.size(); i++) {
+      Assert.assertEquals(i, snapshot.getTime(i));
+      Assert.assertEquals(i, snapshot.getLong(i));
+    }
+
+    // the arrays of the snapshot are not reused after the list is cleared
+    tvList.clear();
+    LongTVList another = new LongTVList();
+    for (long i = 0; i < 1000; i++) {
+      another.putLong(i, -i);
+    }
+    for (int i = 0; i < snapshot.size(); i++) {
+      Assert.assertEquals(i, snapshot.getLong(i));
+    }
+    another.clear();
+  }
+
+  @Test
+  public void testUnsortedSnapshot() {
+    LongTVList tvList = new LongTVList();
+    for (long i = 1000; i > 0; i--) {
+      tvList.putLong(i, i);
+    }
+    TVList snapshot = tvList.getSnapshot();
+    snapshot.sort();
+    for (int i = 0; i < snapshot.size(); i++) {
+      Assert.assertEquals(i + 1, snapshot.getTime(i));
+    }
+    // sorting the snapshot does not change the list
+    Assert.assertEquals(1000, tvList.getTime(0));
+    tvList.clear();
+  }
+
+  @Test
+  public void testPutLongsFromBuffer() {
+    int num = PrimitiveArrayManager.ARRAY_SIZE * 3;
+    long[] times = new long[num];
+    ByteBuffer buffer = ByteBuffer.allocate(num * Long.BYTES);
+    for (int i = 0; i < num; i++) {
+      times[i] = i;
+      buffer.putLong(i * 2L);
+    }
+    buffer.flip();
+
+    LongTVList tvList = new LongTVList();
+    tvList.putLong(-1, -2);
+    // the values cross the boundaries of the primitive arrays
+    LongBuffer view = buffer.asLongBuffer();
+    tvList.putLongs(times, view, 0, PrimitiveArrayManager.ARRAY_SIZE - 1);
+    tvList.putLongs(times, view, PrimitiveArrayManager.ARRAY_SIZE - 1, num);
+    Assert.assertEquals(num + 1, tvList.size());
+    Assert.assertEquals(-1, tvList.getMinTime());
+    for (int i = 0; i < tvList.size(); i++) {
+      Assert.assertEquals(i - 1, tvList.getTime(i));
+      Assert.assertEquals((i - 1) * 2L, tvList.getLong(i));
+    }
+    tvList.clear();
+  }
+}
@@ -24,8 +24,15 @@ import static junit.framework.TestCase.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
@@ -34,7 +41,9 @@ import org.apache.iotdb.db.qp.physical.crud.DeletePlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.db.utils.QueryDataSetUtils;
 import org.apache.iotdb.db.writelog.io.ILogReader;
+import org.apache.iotdb.db.writelog.manager.MultiFileLogNodeManager;
 import org.apache.iotdb.db.writelog.node.ExclusiveWriteLogNode;
 import org.apache.iotdb.db.writelog.node.WriteLogNode;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -125,6 +134,67 @@ public class WriteLogNodeTest {
     logNode.delete();
   }
 
+  @Test
+  public void testWriteSlicedTablet() throws IOException, IllegalPathException {
+    // a tablet whose columns are sliced from the serialized request is written into the WAL
+    // without being serialized again
+    String identifier = "root.logTestDevice";
+    WriteLogNode logNode = new ExclusiveWriteLogNode(identifier);
+
+    int rowCount = 5;
+    List<Integer> dataTypes = Arrays.asList(TSDataType.DOUBLE.ordinal(),
+        TSDataType.INT64.ordinal(), TSDataType.TEXT.ordinal(), TSDataType.BOOLEAN.ordinal());
+    ByteBuffer timeBuffer = ByteBuffer.allocate(rowCount * Long.BYTES);
+    ByteBuffer valueBuffer = ByteBuffer.allocate(1024);
+    for (int r = 0; r < rowCount; r++) {
+      timeBuffer.putLong(100L + r);
+      valueBuffer.putDouble(r * 1.5);
+    }
+    for (int r = 0; r < rowCount; r++) {
+      valueBuffer.putLong(r * 10L);
+    }
+    for (int r = 0; r < rowCount; r++) {
+      byte[] text = ("hh" + r).getBytes();
+      valueBuffer.putInt(text.length);
+      valueBuffer.put(text);
+    }
+    for (int r = 0; r < rowCount; r++) {
+      valueBuffer.put((byte) (r % 2));
+    }
+    timeBuffer.flip();
+    valueBuffer.flip();
+
+    InsertTabletPlan tabletPlan = new InsertTabletPlan(new PartialPath(identifier),
+        new String[]{"s1", "s2", "s3", "s4"}, dataTypes);
+    tabletPlan.setTimeBuffer(timeBuffer);
+    tabletPlan.setTimes(QueryDataSetUtils.readTimesFromBuffer(timeBuffer, rowCount));
+    tabletPlan.setColumns(
+        QueryDataSetUtils.sliceValuesFromBuffer(valueBuffer, dataTypes, 4, rowCount));
+    tabletPlan.setRowCount(rowCount);
+    assertTrue(tabletPlan.getColumns()[0] instanceof ByteBuffer);
+    assertTrue(tabletPlan.getColumns()[2] instanceof Binary[]);
+    assertEquals(40, tabletPlan.composeLastTimeValuePair(1).getValue().getLong());
+    // only a part of the tablet is written
+    tabletPlan.setStart(1);
+    tabletPlan.setEnd(4);
+    logNode.write(tabletPlan);
+    logNode.close();
+
+    ILogReader reader = logNode.getLogReader();
+    InsertTabletPlan newPlan = (InsertTabletPlan) reader.next();
+    reader.close();
+    assertEquals(3, newPlan.getRowCount());
+    for (int r = 0; r < 3; r++) {
+      assertEquals(101L + r, newPlan.getTimes()[r]);
+      assertEquals((r + 1) * 1.5, ((double[]) newPlan.getColumns()[0])[r], 0.0);
+      assertEquals((r + 1) * 10L, ((long[]) newPlan.getColumns()[1])[r]);
+      assertEquals("hh" + (r + 1), ((Binary[]) newPlan.getColumns()[2])[r].getStringValue());
+      assertEquals((r + 1) % 2 == 1, ((boolean[]) newPlan.getColumns()[3])[r]);
+    }
+
+    logNode.delete();
+  }
+
   @Test
   public void testNotifyFlush() throws IOException, IllegalPathException {
     // this test writes a few logs and sync them
@@ -163,7 +233,8 @@ public class WriteLogNodeTest {
   }
 
   @Test
-  public void testSyncThreshold() throws IOException, IllegalPathException {
+  public void testSyncThreshold()
+      throws IOException, IllegalPathException, InterruptedException {
     // this test checks that if more logs than threshold are written, a sync will be triggered.
     int flushWalThreshold = config.getFlushWalThreshold();
     config.setFlushWalThreshold(2);
@@ -183,12 +254,45 @@ public class WriteLogNodeTest {
     assertTrue(!walFile.exists());
 
     logNode.write(deletePlan);
+    // the threshold sync is asynchronous, the full buffer is written in the background
+    for (int i = 0; i < 100 && !walFile.exists(); i++) {
+      Thread.sleep(50);
+    }
     assertTrue(walFile.exists());
 
     logNode.delete();
     config.setFlushWalThreshold(flushWalThreshold);
   }
 
+  @Test
+  public void testDoubleBuffer() throws IOException, IllegalPathException {
+    // this test writes more logs than one buffer can hold, so that the buffers are swapped and
+    // synced in the background several times, then checks that no log is lost or reordered
+    int bufferSize = config.getWalBufferSize();
+    config.setWalBufferSize(1024);
+    try {
+      String identifier = "root.logTestDevice";
+      WriteLogNode logNode = new ExclusiveWriteLogNode(identifier);
+      int planNum = 1000;
+      for (int i = 0; i < planNum; i++) {
+        logNode.write(new InsertRowPlan(new PartialPath(identifier), i, new String[]{"s1"},
+            new TSDataType[]{TSDataType.INT64}, new String[]{String.valueOf(i)}));
+      }
+      logNode.forceSync();
+
+      ILogReader reader = logNode.getLogReader();
+      for (int i = 0; i < planNum; i++) {
+        assertEquals(i, ((InsertRowPlan) reader.next()).getTime());
+      }
+      assertFalse(reader.hasNext());
+      reader.close();
+
+      logNode.delete();
+    } finally {
+      config.setWalBufferSize(bufferSize);
+    }
+  }
+
   @Test
   public void testDelete() throws IOException, IllegalPathException {
     // this test uses a dummy insert log node to insert a few logs and flushes them
@@ -236,4 +340,124 @@ public class WriteLogNodeTest {
 
     logNode.delete();
   }
+
+  @Test
+  public void testGroupCommit() throws Exception {
+    // this test lets concurrent writers write logs in group commit mode, then reads the logs from
+    // file after each writer returns
+    boolean enableGroupCommit = config.isEnableWalGroupCommit();
+    long forcePeriod = config.getForceWalPeriodInMs();
+    int bufferSize = config.getWalBufferSize();
+    config.setEnableWalGroupCommit(true);
+    config.setForceWalPeriodInMs(0);
+    // a small buffer so that writers have to wait for free buffers
+    config.setWalBufferSize(4 * 1024);
+    try {
+      String identifier = "root.logTestDevice";
+      WriteLogNode logNode = new ExclusiveWriteLogNode(identifier);
+
+      int threadNum = 8;
+      int planNumPerThread = 200;
+      ExecutorService pool = Executors.newFixedThreadPool(threadNum);
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < threadNum; i++) {
+        int threadIndex = i;
+        futures.add(pool.submit(() -> {
+          for (int j = 0; j < planNumPerThread; j++) {
+            logNode.write(new InsertRowPlan(new PartialPath(identifier),
+                threadIndex * planNumPerThread + j, new String[]{"s1"},
+                new TSDataType[]{TSDataType.INT64}, new String[]{String.valueOf(j)}));
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+      pool.shutdown();
+
+      // every write has returned, so all logs must be in the file without closing the node
+      ILogReader reader = logNode.getLogReader();
+      Set<Long> times = new HashSet<>();
+      while (reader.hasNext()) {
+        times.add(((InsertRowPlan) reader.next()).getTime());
+      }
+      reader.close();
+      assertEquals(threadNum * planNumPerThread, times.size());
+
+      logNode.notifyStartFlush();
+      logNode.write(new InsertRowPlan(new PartialPath(identifier), -1, new String[]{"s1"},
+          new TSDataType[]{TSDataType.INT64}, new String[]{"1"}));
+      logNode.notifyEndFlush();
+      reader = logNode.getLogReader();
+      assertEquals(-1, ((InsertRowPlan) reader.next()).getTime());
+      assertFalse(reader.hasNext());
+      reader.close();
+
+      logNode.delete();
+    } finally {
+      config.setEnableWalGroupCommit(enableGroupCommit);
+      config.setForceWalPeriodInMs(forcePeriod);
+      config.setWalBufferSize(bufferSize);
+    }
+  }
+
+  @Test
+  public void testGroupCommitAfterClose() throws Exception {
+    boolean enableGroupCommit = config.isEnableWalGroupCommit();
+    config.setEnableWalGroupCommit(true);
+    try {
+      String identifier = "root.logTestDevice";
+      WriteLogNode logNode = new ExclusiveWriteLogNode(identifier);
+      for (int i = 0; i < 2; i++) {
+        logNode.write(new InsertRowPlan(new PartialPath(identifier), i, new String[]{"s1"},
+            new TSDataType[]{TSDataType.INT64}, new String[]{"1"}));
+        // the buffers are returned to the pool, and taken again by the next write
+        logNode.close();
+      }
+
+      ILogReader reader = logNode.getLogReader();
+      assertEquals(0, ((InsertRowPlan) reader.next()).getTime());
+      assertEquals(1, ((InsertRowPlan) reader.next()).getTime());
+      assertFalse(reader.hasNext());
+      reader.close();
+      logNode.delete();
+    } finally {
+      config.setEnableWalGroupCommit(enableGroupCommit);
+    }
+  }
+
+  @Test
+  public void testGroupCommitBufferPoolLimit() {
+    int bufferSize = config.getWalBufferSize();
+    int bufferNum = config.getWalGroupCommitBufferNum();
+    // buffers of another size in the pool are dropped by the allocation
+    config.setWalBufferSize(1024);
+    config.setWalGroupCommitBufferNum(2);
+    try {
+      MultiFileLogNodeManager manager = MultiFileLogNodeManager.getInstance();
+      List<ByteBuffer> buffers = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        buffers.add(manager.allocateGroupCommitBuffer());
+      }
+      for (ByteBuffer buffer : buffers) {
+        manager.releaseGroupCommitBuffer(buffer);
+      }
+
+      // only wal_group_commit_buffer_num buffers are kept in the pool
+      int reusedNum = 0;
+      for (int i = 0; i < 3; i++) {
+        ByteBuffer buffer = manager.allocateGroupCommitBuffer();
+        for (ByteBuffer released : buffers) {
+          if (buffer == released) {
+            reusedNum++;
+          }
+        }
+      }
+      assertEquals(2, reusedNum);
+    } finally {
+      config.setWalBufferSize(bufferSize);
+      config.setWalGroupCommitBufferNum(bufferNum);
+    }
+  }
 }
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session.mqtt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+/**
+ * BinaryPayloadEncoder encodes rows into the payloads of the "binary" mqtt_payload_formatter of
+ * the server, see BinaryPayloadFormatter for the format. The rows are buffered by addRecord() and
+ * addTablet(), and encoded into a payload by encode().
+ *
+ * The device and measurement ids are sent once for a connection and referred to by a number
+ * afterwards, so the payloads of an encoder must be published in order by one client with QoS 1
+ * or 2, and reset() must be called after the client reconnects. An encoder is not thread-safe.
+ */
+public class BinaryPayloadEncoder {
+
+  public static final byte VERSION = 1;
+  public static final byte FLAG_RESET = 0x01;
+  /**
+   * the same as the max dictionary size of a client on the server.
+   */
+  public static final int DEFAULT_MAX_DICTIONARY_SIZE = 1 << 16;
+
+  private final int maxDictionarySize;
+  private final Map<String, Integer> dictionary = new HashMap<>();
+  private boolean needReset = true;
+  private final List<Group> groups = new ArrayList<>();
+
+  public BinaryPayloadEncoder() {
+    this(DEFAULT_MAX_DICTIONARY_SIZE);
+  }
+
+  public BinaryPayloadEncoder(int maxDictionarySize) {
+    this.maxDictionarySize = Math.min(maxDictionarySize, DEFAULT_MAX_DICTIONARY_SIZE);
+  }
+
+  /**
+   * forget the ids sent, the next payload redefines the ids it uses. It should be called after the
+   * client reconnects, as the server may have lost the ids of the client.
+   */
+  public void reset() {
+    needReset = true;
+  }
+
+  /**
+   * buffer a row, which is merged into the last group if it has the same device, measurements and
+   * types.
+   */
+  public void addRecord(String deviceId, long time, List<String> measurements,
+      List<TSDataType> types, List<Object> values) {
+    Group group = getGroup(deviceId, measurements, types);
+    group.addTime(time);
+    for (int i = 0; i < values.size(); i++) {
+      writeValue(group.values, group.types[i], values.get(i));
+    }
+  }
+
+  /**
+   * buffer the rows of a tablet.
+   */
+  public void addTablet(Tablet tablet) {
+    List<MeasurementSchema> schemas = tablet.getSchemas();
+    List<String> measurements = new ArrayList<>(schemas.size());
+    List<TSDataType> types = new ArrayList<>(schemas.size());
+    for (MeasurementSchema schema : schemas) {
+      measurements.add(schema.getMeasurementId());
+      types.add(schema.getType());
+    }
+    Group group = getGroup(tablet.deviceId, measurements, types);
+    for (int row = 0; row < tablet.rowSize; row++) {
+      group.addTime(tablet.timestamps[row]);
+      for (int i = 0; i < schemas.size(); i++) {
+        writeValue(group.values, group.types[i], getValue(tablet.values[i], group.types[i], row));
+      }
+    }
+  }
+
+  private Group getGroup(String deviceId, List<String> measurements, List<TSDataType> types) {
+    if (!groups.isEmpty()) {
+      Group last = groups.get(groups.size() - 1);
+      if (last.device.equals(deviceId) && last.measurements.equals(measurements)
+          && Arrays.asList(last.types).equals(types)) {
+        return last;
+      }
+    }
+    Group group = new Group(deviceId, new ArrayList<>(measurements),
+        types.toArray(new TSDataType[0]));
+    groups.add(group);
+    return group;
+  }
+
+  /**
+   * @return the number of rows buffered
+   */
+  public int getRowNum() {
+    int rowNum = 0;
+    for (Group group : groups) {
+      rowNum += group.rowNum;
+    }
+    return rowNum;
+  }
+
+  /**
+   * encode the buffered rows into a payload, and clear them.
+   */
+  public byte[] encode() {
+    Set<String> strings = new LinkedHashSet<>();
+    for (Group group : groups) {
+      strings.add(group.device);
+      strings.addAll(group.measurements);
+    }
+    if (strings.size() > maxDictionarySize) {
+      throw new IllegalStateException(String.format(
+          "%d devices and measurements exceed the max dictionary size %d, encode fewer rows",
+          strings.size(), maxDictionarySize));
+    }
+    int newStringNum = 0;
+    for (String string : strings) {
+      if (!dictionary.containsKey(string)) {
+        newStringNum++;
+      }
+    }
+    if (needReset || dictionary.size() + newStringNum > maxDictionarySize) {
+      dictionary.clear();
+      needReset = true;
+    }
+
+    PublicBAOS out = new PublicBAOS();
+    out.write(VERSION);
+    out.write(needReset ? FLAG_RESET : 0);
+    PublicBAOS definitions = new PublicBAOS();
+    int definitionNum = 0;
+    for (String string : strings) {
+      if (!dictionary.containsKey(string)) {
+        int id = dictionary.size();
+        dictionary.put(string, id);
+        ReadWriteForEncodingUtils.writeUnsignedVarInt(id, definitions);
+        writeBytes(definitions, string.getBytes(StandardCharsets.UTF_8));
+        definitionNum++;
+      }
+    }
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(definitionNum, out);
+    out.write(definitions.getBuf(), 0, definitions.size());
+
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(groups.size(), out);
+    for (Group group : groups) {
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(dictionary.get(group.device), out);
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(group.types.length, out);
+      for (int i = 0; i < group.types.length; i++) {
+        ReadWriteForEncodingUtils
+            .writeUnsignedVarInt(dictionary.get(group.measurements.get(i)), out);
+        out.write(group.types[i].enumToByte());
+      }
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(group.rowNum, out);
+      long previous = 0;
+      for (int r = 0; r < group.rowNum; r++) {
+        writeZigzagVarLong(out, group.times[r] - previous);
+        previous = group.times[r];
+      }
+      out.write(group.values.getBuf(), 0, group.values.size());
+    }
+
+    groups.clear();
+    needReset = false;
+    return out.toByteArray();
+  }
+
+  private static Object getValue(Object column, TSDataType type, int row) {
+    switch (type) {
+      case BOOLEAN:
+        return ((boolean[]) column)[row];
+      case INT32:
+        return ((int[]) column)[row];
+      case INT64:
+        return ((long[]) column)[row];
+      case FLOAT:
+        return ((float[]) column)[row];
+      case DOUBLE:
+        return ((double[]) column)[row];
+      case TEXT:
+        return ((Binary[]) column)[row];
+      default:
+        throw new UnSupportedDataTypeException(String.format("Data type %s is not supported.", type));
+    }
+  }
+
+  private static void writeValue(PublicBAOS out, TSDataType type, Object value) {
+    switch (type) {
+      case BOOLEAN:
+        out.write((boolean) value ? 1 : 0);
+        break;
+      case INT32:
+        writeZigzagVarLong(out, (int) value);
+        break;
+      case INT64:
+        writeZigzagVarLong(out, (long) value);
+        break;
+      case FLOAT:
+        int intBits = Float.floatToIntBits((float) value);
+        out.write(intBits >>> 24);
+        out.write(intBits >>> 16);
+        out.write(intBits >>> 8);
+        out.write(intBits);
+        break;
+      case DOUBLE:
+        long longBits = Double.doubleToLongBits((double) value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+          out.write((int) (longBits >>> shift));
+        }
+        break;
+      case TEXT:
+        writeBytes(out, value instanceof Binary ? ((Binary) value).getValues()
+            : value.toString().getBytes(StandardCharsets.UTF_8));
+        break;
+      default:
+        throw new UnSupportedDataTypeException(String.format("Data type %s is not supported.", type));
+    }
+  }
+
+  private static void writeBytes(PublicBAOS out, byte[] bytes) {
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(bytes.length, out);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private static void writeZigzagVarLong(PublicBAOS out, long value) {
+    long raw = (value << 1) ^ (value >> 63);
+    while ((raw & ~0x7FL) != 0) {
+      out.write((int) ((raw & 0x7F) | 0x80));
+      raw >>>= 7;
+    }
+    out.write((int) raw);
+  }
+
+  private static class Group {
+
+    private final String device;
+    private final List<String> measurements;
+    private final TSDataType[] types;
+    private long[] times = new long[16];
+    private int rowNum;
+    private final PublicBAOS values = new PublicBAOS();
+
+    private Group(String device, List<String> measurements, TSDataType[] types) {
+      this.device = device;
+      this.measurements = measurements;
+      this.types = types;
+    }
+
+    private void addTime(long time) {
+      if (rowNum == times.length) {
+        times = Arrays.copyOf(times, times.length * 2);
+      }
+      times[rowNum++] = time;
+    }
+  }
+}
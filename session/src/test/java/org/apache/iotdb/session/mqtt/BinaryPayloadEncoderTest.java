@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session.mqtt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.iotdb.db.mqtt.BinaryPayloadFormatter;
+import org.apache.iotdb.db.mqtt.Message;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.Test;
+
+public class BinaryPayloadEncoderTest {
+
+  @Test
+  public void testEncodeTablet() {
+    List<MeasurementSchema> schemas = new ArrayList<>();
+    schemas.add(new MeasurementSchema("s0", TSDataType.BOOLEAN));
+    schemas.add(new MeasurementSchema("s1", TSDataType.INT32));
+    schemas.add(new MeasurementSchema("s2", TSDataType.INT64));
+    schemas.add(new MeasurementSchema("s3", TSDataType.FLOAT));
+    schemas.add(new MeasurementSchema("s4", TSDataType.DOUBLE));
+    schemas.add(new MeasurementSchema("s5", TSDataType.TEXT));
+    Tablet tablet = new Tablet("root.sg.d1", schemas, 10);
+    for (int row = 0; row < 10; row++) {
+      tablet.addTimestamp(row, 1600000000000L - row * 1000L);
+      tablet.addValue("s0", row, row % 2 == 0);
+      tablet.addValue("s1", row, -row);
+      tablet.addValue("s2", row, Long.MAX_VALUE - row);
+      tablet.addValue("s3", row, row * 1.5f);
+      tablet.addValue("s4", row, -row * 2.5);
+      tablet.addValue("s5", row, new Binary("v" + row));
+      tablet.rowSize++;
+    }
+
+    BinaryPayloadEncoder encoder = new BinaryPayloadEncoder();
+    encoder.addTablet(tablet);
+    assertEquals(10, encoder.getRowNum());
+    BinaryPayloadFormatter formatter = new BinaryPayloadFormatter();
+    List<Message> messages = formatter.format("c", Unpooled.wrappedBuffer(encoder.encode()));
+
+    assertEquals(10, messages.size());
+    assertEquals(0, encoder.getRowNum());
+    Message message = messages.get(3);
+    assertEquals("root.sg.d1", message.getDevice());
+    assertEquals(Long.valueOf(1599999997000L), message.getTimestamp());
+    assertEquals(Arrays.asList("s0", "s1", "s2", "s3", "s4", "s5"), message.getMeasurements());
+    assertEquals(Arrays.asList(false, -3, Long.MAX_VALUE - 3, 4.5f, -7.5, new Binary("v3")),
+        message.getTypedValues());
+  }
+
+  @Test
+  public void testEncodeRecords() {
+    BinaryPayloadEncoder encoder = new BinaryPayloadEncoder();
+    BinaryPayloadFormatter formatter = new BinaryPayloadFormatter();
+    List<String> measurements = Arrays.asList("s1", "s2");
+    List<TSDataType> types = Arrays.asList(TSDataType.INT64, TSDataType.TEXT);
+    encoder.addRecord("root.sg.d1", 1, measurements, types, Arrays.asList(1L, "a"));
+    encoder.addRecord("root.sg.d1", 2, measurements, types, Arrays.asList(2L, "b"));
+    encoder.addRecord("root.sg.d2", 1, measurements, types, Arrays.asList(3L, "c"));
+    byte[] first = encoder.encode();
+    assertEquals(3, formatter.format("c", Unpooled.wrappedBuffer(first)).size());
+
+    // the ids have been sent, so the second payload is smaller
+    encoder.addRecord("root.sg.d1", 3, measurements, types, Arrays.asList(4L, "d"));
+    byte[] second = encoder.encode();
+    Message message = formatter.format("c", Unpooled.wrappedBuffer(second)).get(0);
+    assertEquals("root.sg.d1", message.getDevice());
+    assertEquals(Arrays.asList(4L, new Binary("d")), message.getTypedValues());
+
+    // the server has lost the ids, e.g., it is restarted
+    formatter = new BinaryPayloadFormatter();
+    assertNull(formatter.format("c", Unpooled.wrappedBuffer(second)));
+    encoder.reset();
+    encoder.addRecord("root.sg.d1", 3, measurements, types, Arrays.asList(4L, "d"));
+    assertEquals(1, formatter.format("c", Unpooled.wrappedBuffer(encoder.encode())).size());
+  }
+
+  @Test
+  public void testFullDictionary() {
+    BinaryPayloadEncoder encoder = new BinaryPayloadEncoder(4);
+    BinaryPayloadFormatter formatter = new BinaryPayloadFormatter();
+    List<TSDataType> types = Arrays.asList(TSDataType.INT32);
+    for (int i = 0; i < 10; i++) {
+      encoder.addRecord("root.sg.d" + i, i, Arrays.asList("s"), types, Arrays.asList(i));
+      Message message = formatter.format("c", Unpooled.wrappedBuffer(encoder.encode())).get(0);
+      assertEquals("root.sg.d" + i, message.getDevice());
+      assertEquals(i, message.getTypedValues().get(0));
+    }
+  }
+}
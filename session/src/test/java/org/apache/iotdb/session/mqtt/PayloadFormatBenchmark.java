@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session.mqtt;
+
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.db.mqtt.BinaryPayloadFormatter;
+import org.apache.iotdb.db.mqtt.JSONPayloadFormatter;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+/**
+ * Compares the payload size and the time of the server to format the same rows published in JSON
+ * and in binary.
+ */
+public class PayloadFormatBenchmark {
+
+  private static final int DEVICE_NUM = 100;
+  private static final int MEASUREMENT_NUM = 10;
+  private static final int ROW_NUM = 100;
+  private static final int ROUND = 200;
+
+  public static void main(String[] args) {
+    List<byte[]> jsonPayloads = new ArrayList<>();
+    List<byte[]> binaryPayloads = new ArrayList<>();
+    BinaryPayloadEncoder encoder = new BinaryPayloadEncoder();
+    long jsonSize = 0;
+    long binarySize = 0;
+    for (int d = 0; d < DEVICE_NUM; d++) {
+      Tablet tablet = createTablet("root.sg.d" + d);
+      byte[] json = toJson(tablet).getBytes(StandardCharsets.UTF_8);
+      encoder.addTablet(tablet);
+      byte[] binary = encoder.encode();
+      jsonPayloads.add(json);
+      binaryPayloads.add(binary);
+      jsonSize += json.length;
+      binarySize += binary.length;
+    }
+    System.out.println(String.format("The payload size: json %d bytes, binary %d bytes",
+        jsonSize, binarySize));
+
+    JSONPayloadFormatter jsonFormatter = new JSONPayloadFormatter();
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < ROUND; i++) {
+      for (byte[] payload : jsonPayloads) {
+        jsonFormatter.format(Unpooled.wrappedBuffer(payload));
+      }
+    }
+    System.out.println(String.format("The total time of json: %d ms",
+        System.currentTimeMillis() - startTime));
+
+    BinaryPayloadFormatter binaryFormatter = new BinaryPayloadFormatter();
+    startTime = System.currentTimeMillis();
+    for (int i = 0; i < ROUND; i++) {
+      // the ids are defined by the first payload
+      for (byte[] payload : binaryPayloads) {
+        binaryFormatter.format("benchmark", Unpooled.wrappedBuffer(payload));
+      }
+    }
+    System.out.println(String.format("The total time of binary: %d ms",
+        System.currentTimeMillis() - startTime));
+  }
+
+  private static Tablet createTablet(String deviceId) {
+    List<MeasurementSchema> schemas = new ArrayList<>();
+    for (int m = 0; m < MEASUREMENT_NUM; m++) {
+      schemas.add(new MeasurementSchema("s" + m, TSDataType.DOUBLE));
+    }
+    Tablet tablet = new Tablet(deviceId, schemas, ROW_NUM);
+    for (int row = 0; row < ROW_NUM; row++) {
+      tablet.addTimestamp(row, 1600000000000L + row * 1000L);
+      for (int m = 0; m < MEASUREMENT_NUM; m++) {
+        tablet.addValue("s" + m, row, Math.random());
+      }
+      tablet.rowSize++;
+    }
+    return tablet;
+  }
+
+  private static String toJson(Tablet tablet) {
+    StringBuilder builder = new StringBuilder();
+    builder.append("{\"device\":\"").append(tablet.deviceId).append("\",\"timestamps\":[");
+    for (int row = 0; row < tablet.rowSize; row++) {
+      builder.append(row == 0 ? "" : ",").append(tablet.timestamps[row]);
+    }
+    builder.append("],\"measurements\":[");
+    for (int m = 0; m < MEASUREMENT_NUM; m++) {
+      builder.append(m == 0 ? "" : ",").append("\"s").append(m).append('"');
+    }
+    builder.append("],\"values\":[");
+    for (int row = 0; row < tablet.rowSize; row++) {
+      builder.append(row == 0 ? "[" : ",[");
+      for (int m = 0; m < MEASUREMENT_NUM; m++) {
+        builder.append(m == 0 ? "" : ",").append(((double[]) tablet.values[m])[row]);
+      }
+      builder.append(']');
+    }
+    return builder.append("]}").toString();
+  }
+}
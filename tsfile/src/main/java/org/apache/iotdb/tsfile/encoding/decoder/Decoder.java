@@ -144,6 +144,81 @@ public abstract class Decoder {
     throw new TsFileDecodingException("Method readBigDecimal is not supported by Decoder");
   }
 
+  /**
+   * decode at most length booleans into values starting from offset.
+   *
+   * @return the number of decoded values, which is less than length only if there are no more
+   * values in the buffer
+   */
+  public int readBooleans(ByteBuffer buffer, boolean[] values, int offset, int length)
+      throws IOException {
+    int cnt = 0;
+    while (cnt < length && hasNext(buffer)) {
+      values[offset + cnt++] = readBoolean(buffer);
+    }
+    return cnt;
+  }
+
+  /**
+   * decode at most length ints into values starting from offset.
+   *
+   * @return the number of decoded values, which is less than length only if there are no more
+   * values in the buffer
+   */
+  public int readInts(ByteBuffer buffer, int[] values, int offset, int length)
+      throws IOException {
+    int cnt = 0;
+    while (cnt < length && hasNext(buffer)) {
+      values[offset + cnt++] = readInt(buffer);
+    }
+    return cnt;
+  }
+
+  /**
+   * decode at most length longs into values starting from offset.
+   *
+   * @return the number of decoded values, which is less than length only if there are no more
+   * values in the buffer
+   */
+  public int readLongs(ByteBuffer buffer, long[] values, int offset, int length)
+      throws IOException {
+    int cnt = 0;
+    while (cnt < length && hasNext(buffer)) {
+      values[offset + cnt++] = readLong(buffer);
+    }
+    return cnt;
+  }
+
+  /**
+   * decode at most length floats into values starting from offset.
+   *
+   * @return the number of decoded values, which is less than length only if there are no more
+   * values in the buffer
+   */
+  public int readFloats(ByteBuffer buffer, float[] values, int offset, int length)
+      throws IOException {
+    int cnt = 0;
+    while (cnt < length && hasNext(buffer)) {
+      values[offset + cnt++] = readFloat(buffer);
+    }
+    return cnt;
+  }
+
+  /**
+   * decode at most length doubles into values starting from offset.
+   *
+   * @return the number of decoded values, which is less than length only if there are no more
+   * values in the buffer
+   */
+  public int readDoubles(ByteBuffer buffer, double[] values, int offset, int length)
+      throws IOException {
+    int cnt = 0;
+    while (cnt < length && hasNext(buffer)) {
+      values[offset + cnt++] = readDouble(buffer);
+    }
+    return cnt;
+  }
+
   public abstract boolean hasNext(ByteBuffer buffer) throws IOException;
 
   public abstract void reset();
@@ -79,6 +79,15 @@ public abstract class DeltaBinaryDecoder extends Decoder {
     return (int) Math.ceil((double) (v) / 8.0);
   }
 
+  /**
+   * the buffers are reused by the packs, as all packs of a page are usually of the same size.
+   */
+  protected void allocateDeltaBuf() {
+    if (deltaBuf == null || deltaBuf.length < encodingLength) {
+      deltaBuf = new byte[encodingLength];
+    }
+  }
+
   @Override
   public boolean hasNext(ByteBuffer buffer) throws IOException {
     return (nextReadIndex < readIntTotalCount) || buffer.remaining() > 0;
@@ -116,6 +125,28 @@ public abstract class DeltaBinaryDecoder extends Decoder {
       return readT(buffer);
     }
 
+    /**
+     * copy the decoded values of the packs directly.
+     */
+    @Override
+    public int readInts(ByteBuffer buffer, int[] values, int offset, int length) {
+      int cnt = 0;
+      while (cnt < length) {
+        if (nextReadIndex == readIntTotalCount) {
+          if (!buffer.hasRemaining()) {
+            break;
+          }
+          values[offset + cnt++] = loadIntBatch(buffer);
+        } else {
+          int copyNum = Math.min(length - cnt, readIntTotalCount - nextReadIndex);
+          System.arraycopy(data, nextReadIndex, values, offset + cnt, copyNum);
+          nextReadIndex += copyNum;
+          cnt += copyNum;
+        }
+      }
+      return cnt;
+    }
+
     /**
      * if remaining data has been run out, load next pack from InputStream.
      *
@@ -129,8 +160,8 @@ public abstract class DeltaBinaryDecoder extends Decoder {
       readHeader(buffer);
 
       encodingLength = ceil(packNum * packWidth);
-      deltaBuf = new byte[encodingLength];
-      buffer.get(deltaBuf);
+      allocateDeltaBuf();
+      buffer.get(deltaBuf, 0, encodingLength);
       allocateDataArray();
 
       previous = firstValue;
@@ -155,7 +186,9 @@ public abstract class DeltaBinaryDecoder extends Decoder {
 
     @Override
     protected void allocateDataArray() {
-      data = new int[packNum];
+      if (data == null || data.length < packNum) {
+        data = new int[packNum];
+      }
     }
 
     @Override
@@ -210,8 +243,8 @@ public abstract class DeltaBinaryDecoder extends Decoder {
       readHeader(buffer);
 
       encodingLength = ceil(packNum * packWidth);
-      deltaBuf = new byte[encodingLength];
-      buffer.get(deltaBuf);
+      allocateDeltaBuf();
+      buffer.get(deltaBuf, 0, encodingLength);
       allocateDataArray();
 
       previous = firstValue;
@@ -234,6 +267,28 @@ public abstract class DeltaBinaryDecoder extends Decoder {
       return readT(buffer);
     }
 
+    /**
+     * copy the decoded values of the packs directly.
+     */
+    @Override
+    public int readLongs(ByteBuffer buffer, long[] values, int offset, int length) {
+      int cnt = 0;
+      while (cnt < length) {
+        if (nextReadIndex == readIntTotalCount) {
+          if (!buffer.hasRemaining()) {
+            break;
+          }
+          values[offset + cnt++] = loadIntBatch(buffer);
+        } else {
+          int copyNum = Math.min(length - cnt, readIntTotalCount - nextReadIndex);
+          System.arraycopy(data, nextReadIndex, values, offset + cnt, copyNum);
+          nextReadIndex += copyNum;
+          cnt += copyNum;
+        }
+      }
+      return cnt;
+    }
+
     @Override
     protected void readHeader(ByteBuffer buffer) {
       minDeltaBase = ReadWriteIOUtils.readLong(buffer);
@@ -242,7 +297,9 @@ public abstract class DeltaBinaryDecoder extends Decoder {
 
     @Override
     protected void allocateDataArray() {
-      data = new long[packNum];
+      if (data == null || data.length < packNum) {
+        data = new long[packNum];
+      }
     }
 
     @Override
@@ -79,6 +79,38 @@ public class PlainDecoder extends Decoder {
     return buffer.getDouble();
   }
 
+  @Override
+  public int readInts(ByteBuffer buffer, int[] values, int offset, int length) {
+    int cnt = Math.min(length, buffer.remaining() / Integer.BYTES);
+    buffer.asIntBuffer().get(values, offset, cnt);
+    buffer.position(buffer.position() + cnt * Integer.BYTES);
+    return cnt;
+  }
+
+  @Override
+  public int readLongs(ByteBuffer buffer, long[] values, int offset, int length) {
+    int cnt = Math.min(length, buffer.remaining() / Long.BYTES);
+    buffer.asLongBuffer().get(values, offset, cnt);
+    buffer.position(buffer.position() + cnt * Long.BYTES);
+    return cnt;
+  }
+
+  @Override
+  public int readFloats(ByteBuffer buffer, float[] values, int offset, int length) {
+    int cnt = Math.min(length, buffer.remaining() / Float.BYTES);
+    buffer.asFloatBuffer().get(values, offset, cnt);
+    buffer.position(buffer.position() + cnt * Float.BYTES);
+    return cnt;
+  }
+
+  @Override
+  public int readDoubles(ByteBuffer buffer, double[] values, int offset, int length) {
+    int cnt = Math.min(length, buffer.remaining() / Double.BYTES);
+    buffer.asDoubleBuffer().get(values, offset, cnt);
+    buffer.position(buffer.position() + cnt * Double.BYTES);
+    return cnt;
+  }
+
   @Override
   public Binary readBinary(ByteBuffer buffer) {
     int length = readInt(buffer);
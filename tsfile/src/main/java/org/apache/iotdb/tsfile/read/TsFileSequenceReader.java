@@ -62,6 +62,7 @@ import org.apache.iotdb.tsfile.utils.Pair;
 import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 import org.apache.iotdb.tsfile.utils.VersionUtils;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.tsfile.write.writer.TsFileOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -728,6 +729,23 @@ public class TsFileSequenceReader implements AutoCloseable {
     return new Chunk(header, buffer, metaData.getDeleteIntervalList());
   }
 
+  /**
+   * transfer a chunk, including its header, to the output as it is stored in this file, so the
+   * chunk is neither decompressed nor decoded.
+   *
+   * @param metaData the metadata of the chunk
+   * @param output the output which the chunk is written to at its current position
+   * @return the header of the chunk
+   */
+  public ChunkHeader transferChunk(ChunkMetadata metaData, TsFileOutput output)
+      throws IOException {
+    int chunkHeadSize = ChunkHeader.getSerializedSize(metaData.getMeasurementUid());
+    ChunkHeader header = readChunkHeader(metaData.getOffsetOfChunkHeader(), chunkHeadSize, false);
+    output.transferFrom(tsFileInput, metaData.getOffsetOfChunkHeader(),
+        (long) header.getSerializedSize() + header.getDataSize());
+    return header;
+  }
+
   /**
    * read all Chunks of given device.
    * <p>
@@ -22,6 +22,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiPredicate;
+import java.util.function.IntFunction;
 import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -419,6 +420,115 @@ public class BatchData implements Serializable {
   }
 
 
+  /**
+   * put the first length points in the arrays, which is much faster than putting them one by one.
+   */
+  public void putBooleans(long[] times, boolean[] values, int length) {
+    putArrays(times, values, booleanRet, length);
+  }
+
+  /**
+   * put the first length points in the arrays, which is much faster than putting them one by one.
+   */
+  public void putInts(long[] times, int[] values, int length) {
+    putArrays(times, values, intRet, length);
+  }
+
+  /**
+   * put the first length points in the arrays, which is much faster than putting them one by one.
+   */
+  public void putLongs(long[] times, long[] values, int length) {
+    putArrays(times, values, longRet, length);
+  }
+
+  /**
+   * put the first length points in the arrays, which is much faster than putting them one by one.
+   */
+  public void putFloats(long[] times, float[] values, int length) {
+    putArrays(times, values, floatRet, length);
+  }
+
+  /**
+   * put the first length points in the arrays, which is much faster than putting them one by one.
+   */
+  public void putDoubles(long[] times, double[] values, int length) {
+    putArrays(times, values, doubleRet, length);
+  }
+
+  /**
+   * @param values    a primitive array of the data type
+   * @param valueRet  the value list of the data type
+   */
+  private void putArrays(long[] times, Object values, List<?> valueRet, int length) {
+    int putNum = 0;
+    while (putNum < length) {
+      if (writeCurArrayIndex == capacity) {
+        grow(length - putNum);
+      }
+      int copyNum = Math.min(length - putNum, capacity - writeCurArrayIndex);
+      System.arraycopy(times, putNum, timeRet.get(writeCurListIndex), writeCurArrayIndex, copyNum);
+      System.arraycopy(values, putNum, valueRet.get(writeCurListIndex), writeCurArrayIndex,
+          copyNum);
+      writeCurArrayIndex += copyNum;
+      count += copyNum;
+      putNum += copyNum;
+    }
+  }
+
+  /**
+   * the same as the put methods when the arrays are full, except that the only array is enlarged
+   * at once to hold the required number of points if it is possible.
+   */
+  private void grow(int requiredNum) {
+    switch (dataType) {
+      case BOOLEAN:
+        grow(booleanRet, boolean[]::new, requiredNum);
+        break;
+      case INT32:
+        grow(intRet, int[]::new, requiredNum);
+        break;
+      case INT64:
+        grow(longRet, long[]::new, requiredNum);
+        break;
+      case FLOAT:
+        grow(floatRet, float[]::new, requiredNum);
+        break;
+      case DOUBLE:
+        grow(doubleRet, double[]::new, requiredNum);
+        break;
+      case TEXT:
+        grow(binaryRet, Binary[]::new, requiredNum);
+        break;
+      default:
+        throw new UnSupportedDataTypeException(String.valueOf(dataType));
+    }
+  }
+
+  private <T> void grow(List<T> valueRet, IntFunction<T> arrayConstructor, int requiredNum) {
+    if (capacity >= capacityThreshold) {
+      timeRet.add(new long[capacity]);
+      valueRet.add(arrayConstructor.apply(capacity));
+      writeCurListIndex++;
+      writeCurArrayIndex = 0;
+    } else {
+      int newCapacity = capacity << 1;
+      while (newCapacity < capacity + requiredNum && newCapacity < capacityThreshold) {
+        newCapacity <<= 1;
+      }
+
+      long[] newTimeData = new long[newCapacity];
+      T newValueData = arrayConstructor.apply(newCapacity);
+
+      System.arraycopy(timeRet.get(0), 0, newTimeData, 0, capacity);
+      System.arraycopy(valueRet.get(0), 0, newValueData, 0, capacity);
+
+      timeRet.set(0, newTimeData);
+      valueRet.set(0, newValueData);
+
+      capacity = newCapacity;
+    }
+  }
+
   public boolean getBoolean() {
     return this.booleanRet.get(readCurListIndex)[readCurArrayIndex];
   }
@@ -53,6 +53,30 @@ public class GroupByFilter implements Filter, Serializable {
 
   @Override
   public boolean satisfy(long time, Object value) {
+    return satisfyTime(time);
+  }
+
+  @Override
+  public boolean satisfy(long time, int value) {
+    return satisfyTime(time);
+  }
+
+  @Override
+  public boolean satisfy(long time, long value) {
+    return satisfyTime(time);
+  }
+
+  @Override
+  public boolean satisfy(long time, float value) {
+    return satisfyTime(time);
+  }
+
+  @Override
+  public boolean satisfy(long time, double value) {
+    return satisfyTime(time);
+  }
+
+  private boolean satisfyTime(long time) {
     if (time < startTime || time >= endTime)
       return false;
     else
@@ -47,6 +47,38 @@ public interface Filter {
    */
   boolean satisfy(long time, Object value);
 
+  /**
+   * The same as {@link #satisfy(long, Object)}, but the int value is not boxed if the filter
+   * supports it.
+   */
+  default boolean satisfy(long time, int value) {
+    return satisfy(time, (Object) value);
+  }
+
+  /**
+   * The same as {@link #satisfy(long, Object)}, but the long value is not boxed if the filter
+   * supports it.
+   */
+  default boolean satisfy(long time, long value) {
+    return satisfy(time, (Object) value);
+  }
+
+  /**
+   * The same as {@link #satisfy(long, Object)}, but the float value is not boxed if the filter
+   * supports it.
+   */
+  default boolean satisfy(long time, float value) {
+    return satisfy(time, (Object) value);
+  }
+
+  /**
+   * The same as {@link #satisfy(long, Object)}, but the double value is not boxed if the filter
+   * supports it.
+   */
+  default boolean satisfy(long time, double value) {
+    return satisfy(time, (Object) value);
+  }
+
   /**
    * To examine whether the min time and max time are satisfied with the filter.
    *
@@ -58,6 +58,57 @@ public abstract class UnaryFilter<T extends Comparable<T>> implements Filter, Se
     return filterType;
   }
 
+  /**
+   * @param compareResult the result of comparing the value of this filter to the time or value of
+   *                      a point, by the same rule as {@link Comparable#compareTo}
+   * @return whether the point satisfies this filter
+   */
+  protected abstract boolean satisfyCompareResult(int compareResult);
+
+  @Override
+  public boolean satisfy(long time, int value) {
+    if (filterType == FilterType.TIME_FILTER) {
+      return satisfyCompareResult(Long.compare((Long) this.value, time));
+    }
+    if (this.value instanceof Integer) {
+      return satisfyCompareResult(Integer.compare((Integer) this.value, value));
+    }
+    return satisfy(time, (Object) value);
+  }
+
+  @Override
+  public boolean satisfy(long time, long value) {
+    if (filterType == FilterType.TIME_FILTER) {
+      return satisfyCompareResult(Long.compare((Long) this.value, time));
+    }
+    if (this.value instanceof Long) {
+      return satisfyCompareResult(Long.compare((Long) this.value, value));
+    }
+    return satisfy(time, (Object) value);
+  }
+
+  @Override
+  public boolean satisfy(long time, float value) {
+    if (filterType == FilterType.TIME_FILTER) {
+      return satisfyCompareResult(Long.compare((Long) this.value, time));
+    }
+    if (this.value instanceof Float) {
+      return satisfyCompareResult(Float.compare((Float) this.value, value));
+    }
+    return satisfy(time, (Object) value);
+  }
+
+  @Override
+  public boolean satisfy(long time, double value) {
+    if (filterType == FilterType.TIME_FILTER) {
+      return satisfyCompareResult(Long.compare((Long) this.value, time));
+    }
+    if (this.value instanceof Double) {
+      return satisfyCompareResult(Double.compare((Double) this.value, value));
+    }
+    return satisfy(time, (Object) value);
+  }
+
   @Override
   public abstract String toString();
 
@@ -58,6 +58,26 @@ public class OrFilter extends BinaryFilter implements Serializable {
     return left.satisfy(time, value) || right.satisfy(time, value);
   }
 
+  @Override
+  public boolean satisfy(long time, int value) {
+    return left.satisfy(time, value) || right.satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfy(long time, long value) {
+    return left.satisfy(time, value) || right.satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfy(long time, float value) {
+    return left.satisfy(time, value) || right.satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfy(long time, double value) {
+    return left.satisfy(time, value) || right.satisfy(time, value);
+  }
+
   @Override
   public boolean satisfyStartEndTime(long startTime, long endTime) {
     return left.satisfyStartEndTime(startTime, endTime) || right
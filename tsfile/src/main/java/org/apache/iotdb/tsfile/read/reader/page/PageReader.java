@@ -70,6 +70,13 @@ public class PageReader implements IPageReader {
 
   private int deleteCursor = 0;
 
+  private static final int DEFAULT_TIMESTAMP_ARRAY_SIZE = 1024;
+
+  /**
+   * the number of timestamps decoded by readAllTimestamps.
+   */
+  private int timestampNum;
+
   public PageReader(ByteBuffer pageData, TSDataType dataType, Decoder valueDecoder,
       Decoder timeDecoder, Filter filter) {
     this(null, pageData, dataType, valueDecoder, timeDecoder, filter);
@@ -109,52 +116,132 @@ public class PageReader implements IPageReader {
 
     BatchData pageData = BatchDataFactory.createBatchData(dataType, ascending);
 
-    while (timeDecoder.hasNext(timeBuffer)) {
-      long timestamp = timeDecoder.readLong(timeBuffer);
-      switch (dataType) {
-        case BOOLEAN:
-          boolean aBoolean = valueDecoder.readBoolean(valueBuffer);
-          if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aBoolean))) {
-            pageData.putBoolean(timestamp, aBoolean);
-          }
+    // decode the whole page into primitive arrays, filter the points in place and then put the
+    // remaining ones into the batch data at once
+    long[] timestamps = readAllTimestamps();
+    int pointNum = timestampNum;
+    boolean needFilter = filter != null || deleteIntervalList != null;
+    int satisfiedNum = 0;
+    switch (dataType) {
+      case BOOLEAN:
+        boolean[] booleans = new boolean[pointNum];
+        pointNum = valueDecoder.readBooleans(valueBuffer, booleans, 0, pointNum);
+        if (!needFilter) {
+          pageData.putBooleans(timestamps, booleans, pointNum);
           break;
-        case INT32:
-          int anInt = valueDecoder.readInt(valueBuffer);
-          if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, anInt))) {
-            pageData.putInt(timestamp, anInt);
+        }
+        for (int i = 0; i < pointNum; i++) {
+          if (!isDeleted(timestamps[i])
+              && (filter == null || filter.satisfy(timestamps[i], booleans[i]))) {
+            timestamps[satisfiedNum] = timestamps[i];
+            booleans[satisfiedNum++] = booleans[i];
           }
+        }
+        pageData.putBooleans(timestamps, booleans, satisfiedNum);
+        break;
+      case INT32:
+        int[] ints = new int[pointNum];
+        pointNum = valueDecoder.readInts(valueBuffer, ints, 0, pointNum);
+        if (!needFilter) {
+          pageData.putInts(timestamps, ints, pointNum);
           break;
-        case INT64:
-          long aLong = valueDecoder.readLong(valueBuffer);
-          if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aLong))) {
-            pageData.putLong(timestamp, aLong);
+        }
+        for (int i = 0; i < pointNum; i++) {
+          if (!isDeleted(timestamps[i])
+              && (filter == null || filter.satisfy(timestamps[i], ints[i]))) {
+            timestamps[satisfiedNum] = timestamps[i];
+            ints[satisfiedNum++] = ints[i];
           }
+        }
+        pageData.putInts(timestamps, ints, satisfiedNum);
+        break;
+      case INT64:
+        long[] longs = new long[pointNum];
+        pointNum = valueDecoder.readLongs(valueBuffer, longs, 0, pointNum);
+        if (!needFilter) {
+          pageData.putLongs(timestamps, longs, pointNum);
           break;
-        case FLOAT:
-          float aFloat = valueDecoder.readFloat(valueBuffer);
-          if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aFloat))) {
-            pageData.putFloat(timestamp, aFloat);
+        }
+        for (int i = 0; i < pointNum; i++) {
+          if (!isDeleted(timestamps[i])
+              && (filter == null || filter.satisfy(timestamps[i], longs[i]))) {
+            timestamps[satisfiedNum] = timestamps[i];
+            longs[satisfiedNum++] = longs[i];
           }
+        }
+        pageData.putLongs(timestamps, longs, satisfiedNum);
+        break;
+      case FLOAT:
+        float[] floats = new float[pointNum];
+        pointNum = valueDecoder.readFloats(valueBuffer, floats, 0, pointNum);
+        if (!needFilter) {
+          pageData.putFloats(timestamps, floats, pointNum);
           break;
-        case DOUBLE:
-          double aDouble = valueDecoder.readDouble(valueBuffer);
-          if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aDouble))) {
-            pageData.putDouble(timestamp, aDouble);
+        }
+        for (int i = 0; i < pointNum; i++) {
+          if (!isDeleted(timestamps[i])
+              && (filter == null || filter.satisfy(timestamps[i], floats[i]))) {
+            timestamps[satisfiedNum] = timestamps[i];
+            floats[satisfiedNum++] = floats[i];
           }
+        }
+        pageData.putFloats(timestamps, floats, satisfiedNum);
+        break;
+      case DOUBLE:
+        double[] doubles = new double[pointNum];
+        pointNum = valueDecoder.readDoubles(valueBuffer, doubles, 0, pointNum);
+        if (!needFilter) {
+          pageData.putDoubles(timestamps, doubles, pointNum);
           break;
-        case TEXT:
+        }
+        for (int i = 0; i < pointNum; i++) {
+          if (!isDeleted(timestamps[i])
+              && (filter == null || filter.satisfy(timestamps[i], doubles[i]))) {
+            timestamps[satisfiedNum] = timestamps[i];
+            doubles[satisfiedNum++] = doubles[i];
+          }
+        }
+        pageData.putDoubles(timestamps, doubles, satisfiedNum);
+        break;
+      case TEXT:
+        for (int i = 0; i < pointNum; i++) {
           Binary aBinary = valueDecoder.readBinary(valueBuffer);
-          if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aBinary))) {
-            pageData.putBinary(timestamp, aBinary);
+          if (!isDeleted(timestamps[i])
+              && (filter == null || filter.satisfy(timestamps[i], aBinary))) {
+            pageData.putBinary(timestamps[i], aBinary);
           }
-          break;
-        default:
-          throw new UnSupportedDataTypeException(String.valueOf(dataType));
-      }
+        }
+        break;
+      default:
+        throw new UnSupportedDataTypeException(String.valueOf(dataType));
     }
     return pageData.flip();
   }
 
+  /**
+   * decode all timestamps of the page, the number of which is set to timestampNum.
+   */
+  private long[] readAllTimestamps() throws IOException {
+    int initialSize = DEFAULT_TIMESTAMP_ARRAY_SIZE;
+    if (pageHeader != null && pageHeader.getStatistics() != null) {
+      // one more to avoid enlarging the array just to find there are no more timestamps
+      initialSize = (int) pageHeader.getNumOfValues() + 1;
+    }
+    long[] timestamps = new long[initialSize];
+    timestampNum = 0;
+    while (true) {
+      int remaining = timestamps.length - timestampNum;
+      int readNum = timeDecoder.readLongs(timeBuffer, timestamps, timestampNum, remaining);
+      timestampNum += readNum;
+      if (readNum < remaining) {
+        return timestamps;
+      }
+      long[] newTimestamps = new long[timestamps.length * 2];
+      System.arraycopy(timestamps, 0, newTimestamps, 0, timestampNum);
+      timestamps = newTimestamps;
+    }
+  }
+
   @Override
   public Statistics getStatistics() {
     return pageHeader.getStatistics();
@@ -25,6 +25,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.apache.iotdb.tsfile.read.reader.TsFileInput;
 
 /**
  * a TsFileOutput implementation with FileOutputStream. If the file is not
@@ -78,6 +80,36 @@ public class LocalTsFileOutput implements TsFileOutput {
     this.bufferedStream.flush();
   }
 
+  /**
+   * transfer the bytes with {@link FileChannel#transferTo(long, long,
+   * java.nio.channels.WritableByteChannel)} if the input is a local file, so the bytes may be
+   * copied by the operating system without going through the JVM.
+   */
+  @Override
+  public void transferFrom(TsFileInput input, long position, long count) throws IOException {
+    FileChannel source;
+    try {
+      source = input.wrapAsFileChannel();
+    } catch (UnsupportedOperationException e) {
+      TsFileOutput.super.transferFrom(input, position, count);
+      return;
+    }
+    // the bytes written before must reach the file first
+    bufferedStream.flush();
+    FileChannel target = outputStream.getChannel();
+    long transferred = 0;
+    while (transferred < count) {
+      long transferredThisTime = source.transferTo(position + transferred, count - transferred,
+          target);
+      if (transferredThisTime <= 0) {
+        throw new IOException(String.format("reach the end of the data. Size of data that want to "
+            + "transfer: %s, actual transferred size: %s, position: %s", count, transferred,
+            position));
+      }
+      transferred += transferredThisTime;
+    }
+  }
+
   @Override
   public void truncate(long size) throws IOException {
     outputStream.getChannel().truncate(size);
@@ -43,6 +43,7 @@ import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Chunk;
 import org.apache.iotdb.tsfile.read.common.Path;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
@@ -206,6 +207,23 @@ public class TsFileIOWriter {
     }
   }
 
+  /**
+   * Copy a whole chunk in another file into this file as it is stored, so the pages are neither
+   * decompressed nor decoded. Providing fast merge for IoTDB.
+   */
+  public void copyChunk(TsFileSequenceReader reader, ChunkMetadata chunkMetadata)
+      throws IOException {
+    long offsetOfChunkHeader = out.getPosition();
+    ChunkHeader chunkHeader = reader.transferChunk(chunkMetadata, out);
+    currentChunkMetadata = new ChunkMetadata(chunkHeader.getMeasurementID(),
+        chunkHeader.getDataType(), offsetOfChunkHeader, chunkMetadata.getStatistics());
+    endCurrentChunk();
+    if (logger.isDebugEnabled()) {
+      logger.debug("end copying a chunk:{}, totalvalue:{}", chunkMetadata,
+          chunkMetadata.getNumOfPoints());
+    }
+  }
+
   /**
    * end chunk and write some log.
    */
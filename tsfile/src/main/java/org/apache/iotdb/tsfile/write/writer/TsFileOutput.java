@@ -21,6 +21,8 @@ package org.apache.iotdb.tsfile.write.writer;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import org.apache.iotdb.tsfile.read.reader.TsFileInput;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 
 public interface TsFileOutput {
 
@@ -82,4 +84,23 @@ public interface TsFileOutput {
    */
   void truncate(long size) throws IOException;
 
+  /**
+   * Writes <code>count</code> bytes of the input from the given position to this output at the
+   * current position, without changing the position of the input. Implementations may transfer
+   * the bytes without copying them into the heap.
+   *
+   * @param input the source of the bytes
+   * @param position the position of the first byte in the input
+   * @param count the number of bytes to be transferred
+   * @throws IOException if an I/O error occurs or the input does not have enough bytes.
+   */
+  default void transferFrom(TsFileInput input, long position, long count) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) count);
+    if (ReadWriteIOUtils.readAsPossible(input, buffer, position, (int) count) != count) {
+      throw new IOException(String.format("reach the end of the data. Size of data that want to "
+          + "transfer: %s, position: %s", count, position));
+    }
+    buffer.flip();
+    write(buffer);
+  }
 }
@@ -69,6 +69,38 @@ public class BatchDataTest {
     }
   }
 
+  @Test
+  public void testPutArrays() {
+    BatchData batchData = new BatchData(TSDataType.INT64);
+    long[] times = new long[1500];
+    long[] values = new long[1500];
+    long time = 0;
+    for (int round = 0; round < 4; round++) {
+      // mix the points put one by one and the ones put in bulk
+      batchData.putLong(time, -time);
+      time++;
+      for (int i = 0; i < times.length; i++) {
+        times[i] = time;
+        values[i] = -time;
+        time++;
+      }
+      batchData.putLongs(times, values, times.length);
+    }
+    assertEquals(time, batchData.length());
+    for (int i = 0; i < time; i++) {
+      assertEquals(i, batchData.getTimeByIndex(i));
+      assertEquals(-i, batchData.getLongByIndex(i));
+    }
+    long expected = 0;
+    while (batchData.hasCurrent()) {
+      assertEquals(expected, batchData.currentTime());
+      assertEquals(-expected, batchData.getLong());
+      batchData.next();
+      expected++;
+    }
+    assertEquals(time, expected);
+  }
+
   @Test
   public void testSignal() {
     BatchData batchData = SignalBatchData.getInstance();
@@ -155,6 +155,27 @@ public class OperatorTest {
     }
   }
 
+  @Test
+  public void testPrimitiveSatisfy() {
+    Filter[] filters = new Filter[]{ValueFilter.gt(0.0f), ValueFilter.gtEq(0.0f),
+        ValueFilter.lt(0.0f), ValueFilter.ltEq(0.0f), ValueFilter.eq(0.0f), ValueFilter.notEq(0.0f),
+        FilterFactory.not(ValueFilter.eq(Float.NaN))};
+    float[] values = new float[]{-1.0f, -0.0f, 0.0f, 1.0f, Float.NaN, Float.NEGATIVE_INFINITY};
+    // the primitive overloads should give the same result as the boxed one
+    for (Filter filter : filters) {
+      for (float value : values) {
+        Assert.assertEquals(filter.toString() + " " + value, filter.satisfy(1L, (Object) value),
+            filter.satisfy(1L, value));
+      }
+    }
+
+    Filter timeFilter = FilterFactory.and(TimeFilter.gtEq(10L), TimeFilter.notEq(20L));
+    for (long time = 0; time < 30; time++) {
+      Assert.assertEquals(timeFilter.satisfy(time, (Object) time), timeFilter.satisfy(time, time));
+      Assert.assertEquals(timeFilter.satisfy(time, (Object) 1.0), timeFilter.satisfy(time, 1.0));
+    }
+  }
+
   @Test
   public void efficiencyTest() {
     Filter andFilter = FilterFactory.and(TimeFilter.gt(100L), ValueFilter.lt(50.9));
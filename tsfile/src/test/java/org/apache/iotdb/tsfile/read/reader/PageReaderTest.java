@@ -40,6 +40,10 @@ import org.apache.iotdb.tsfile.encoding.encoder.SinglePrecisionEncoderV1;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
+import org.apache.iotdb.tsfile.read.filter.ValueFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
 import org.apache.iotdb.tsfile.read.reader.page.PageReader;
 import org.apache.iotdb.tsfile.utils.Binary;
 import org.apache.iotdb.tsfile.write.page.PageWriter;
@@ -198,6 +202,41 @@ public class PageReaderTest {
       }
     }
 
+    public void testFilter(TSDataType dataType, Filter filter) {
+      try {
+        pageWriter = new PageWriter();
+        pageWriter.setTimeEncoder(new DeltaBinaryEncoder.LongDeltaEncoder());
+        pageWriter.setValueEncoder(this.encoder);
+        pageWriter.initStatistics(dataType);
+        writeData();
+
+        ByteBuffer page = ByteBuffer.wrap(pageWriter.getUncompressedBytes().array());
+        PageReader pageReader = new PageReader(page, dataType, decoder,
+            new DeltaBinaryDecoder.LongDeltaDecoder(), filter);
+        List<TimeRange> deleteIntervals = new ArrayList<>();
+        deleteIntervals.add(new TimeRange(5, 10));
+        pageReader.setDeleteIntervalList(deleteIntervals);
+        BatchData data = pageReader.getAllSatisfiedPageData();
+
+        int satisfiedNum = 0;
+        for (int i = 0; i < count; i++) {
+          Object value = generateValueByIndex(i);
+          if ((i < 5 || i > 10) && filter.satisfy(i, value)) {
+            Assert.assertTrue(data.hasCurrent());
+            Assert.assertEquals(i, data.currentTime());
+            Assert.assertEquals(value, data.currentValue());
+            data.next();
+            satisfiedNum++;
+          }
+        }
+        Assert.assertFalse(data.hasCurrent());
+        Assert.assertTrue(satisfiedNum > 0);
+      } catch (IOException e) {
+        e.printStackTrace();
+        Assert.fail("Fail when executing test: [" + name + "]");
+      }
+    }
+
     public void testDelete(TSDataType dataType) {
       try {
         pageWriter = new PageWriter();
@@ -267,6 +306,29 @@ public class PageReaderTest {
     public abstract Object generateValueByIndex(int i);
   }
 
+  @Test
+  public void testPageFilter() {
+    LoopWriteReadTest test = new LoopWriteReadTest("Test INT64 with filter",
+        new PlainEncoder(EndianType.BIG_ENDIAN, TSDataType.INT64, 1000),
+        new PlainDecoder(EndianType.BIG_ENDIAN), TSDataType.INT64, 10000) {
+      @Override
+      public Object generateValueByIndex(int i) {
+        return Long.valueOf(i % 100);
+      }
+    };
+    test.testFilter(TSDataType.INT64,
+        FilterFactory.and(ValueFilter.gt(50L), TimeFilter.ltEq(5000L)));
+
+    test = new LoopWriteReadTest("Test DOUBLE with filter", new DoublePrecisionEncoderV1(),
+        new DoublePrecisionDecoderV1(), TSDataType.DOUBLE, 10000) {
+      @Override
+      public Object generateValueByIndex(int i) {
+        return Double.valueOf(i) / 10;
+      }
+    };
+    test.testFilter(TSDataType.DOUBLE, FilterFactory.or(ValueFilter.lt(20.0), TimeFilter.gt(9000L)));
+  }
+
   @Test
   public void testPageDelete() {
     LoopWriteReadTest test = new LoopWriteReadTest("Test INT64",
@@ -20,17 +20,25 @@ package org.apache.iotdb.tsfile.write;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
 import org.apache.iotdb.tsfile.constant.TestConstant;
 import org.apache.iotdb.tsfile.file.MetaMarker;
 import org.apache.iotdb.tsfile.file.footer.ChunkGroupFooter;
 import org.apache.iotdb.tsfile.file.header.ChunkHeader;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.TimeSeriesMetadataTest;
 import org.apache.iotdb.tsfile.file.metadata.TsFileMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.file.metadata.utils.TestHelper;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.LongDataPoint;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.apache.iotdb.tsfile.write.schema.Schema;
 import org.apache.iotdb.tsfile.write.writer.TsFileIOWriter;
@@ -110,4 +118,59 @@ public class TsFileIOWriterTest {
     TsFileMetadata metaData = reader.readFileMetadata();
     Assert.assertEquals(1, metaData.getMetadataIndex().getChildren().size());
   }
+
+  @Test
+  public void copyChunkTest() throws Exception {
+    String sourceFile = TestConstant.BASE_OUTPUT_PATH.concat("copyChunkSource.tsfile");
+    String targetFile = TestConstant.BASE_OUTPUT_PATH.concat("copyChunkTarget.tsfile");
+    Path path = new Path(deviceId, "sensor01");
+    try {
+      TsFileWriter sourceWriter = new TsFileWriter(new File(sourceFile));
+      sourceWriter.registerTimeseries(path,
+          new MeasurementSchema("sensor01", TSDataType.INT64, TSEncoding.TS_2DIFF));
+      for (long time = 0; time < 1000; time++) {
+        TSRecord record = new TSRecord(time, deviceId);
+        record.addTuple(new LongDataPoint("sensor01", time * 2));
+        sourceWriter.write(record);
+        if ((time + 1) % 100 == 0) {
+          sourceWriter.flushAllChunkGroups();
+        }
+      }
+      sourceWriter.close();
+
+      try (TsFileSequenceReader sourceReader = new TsFileSequenceReader(sourceFile)) {
+        List<ChunkMetadata> chunkMetadataList = sourceReader.getChunkMetadataList(path);
+        Assert.assertEquals(10, chunkMetadataList.size());
+        TsFileIOWriter targetWriter = new TsFileIOWriter(new File(targetFile));
+        targetWriter.startChunkGroup(deviceId);
+        for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+          targetWriter.copyChunk(sourceReader, chunkMetadata);
+        }
+        targetWriter.endChunkGroup();
+        targetWriter.writeVersion(0L);
+        targetWriter.endFile();
+      }
+
+      try (TsFileSequenceReader targetReader = new TsFileSequenceReader(targetFile)) {
+        long time = 0;
+        for (ChunkMetadata chunkMetadata : targetReader.getChunkMetadataList(path)) {
+          ChunkReader chunkReader = new ChunkReader(targetReader.readMemChunk(chunkMetadata),
+              null);
+          while (chunkReader.hasNextSatisfiedPage()) {
+            BatchData batchData = chunkReader.nextPageData();
+            while (batchData.hasCurrent()) {
+              Assert.assertEquals(time, batchData.currentTime());
+              Assert.assertEquals(time * 2, batchData.getLong());
+              time++;
+              batchData.next();
+            }
+          }
+        }
+        Assert.assertEquals(1000, time);
+      }
+    } finally {
+      new File(sourceFile).delete();
+      new File(targetFile).delete();
+    }
+  }
 }